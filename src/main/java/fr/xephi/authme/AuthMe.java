@@ -7,7 +7,8 @@ import fr.euphyllia.energie.Energie;
 import fr.euphyllia.energie.model.SchedulerType;
 import fr.xephi.authme.api.v3.AuthMeApi;
 import fr.xephi.authme.command.CommandHandler;
-import fr.xephi.authme.data.auth.PlayerAuth;
+import fr.xephi.authme.data.limbo.persistence.LimboPersistence;
+import fr.xephi.authme.datasource.AsyncDataSource;
 import fr.xephi.authme.datasource.DataSource;
 import fr.xephi.authme.initialization.DataFolder;
 import fr.xephi.authme.initialization.DataSourceProvider;
@@ -23,11 +24,13 @@ import fr.xephi.authme.listener.PlayerListener19;
 import fr.xephi.authme.listener.PlayerListener19Spigot;
 import fr.xephi.authme.listener.ServerListener;
 import fr.xephi.authme.mail.EmailService;
+import fr.xephi.authme.metrics.MetricsService;
 import fr.xephi.authme.output.ConsoleLoggerFactory;
 import fr.xephi.authme.process.Management;
 import fr.xephi.authme.security.crypts.Sha256;
 import fr.xephi.authme.service.BackupService;
 import fr.xephi.authme.service.BukkitService;
+import fr.xephi.authme.service.IpHistoryService;
 import fr.xephi.authme.service.MigrationService;
 import fr.xephi.authme.service.bungeecord.BungeeReceiver;
 import fr.xephi.authme.service.yaml.YamlParseException;
@@ -40,7 +43,6 @@ import fr.xephi.authme.settings.properties.SecuritySettings;
 import fr.xephi.authme.task.CleanupTask;
 import fr.xephi.authme.task.purge.PurgeService;
 import fr.xephi.authme.util.ExceptionUtils;
-import org.bukkit.Bukkit;
 import org.bukkit.Server;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
@@ -52,6 +54,7 @@ import org.bukkit.plugin.java.JavaPluginLoader;
 import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.function.Consumer;
 
 import static fr.xephi.authme.service.BukkitService.TICKS_PER_MINUTE;
@@ -80,6 +83,7 @@ public class AuthMe extends JavaPlugin {
     private BukkitService bukkitService;
     private Injector injector;
     private BackupService backupService;
+    private MetricsService metricsService;
     private ConsoleLogger logger;
     private static Energie energie;
 
@@ -201,13 +205,7 @@ public class AuthMe extends JavaPlugin {
 
         // Unregister players who have never logged in before
         if (settings.getProperty(RegistrationSettings.UNREGISTER_ALL_NEVER_LOGGED_PLAYERS)) {
-            bukkitService.runTaskAsynchronously(task -> {
-                for (PlayerAuth auth : database.getAllAuths()) {
-                    if (auth.getLastLogin() == null) {
-                        management.performUnregisterByAdmin(null, auth.getRealName(), Bukkit.getPlayer(auth.getRealName()), true);
-                    }
-                }
-            });
+            management.performUnregisterNeverLoggedIn();
         }
     }
 
@@ -281,6 +279,7 @@ public class AuthMe extends JavaPlugin {
         bukkitService = injector.getSingleton(BukkitService.class);
         commandHandler = injector.getSingleton(CommandHandler.class);
         backupService = injector.getSingleton(BackupService.class);
+        metricsService = injector.getSingleton(MetricsService.class);
 
         // Trigger instantiation (class not used elsewhere)
         injector.getSingleton(BungeeReceiver.class);
@@ -342,6 +341,11 @@ public class AuthMe extends JavaPlugin {
         if (onShutdownPlayerSaver != null) {
             onShutdownPlayerSaver.saveAllPlayers();
         }
+        // Write the limbo data of the players above to the disk
+        LimboPersistence limboPersistence = injector == null ? null : injector.getIfAvailable(LimboPersistence.class);
+        if (limboPersistence != null) {
+            limboPersistence.shutdown();
+        }
 
         if (settings.getProperty(EmailSettings.SHUTDOWN_MAIL) && settings.getProperty(EmailSettings.SHUTDOWN_MAIL_ADDRESS) != null) {
             SimpleDateFormat dateFormat = new SimpleDateFormat(settings.getProperty(PluginSettings.DATE_FORMAT));
@@ -349,13 +353,39 @@ public class AuthMe extends JavaPlugin {
             emailService.sendShutDown(settings.getProperty(EmailSettings.SHUTDOWN_MAIL_ADDRESS), dateFormat.format(date));
         }
 
-        // Do backup on stop if enabled
-        if (backupService != null) {
-            backupService.doBackup(BackupService.BackupCause.STOP);
+        // Give queued emails a last chance to be sent; the others are dropped
+        if (emailService != null) {
+            emailService.shutdown();
+        }
+
+        if (metricsService != null) {
+            metricsService.stopExporter();
+        }
+
+        // Let the tasks on virtual threads and pending asynchronous data source calls finish before the data
+        // source is closed
+        if (bukkitService != null) {
+            bukkitService.shutdownVirtualThreads();
+        }
+        AsyncDataSource asyncDataSource = injector == null ? null : injector.getIfAvailable(AsyncDataSource.class);
+        if (asyncDataSource != null) {
+            asyncDataSource.shutdown();
         }
 
-        // Wait for tasks and close data source
-        new TaskCloser(database).run(null);
+        // Write the pending IP history before the data source is closed
+        IpHistoryService ipHistoryService = injector == null ? null : injector.getIfAvailable(IpHistoryService.class);
+        if (ipHistoryService != null) {
+            ipHistoryService.shutdown();
+        }
+
+        // Cancel the tasks and close the data source. Before it is closed, do the backup on stop if enabled, now
+        // that everything above has been written, and let running backups finish
+        new TaskCloser(database, () -> {
+            if (backupService != null) {
+                backupService.doBackup(BackupService.BackupCause.STOP);
+                backupService.shutdown();
+            }
+        }).run(null);
 
         // Disabled correctly
         Consumer<String> infoLogMethod = logger == null ? getLogger()::info : logger::info;
@@ -385,6 +415,23 @@ public class AuthMe extends JavaPlugin {
         return commandHandler.processCommand(sender, commandLabel, args);
     }
 
+    /**
+     * Handle Bukkit tab completion.
+     *
+     * @param sender       The command sender (Bukkit).
+     * @param cmd          The command (Bukkit).
+     * @param commandLabel The command label (Bukkit).
+     * @param args         The command arguments typed so far (Bukkit).
+     * @return The suggestions, or null for the default suggestions.
+     */
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command cmd, String commandLabel, String[] args) {
+        if (commandHandler == null) {
+            return null;
+        }
+        return commandHandler.getSuggestions(sender, commandLabel, args);
+    }
+
     private String getServerNameVersionSafe() {
         try {
             Server server = getServer();
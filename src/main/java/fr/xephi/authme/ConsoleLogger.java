@@ -1,24 +1,19 @@
 package fr.xephi.authme;
 
 import com.google.common.base.Throwables;
+import fr.xephi.authme.output.LogFileSink;
 import fr.xephi.authme.output.LogLevel;
 import fr.xephi.authme.settings.Settings;
 import fr.xephi.authme.settings.properties.PluginSettings;
 import fr.xephi.authme.settings.properties.SecuritySettings;
 import fr.xephi.authme.util.ExceptionUtils;
 
-import java.io.Closeable;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.util.function.Supplier;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -39,7 +34,7 @@ public final class ConsoleLogger {
     private static Logger logger;
 
     // Shared state
-    private static OutputStreamWriter fileWriter;
+    private static volatile LogFileSink fileSink;
 
     // Individual state
     private final String name;
@@ -71,12 +66,20 @@ public final class ConsoleLogger {
     public static void initializeSharedSettings(Settings settings) {
         boolean useLogging = settings.getProperty(SecuritySettings.USE_LOGGING);
         if (useLogging) {
-            initializeFileWriter();
+            initializeFileSink(settings);
         } else {
             closeFileWriter();
         }
     }
 
+    /**
+     * @return the number of lines which could not be written to the log file because its buffer was full
+     */
+    public static long getDroppedFileLogLines() {
+        LogFileSink sink = fileSink;
+        return sink == null ? 0 : sink.getDroppedLines();
+    }
+
     /**
      * Sets logging settings which are individual to all loggers.
      *
@@ -225,63 +228,47 @@ public final class ConsoleLogger {
     // --------
 
     /**
-     * Closes the file writer.
+     * Closes the file writer, writing all lines which are still buffered.
      */
-    public static void closeFileWriter() {
-        if (fileWriter != null) {
-            try {
-                fileWriter.flush();
-            } catch (IOException ignored) {
-            } finally {
-                closeSafely(fileWriter);
-                fileWriter = null;
-            }
+    public static synchronized void closeFileWriter() {
+        if (fileSink != null) {
+            fileSink.close();
+            fileSink = null;
         }
     }
 
     /**
-     * Write a message into the log file with a TimeStamp if enabled.
+     * Write a message into the log file with a TimeStamp if enabled. The line is written
+     * asynchronously by the {@link LogFileSink}.
      *
      * @param message The message to write to the log
      */
     private static void writeLog(String message) {
-        if (fileWriter != null) {
-            String dateTime = DATE_FORMAT.format(LocalDateTime.now());
-            try {
-                fileWriter.write(dateTime);
-                fileWriter.write(": ");
-                fileWriter.write(message);
-                fileWriter.write(NEW_LINE);
-                fileWriter.flush();
-            } catch (IOException ignored) {
-            }
-        }
-    }
-
-    private static void closeSafely(Closeable closeable) {
-        if (closeable != null) {
-            try {
-                closeable.close();
-            } catch (IOException e) {
-                logger.log(Level.SEVERE, "Failed to close resource", e);
-            }
+        LogFileSink sink = fileSink;
+        if (sink != null) {
+            sink.append(DATE_FORMAT.format(LocalDateTime.now()) + ": " + message + NEW_LINE);
         }
     }
 
     /**
-     * Populates the {@link #fileWriter} field if it is null, handling any exceptions that might
-     * arise during its creation.
+     * Creates and starts the {@link #fileSink} if it is null, or applies the settings to the existing one.
+     *
+     * @param settings the settings to read from
      */
-    private static void initializeFileWriter() {
-        if (fileWriter == null) {
-            FileOutputStream fos = null;
-            try {
-                fos = new FileOutputStream(logFile, true);
-                fileWriter = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
-            } catch (Exception e) {
-                closeSafely(fos);
-                logger.log(Level.SEVERE, "Failed to create writer to AuthMe log file", e);
-            }
+    private static synchronized void initializeFileSink(Settings settings) {
+        if (fileSink == null) {
+            fileSink = new LogFileSink(logFile, logger, settings.getProperty(SecuritySettings.LOG_BUFFER_SIZE));
+            configureFileSink(settings);
+            fileSink.start();
+        } else {
+            configureFileSink(settings);
         }
     }
+
+    private static void configureFileSink(Settings settings) {
+        fileSink.configure(settings.getProperty(SecuritySettings.LOG_FLUSH_INTERVAL),
+            settings.getProperty(SecuritySettings.LOG_MAX_FILE_SIZE) * 1024L * 1024L,
+            settings.getProperty(SecuritySettings.LOG_ROTATE_DAILY),
+            settings.getProperty(SecuritySettings.LOG_BUFFER_SIZE));
+    }
 }
@@ -3,12 +3,14 @@ package fr.xephi.authme.api.v3;
 import fr.xephi.authme.AuthMe;
 import fr.xephi.authme.data.auth.PlayerAuth;
 import fr.xephi.authme.data.auth.PlayerCache;
+import fr.xephi.authme.datasource.AsyncDataSource;
 import fr.xephi.authme.datasource.DataSource;
 import fr.xephi.authme.process.Management;
 import fr.xephi.authme.process.register.executors.ApiPasswordRegisterParams;
 import fr.xephi.authme.process.register.executors.RegistrationMethod;
 import fr.xephi.authme.security.PasswordSecurity;
 import fr.xephi.authme.security.crypts.HashedPassword;
+import fr.xephi.authme.service.BukkitService;
 import fr.xephi.authme.service.GeoIpService;
 import fr.xephi.authme.service.ValidationService;
 import fr.xephi.authme.util.PlayerUtils;
@@ -23,6 +25,8 @@ import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * The current API of AuthMe.
@@ -31,12 +35,21 @@ import java.util.Optional;
  * <code>
  * AuthMeApi authmeApi = AuthMeApi.getInstance();
  * </code>
+ * <p>
+ * Methods which may query the database or compare a password have a variant ending in "Async", which does
+ * not block the calling thread. Their futures complete on one of AuthMe's threads; to continue on the main
+ * thread, use {@link #getMainThreadExecutor()}, e.g.:
+ * <code>
+ * authmeApi.isRegisteredAsync(name).thenAcceptAsync(isRegistered -> ..., authmeApi.getMainThreadExecutor());
+ * </code>
  */
 public class AuthMeApi {
 
     private static AuthMeApi singleton;
     private final AuthMe plugin;
     private final DataSource dataSource;
+    private final AsyncDataSource asyncDataSource;
+    private final BukkitService bukkitService;
     private final PasswordSecurity passwordSecurity;
     private final Management management;
     private final ValidationService validationService;
@@ -47,10 +60,13 @@ public class AuthMeApi {
      * Constructor for AuthMeApi.
      */
     @Inject
-    AuthMeApi(AuthMe plugin, DataSource dataSource, PlayerCache playerCache, PasswordSecurity passwordSecurity,
-              Management management, ValidationService validationService, GeoIpService geoIpService) {
+    AuthMeApi(AuthMe plugin, DataSource dataSource, AsyncDataSource asyncDataSource, BukkitService bukkitService,
+              PlayerCache playerCache, PasswordSecurity passwordSecurity, Management management,
+              ValidationService validationService, GeoIpService geoIpService) {
         this.plugin = plugin;
         this.dataSource = dataSource;
+        this.asyncDataSource = asyncDataSource;
+        this.bukkitService = bukkitService;
         this.passwordSecurity = passwordSecurity;
         this.management = management;
         this.validationService = validationService;
@@ -87,6 +103,16 @@ public class AuthMeApi {
         return AuthMe.getPluginVersion();
     }
 
+    /**
+     * Returns an executor which runs tasks on the main thread, to continue on the main thread
+     * once the future of an async method has completed.
+     *
+     * @return executor for the main thread
+     */
+    public Executor getMainThreadExecutor() {
+        return command -> bukkitService.scheduleSyncTaskFromOptionallyAsyncTask(task -> command.run());
+    }
+
     /**
      * Return whether the given player is authenticated.
      *
@@ -148,6 +174,16 @@ public class AuthMeApi {
         return AuthMePlayerImpl.fromPlayerAuth(auth);
     }
 
+    /**
+     * Returns the AuthMe info of the given player's name without blocking, see {@link #getPlayerInfo(String)}.
+     *
+     * @param playerName The player name to look up
+     * @return future with the AuthMe player info, or empty optional if the player doesn't exist
+     */
+    public CompletableFuture<Optional<AuthMePlayer>> getPlayerInfoAsync(String playerName) {
+        return getAuthAsync(playerName).thenApply(AuthMePlayerImpl::fromPlayerAuth);
+    }
+
     /**
      * Get the last ip address of a player.
      *
@@ -165,6 +201,16 @@ public class AuthMeApi {
         return null;
     }
 
+    /**
+     * Get the last ip address of a player without blocking.
+     *
+     * @param playerName The name of the player to process
+     * @return future with the last ip address of the player, or with null if the player doesn't exist
+     */
+    public CompletableFuture<String> getLastIpAsync(String playerName) {
+        return getAuthAsync(playerName).thenApply(auth -> auth == null ? null : auth.getLastIp());
+    }
+
     /**
      * Get user names by ip.
      *
@@ -175,6 +221,16 @@ public class AuthMeApi {
         return dataSource.getAllAuthsByIp(address);
     }
 
+    /**
+     * Get user names by ip without blocking.
+     *
+     * @param address The ip address to process
+     * @return future with the list of user names related to the ip address
+     */
+    public CompletableFuture<List<String>> getNamesByIpAsync(String address) {
+        return asyncDataSource.query(source -> source.getAllAuthsByIp(address));
+    }
+
     /**
      * Get the last (AuthMe) login date of a player.
      *
@@ -200,6 +256,20 @@ public class AuthMeApi {
         return lastLogin == null ? null : Instant.ofEpochMilli(lastLogin);
     }
 
+    /**
+     * Get the last (AuthMe) login timestamp of a player without blocking.
+     *
+     * @param playerName The name of the player to process
+     *
+     * @return future with the timestamp of the last login, or with null if the player doesn't exist
+     *         or has never logged in
+     */
+    public CompletableFuture<Instant> getLastLoginTimeAsync(String playerName) {
+        return getAuthAsync(playerName).thenApply(auth -> auth == null || auth.getLastLogin() == null
+            ? null
+            : Instant.ofEpochMilli(auth.getLastLogin()));
+    }
+
     private Long getLastLoginMillis(String playerName) {
         PlayerAuth auth = playerCache.getAuth(playerName);
         if (auth == null) {
@@ -211,6 +281,11 @@ public class AuthMeApi {
         return null;
     }
 
+    private CompletableFuture<PlayerAuth> getAuthAsync(String playerName) {
+        PlayerAuth auth = playerCache.getAuth(playerName);
+        return auth == null ? asyncDataSource.getAuth(playerName) : CompletableFuture.completedFuture(auth);
+    }
+
     /**
      * Return whether the player is registered.
      *
@@ -222,6 +297,16 @@ public class AuthMeApi {
         return dataSource.isAuthAvailable(player);
     }
 
+    /**
+     * Return whether the player is registered without blocking.
+     *
+     * @param playerName The player name to check
+     * @return future completed with true if player is registered, false otherwise
+     */
+    public CompletableFuture<Boolean> isRegisteredAsync(String playerName) {
+        return asyncDataSource.isAuthAvailable(playerName.toLowerCase(Locale.ROOT));
+    }
+
     /**
      * Check the password for the given player.
      *
@@ -233,6 +318,18 @@ public class AuthMeApi {
         return passwordSecurity.comparePassword(passwordToCheck, playerName);
     }
 
+    /**
+     * Check the password for the given player without blocking. The password is compared on AuthMe's
+     * hashing threads instead of the caller's thread.
+     *
+     * @param playerName      The player to check the password for
+     * @param passwordToCheck The password to check
+     * @return future completed with true if the password is correct, false otherwise
+     */
+    public CompletableFuture<Boolean> checkPasswordAsync(String playerName, String passwordToCheck) {
+        return passwordSecurity.comparePasswordAsync(passwordToCheck, playerName);
+    }
+
     /**
      * Register an OFFLINE/ONLINE player with the given password.
      *
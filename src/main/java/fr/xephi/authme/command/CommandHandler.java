@@ -69,6 +69,23 @@ public class CommandHandler {
         return !FoundResultStatus.MISSING_BASE_COMMAND.equals(result.getResultStatus());
     }
 
+    /**
+     * Returns the tab completion suggestions for an AuthMe command.
+     *
+     * @param sender             The command sender.
+     * @param bukkitCommandLabel The command label (Bukkit).
+     * @param bukkitArgs         The command arguments typed so far (Bukkit).
+     *
+     * @return The suggestions, or null to let Bukkit suggest player names.
+     */
+    public List<String> getSuggestions(CommandSender sender, String bukkitCommandLabel, String[] bukkitArgs) {
+        // Only labels of child commands are completed, e.g. /authme reg -> /authme register
+        if (bukkitArgs.length != 1) {
+            return null;
+        }
+        return commandMapper.getChildLabelSuggestions(sender, bukkitCommandLabel, bukkitArgs[0]);
+    }
+
     /**
      * Processes the given {@link FoundCommandResult} for the provided command sender.
      *
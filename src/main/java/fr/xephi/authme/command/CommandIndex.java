@@ -0,0 +1,193 @@
+package fr.xephi.authme.command;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Index of the commands of {@link CommandInitializer}, built once so that commands are found by their
+ * label without going through all commands, e.g. for every /login.
+ * <p>
+ * Labels are indexed in lowercase; base command labels are also indexed with the "authme:" prefix.
+ * The argument count range of each command is computed in advance, and the labels of each command's
+ * children are kept in a prefix tree for tab completion.
+ */
+final class CommandIndex {
+
+    private static final String PLUGIN_PREFIX = "authme:";
+
+    private final Map<String, CommandDescription> baseCommandsByLabel = new HashMap<>();
+    private final Map<CommandDescription, Map<String, List<CommandDescription>>> childrenByLabel =
+        new IdentityHashMap<>();
+    private final Map<CommandDescription, LabelNode> childLabelTrees = new IdentityHashMap<>();
+    private final Map<CommandDescription, int[]> argumentCountRanges = new IdentityHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param baseCommands the base commands to index
+     */
+    CommandIndex(Collection<CommandDescription> baseCommands) {
+        for (CommandDescription base : baseCommands) {
+            for (String label : base.getLabels()) {
+                String key = label.toLowerCase(Locale.ROOT);
+                baseCommandsByLabel.putIfAbsent(key, base);
+                baseCommandsByLabel.putIfAbsent(PLUGIN_PREFIX + key, base);
+            }
+            indexCommand(base);
+
+            Map<String, List<CommandDescription>> children = new HashMap<>();
+            LabelNode.Builder labelTree = new LabelNode.Builder();
+            for (CommandDescription child : base.getChildren()) {
+                indexCommand(child);
+                for (String label : child.getLabels()) {
+                    String key = label.toLowerCase(Locale.ROOT);
+                    children.computeIfAbsent(key, k -> new ArrayList<>(1)).add(child);
+                    labelTree.add(key, child);
+                }
+            }
+            childrenByLabel.put(base, children);
+            childLabelTrees.put(base, labelTree.build());
+        }
+    }
+
+    /**
+     * Returns the base command with the given label.
+     *
+     * @param label the label, optionally prefixed with "authme:" (case-insensitive)
+     * @return the base command, or null if there is none with the given label
+     */
+    CommandDescription getBaseCommand(String label) {
+        return baseCommandsByLabel.get(label.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the children of the given base command which have the given label.
+     *
+     * @param base the base command
+     * @param label the label of the child (case-insensitive)
+     * @return the matching children, in the order they were defined (empty list if there are none)
+     */
+    List<CommandDescription> getChildren(CommandDescription base, String label) {
+        Map<String, List<CommandDescription>> children = childrenByLabel.get(base);
+        List<CommandDescription> matches = children == null ? null : children.get(label.toLowerCase(Locale.ROOT));
+        return matches == null ? ImmutableList.of() : matches;
+    }
+
+    /**
+     * Returns whether the given number of arguments is accepted by the command.
+     *
+     * @param command the command
+     * @param argumentCount the number of arguments
+     * @return true if the command can be run with the given number of arguments, false otherwise
+     */
+    boolean hasSuitableArgumentCount(CommandDescription command, int argumentCount) {
+        int[] range = argumentCountRanges.get(command);
+        if (range == null) {
+            return argumentCount >= CommandUtils.getMinNumberOfArguments(command)
+                && argumentCount <= CommandUtils.getMaxNumberOfArguments(command);
+        }
+        return argumentCount >= range[0] && argumentCount <= range[1];
+    }
+
+    /**
+     * Returns the node of the given base command's label tree for the given prefix.
+     *
+     * @param base the base command
+     * @param prefix the prefix of the child label (case-insensitive)
+     * @return the node with the labels starting with the prefix, or null if no label starts with it
+     */
+    LabelNode getChildLabels(CommandDescription base, String prefix) {
+        LabelNode node = childLabelTrees.get(base);
+        for (int i = 0; i < prefix.length() && node != null; ++i) {
+            node = node.getNext(Character.toLowerCase(prefix.charAt(i)));
+        }
+        return node;
+    }
+
+    private void indexCommand(CommandDescription command) {
+        argumentCountRanges.put(command, new int[]{
+            CommandUtils.getMinNumberOfArguments(command), CommandUtils.getMaxNumberOfArguments(command)});
+    }
+
+    /**
+     * Node of a prefix tree of labels. Each node has the labels which start with the node's prefix, sorted
+     * alphabetically, and the command of each label. A command is only listed once per node, with its
+     * first label that matches the prefix, so that aliases are only suggested if the main label doesn't match.
+     */
+    static final class LabelNode {
+
+        private final Map<Character, LabelNode> next;
+        private final List<String> labels;
+        private final List<CommandDescription> commands;
+
+        private LabelNode(Map<Character, LabelNode> next, List<String> labels, List<CommandDescription> commands) {
+            this.next = next;
+            this.labels = labels;
+            this.commands = commands;
+        }
+
+        /**
+         * @return the labels starting with this node's prefix (immutable)
+         */
+        List<String> getLabels() {
+            return labels;
+        }
+
+        /**
+         * @return the command of each label of {@link #getLabels()}, at the same index (immutable)
+         */
+        List<CommandDescription> getCommands() {
+            return commands;
+        }
+
+        private LabelNode getNext(char character) {
+            return next.get(character);
+        }
+
+        /**
+         * Collects labels and builds the prefix tree.
+         */
+        private static final class Builder {
+
+            private final Map<Character, Builder> next = new HashMap<>();
+            private final Map<CommandDescription, String> labelsByCommand = new LinkedHashMap<>();
+
+            void add(String label, CommandDescription command) {
+                Builder node = this;
+                node.labelsByCommand.putIfAbsent(command, label);
+                for (int i = 0; i < label.length(); ++i) {
+                    node = node.next.computeIfAbsent(label.charAt(i), c -> new Builder());
+                    node.labelsByCommand.putIfAbsent(command, label);
+                }
+            }
+
+            LabelNode build() {
+                Map<Character, LabelNode> children = new HashMap<>();
+                next.forEach((character, child) -> children.put(character, child.build()));
+
+                List<Map.Entry<CommandDescription, String>> entries = new ArrayList<>(labelsByCommand.entrySet());
+                entries.sort(Map.Entry.comparingByValue());
+                ImmutableList.Builder<String> labels = ImmutableList.builder();
+                ImmutableList.Builder<CommandDescription> commands = ImmutableList.builder();
+                String previousLabel = null;
+                for (Map.Entry<CommandDescription, String> entry : entries) {
+                    // Commands with the same label but other arguments are suggested once
+                    if (!entry.getValue().equals(previousLabel)) {
+                        labels.add(entry.getValue());
+                        commands.add(entry.getKey());
+                        previousLabel = entry.getValue();
+                    }
+                }
+                return new LabelNode(children, labels.build(), commands.build());
+            }
+        }
+    }
+}
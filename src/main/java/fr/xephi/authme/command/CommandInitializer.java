@@ -12,6 +12,7 @@ import fr.xephi.authme.command.executable.authme.ForceLoginCommand;
 import fr.xephi.authme.command.executable.authme.GetEmailCommand;
 import fr.xephi.authme.command.executable.authme.GetIpCommand;
 import fr.xephi.authme.command.executable.authme.LastLoginCommand;
+import fr.xephi.authme.command.executable.authme.MetricsCommand;
 import fr.xephi.authme.command.executable.authme.PurgeBannedPlayersCommand;
 import fr.xephi.authme.command.executable.authme.PurgeCommand;
 import fr.xephi.authme.command.executable.authme.PurgeLastPositionCommand;
@@ -469,6 +470,16 @@ public class CommandInitializer {
             .executableCommand(RecentPlayersCommand.class)
             .register();
 
+        CommandDescription.builder()
+            .parent(authmeBase)
+            .labels("metrics")
+            .description("Show performance metrics")
+            .detailedDescription("Shows the latencies of AuthMe's processes and other performance metrics.")
+            .withArgument("prefix", "Only show metrics whose name starts with the prefix", OPTIONAL)
+            .permission(AdminPermission.METRICS)
+            .executableCommand(MetricsCommand.class)
+            .register();
+
         CommandDescription.builder()
             .parent(authmeBase)
             .labels("debug", "dbg")
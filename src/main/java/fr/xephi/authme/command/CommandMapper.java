@@ -9,9 +9,9 @@ import org.bukkit.command.CommandSender;
 import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Set;
 
 import static fr.xephi.authme.command.FoundResultStatus.INCORRECT_ARGUMENTS;
@@ -29,11 +29,13 @@ public class CommandMapper {
     private static final Class<? extends ExecutableCommand> HELP_COMMAND_CLASS = HelpCommand.class;
 
     private final Collection<CommandDescription> baseCommands;
+    private final CommandIndex commandIndex;
     private final PermissionsManager permissionsManager;
 
     @Inject
     public CommandMapper(CommandInitializer commandInitializer, PermissionsManager permissionsManager) {
         this.baseCommands = commandInitializer.getCommands();
+        this.commandIndex = new CommandIndex(baseCommands);
         this.permissionsManager = permissionsManager;
     }
 
@@ -50,7 +52,7 @@ public class CommandMapper {
             return new FoundCommandResult(null, parts, null, 0.0, MISSING_BASE_COMMAND);
         }
 
-        CommandDescription base = getBaseCommand(parts.get(0));
+        CommandDescription base = commandIndex.getBaseCommand(parts.get(0));
         if (base == null) {
             return new FoundCommandResult(null, parts, null, 0.0, MISSING_BASE_COMMAND);
         }
@@ -63,7 +65,7 @@ public class CommandMapper {
             FoundCommandResult result = new FoundCommandResult(
                 childCommand, parts.subList(0, 2), parts.subList(2, parts.size()), 0.0, status);
             return transformResultForHelp(result);
-        } else if (hasSuitableArgumentCount(base, remainingParts.size())) {
+        } else if (commandIndex.hasSuitableArgumentCount(base, remainingParts.size())) {
             FoundResultStatus status = getPermissionAwareStatus(sender, base);
             return new FoundCommandResult(base, parts.subList(0, 1), parts.subList(1, parts.size()), 0.0, status);
         }
@@ -71,6 +73,40 @@ public class CommandMapper {
         return getCommandWithSmallestDifference(base, parts);
     }
 
+    /**
+     * Returns the labels of the child commands which start with the given prefix, for tab completion.
+     * Only labels of commands the sender has permission for are returned.
+     *
+     * @param sender the command sender (null if none applicable)
+     * @param baseLabel the label of the base command
+     * @param prefix the start of the child label typed so far
+     * @return the matching labels, or null if the base command is unknown or has no children
+     */
+    public List<String> getChildLabelSuggestions(CommandSender sender, String baseLabel, String prefix) {
+        CommandDescription base = commandIndex.getBaseCommand(baseLabel);
+        if (base == null || base.getChildren().isEmpty()) {
+            return null;
+        }
+        CommandIndex.LabelNode node = commandIndex.getChildLabels(base, prefix);
+        if (node == null) {
+            return Collections.emptyList();
+        }
+
+        // Return the precomputed labels unless the sender is missing a permission
+        List<CommandDescription> commands = node.getCommands();
+        List<String> suggestions = node.getLabels();
+        for (int i = 0; i < commands.size(); ++i) {
+            if (!hasPermission(sender, commands.get(i))) {
+                if (suggestions == node.getLabels()) {
+                    suggestions = new ArrayList<>(suggestions.subList(0, i));
+                }
+            } else if (suggestions != node.getLabels()) {
+                suggestions.add(node.getLabels().get(i));
+            }
+        }
+        return suggestions;
+    }
+
     /**
      * Return all {@link ExecutableCommand} classes referenced in {@link CommandDescription} objects.
      *
@@ -96,7 +132,7 @@ public class CommandMapper {
      * @param parts the command parts
      * @return the closest result
      */
-    private static FoundCommandResult getCommandWithSmallestDifference(CommandDescription base, List<String> parts) {
+    private FoundCommandResult getCommandWithSmallestDifference(CommandDescription base, List<String> parts) {
         // Return the base command with incorrect arg count error if we only have one part
         if (parts.size() <= 1) {
             return new FoundCommandResult(base, parts, new ArrayList<>(), 0.0, INCORRECT_ARGUMENTS);
@@ -106,11 +142,18 @@ public class CommandMapper {
         double minDifference = Double.POSITIVE_INFINITY;
         CommandDescription closestCommand = null;
 
-        for (CommandDescription child : base.getChildren()) {
-            double difference = getLabelDifference(child, childLabel);
-            if (difference < minDifference) {
-                minDifference = difference;
-                closestCommand = child;
+        // A known label with the wrong number of arguments needs no comparison with the other labels
+        List<CommandDescription> labelMatches = commandIndex.getChildren(base, childLabel);
+        if (!labelMatches.isEmpty()) {
+            minDifference = 0.0;
+            closestCommand = labelMatches.get(0);
+        } else {
+            for (CommandDescription child : base.getChildren()) {
+                double difference = getLabelDifference(child, childLabel);
+                if (difference < minDifference) {
+                    minDifference = difference;
+                    closestCommand = child;
+                }
             }
         }
 
@@ -130,19 +173,6 @@ public class CommandMapper {
         return new FoundCommandResult(closestCommand, labels, arguments, minDifference, status);
     }
 
-    private CommandDescription getBaseCommand(String label) {
-        String baseLabel = label.toLowerCase(Locale.ROOT);
-        if (baseLabel.startsWith("authme:")) {
-            baseLabel = baseLabel.substring("authme:".length());
-        }
-        for (CommandDescription command : baseCommands) {
-            if (command.hasLabel(baseLabel)) {
-                return command;
-            }
-        }
-        return null;
-    }
-
     /**
      * Return a child from a base command if the label and the argument count match.
      *
@@ -153,16 +183,14 @@ public class CommandMapper {
      *
      * @return A command if there was a complete match (including proper argument count), null otherwise
      */
-    private static CommandDescription getSuitableChild(CommandDescription baseCommand, List<String> parts) {
+    private CommandDescription getSuitableChild(CommandDescription baseCommand, List<String> parts) {
         if (Utils.isCollectionEmpty(parts)) {
             return null;
         }
 
-        final String label = parts.get(0).toLowerCase(Locale.ROOT);
         final int argumentCount = parts.size() - 1;
-
-        for (CommandDescription child : baseCommand.getChildren()) {
-            if (child.hasLabel(label) && hasSuitableArgumentCount(child, argumentCount)) {
+        for (CommandDescription child : commandIndex.getChildren(baseCommand, parts.get(0))) {
+            if (commandIndex.hasSuitableArgumentCount(child, argumentCount)) {
                 return child;
             }
         }
@@ -184,17 +212,11 @@ public class CommandMapper {
     }
 
     private FoundResultStatus getPermissionAwareStatus(CommandSender sender, CommandDescription command) {
-        if (sender != null && !permissionsManager.hasPermission(sender, command.getPermission())) {
-            return FoundResultStatus.NO_PERMISSION;
-        }
-        return FoundResultStatus.SUCCESS;
+        return hasPermission(sender, command) ? FoundResultStatus.SUCCESS : FoundResultStatus.NO_PERMISSION;
     }
 
-    private static boolean hasSuitableArgumentCount(CommandDescription command, int argumentCount) {
-        int minArgs = CommandUtils.getMinNumberOfArguments(command);
-        int maxArgs = CommandUtils.getMaxNumberOfArguments(command);
-
-        return argumentCount >= minArgs && argumentCount <= maxArgs;
+    private boolean hasPermission(CommandSender sender, CommandDescription command) {
+        return sender == null || permissionsManager.hasPermission(sender, command.getPermission());
     }
 
     private static double getLabelDifference(CommandDescription command, String givenLabel) {
@@ -6,6 +6,7 @@ import fr.xephi.authme.datasource.DataSource;
 import fr.xephi.authme.message.MessageKey;
 import fr.xephi.authme.service.BukkitService;
 import fr.xephi.authme.service.CommonService;
+import fr.xephi.authme.service.IpHistoryService;
 import org.bukkit.command.CommandSender;
 
 import javax.inject.Inject;
@@ -20,6 +21,9 @@ public class AccountsCommand implements ExecutableCommand {
     @Inject
     private DataSource dataSource;
 
+    @Inject
+    private IpHistoryService ipHistoryService;
+
     @Inject
     private BukkitService bukkitService;
 
@@ -34,7 +38,7 @@ public class AccountsCommand implements ExecutableCommand {
         // Assumption: a player name cannot contain '.'
         if (playerName.contains(".")) {
             bukkitService.runTaskAsynchronously(task -> {
-                List<String> accountList = dataSource.getAllAuthsByIp(playerName);
+                List<String> accountList = ipHistoryService.getAccountsByIp(playerName);
                 if (accountList.isEmpty()) {
                     sender.sendMessage("[AuthMe] This IP does not exist in the database.");
                 } else if (accountList.size() == 1) {
@@ -54,7 +58,7 @@ public class AccountsCommand implements ExecutableCommand {
                     return;
                 }
 
-                List<String> accountList = dataSource.getAllAuthsByIp(auth.getLastIp());
+                List<String> accountList = ipHistoryService.getAccountsByIp(auth.getLastIp());
                 if (accountList.isEmpty()) {
                     commonService.send(sender, MessageKey.UNKNOWN_USER);
                 } else if (accountList.size() == 1) {
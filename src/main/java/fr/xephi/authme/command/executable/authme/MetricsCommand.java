@@ -0,0 +1,48 @@
+package fr.xephi.authme.command.executable.authme;
+
+import fr.xephi.authme.command.ExecutableCommand;
+import fr.xephi.authme.metrics.LatencyHistogram;
+import fr.xephi.authme.metrics.MetricsRegistry;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+
+import javax.inject.Inject;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Command showing the latency histograms, counters and gauges collected by AuthMe.
+ */
+public class MetricsCommand implements ExecutableCommand {
+
+    @Inject
+    private MetricsRegistry metricsRegistry;
+
+    @Override
+    public void executeCommand(CommandSender sender, List<String> arguments) {
+        String filter = arguments.isEmpty() ? "" : arguments.get(0).toLowerCase(Locale.ROOT);
+
+        sender.sendMessage(ChatColor.BLUE + "[AuthMe] Latencies in ms (count / mean / p50 / p95 / p99 / max)");
+        for (Map.Entry<String, LatencyHistogram.Snapshot> entry : metricsRegistry.getHistogramSnapshots().entrySet()) {
+            if (entry.getKey().startsWith(filter)) {
+                LatencyHistogram.Snapshot snapshot = entry.getValue();
+                sender.sendMessage(String.format(Locale.ROOT, "%s: %d / %.2f / %.2f / %.2f / %.2f / %.2f",
+                    entry.getKey(), snapshot.getCount(), snapshot.getMean() / 1000,
+                    toMillis(snapshot.getValueAtQuantile(0.5)), toMillis(snapshot.getValueAtQuantile(0.95)),
+                    toMillis(snapshot.getValueAtQuantile(0.99)), toMillis(snapshot.getMax())));
+            }
+        }
+
+        sender.sendMessage(ChatColor.BLUE + "[AuthMe] Counters and gauges");
+        for (Map.Entry<String, Long> entry : metricsRegistry.getValues().entrySet()) {
+            if (entry.getKey().startsWith(filter)) {
+                sender.sendMessage(entry.getKey() + ": " + entry.getValue());
+            }
+        }
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+}
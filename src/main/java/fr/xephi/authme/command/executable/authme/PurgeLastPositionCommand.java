@@ -5,6 +5,8 @@ import fr.xephi.authme.data.auth.PlayerAuth;
 import fr.xephi.authme.datasource.DataSource;
 import fr.xephi.authme.message.MessageKey;
 import fr.xephi.authme.service.CommonService;
+import fr.xephi.authme.service.bungeecord.BungeeSender;
+import fr.xephi.authme.service.bungeecord.MessageType;
 import org.bukkit.command.CommandSender;
 
 import javax.inject.Inject;
@@ -15,21 +17,24 @@ import java.util.List;
  */
 public class PurgeLastPositionCommand implements ExecutableCommand {
 
+    private static final String DEFAULT_WORLD = "world";
+
     @Inject
     private DataSource dataSource;
 
     @Inject
     private CommonService commonService;
 
+    @Inject
+    private BungeeSender bungeeSender;
+
     @Override
     public void executeCommand(CommandSender sender, List<String> arguments) {
         String playerName = arguments.isEmpty() ? sender.getName() : arguments.get(0);
 
         if ("*".equals(playerName)) {
-            for (PlayerAuth auth : dataSource.getAllAuths()) {
-                resetLastPosition(auth);
-                dataSource.updateQuitLoc(auth);
-                // TODO: send an update when a messaging service will be implemented (QUITLOC)
+            for (String name : dataSource.updateAllQuitLocs(0d, 0d, 0d, DEFAULT_WORLD)) {
+                bungeeSender.sendCacheUpdate(MessageType.REFRESH_QUITLOC, name);
             }
             sender.sendMessage("All players last position locations are now reset");
         } else {
@@ -42,7 +47,7 @@ public class PurgeLastPositionCommand implements ExecutableCommand {
 
             resetLastPosition(auth);
             dataSource.updateQuitLoc(auth);
-            // TODO: send an update when a messaging service will be implemented (QUITLOC)
+            bungeeSender.sendCacheUpdate(MessageType.REFRESH_QUITLOC, auth.getNickname());
             sender.sendMessage(playerName + "'s last position location is now reset");
         }
     }
@@ -51,6 +56,6 @@ public class PurgeLastPositionCommand implements ExecutableCommand {
         auth.setQuitLocX(0d);
         auth.setQuitLocY(0d);
         auth.setQuitLocZ(0d);
-        auth.setWorld("world");
+        auth.setWorld(DEFAULT_WORLD);
     }
 }
@@ -12,6 +12,8 @@ import fr.xephi.authme.service.BukkitService;
 import fr.xephi.authme.service.CommonService;
 import fr.xephi.authme.service.ValidationService;
 import fr.xephi.authme.service.ValidationService.ValidationResult;
+import fr.xephi.authme.service.bungeecord.BungeeSender;
+import fr.xephi.authme.service.bungeecord.MessageType;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
@@ -41,6 +43,9 @@ public class RegisterAdminCommand implements ExecutableCommand {
     @Inject
     private ValidationService validationService;
 
+    @Inject
+    private BungeeSender bungeeSender;
+
     @Override
     public void executeCommand(final CommandSender sender, List<String> arguments) {
         // Get the player name and password
@@ -73,6 +78,7 @@ public class RegisterAdminCommand implements ExecutableCommand {
                 return;
             }
 
+            bungeeSender.sendCacheUpdate(MessageType.REFRESH, playerNameLowerCase);
             commonService.send(sender, MessageKey.REGISTER_SUCCESS);
             logger.info(sender.getName() + " registered " + playerName);
             final Player player = bukkitService.getPlayerExact(playerName);
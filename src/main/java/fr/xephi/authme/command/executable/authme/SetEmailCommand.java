@@ -10,6 +10,8 @@ import fr.xephi.authme.message.MessageKey;
 import fr.xephi.authme.service.BukkitService;
 import fr.xephi.authme.service.CommonService;
 import fr.xephi.authme.service.ValidationService;
+import fr.xephi.authme.service.bungeecord.BungeeSender;
+import fr.xephi.authme.service.bungeecord.MessageType;
 import org.bukkit.command.CommandSender;
 
 import javax.inject.Inject;
@@ -35,6 +37,9 @@ public class SetEmailCommand implements ExecutableCommand {
     @Inject
     private ValidationService validationService;
 
+    @Inject
+    private BungeeSender bungeeSender;
+
     @Override
     public void executeCommand(final CommandSender sender, List<String> arguments) {
         // Get the player name and email address
@@ -65,10 +70,10 @@ public class SetEmailCommand implements ExecutableCommand {
                 return;
             }
 
+            bungeeSender.sendCacheUpdate(MessageType.REFRESH_EMAIL, playerName);
+
             // Update the player cache
-            if (playerCache.getAuth(playerName) != null) {
-                playerCache.updatePlayer(auth);
-            }
+            playerCache.updatePlayer(playerName, cachedAuth -> cachedAuth.setEmail(playerEmail));
 
             // Show a status message
             commonService.send(sender, MessageKey.EMAIL_CHANGED_SUCCESS);
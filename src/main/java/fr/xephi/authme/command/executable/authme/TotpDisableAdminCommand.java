@@ -8,6 +8,8 @@ import fr.xephi.authme.message.MessageKey;
 import fr.xephi.authme.message.Messages;
 import fr.xephi.authme.output.ConsoleLoggerFactory;
 import fr.xephi.authme.service.BukkitService;
+import fr.xephi.authme.service.bungeecord.BungeeSender;
+import fr.xephi.authme.service.bungeecord.MessageType;
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
@@ -31,6 +33,9 @@ public class TotpDisableAdminCommand implements ExecutableCommand {
     @Inject
     private BukkitService bukkitService;
 
+    @Inject
+    private BungeeSender bungeeSender;
+
     @Override
     public void executeCommand(CommandSender sender, List<String> arguments) {
         String player = arguments.get(0);
@@ -47,6 +52,7 @@ public class TotpDisableAdminCommand implements ExecutableCommand {
 
     private void removeTotpKey(CommandSender sender, String player) {
         if (dataSource.removeTotpKey(player)) {
+            bungeeSender.sendCacheUpdate(MessageType.REFRESH_TOTP, player);
             sender.sendMessage("Disabled two-factor authentication successfully for '" + player + "'");
             logger.info(sender.getName() + " disable two-factor authentication for '" + player + "'");
 
@@ -0,0 +1,58 @@
+package fr.xephi.authme.command.executable.authme.debug;
+
+import fr.xephi.authme.datasource.TimedDataSource;
+import fr.xephi.authme.metrics.LatencyHistogram;
+import fr.xephi.authme.metrics.MetricsRegistry;
+import fr.xephi.authme.permission.DebugSectionPermissions;
+import fr.xephi.authme.permission.PermissionNode;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+
+import javax.inject.Inject;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Shows the number of calls, latencies and errors of each data source method.
+ */
+class DataSourceTimings implements DebugSection {
+
+    @Inject
+    private MetricsRegistry metricsRegistry;
+
+    @Override
+    public String getName() {
+        return "dbstats";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Shows the timings of the data source methods";
+    }
+
+    @Override
+    public void execute(CommandSender sender, List<String> arguments) {
+        Map<String, Long> values = metricsRegistry.getValues();
+        sender.sendMessage(ChatColor.BLUE + "AuthMe data source timings, slowest total time first");
+        sender.sendMessage("method: calls / errors / mean / p99 / max (ms)");
+        metricsRegistry.getHistogramSnapshots().entrySet().stream()
+            .filter(entry -> entry.getKey().startsWith(TimedDataSource.METRIC_PREFIX))
+            .sorted(Comparator.comparingLong(
+                (Map.Entry<String, LatencyHistogram.Snapshot> entry) -> entry.getValue().getSum()).reversed())
+            .forEach(entry -> {
+                LatencyHistogram.Snapshot snapshot = entry.getValue();
+                String method = entry.getKey().substring(TimedDataSource.METRIC_PREFIX.length());
+                long errors = values.getOrDefault(entry.getKey() + ".errors", 0L);
+                sender.sendMessage(String.format(Locale.ROOT, "%s: %d / %d / %.2f / %.2f / %.2f", method,
+                    snapshot.getCount(), errors, snapshot.getMean() / 1000,
+                    snapshot.getValueAtQuantile(0.99) / 1000.0, snapshot.getMax() / 1000.0));
+            });
+    }
+
+    @Override
+    public PermissionNode getRequiredPermission() {
+        return DebugSectionPermissions.DATA_SOURCE_TIMINGS;
+    }
+}
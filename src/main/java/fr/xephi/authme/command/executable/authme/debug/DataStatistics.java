@@ -1,6 +1,8 @@
 package fr.xephi.authme.command.executable.authme.debug;
 
 import ch.jalu.injector.factory.SingletonStore;
+import com.google.common.cache.CacheStats;
+import fr.xephi.authme.ConsoleLogger;
 import fr.xephi.authme.data.auth.PlayerCache;
 import fr.xephi.authme.data.limbo.LimboService;
 import fr.xephi.authme.datasource.CacheDataSource;
@@ -56,6 +58,7 @@ class DataStatistics implements DebugSection {
         outputDatabaseStats(sender);
         outputInjectorStats(sender);
         sender.sendMessage("Total logger instances: " + ConsoleLoggerFactory.getTotalLoggers());
+        sender.sendMessage("Log file lines dropped (buffer full): " + ConsoleLogger.getDroppedFileLogLines());
     }
 
     @Override
@@ -68,6 +71,13 @@ class DataStatistics implements DebugSection {
         if (dataSource instanceof CacheDataSource) {
             CacheDataSource cacheDataSource = (CacheDataSource) this.dataSource;
             sender.sendMessage("Cached PlayerAuth objects: " + cacheDataSource.getCachedAuths().size());
+            CacheStats stats = cacheDataSource.getCachedAuths().stats();
+            sender.sendMessage(String.format("Cache hits: %d / misses: %d (hit rate: %.1f%%)",
+                stats.hitCount(), stats.missCount(), stats.hitRate() * 100));
+            sender.sendMessage(String.format("Cache loads: %d (failed: %d) / average load time: %.2f ms",
+                stats.loadCount(), stats.loadExceptionCount(), stats.averageLoadPenalty() / 1_000_000));
+            sender.sendMessage("Cache evictions: " + stats.evictionCount()
+                + " / pending refreshes: " + cacheDataSource.getPendingRefreshes());
         }
     }
 
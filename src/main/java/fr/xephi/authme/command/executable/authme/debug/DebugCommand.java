@@ -20,9 +20,10 @@ import java.util.TreeMap;
 public class DebugCommand implements ExecutableCommand {
 
     private static final Set<Class<? extends DebugSection>> SECTION_CLASSES = ImmutableSet.of(
-        PermissionGroups.class, DataStatistics.class, CountryLookup.class, PlayerAuthViewer.class, InputValidator.class,
+        PermissionGroups.class, DataStatistics.class, DataSourceTimings.class, CountryLookup.class, PlayerAuthViewer.class, InputValidator.class,
         LimboPlayerViewer.class, CountryLookup.class, HasPermissionChecker.class, TestEmailSender.class,
-        SpawnLocationViewer.class, MySqlDefaultChanger.class);
+        SpawnLocationViewer.class, MySqlDefaultChanger.class, LoadTest.class,
+        PasswordBlocklistCreator.class);
 
     @Inject
     private Factory<DebugSection> debugSectionFactory;
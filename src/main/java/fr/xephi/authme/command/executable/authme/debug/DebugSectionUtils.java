@@ -4,6 +4,7 @@ import fr.xephi.authme.ConsoleLogger;
 import fr.xephi.authme.data.limbo.LimboService;
 import fr.xephi.authme.datasource.CacheDataSource;
 import fr.xephi.authme.datasource.DataSource;
+import fr.xephi.authme.datasource.TimedDataSource;
 import fr.xephi.authme.output.ConsoleLoggerFactory;
 import org.bukkit.Location;
 
@@ -108,22 +109,24 @@ final class DebugSectionUtils {
     }
 
     /**
-     * Unwraps the "cache data source" and returns the underlying source. Returns the
-     * same as the input argument otherwise.
+     * Unwraps the "cache data source" and the "timed data source" and returns the underlying source.
+     * Returns the same as the input argument otherwise.
      *
      * @param dataSource the data source to unwrap if applicable
-     * @return the non-cache data source
+     * @return the non-decorated data source
      */
     static DataSource unwrapSourceFromCacheDataSource(DataSource dataSource) {
         if (dataSource instanceof CacheDataSource) {
             try {
                 Field source = CacheDataSource.class.getDeclaredField("source");
                 source.setAccessible(true);
-                return (DataSource) source.get(dataSource);
+                return unwrapSourceFromCacheDataSource((DataSource) source.get(dataSource));
             } catch (NoSuchFieldException | IllegalAccessException e) {
                 logger.logException("Could not get source of CacheDataSource:", e);
                 return null;
             }
+        } else if (dataSource instanceof TimedDataSource) {
+            return ((TimedDataSource) dataSource).getSource();
         }
         return dataSource;
     }
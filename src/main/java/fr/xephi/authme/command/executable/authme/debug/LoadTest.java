@@ -0,0 +1,167 @@
+package fr.xephi.authme.command.executable.authme.debug;
+
+import ch.jalu.injector.factory.Factory;
+import fr.xephi.authme.ConsoleLogger;
+import fr.xephi.authme.metrics.LatencyHistogram;
+import fr.xephi.authme.output.ConsoleLoggerFactory;
+import fr.xephi.authme.permission.DebugSectionPermissions;
+import fr.xephi.authme.permission.PermissionNode;
+import fr.xephi.authme.security.HashAlgorithm;
+import fr.xephi.authme.service.BukkitService;
+import fr.xephi.authme.settings.Settings;
+import fr.xephi.authme.settings.properties.DatabaseSettings;
+import fr.xephi.authme.settings.properties.SecuritySettings;
+import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.command.CommandSender;
+
+import javax.inject.Inject;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Simulates a login storm, e.g. many players reconnecting after a restart, and reports the latency of each
+ * phase and the throughput. See {@link LoginStorm}.
+ * <p>
+ * The simulated players go through the real processes, but in a {@link LoadTestEnvironment} separate from the
+ * plugin: the accounts are stored in a scratch SQLite database, and events, commands, BungeeCord messages,
+ * permission groups and the IP history are stubbed out. The password hash and whether the accounts are cached
+ * can be chosen, so that their effect can be compared.
+ */
+class LoadTest implements DebugSection {
+
+    private static final String NAME_PREFIX = "loadtest#";
+
+    private final ConsoleLogger logger = ConsoleLoggerFactory.get(LoadTest.class);
+    private final AtomicBoolean isRunning = new AtomicBoolean();
+
+    @Inject
+    private Settings settings;
+
+    @Inject
+    private Server server;
+
+    @Inject
+    private BukkitService bukkitService;
+
+    @Inject
+    private Factory<LoadTestEnvironment> environmentFactory;
+
+    @Override
+    public String getName() {
+        return "loadtest";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Simulates many players logging in at once";
+    }
+
+    @Override
+    public void execute(CommandSender sender, List<String> arguments) {
+        HashAlgorithm algorithm;
+        boolean useCache;
+        int players;
+        int seconds;
+        int threads;
+        try {
+            Map<String, String> options = parseOptions(arguments);
+            algorithm = HashAlgorithm.valueOf(options.getOrDefault("hash",
+                settings.getProperty(SecuritySettings.PASSWORD_HASH).name()).toUpperCase(Locale.ROOT));
+            useCache = Boolean.parseBoolean(options.getOrDefault("cache",
+                String.valueOf(settings.getProperty(DatabaseSettings.USE_CACHING))));
+            players = Integer.parseInt(options.getOrDefault("players", "500"));
+            seconds = Integer.parseInt(options.getOrDefault("seconds", "30"));
+            threads = Integer.parseInt(options.getOrDefault("threads", "16"));
+        } catch (IllegalArgumentException e) {
+            sendUsage(sender, "Invalid value: " + e.getMessage());
+            return;
+        }
+        if (algorithm.getClazz() == null) {
+            sendUsage(sender, "Hash algorithm " + algorithm + " cannot be used");
+            return;
+        } else if (players < 1 || seconds < 0 || threads < 1) {
+            sendUsage(sender, "players and threads must be positive, seconds may not be negative");
+            return;
+        }
+        if (!isRunning.compareAndSet(false, true)) {
+            sender.sendMessage(ChatColor.RED + "A load test is already running");
+            return;
+        }
+
+        Location location = server.getWorlds().get(0).getSpawnLocation();
+        sender.sendMessage(ChatColor.BLUE + "Starting load test: " + players + " players over " + seconds + "s, "
+            + threads + " threads, " + algorithm + ", cache " + (useCache ? "on" : "off"));
+        bukkitService.runTaskAsynchronously(task -> {
+            try {
+                runTest(sender, algorithm, useCache, players, seconds, threads, location);
+            } finally {
+                isRunning.set(false);
+            }
+        });
+    }
+
+    private void runTest(CommandSender sender, HashAlgorithm algorithm, boolean useCache, int players, int seconds,
+                         int threads, Location location) {
+        List<String> names = new ArrayList<>(players);
+        for (int i = 0; i < players; ++i) {
+            names.add(NAME_PREFIX + i);
+        }
+        try (LoadTestEnvironment environment = environmentFactory.newInstance(LoadTestEnvironment.class)) {
+            environment.start(algorithm, useCache);
+            LoginStorm storm = environment.createLoginStorm();
+            storm.createAccounts(names, threads);
+            long elapsedMillis = storm.run(names, threads, seconds * 1000L, location);
+            sendResults(sender, storm, players, elapsedMillis, environment.getFailedTasks());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException | RuntimeException e) {
+            logger.logException("Load test failed:", e);
+            sender.sendMessage(ChatColor.RED + "The load test failed: " + e.getMessage());
+        }
+    }
+
+    private static void sendResults(CommandSender sender, LoginStorm storm, int players, long elapsedMillis,
+                                    int failedTasks) {
+        sender.sendMessage(ChatColor.BLUE + "Load test finished in " + elapsedMillis + " ms: "
+            + String.format(Locale.ROOT, "%.1f", players * 1000.0 / Math.max(1, elapsedMillis))
+            + " players/s, " + storm.getErrors() + " errors, " + failedTasks + " failed tasks");
+        sender.sendMessage("phase: count / p50 / p99 / max (ms)");
+        storm.getResults().forEach((phase, snapshot) -> sender.sendMessage(formatPhase(phase, snapshot)));
+    }
+
+    private static String formatPhase(LoginStorm.Phase phase, LatencyHistogram.Snapshot snapshot) {
+        return String.format(Locale.ROOT, "%s: %d / %.2f / %.2f / %.2f", phase.name().toLowerCase(Locale.ROOT),
+            snapshot.getCount(), snapshot.getValueAtQuantile(0.5) / 1000.0,
+            snapshot.getValueAtQuantile(0.99) / 1000.0, snapshot.getMax() / 1000.0);
+    }
+
+    private static Map<String, String> parseOptions(List<String> arguments) {
+        Map<String, String> options = new HashMap<>();
+        for (String argument : arguments) {
+            int separator = argument.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got '" + argument + "'");
+            }
+            options.put(argument.substring(0, separator).toLowerCase(Locale.ROOT), argument.substring(separator + 1));
+        }
+        return options;
+    }
+
+    private static void sendUsage(CommandSender sender, String error) {
+        sender.sendMessage(ChatColor.RED + error);
+        sender.sendMessage("Usage: /authme debug loadtest [players=500] [seconds=30] [threads=16] "
+            + "[hash=<algorithm>] [cache=true|false]");
+    }
+
+    @Override
+    public PermissionNode getRequiredPermission() {
+        return DebugSectionPermissions.LOAD_TEST;
+    }
+}
@@ -0,0 +1,223 @@
+package fr.xephi.authme.command.executable.authme.debug;
+
+import com.google.common.base.Defaults;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import fr.euphyllia.energie.model.Scheduler;
+import fr.euphyllia.energie.model.SchedulerCallBack;
+import fr.euphyllia.energie.model.SchedulerTaskInter;
+import fr.xephi.authme.AuthMe;
+import fr.xephi.authme.ConsoleLogger;
+import fr.xephi.authme.output.ConsoleLoggerFactory;
+import fr.xephi.authme.service.BukkitService;
+import fr.xephi.authme.settings.Settings;
+import org.bukkit.BanEntry;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bukkit service of the {@link LoadTestEnvironment}. The tasks are not run by the server's scheduler: tasks for
+ * the main thread run on a thread of the load test, and asynchronous tasks on a thread pool. The main thread does
+ * not run in ticks, so a task runs as soon as the thread is free; delays are converted at 50 ms per tick.
+ * <p>
+ * Everything which would have an effect outside of AuthMe does nothing: events are not fired, commands are not
+ * run, no BungeeCord messages are sent and no IP addresses are banned. No players are online.
+ */
+final class LoadTestBukkitService extends BukkitService {
+
+    private static final long MILLIS_PER_TICK = 1000 / TICKS_PER_SECOND;
+
+    private final ConsoleLogger logger = ConsoleLoggerFactory.get(LoadTestBukkitService.class);
+    private final ScheduledExecutorService mainThread;
+    private final ExecutorService asyncThreads;
+    private final AtomicInteger failedTasks = new AtomicInteger();
+    private volatile Thread mainThreadInstance;
+
+    LoadTestBukkitService(AuthMe authMe, Settings settings) {
+        super(authMe, settings);
+        mainThread = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AuthMe-LoadTest-Main");
+            thread.setDaemon(true);
+            mainThreadInstance = thread;
+            return thread;
+        });
+        asyncThreads = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("AuthMe-LoadTest-Async-%d").build());
+    }
+
+    @Override
+    public void scheduleSyncTaskFromOptionallyAsyncTask(SchedulerCallBack task) {
+        if (Thread.currentThread() == mainThreadInstance) {
+            task.run(null);
+        } else {
+            runTask(null, task);
+        }
+    }
+
+    @Override
+    public SchedulerTaskInter runTask(Object object, SchedulerCallBack task) {
+        return schedule(task, 0, 0, false);
+    }
+
+    @Override
+    public SchedulerTaskInter runTaskLater(Object object, SchedulerCallBack task, long delay) {
+        return schedule(task, delay, 0, false);
+    }
+
+    @Override
+    public SchedulerTaskInter runTaskAsynchronously(SchedulerCallBack task) {
+        return schedule(task, 0, 0, true);
+    }
+
+    @Override
+    public SchedulerTaskInter runTaskTimerAsynchronously(SchedulerCallBack task, long delay, long period) {
+        return schedule(task, delay, period, true);
+    }
+
+    @Override
+    public SchedulerTaskInter runTaskTimer(Object object, SchedulerCallBack task, long delay, long period) {
+        return schedule(task, delay, period, false);
+    }
+
+    @Override
+    public Scheduler getScheduler() {
+        // All methods which schedule tasks are overridden, so that nothing is run by the server
+        throw new UnsupportedOperationException("The load test does not use the server's scheduler");
+    }
+
+    @Override
+    public int broadcastMessage(String message) {
+        return 0;
+    }
+
+    @Override
+    public Player getPlayerExact(String name) {
+        return null;
+    }
+
+    @Override
+    public Collection<Player> getOnlinePlayers() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void callEvent(Event event) {
+        // Events are not passed on to other plugins
+    }
+
+    @Override
+    public boolean dispatchCommand(CommandSender sender, String commandLine) {
+        return sender != null;
+    }
+
+    @Override
+    public boolean dispatchConsoleCommand(String commandLine) {
+        return true;
+    }
+
+    @Override
+    public void sendBungeeMessage(Player player, byte[] bytes) {
+        // No messages are sent to the proxy
+    }
+
+    @Override
+    public BanEntry banIp(String ip, String reason, Date expires, String source) {
+        return null;
+    }
+
+    /**
+     * @return number of tasks which threw an exception
+     */
+    int getFailedTasks() {
+        return failedTasks.get();
+    }
+
+    /**
+     * Stops the threads of the service. Tasks which have not run yet are dropped.
+     */
+    void shutdown() {
+        shutdownVirtualThreads();
+        mainThread.shutdownNow();
+        asyncThreads.shutdownNow();
+    }
+
+    private SchedulerTaskInter schedule(SchedulerCallBack task, long delay, long period, boolean isAsync) {
+        ScheduledTask scheduledTask = new ScheduledTask();
+        Runnable run = () -> {
+            if (!scheduledTask.isCancelled) {
+                runSafely(task, scheduledTask.handle);
+            }
+        };
+        if (isAsync && delay <= 0 && period <= 0) {
+            scheduledTask.future = asyncThreads.submit(run);
+            return scheduledTask.handle;
+        }
+
+        // Delayed asynchronous tasks are handed over to the pool once they are due
+        Runnable action = isAsync ? () -> asyncThreads.execute(run) : run;
+        long delayMillis = Math.max(0, delay) * MILLIS_PER_TICK;
+        scheduledTask.future = period > 0
+            ? mainThread.scheduleAtFixedRate(action, delayMillis, period * MILLIS_PER_TICK, TimeUnit.MILLISECONDS)
+            : mainThread.schedule(action, delayMillis, TimeUnit.MILLISECONDS);
+        return scheduledTask.handle;
+    }
+
+    private void runSafely(SchedulerCallBack task, SchedulerTaskInter handle) {
+        try {
+            task.run(handle);
+        } catch (RuntimeException e) {
+            // Only log the first failure: the same failure likely happens for many simulated players
+            if (failedTasks.getAndIncrement() == 0) {
+                logger.logException("A task of the load test failed:", e);
+            }
+        }
+    }
+
+    /**
+     * A task scheduled by the service. The scheduler's task type is an interface, so the handle given out for
+     * the task is a proxy which only supports cancelling the task.
+     */
+    private static final class ScheduledTask implements InvocationHandler {
+
+        private final SchedulerTaskInter handle = (SchedulerTaskInter) Proxy.newProxyInstance(
+            SchedulerTaskInter.class.getClassLoader(), new Class<?>[]{SchedulerTaskInter.class}, this);
+        private volatile Future<?> future;
+        private volatile boolean isCancelled;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "cancel":
+                    isCancelled = true;
+                    Future<?> scheduledFuture = future;
+                    if (scheduledFuture != null) {
+                        scheduledFuture.cancel(false);
+                    }
+                    return Defaults.defaultValue(method.getReturnType());
+                case "isCancelled":
+                    return isCancelled;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "ScheduledTask{isCancelled=" + isCancelled + "}";
+                default:
+                    return Defaults.defaultValue(method.getReturnType());
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package fr.xephi.authme.command.executable.authme.debug;
+
+import ch.jalu.configme.resource.PropertyResource;
+import ch.jalu.injector.Injector;
+import ch.jalu.injector.InjectorBuilder;
+import com.google.common.base.Defaults;
+import fr.xephi.authme.AuthMe;
+import fr.xephi.authme.data.auth.PlayerCache;
+import fr.xephi.authme.data.limbo.persistence.LimboPersistence;
+import fr.xephi.authme.datasource.AsyncDataSource;
+import fr.xephi.authme.datasource.CacheDataSource;
+import fr.xephi.authme.datasource.DataSource;
+import fr.xephi.authme.datasource.SQLite;
+import fr.xephi.authme.initialization.DataFolder;
+import fr.xephi.authme.mail.EmailService;
+import fr.xephi.authme.message.Messages;
+import fr.xephi.authme.security.HashAlgorithm;
+import fr.xephi.authme.security.PasswordBlocklist;
+import fr.xephi.authme.service.BukkitService;
+import fr.xephi.authme.service.GeoIpService;
+import fr.xephi.authme.service.HostNameResolver;
+import fr.xephi.authme.service.IpHistoryService;
+import fr.xephi.authme.service.yaml.YamlFileResourceProvider;
+import fr.xephi.authme.settings.Settings;
+import fr.xephi.authme.settings.SpawnLoader;
+import fr.xephi.authme.settings.properties.AuthMeSettingsRetriever;
+import fr.xephi.authme.settings.properties.DatabaseSettings;
+import fr.xephi.authme.settings.properties.HooksSettings;
+import fr.xephi.authme.settings.properties.RestrictionSettings;
+import fr.xephi.authme.settings.properties.SecuritySettings;
+import fr.xephi.authme.util.FileUtils;
+import org.bukkit.Server;
+import org.bukkit.plugin.PluginManager;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Environment in which the load test runs, separate from the plugin. The processes are created by an injector
+ * of their own, with a scratch SQLite database in a folder of their own which is deleted afterwards. The settings
+ * are those of the server, except for the password hash. Services which only read from the server or the plugin's
+ * folder, such as the messages and the spawn, are shared with the plugin.
+ * <p>
+ * Nothing which the simulated players do has an effect outside of the environment:
+ * <ul>
+ *   <li>events are not fired, see {@link LoadTestBukkitService};</li>
+ *   <li>configured commands are not run and no BungeeCord messages are sent;</li>
+ *   <li>no plugins are found, so nothing is hooked into and no permission groups are changed;</li>
+ *   <li>the IP history is not recorded and no IP addresses are banned.</li>
+ * </ul>
+ */
+final class LoadTestEnvironment implements AutoCloseable {
+
+    private static final String FOLDER_NAME = "loadtest";
+
+    @Inject
+    @DataFolder
+    private File dataFolder;
+
+    @Inject
+    private AuthMe plugin;
+
+    @Inject
+    private Server server;
+
+    @Inject
+    private Messages messages;
+
+    @Inject
+    private SpawnLoader spawnLoader;
+
+    @Inject
+    private GeoIpService geoIpService;
+
+    @Inject
+    private HostNameResolver hostNameResolver;
+
+    @Inject
+    private PasswordBlocklist passwordBlocklist;
+
+    @Inject
+    private EmailService emailService;
+
+    private File folder;
+    private Injector injector;
+    private LoadTestBukkitService bukkitService;
+    private DataSource dataSource;
+
+    LoadTestEnvironment() {
+    }
+
+    /**
+     * Creates the scratch database and the injector of the environment.
+     *
+     * @param hashAlgorithm the hash algorithm to use
+     * @param useCache whether the accounts are cached, as with the setting DataSource.caching
+     * @throws SQLException if the scratch database could not be created
+     */
+    void start(HashAlgorithm hashAlgorithm, boolean useCache) throws SQLException {
+        folder = new File(dataFolder, FOLDER_NAME);
+        // Remove what may be left of a load test which was interrupted
+        FileUtils.purgeDirectory(folder);
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            throw new IllegalStateException("Could not create folder '" + folder + "'");
+        }
+        Settings settings = createSettings(hashAlgorithm);
+        PluginManager pluginManager = createStub(PluginManager.class, null);
+        bukkitService = new LoadTestBukkitService(plugin, settings);
+
+        injector = new InjectorBuilder()
+            .addDefaultHandlers("fr.xephi.authme")
+            .create();
+        injector.register(AuthMe.class, plugin);
+        injector.register(Server.class, createServerStub(pluginManager));
+        injector.register(PluginManager.class, pluginManager);
+        injector.provide(DataFolder.class, folder);
+        injector.register(Settings.class, settings);
+        injector.register(BukkitService.class, bukkitService);
+        injector.register(Messages.class, messages);
+        injector.register(SpawnLoader.class, spawnLoader);
+        injector.register(GeoIpService.class, geoIpService);
+        injector.register(HostNameResolver.class, hostNameResolver);
+        injector.register(PasswordBlocklist.class, passwordBlocklist);
+        injector.register(EmailService.class, emailService);
+
+        DataSource source = new SQLite(settings, folder);
+        dataSource = useCache
+            ? new CacheDataSource(source, injector.getSingleton(PlayerCache.class), settings)
+            : source;
+        injector.register(DataSource.class, dataSource);
+    }
+
+    /**
+     * @return new load test whose processes run in the environment
+     */
+    LoginStorm createLoginStorm() {
+        return injector.newInstance(LoginStorm.class);
+    }
+
+    /**
+     * @return number of scheduled tasks which threw an exception
+     */
+    int getFailedTasks() {
+        return bukkitService == null ? 0 : bukkitService.getFailedTasks();
+    }
+
+    /**
+     * Stops the services of the environment and deletes the scratch database.
+     */
+    @Override
+    public void close() {
+        if (injector != null) {
+            LimboPersistence limboPersistence = injector.getIfAvailable(LimboPersistence.class);
+            if (limboPersistence != null) {
+                limboPersistence.shutdown();
+            }
+            AsyncDataSource asyncDataSource = injector.getIfAvailable(AsyncDataSource.class);
+            if (asyncDataSource != null) {
+                asyncDataSource.shutdown();
+            }
+            IpHistoryService ipHistoryService = injector.getIfAvailable(IpHistoryService.class);
+            if (ipHistoryService != null) {
+                ipHistoryService.shutdown();
+            }
+        }
+        if (bukkitService != null) {
+            bukkitService.shutdown();
+        }
+        if (dataSource != null) {
+            dataSource.closeConnection();
+        }
+        if (folder != null) {
+            FileUtils.purgeDirectory(folder);
+            FileUtils.delete(folder);
+        }
+    }
+
+    /**
+     * Loads the server's settings without a migration service, so that the configuration file is never written.
+     * The changes made for the environment are only kept in memory.
+     */
+    private Settings createSettings(HashAlgorithm hashAlgorithm) {
+        PropertyResource resource = YamlFileResourceProvider.loadFromFile(new File(dataFolder, "config.yml"));
+        Settings settings = new Settings(folder, resource, null, AuthMeSettingsRetriever.buildConfigurationData());
+        settings.setProperty(SecuritySettings.PASSWORD_HASH, hashAlgorithm);
+        settings.setProperty(HooksSettings.BUNGEECORD, false);
+        settings.setProperty(DatabaseSettings.USE_IP_HISTORY, false);
+        settings.setProperty(RestrictionSettings.BAN_UNKNOWN_IP, false);
+        return settings;
+    }
+
+    /**
+     * Creates a server which passes on the calls reading from the server, except for the online players, and
+     * ignores all other calls.
+     */
+    private Server createServerStub(PluginManager pluginManager) {
+        return createStub(Server.class, method -> {
+            String name = method.getName();
+            if ("getPluginManager".equals(name)) {
+                return pluginManager;
+            }
+            boolean isRead = name.startsWith("get") || name.startsWith("is") || name.startsWith("has");
+            return isRead && !name.startsWith("getPlayer") && !"getOnlinePlayers".equals(name) ? server : null;
+        });
+    }
+
+    /**
+     * Creates an implementation of the given interface whose methods do nothing and return an empty value,
+     * unless the target resolver returns an object to pass the call on to.
+     *
+     * @param type the interface to implement
+     * @param targetResolver returns the object to call the given method on, or null to ignore the call;
+     *                       null to ignore all calls
+     * @param <T> the interface type
+     * @return the stub
+     */
+    private static <T> T createStub(Class<T> type, Function<Method, Object> targetResolver) {
+        Object stub = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "LoadTestStub{" + type.getSimpleName() + "}";
+                default:
+                    break;
+            }
+            Object target = targetResolver == null ? null : targetResolver.apply(method);
+            if (target == null) {
+                return getEmptyValue(method.getReturnType());
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+        return type.cast(stub);
+    }
+
+    private static Object getEmptyValue(Class<?> type) {
+        if (type.isArray()) {
+            return Array.newInstance(type.getComponentType(), 0);
+        } else if (type == Set.class) {
+            return Collections.emptySet();
+        } else if (type == List.class || type == Collection.class) {
+            return Collections.emptyList();
+        }
+        return Defaults.defaultValue(type);
+    }
+}
@@ -0,0 +1,343 @@
+package fr.xephi.authme.command.executable.authme.debug;
+
+import com.google.common.base.Defaults;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import fr.xephi.authme.data.auth.PlayerAuth;
+import fr.xephi.authme.data.auth.PlayerCache;
+import fr.xephi.authme.data.join.JoinContextManager;
+import fr.xephi.authme.data.limbo.LimboService;
+import fr.xephi.authme.datasource.DataSource;
+import fr.xephi.authme.metrics.LatencyHistogram;
+import fr.xephi.authme.permission.PermissionsManager;
+import fr.xephi.authme.process.Management;
+import fr.xephi.authme.process.quit.AsynchronousQuit;
+import fr.xephi.authme.security.PasswordSecurity;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import javax.inject.Inject;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Simulates many players joining, logging in and quitting within a short time, as after a restart,
+ * and measures how long each phase takes.
+ * <p>
+ * The simulated players go through the real processes: the join context is prefetched as in the pre-login
+ * event, the join and login are started with {@link Management} and the quit is processed by
+ * {@link AsynchronousQuit}. A phase is complete once its effect is visible, e.g. the player is logged in and
+ * the limbo data has been restored, so the time on the main thread and waiting for the schedulers is included.
+ * Players arrive at a constant rate; a fixed number of threads runs the pre-login and quit steps.
+ * <p>
+ * Instances are created by the injector of a {@link LoadTestEnvironment}, so that the processes run in the
+ * environment and not in the plugin.
+ */
+final class LoginStorm {
+
+    /** Password of all simulated accounts. */
+    private static final String PASSWORD = "loadtest-password";
+    private static final String IP_PREFIX = "10.13.";
+    /** Time after which a join or login which has not completed is counted as failed. */
+    private static final long STEP_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long POLL_INTERVAL_MICROS = 500;
+
+    /**
+     * Phases of a simulated player's visit.
+     */
+    enum Phase {
+        /** Loading the account and the join context, including the wait for a thread after the player arrives. */
+        PRE_LOGIN,
+        JOIN,
+        LOGIN,
+        QUIT
+    }
+
+    @Inject
+    private DataSource dataSource;
+
+    @Inject
+    private PasswordSecurity passwordSecurity;
+
+    @Inject
+    private JoinContextManager joinContextManager;
+
+    @Inject
+    private PermissionsManager permissionsManager;
+
+    @Inject
+    private Management management;
+
+    @Inject
+    private AsynchronousQuit asynchronousQuit;
+
+    @Inject
+    private PlayerCache playerCache;
+
+    @Inject
+    private LimboService limboService;
+
+    private final Map<Phase, LatencyHistogram> histograms = new EnumMap<>(Phase.class);
+    private final AtomicInteger errors = new AtomicInteger();
+
+    LoginStorm() {
+        for (Phase phase : Phase.values()) {
+            histograms.put(phase, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Registers the simulated accounts.
+     *
+     * @param names the names of the simulated players
+     * @param threads the number of threads to hash the passwords with
+     * @throws InterruptedException if interrupted while hashing the passwords
+     */
+    void createAccounts(List<String> names, int threads) throws InterruptedException {
+        ExecutorService executor = createWorkers(threads);
+        try {
+            List<Future<PlayerAuth>> auths = new ArrayList<>();
+            for (int i = 0; i < names.size(); ++i) {
+                String name = names.get(i);
+                String ip = getIp(i);
+                auths.add(executor.submit(() -> PlayerAuth.builder()
+                    .name(name)
+                    .realName(name)
+                    .password(passwordSecurity.computeHash(PASSWORD, name))
+                    .registrationIp(ip)
+                    .lastIp(ip)
+                    .build()));
+            }
+            List<PlayerAuth> accounts = new ArrayList<>(auths.size());
+            for (Future<PlayerAuth> auth : auths) {
+                accounts.add(auth.get());
+            }
+            dataSource.saveAuths(accounts);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not create the accounts", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the simulation: the players arrive evenly spread over the given time.
+     *
+     * @param names the names of the simulated players
+     * @param threads the number of threads running the pre-login and quit steps
+     * @param arrivalMillis the time over which the players arrive, in milliseconds
+     * @param location the location of the simulated players
+     * @return the time it took until all players had quit, in milliseconds
+     * @throws InterruptedException if interrupted while waiting for the players
+     */
+    long run(List<String> names, int threads, long arrivalMillis, Location location) throws InterruptedException {
+        ExecutorService workers = createWorkers(threads);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("AuthMe-LoadTest-Scheduler").build());
+        CountDownLatch remainingPlayers = new CountDownLatch(names.size());
+        long intervalMicros = names.size() <= 1 ? 0 : arrivalMillis * 1000 / (names.size() - 1);
+
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < names.size(); ++i) {
+                SimulatedPlayer player = new SimulatedPlayer(names.get(i), getIp(i), location);
+                scheduler.schedule(() -> simulatePlayer(player, System.nanoTime(), workers, scheduler)
+                        .whenComplete((result, failure) -> remainingPlayers.countDown()),
+                    i * intervalMicros, TimeUnit.MICROSECONDS);
+            }
+            remainingPlayers.await();
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } finally {
+            scheduler.shutdownNow();
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * @return snapshot of the durations of each phase
+     */
+    Map<Phase, LatencyHistogram.Snapshot> getResults() {
+        Map<Phase, LatencyHistogram.Snapshot> results = new EnumMap<>(Phase.class);
+        histograms.forEach((phase, histogram) -> results.put(phase, histogram.snapshot()));
+        return results;
+    }
+
+    /**
+     * @return number of players whose visit failed (exception, timeout or wrong password)
+     */
+    int getErrors() {
+        return errors.get();
+    }
+
+    private CompletableFuture<Void> simulatePlayer(SimulatedPlayer simulatedPlayer, long arrival,
+                                                   ExecutorService workers, ScheduledExecutorService scheduler) {
+        Player player = simulatedPlayer.getPlayer();
+        String name = simulatedPlayer.name;
+        return CompletableFuture
+            .runAsync(() -> {
+                // PlayerListener#onAsyncPlayerPreLoginEventHighest
+                joinContextManager.prefetch(name, player.getUniqueId(), dataSource.getAuth(name));
+                record(Phase.PRE_LOGIN, arrival, System.nanoTime());
+            }, workers)
+            .thenCompose(v -> runStep(Phase.JOIN, () -> management.performJoin(player),
+                () -> limboService.hasLimboPlayer(name) || playerCache.isAuthenticated(name), scheduler))
+            .thenCompose(hasJoined -> hasJoined && !playerCache.isAuthenticated(name)
+                ? runStep(Phase.LOGIN, () -> management.performLogin(player, PASSWORD),
+                    () -> playerCache.isAuthenticated(name) && !limboService.hasLimboPlayer(name), scheduler)
+                : CompletableFuture.completedFuture(hasJoined))
+            .handle((isSuccessful, failure) -> {
+                if (failure != null || !isSuccessful) {
+                    errors.incrementAndGet();
+                }
+                return null;
+            })
+            // Always quit, so that nothing of the simulated player is left behind
+            .thenRunAsync(() -> quit(simulatedPlayer), workers);
+    }
+
+    private CompletableFuture<Boolean> runStep(Phase phase, Runnable action, BooleanSupplier isComplete,
+                                               ScheduledExecutorService scheduler) {
+        long start = System.nanoTime();
+        action.run();
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        poll(isComplete, start + STEP_TIMEOUT_NANOS, result, scheduler);
+        return result.thenApply(isSuccessful -> {
+            if (isSuccessful) {
+                record(phase, start, System.nanoTime());
+            }
+            return isSuccessful;
+        });
+    }
+
+    private static void poll(BooleanSupplier isComplete, long deadline, CompletableFuture<Boolean> result,
+                             ScheduledExecutorService scheduler) {
+        if (isComplete.getAsBoolean()) {
+            result.complete(true);
+        } else if (System.nanoTime() - deadline > 0) {
+            result.complete(false);
+        } else {
+            scheduler.schedule(() -> poll(isComplete, deadline, result, scheduler),
+                POLL_INTERVAL_MICROS, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    private void quit(SimulatedPlayer simulatedPlayer) {
+        String name = simulatedPlayer.name;
+        long start = System.nanoTime();
+        try {
+            // PlayerListener#onPlayerQuit; the process is called directly to know when it is done
+            simulatedPlayer.isOnline = false;
+            joinContextManager.evict(name);
+            permissionsManager.invalidateCache(name);
+            asynchronousQuit.processQuit(simulatedPlayer.getPlayer());
+            record(Phase.QUIT, start, System.nanoTime());
+        } catch (RuntimeException e) {
+            errors.incrementAndGet();
+        }
+    }
+
+    private void record(Phase phase, long startNanos, long endNanos) {
+        histograms.get(phase).record(TimeUnit.NANOSECONDS.toMicros(endNanos - startNanos));
+    }
+
+    private static ExecutorService createWorkers(int threads) {
+        return Executors.newFixedThreadPool(threads,
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("AuthMe-LoadTest-%d").build());
+    }
+
+    private static String getIp(int index) {
+        // One address per player, so that the limits per IP address don't apply
+        return IP_PREFIX + (index / 250 % 250) + "." + (index % 250 + 1);
+    }
+
+    /**
+     * A player who is not actually connected. Calls to the player's methods which are not used by the processes
+     * do nothing and return the default value of their return type.
+     */
+    private static final class SimulatedPlayer implements InvocationHandler {
+
+        private final String name;
+        private final UUID uniqueId;
+        private final InetSocketAddress address;
+        private final Location location;
+        private final Player player;
+        private volatile boolean isOnline = true;
+
+        SimulatedPlayer(String name, String ip, Location location) {
+            this.name = name;
+            this.uniqueId = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+            try {
+                // Literal addresses are not looked up
+                this.address = new InetSocketAddress(InetAddress.getByName(ip), 25565);
+            } catch (UnknownHostException e) {
+                throw new IllegalArgumentException("Invalid IP address '" + ip + "'", e);
+            }
+            this.location = location;
+            this.player = (Player) Proxy.newProxyInstance(Player.class.getClassLoader(),
+                new Class<?>[]{Player.class}, this);
+        }
+
+        Player getPlayer() {
+            return player;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "getName":
+                case "getDisplayName":
+                case "getPlayerListName":
+                    return name;
+                case "getUniqueId":
+                    return uniqueId;
+                case "getAddress":
+                    return address;
+                case "isOnline":
+                    return isOnline;
+                case "getLocation":
+                    return location.clone();
+                case "getWorld":
+                    return location.getWorld();
+                case "getGameMode":
+                    return GameMode.SURVIVAL;
+                case "getHealth":
+                    return 20.0;
+                case "getWalkSpeed":
+                    return 0.2f;
+                case "getFlySpeed":
+                    return 0.1f;
+                case "hasPlayedBefore":
+                case "teleport":
+                    return true;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "SimulatedPlayer{name=" + name + "}";
+                default:
+                    return Defaults.defaultValue(method.getReturnType());
+            }
+        }
+    }
+}
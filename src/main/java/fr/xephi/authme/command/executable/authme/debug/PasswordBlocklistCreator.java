@@ -0,0 +1,125 @@
+package fr.xephi.authme.command.executable.authme.debug;
+
+import fr.xephi.authme.ConsoleLogger;
+import fr.xephi.authme.initialization.DataFolder;
+import fr.xephi.authme.output.ConsoleLoggerFactory;
+import fr.xephi.authme.permission.DebugSectionPermissions;
+import fr.xephi.authme.permission.PermissionNode;
+import fr.xephi.authme.security.PasswordBlocklist;
+import fr.xephi.authme.service.BukkitService;
+import fr.xephi.authme.settings.Settings;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Shows the password blocklist in use and creates it from a wordlist or a list of SHA-1 hashes.
+ */
+class PasswordBlocklistCreator implements DebugSection {
+
+    private final ConsoleLogger logger = ConsoleLoggerFactory.get(PasswordBlocklistCreator.class);
+    private final AtomicBoolean isRunning = new AtomicBoolean();
+
+    @Inject
+    private PasswordBlocklist passwordBlocklist;
+
+    @Inject
+    private Settings settings;
+
+    @Inject
+    private BukkitService bukkitService;
+
+    @Inject
+    @DataFolder
+    private File dataFolder;
+
+    @Override
+    public String getName() {
+        return "blocklist";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Creates the blocklist of breached passwords";
+    }
+
+    @Override
+    public void execute(CommandSender sender, List<String> arguments) {
+        File target = passwordBlocklist.getFile(settings);
+        if (target == null) {
+            sender.sendMessage(ChatColor.RED + "The password blocklist is disabled: set "
+                + "settings.security.passwordBlocklistFile in the config to use it");
+            return;
+        } else if (arguments.isEmpty()) {
+            sender.sendMessage(ChatColor.BLUE + "Password blocklist " + target.getName() + ": "
+                + passwordBlocklist.getSize() + " entries");
+            sender.sendMessage("Create it with: /authme debug blocklist <file in AuthMe folder> [hashes]");
+            sender.sendMessage("Use 'hashes' if the file has SHA-1 hashes instead of one password per line");
+            return;
+        }
+
+        Path input = getInputFile(arguments.get(0));
+        boolean isHashList = arguments.size() > 1 && "hashes".equalsIgnoreCase(arguments.get(1));
+        if (input == null) {
+            sender.sendMessage(ChatColor.RED + "File '" + arguments.get(0) + "' does not exist in the AuthMe folder");
+            return;
+        } else if (!isRunning.compareAndSet(false, true)) {
+            sender.sendMessage(ChatColor.RED + "The password blocklist is already being created");
+            return;
+        }
+        sender.sendMessage(ChatColor.BLUE + "Creating the password blocklist from '" + input.getFileName()
+            + "'; this may take a few minutes for large lists");
+        bukkitService.runTaskAsynchronously(task -> {
+            try {
+                createBlocklist(sender, input, isHashList);
+            } finally {
+                isRunning.set(false);
+            }
+        });
+    }
+
+    /**
+     * Returns the file with the given name in the data folder. Paths which lead outside of the data folder,
+     * also by symbolic links, are refused.
+     *
+     * @param fileName the name of the file, relative to the data folder
+     * @return the file, or null if it does not exist or is not in the data folder
+     */
+    private Path getInputFile(String fileName) {
+        try {
+            Path folder = dataFolder.toPath().toRealPath();
+            Path file = folder.resolve(fileName).toRealPath();
+            return file.startsWith(folder) && Files.isRegularFile(file) ? file : null;
+        } catch (IOException | InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private void createBlocklist(CommandSender sender, Path input, boolean isHashList) {
+        long start = System.nanoTime();
+        long size;
+        try {
+            size = passwordBlocklist.create(input, isHashList, settings);
+        } catch (IOException e) {
+            logger.logException("Could not create the password blocklist:", e);
+            sender.sendMessage(ChatColor.RED + "Could not create the password blocklist: " + e.getMessage());
+            return;
+        }
+        sender.sendMessage(ChatColor.BLUE + "Created the password blocklist with " + size + " entries in "
+            + TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) + "s");
+    }
+
+    @Override
+    public PermissionNode getRequiredPermission() {
+        return DebugSectionPermissions.PASSWORD_BLOCKLIST;
+    }
+}
@@ -11,6 +11,8 @@ import fr.xephi.authme.service.CommonService;
 import fr.xephi.authme.service.PasswordRecoveryService;
 import fr.xephi.authme.service.ValidationService;
 import fr.xephi.authme.service.ValidationService.ValidationResult;
+import fr.xephi.authme.service.bungeecord.BungeeSender;
+import fr.xephi.authme.service.bungeecord.MessageType;
 import org.bukkit.entity.Player;
 
 import javax.inject.Inject;
@@ -38,6 +40,9 @@ public class EmailSetPasswordCommand extends PlayerCommand {
     @Inject
     private ValidationService validationService;
 
+    @Inject
+    private BungeeSender bungeeSender;
+
     @Override
     protected void runCommand(Player player, List<String> arguments) {
         if (recoveryService.canChangePassword(player)) {
@@ -48,6 +53,7 @@ public class EmailSetPasswordCommand extends PlayerCommand {
             if (!result.hasError()) {
                 HashedPassword hashedPassword = passwordSecurity.computeHash(password, name);
                 dataSource.updatePassword(name, hashedPassword);
+                bungeeSender.sendCacheUpdate(MessageType.REFRESH_PASSWORD, name);
                 recoveryService.removeFromSuccessfulRecovery(player);
                 logger.info("Player '" + name + "' has changed their password from recovery");
                 commonService.send(player, MessageKey.PASSWORD_CHANGED_SUCCESS);
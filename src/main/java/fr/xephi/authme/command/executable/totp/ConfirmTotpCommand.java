@@ -10,6 +10,8 @@ import fr.xephi.authme.message.MessageKey;
 import fr.xephi.authme.message.Messages;
 import fr.xephi.authme.security.totp.GenerateTotpService;
 import fr.xephi.authme.security.totp.TotpAuthenticator.TotpGenerationResult;
+import fr.xephi.authme.service.bungeecord.BungeeSender;
+import fr.xephi.authme.service.bungeecord.MessageType;
 import org.bukkit.entity.Player;
 
 import javax.inject.Inject;
@@ -34,6 +36,9 @@ public class ConfirmTotpCommand extends PlayerCommand {
     @Inject
     private Messages messages;
 
+    @Inject
+    private BungeeSender bungeeSender;
+
     @Override
     protected void runCommand(Player player, List<String> arguments) {
         PlayerAuth auth = playerCache.getAuth(player.getName());
@@ -64,8 +69,8 @@ public class ConfirmTotpCommand extends PlayerCommand {
     private void insertTotpKeyIntoDatabase(Player player, PlayerAuth auth, TotpGenerationResult totpDetails) {
         if (dataSource.setTotpKey(player.getName(), totpDetails.getTotpKey())) {
             messages.send(player, MessageKey.TWO_FACTOR_ENABLE_SUCCESS);
-            auth.setTotpKey(totpDetails.getTotpKey());
-            playerCache.updatePlayer(auth);
+            playerCache.updatePlayer(auth.getNickname(), cachedAuth -> cachedAuth.setTotpKey(totpDetails.getTotpKey()));
+            bungeeSender.sendCacheUpdate(MessageType.REFRESH_TOTP, player.getName());
             logger.info("Player '" + player.getName() + "' has successfully added a TOTP key to their account");
         } else {
             messages.send(player, MessageKey.ERROR);
@@ -9,6 +9,8 @@ import fr.xephi.authme.output.ConsoleLoggerFactory;
 import fr.xephi.authme.message.MessageKey;
 import fr.xephi.authme.message.Messages;
 import fr.xephi.authme.security.totp.TotpAuthenticator;
+import fr.xephi.authme.service.bungeecord.BungeeSender;
+import fr.xephi.authme.service.bungeecord.MessageType;
 import org.bukkit.entity.Player;
 
 import javax.inject.Inject;
@@ -33,6 +35,9 @@ public class RemoveTotpCommand extends PlayerCommand {
     @Inject
     private Messages messages;
 
+    @Inject
+    private BungeeSender bungeeSender;
+
     @Override
     protected void runCommand(Player player, List<String> arguments) {
         PlayerAuth auth = playerCache.getAuth(player.getName());
@@ -51,8 +56,8 @@ public class RemoveTotpCommand extends PlayerCommand {
 
     private void removeTotpKeyFromDatabase(Player player, PlayerAuth auth) {
         if (dataSource.removeTotpKey(auth.getNickname())) {
-            auth.setTotpKey(null);
-            playerCache.updatePlayer(auth);
+            playerCache.updatePlayer(auth.getNickname(), cachedAuth -> cachedAuth.setTotpKey(null));
+            bungeeSender.sendCacheUpdate(MessageType.REFRESH_TOTP, auth.getNickname());
             messages.send(player, MessageKey.TWO_FACTOR_REMOVED_SUCCESS);
             logger.info("Player '" + player.getName() + "' removed their TOTP key");
         } else {
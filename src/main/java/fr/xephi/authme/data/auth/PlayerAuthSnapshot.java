@@ -0,0 +1,140 @@
+package fr.xephi.authme.data.auth;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.net.InetAddresses;
+import fr.xephi.authme.security.crypts.HashedPassword;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+
+/**
+ * Immutable copy of a {@link PlayerAuth}, as kept in the caches.
+ * <p>
+ * Snapshots can be shared between threads freely: to change cached data, a modified copy is created and
+ * swapped in. They are also more compact than PlayerAuth objects, since many of them may be cached: world
+ * names are interned, IP addresses are kept in binary form and the last login is a primitive.
+ */
+public final class PlayerAuthSnapshot {
+
+    /** Value of {@link #lastLogin} if the player has never logged in. */
+    private static final long NO_LAST_LOGIN = Long.MIN_VALUE;
+    private static final Interner<String> WORLD_NAMES = Interners.newWeakInterner();
+
+    private final String nickname;
+    private final String realName;
+    private final HashedPassword password;
+    private final String totpKey;
+    private final String email;
+    /** Last IP address: byte array if it can be restored to the same text, otherwise the text itself. */
+    private final Object lastIp;
+    private final int groupId;
+    private final long lastLogin;
+    private final Object registrationIp;
+    private final long registrationDate;
+    private final double x;
+    private final double y;
+    private final double z;
+    private final String world;
+    private final float yaw;
+    private final float pitch;
+    private final UUID uuid;
+
+    private PlayerAuthSnapshot(PlayerAuth auth) {
+        nickname = auth.getNickname();
+        realName = auth.getRealName();
+        password = auth.getPassword();
+        totpKey = auth.getTotpKey();
+        email = auth.getEmail();
+        lastIp = compactIp(auth.getLastIp());
+        groupId = auth.getGroupId();
+        lastLogin = auth.getLastLogin() == null ? NO_LAST_LOGIN : auth.getLastLogin();
+        registrationIp = compactIp(auth.getRegistrationIp());
+        registrationDate = auth.getRegistrationDate();
+        x = auth.getQuitLocX();
+        y = auth.getQuitLocY();
+        z = auth.getQuitLocZ();
+        world = auth.getWorld() == null ? null : WORLD_NAMES.intern(auth.getWorld());
+        yaw = auth.getYaw();
+        pitch = auth.getPitch();
+        uuid = auth.getUuid();
+    }
+
+    /**
+     * Creates a snapshot of the given auth. Later changes to the auth are not reflected in the snapshot.
+     *
+     * @param auth the auth to copy
+     * @return snapshot of the auth
+     */
+    public static PlayerAuthSnapshot of(PlayerAuth auth) {
+        return new PlayerAuthSnapshot(auth);
+    }
+
+    /**
+     * Creates a new PlayerAuth with the data of this snapshot. The returned object may be modified
+     * without affecting the snapshot.
+     *
+     * @return new PlayerAuth with this snapshot's data
+     */
+    public PlayerAuth toPlayerAuth() {
+        return PlayerAuth.builder()
+            .name(nickname)
+            .realName(realName)
+            .password(password)
+            .totpKey(totpKey)
+            .email(email)
+            .lastIp(ipToString(lastIp))
+            .groupId(groupId)
+            .lastLogin(lastLogin == NO_LAST_LOGIN ? null : lastLogin)
+            .registrationIp(ipToString(registrationIp))
+            .registrationDate(registrationDate)
+            .locX(x)
+            .locY(y)
+            .locZ(z)
+            .locWorld(world)
+            .locYaw(yaw)
+            .locPitch(pitch)
+            .uuid(uuid)
+            .build();
+    }
+
+    public String getNickname() {
+        return nickname;
+    }
+
+    public String getRealName() {
+        return realName;
+    }
+
+    public HashedPassword getPassword() {
+        return password;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    private static Object compactIp(String ip) {
+        if (ip != null && InetAddresses.isInetAddress(ip)) {
+            InetAddress address = InetAddresses.forString(ip);
+            // Only keep the binary form if the text can be restored exactly, e.g. not for "0:0:0:0:0:0:0:1"
+            if (ip.equals(InetAddresses.toAddrString(address))) {
+                return address.getAddress();
+            }
+        }
+        return ip;
+    }
+
+    private static String ipToString(Object ip) {
+        if (ip instanceof byte[]) {
+            try {
+                return InetAddresses.toAddrString(InetAddress.getByAddress((byte[]) ip));
+            } catch (UnknownHostException e) {
+                // Cannot happen: the array was taken from an address
+                throw new IllegalStateException(e);
+            }
+        }
+        return (String) ip;
+    }
+}
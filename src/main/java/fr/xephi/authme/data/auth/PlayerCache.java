@@ -1,16 +1,22 @@
 package fr.xephi.authme.data.auth;
 
 
+import java.util.Collections;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * Used to manage player's Authenticated status
+ * <p>
+ * The data of logged in players is kept as immutable {@link PlayerAuthSnapshot snapshots}. Callers get their
+ * own copy of the data, which they may change and save again with {@link #updatePlayer(PlayerAuth)}, or
+ * change atomically with {@link #updatePlayer(String, Consumer)}.
  */
 public class PlayerCache {
 
-    private final Map<String, PlayerAuth> cache = new ConcurrentHashMap<>();
+    private final Map<String, PlayerAuthSnapshot> cache = new ConcurrentHashMap<>();
 
     PlayerCache() {
     }
@@ -21,7 +27,23 @@ public class PlayerCache {
      * @param auth the player auth object to save
      */
     public void updatePlayer(PlayerAuth auth) {
-        cache.put(auth.getNickname().toLowerCase(Locale.ROOT), auth);
+        cache.put(auth.getNickname().toLowerCase(Locale.ROOT), PlayerAuthSnapshot.of(auth));
+    }
+
+    /**
+     * Changes the cached data of the given player, if present. The changes are performed on a copy of the
+     * current data, which then replaces the cached snapshot atomically.
+     *
+     * @param user name of the player
+     * @param changes the changes to perform
+     * @return true if the player was in the cache, false otherwise
+     */
+    public boolean updatePlayer(String user, Consumer<PlayerAuth> changes) {
+        return cache.computeIfPresent(user.toLowerCase(Locale.ROOT), (name, snapshot) -> {
+            PlayerAuth auth = snapshot.toPlayerAuth();
+            changes.accept(auth);
+            return PlayerAuthSnapshot.of(auth);
+        }) != null;
     }
 
     /**
@@ -49,10 +71,11 @@ public class PlayerCache {
      *
      * @param user name of the player
      *
-     * @return the associated auth object, or null if not available
+     * @return copy of the associated auth object, or null if not available
      */
     public PlayerAuth getAuth(String user) {
-        return cache.get(user.toLowerCase(Locale.ROOT));
+        PlayerAuthSnapshot snapshot = cache.get(user.toLowerCase(Locale.ROOT));
+        return snapshot == null ? null : snapshot.toPlayerAuth();
     }
 
     /**
@@ -65,10 +88,10 @@ public class PlayerCache {
     /**
      * Returns the player cache data.
      *
-     * @return all player auths inside the player cache
+     * @return read-only view of all player auths inside the player cache
      */
-    public Map<String, PlayerAuth> getCache() {
-        return this.cache;
+    public Map<String, PlayerAuthSnapshot> getCache() {
+        return Collections.unmodifiableMap(cache);
     }
 
 }
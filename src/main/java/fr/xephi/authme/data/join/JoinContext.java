@@ -0,0 +1,69 @@
+package fr.xephi.authme.data.join;
+
+import fr.xephi.authme.data.auth.PlayerAuth;
+import fr.xephi.authme.data.limbo.LimboPlayer;
+import fr.xephi.authme.permission.PlayerStatePermission;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Data about a connecting player which has been fetched during the asynchronous pre-login phase,
+ * so that the join process does not need to go to the database or the disk again.
+ * <p>
+ * Instances are immutable and can be safely handed from the pre-login thread to the join process.
+ */
+public final class JoinContext {
+
+    private final PlayerAuth auth;
+    private final boolean hasSession;
+    private final LimboPlayer limboFromDisk;
+    private final Map<PlayerStatePermission, Boolean> permissions;
+
+    JoinContext(PlayerAuth auth, boolean hasSession, LimboPlayer limboFromDisk,
+                Map<PlayerStatePermission, Boolean> permissions) {
+        this.auth = auth;
+        this.hasSession = hasSession;
+        this.limboFromDisk = limboFromDisk;
+        this.permissions = Collections.unmodifiableMap(permissions);
+    }
+
+    /**
+     * @return the player's auth as stored in the data source, or null if the player is not registered
+     */
+    public PlayerAuth getAuth() {
+        return auth;
+    }
+
+    /**
+     * @return true if the player is registered, false otherwise
+     */
+    public boolean isAuthAvailable() {
+        return auth != null;
+    }
+
+    /**
+     * @return true if the data source had flagged the player as having a session (only fetched if
+     *         sessions are enabled)
+     */
+    public boolean hasSession() {
+        return hasSession;
+    }
+
+    /**
+     * @return the limbo player that was stored on disk for the player, or null if none was available
+     */
+    public LimboPlayer getLimboFromDisk() {
+        return limboFromDisk;
+    }
+
+    /**
+     * Returns the prefetched result of the given permission check.
+     *
+     * @param permission the permission to look up
+     * @return true or false if the permission was prefetched, null if it needs to be checked on the player
+     */
+    public Boolean getPermission(PlayerStatePermission permission) {
+        return permissions.get(permission);
+    }
+}
@@ -0,0 +1,120 @@
+package fr.xephi.authme.data.join;
+
+import fr.xephi.authme.ConsoleLogger;
+import fr.xephi.authme.data.auth.PlayerAuth;
+import fr.xephi.authme.data.limbo.LimboPlayer;
+import fr.xephi.authme.data.limbo.persistence.LimboPersistence;
+import fr.xephi.authme.datasource.AsyncDataSource;
+import fr.xephi.authme.initialization.HasCleanup;
+import fr.xephi.authme.output.ConsoleLoggerFactory;
+import fr.xephi.authme.permission.PermissionsManager;
+import fr.xephi.authme.permission.PlayerStatePermission;
+import fr.xephi.authme.settings.Settings;
+import fr.xephi.authme.settings.properties.PluginSettings;
+import fr.xephi.authme.util.expiring.ExpiringMap;
+
+import javax.inject.Inject;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the {@link JoinContext} of players which are connecting to the server. The context is
+ * created in the asynchronous pre-login phase and consumed by the join process. Contexts of connections
+ * which never complete are removed when the login is refused, when the player quits, or when they expire.
+ */
+public class JoinContextManager implements HasCleanup {
+
+    /** Permissions checked during the join process which are fetched in advance. */
+    private static final PlayerStatePermission[] PREFETCHED_PERMISSIONS = {
+        PlayerStatePermission.BYPASS_FORCE_SURVIVAL,
+        PlayerStatePermission.ALLOW_MULTIPLE_ACCOUNTS
+    };
+
+    private static final int CONTEXT_EXPIRATION_SECONDS = 30;
+
+    private final ConsoleLogger logger = ConsoleLoggerFactory.get(JoinContextManager.class);
+    private final ExpiringMap<String, JoinContext> contexts;
+
+    @Inject
+    private AsyncDataSource asyncDataSource;
+
+    @Inject
+    private LimboPersistence limboPersistence;
+
+    @Inject
+    private PermissionsManager permissionsManager;
+
+    @Inject
+    private Settings settings;
+
+    JoinContextManager() {
+        contexts = new ExpiringMap<>(CONTEXT_EXPIRATION_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Fetches all data the join process needs for the given connecting player and saves it.
+     * Must be called asynchronously, typically from the pre-login event. The independent lookups run in
+     * parallel; the method returns once all of them are done.
+     *
+     * @param name the name of the connecting player
+     * @param uuid the UUID of the connecting player
+     * @param auth the player's auth as already loaded from the data source (null if not registered)
+     */
+    public void prefetch(String name, UUID uuid, PlayerAuth auth) {
+        CompletableFuture<Boolean> hasSession = auth != null && settings.getProperty(PluginSettings.SESSIONS_ENABLED)
+            ? asyncDataSource.hasSession(name)
+            : CompletableFuture.completedFuture(false);
+        CompletableFuture<LimboPlayer> limboFromDisk =
+            asyncDataSource.supply(() -> limboPersistence.getLimboPlayer(uuid, name));
+
+        Map<PlayerStatePermission, Boolean> permissions = new EnumMap<>(PlayerStatePermission.class);
+        // Without a permissions system the checks are done on the player, which is cheap
+        if (permissionsManager.isEnabled()) {
+            for (PlayerStatePermission permission : PREFETCHED_PERMISSIONS) {
+                permissions.put(permission, permissionsManager.hasPermissionOffline(name, permission));
+            }
+        }
+
+        try {
+            contexts.put(name.toLowerCase(Locale.ROOT),
+                new JoinContext(auth, hasSession.join(), limboFromDisk.join(), permissions));
+            logger.debug("Prefetched join context for `{0}`", name);
+        } catch (CompletionException e) {
+            // Already logged; the join process queries the data itself without context
+        }
+    }
+
+    /**
+     * Returns and removes the join context of the given player.
+     *
+     * @param name the name of the player
+     * @return the join context, or null if none is available (e.g. unrestricted name or expired)
+     */
+    public JoinContext consume(String name) {
+        String lowerName = name.toLowerCase(Locale.ROOT);
+        JoinContext context = contexts.get(lowerName);
+        if (context != null) {
+            contexts.remove(lowerName);
+        }
+        return context;
+    }
+
+    /**
+     * Removes the join context of the given player, if present. Used when the connection does not complete.
+     *
+     * @param name the name of the player
+     */
+    public void evict(String name) {
+        contexts.remove(name.toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public void performCleanup() {
+        contexts.removeExpiredEntries();
+    }
+}
@@ -3,6 +3,7 @@ package fr.xephi.authme.data.limbo;
 import fr.xephi.authme.ConsoleLogger;
 import fr.xephi.authme.data.limbo.persistence.LimboPersistence;
 import fr.xephi.authme.output.ConsoleLoggerFactory;
+import fr.xephi.authme.permission.PermissionsManager;
 import fr.xephi.authme.settings.Settings;
 import fr.xephi.authme.settings.SpawnLoader;
 import org.bukkit.Location;
@@ -46,19 +47,35 @@ public class LimboService {
     @Inject
     private SpawnLoader spawnLoader;
 
+    @Inject
+    private PermissionsManager permissionsManager;
+
     LimboService() {
     }
 
     /**
-     * Creates a LimboPlayer for the given player and revokes all "limbo data" from the player.
+     * Reads the limbo player stored on disk for the given player. This performs file I/O and should
+     * be called asynchronously, so that the result can be passed to
+     * {@link #createLimboPlayer(Player, boolean, LimboPlayer)}.
+     *
+     * @param player the player to load the limbo player for
+     * @return the stored limbo player, or null if none available
+     */
+    public LimboPlayer loadPersistedLimboPlayer(Player player) {
+        return persistence.getLimboPlayer(player);
+    }
+
+    /**
+     * Creates a LimboPlayer for the given player and revokes all "limbo data" from the player,
+     * using limbo data from the disk which has already been loaded.
      *
      * @param player the player to process
      * @param isRegistered whether or not the player is registered
+     * @param limboFromDisk the limbo player that was stored on disk for the player (null if none)
      */
-    public void createLimboPlayer(Player player, boolean isRegistered) {
+    public void createLimboPlayer(Player player, boolean isRegistered, LimboPlayer limboFromDisk) {
         final String name = player.getName().toLowerCase(Locale.ROOT);
 
-        LimboPlayer limboFromDisk = persistence.getLimboPlayer(player);
         if (limboFromDisk != null) {
             logger.debug("LimboPlayer for `{0}` already exists on disk", name);
         }
@@ -77,6 +94,8 @@ public class LimboService {
             isRegistered ? LimboMessageType.LOG_IN : LimboMessageType.REGISTER);
         taskManager.registerTimeoutTask(player, limboPlayer);
         helper.revokeLimboStates(player);
+        // The player's OP status may have changed
+        permissionsManager.invalidateCache(name);
         authGroupHandler.setGroup(player, limboPlayer,
             isRegistered ? AuthGroupType.REGISTERED_UNAUTHENTICATED : AuthGroupType.UNREGISTERED);
         entries.put(name, limboPlayer);
@@ -119,6 +138,7 @@ public class LimboService {
             logger.debug("No LimboPlayer found for `{0}` - cannot restore", lowerName);
         } else {
             player.setOp(limbo.isOperator());
+            permissionsManager.invalidateCache(lowerName);
             settings.getProperty(RESTORE_ALLOW_FLIGHT).restoreAllowFlight(player, limbo);
             settings.getProperty(RESTORE_FLY_SPEED).restoreFlySpeed(player, limbo);
             settings.getProperty(RESTORE_WALK_SPEED).restoreWalkSpeed(player, limbo);
@@ -16,15 +16,16 @@ import org.bukkit.entity.Player;
 
 import javax.inject.Inject;
 import java.io.File;
-import java.io.FileWriter;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 /**
  * Persistence handler for LimboPlayer objects by distributing the objects to store
@@ -57,11 +58,11 @@ class DistributedFilesPersistenceHandler implements LimboPersistenceHandler {
     }
 
     @Override
-    public LimboPlayer getLimboPlayer(Player player) {
-        String uuid = player.getUniqueId().toString();
-        File file = getPlayerSegmentFile(uuid);
+    public LimboPlayer getLimboPlayer(UUID uuid, String name) {
+        String id = uuid.toString();
+        File file = getPlayerSegmentFile(id);
         Map<String, LimboPlayer> entries = readLimboPlayers(file);
-        return entries == null ? null : entries.get(uuid);
+        return entries == null ? null : entries.get(id);
     }
 
     @Override
@@ -69,13 +70,7 @@ class DistributedFilesPersistenceHandler implements LimboPersistenceHandler {
         String uuid = player.getUniqueId().toString();
         File file = getPlayerSegmentFile(uuid);
 
-        Map<String, LimboPlayer> entries = null;
-        if (file.exists()) {
-            entries = readLimboPlayers(file);
-        } else {
-            FileUtils.create(file);
-        }
-        /* intentionally separate if */
+        Map<String, LimboPlayer> entries = readLimboPlayers(file);
         if (entries == null) {
             entries = new HashMap<>();
         }
@@ -102,10 +97,18 @@ class DistributedFilesPersistenceHandler implements LimboPersistenceHandler {
     }
 
     private void saveEntries(Map<String, LimboPlayer> entries, File file) {
-        try (FileWriter fw = new FileWriter(file)) {
-            gson.toJson(entries, fw);
+        // The segment is read for other players while it is written: write to a temporary file and move
+        // it into place, so that a segment file is never seen partially written
+        File temporaryFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            Files.asCharSink(temporaryFile, StandardCharsets.UTF_8).write(gson.toJson(entries));
+            java.nio.file.Files.move(temporaryFile.toPath(), file.toPath(),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
         } catch (Exception e) {
             logger.logException("Could not write to '" + file + "':", e);
+            if (temporaryFile.exists()) {
+                FileUtils.delete(temporaryFile);
+            }
         }
     }
 
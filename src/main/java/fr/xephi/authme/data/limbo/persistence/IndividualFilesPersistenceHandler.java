@@ -15,6 +15,7 @@ import javax.inject.Inject;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.UUID;
 
 /**
  * Saves LimboPlayer objects as JSON into individual files.
@@ -40,8 +41,8 @@ class IndividualFilesPersistenceHandler implements LimboPersistenceHandler {
     }
 
     @Override
-    public LimboPlayer getLimboPlayer(Player player) {
-        String id = player.getUniqueId().toString();
+    public LimboPlayer getLimboPlayer(UUID uuid, String name) {
+        String id = uuid.toString();
         File file = new File(cacheDir, id + File.separator + "data.json");
         if (!file.exists()) {
             return null;
@@ -51,7 +52,7 @@ class IndividualFilesPersistenceHandler implements LimboPersistenceHandler {
             String str = Files.asCharSource(file, StandardCharsets.UTF_8).read();
             return gson.fromJson(str, LimboPlayer.class);
         } catch (IOException e) {
-            logger.logException("Could not read player data on disk for '" + player.getName() + "'", e);
+            logger.logException("Could not read player data on disk for '" + name + "'", e);
             return null;
         }
     }
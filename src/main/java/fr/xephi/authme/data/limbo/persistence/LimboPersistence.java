@@ -1,6 +1,7 @@
 package fr.xephi.authme.data.limbo.persistence;
 
 import ch.jalu.injector.factory.Factory;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import fr.xephi.authme.ConsoleLogger;
 import fr.xephi.authme.data.limbo.LimboPlayer;
 import fr.xephi.authme.initialization.SettingsDependent;
@@ -10,21 +11,42 @@ import fr.xephi.authme.settings.properties.LimboSettings;
 import org.bukkit.entity.Player;
 
 import javax.inject.Inject;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Handles the persistence of LimboPlayers.
+ * <p>
+ * Saving and removing is done on a dedicated writer thread so that the file I/O does not block the
+ * thread of the player. The writes are performed in the order in which they were requested; until a
+ * write is done, reads for the player return the pending state rather than what is on the disk.
  */
 public class LimboPersistence implements SettingsDependent {
 
     private final ConsoleLogger logger = ConsoleLoggerFactory.get(LimboPersistence.class);
 
+    /** Maximum time to wait for pending writes when the plugin is disabled. */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
     private final Factory<LimboPersistenceHandler> handlerFactory;
+    private final ExecutorService writer;
+    /** Writes which have not been performed yet, by player UUID. */
+    private final Map<UUID, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
 
-    private LimboPersistenceHandler handler;
+    private volatile LimboPersistenceHandler handler;
 
     @Inject
     LimboPersistence(Settings settings, Factory<LimboPersistenceHandler> handlerFactory) {
         this.handlerFactory = handlerFactory;
+        this.writer = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("AuthMe-LimboWriter")
+            .build());
         reload(settings);
     }
 
@@ -35,38 +57,95 @@ public class LimboPersistence implements SettingsDependent {
      * @return the player's limbo player, or null if not available
      */
     public LimboPlayer getLimboPlayer(Player player) {
+        return getLimboPlayer(player.getUniqueId(), player.getName());
+    }
+
+    /**
+     * Retrieves the LimboPlayer for the player with the given UUID if available. This allows
+     * the stored data to be read before the player has fully joined the server.
+     *
+     * @param uuid the UUID of the player
+     * @param name the name of the player
+     * @return the player's limbo player, or null if not available
+     */
+    public LimboPlayer getLimboPlayer(UUID uuid, String name) {
+        PendingWrite pendingWrite = pendingWrites.get(uuid);
+        if (pendingWrite != null) {
+            return pendingWrite.limbo;
+        }
         try {
-            return handler.getLimboPlayer(player);
+            return handler.getLimboPlayer(uuid, name);
         } catch (Exception e) {
-            logger.logException("Could not get LimboPlayer for '" + player.getName() + "'", e);
+            logger.logException("Could not get LimboPlayer for '" + name + "'", e);
         }
         return null;
     }
 
     /**
-     * Saves the given LimboPlayer for the provided player.
+     * Saves the given LimboPlayer for the provided player. The data is written asynchronously.
      *
      * @param player the player to save the LimboPlayer for
      * @param limbo the limbo player to save
      */
     public void saveLimboPlayer(Player player, LimboPlayer limbo) {
-        try {
-            handler.saveLimboPlayer(player, limbo);
-        } catch (Exception e) {
-            logger.logException("Could not save LimboPlayer for '" + player.getName() + "'", e);
-        }
+        LimboPersistenceHandler currentHandler = handler;
+        queueWrite(player, limbo, () -> {
+            try {
+                currentHandler.saveLimboPlayer(player, limbo);
+            } catch (Exception e) {
+                logger.logException("Could not save LimboPlayer for '" + player.getName() + "'", e);
+            }
+        });
     }
 
     /**
-     * Removes the LimboPlayer for the given player.
+     * Removes the LimboPlayer for the given player. The data is removed asynchronously.
      *
      * @param player the player whose LimboPlayer should be removed
      */
     public void removeLimboPlayer(Player player) {
+        LimboPersistenceHandler currentHandler = handler;
+        queueWrite(player, null, () -> {
+            try {
+                currentHandler.removeLimboPlayer(player);
+            } catch (Exception e) {
+                logger.logException("Could not remove LimboPlayer for '" + player.getName() + "'", e);
+            }
+        });
+    }
+
+    /**
+     * Performs all pending writes and stops the writer thread. Writes requested afterwards are
+     * performed on the calling thread.
+     */
+    public void shutdown() {
+        writer.shutdown();
         try {
-            handler.removeLimboPlayer(player);
-        } catch (Exception e) {
-            logger.logException("Could not remove LimboPlayer for '" + player.getName() + "'", e);
+            if (!writer.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warning("Not all LimboPlayers could be written to the disk: "
+                    + pendingWrites.size() + " writes pending");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void queueWrite(Player player, LimboPlayer limbo, Runnable write) {
+        UUID uuid = player.getUniqueId();
+        PendingWrite pendingWrite = new PendingWrite(limbo);
+        pendingWrites.put(uuid, pendingWrite);
+        Runnable task = () -> {
+            try {
+                write.run();
+            } finally {
+                // Only clear the entry if no newer write has been queued for the player in the meantime
+                pendingWrites.remove(uuid, pendingWrite);
+            }
+        };
+        try {
+            writer.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
         }
     }
 
@@ -79,4 +158,18 @@ public class LimboPersistence implements SettingsDependent {
         }
         handler = handlerFactory.newInstance(persistenceType.getImplementationClass());
     }
+
+    /**
+     * Write of a player which has not been performed yet. Each write has its own instance, which is
+     * compared by identity, so that a write never clears the entry of a newer write with the same state.
+     */
+    private static final class PendingWrite {
+
+        /** The limbo player to save, or null for a removal. */
+        private final LimboPlayer limbo;
+
+        PendingWrite(LimboPlayer limbo) {
+            this.limbo = limbo;
+        }
+    }
 }
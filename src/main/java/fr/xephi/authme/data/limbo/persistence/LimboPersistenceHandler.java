@@ -3,18 +3,21 @@ package fr.xephi.authme.data.limbo.persistence;
 import fr.xephi.authme.data.limbo.LimboPlayer;
 import org.bukkit.entity.Player;
 
+import java.util.UUID;
+
 /**
  * Handles I/O for storing LimboPlayer objects.
  */
 interface LimboPersistenceHandler {
 
     /**
-     * Returns the limbo player for the given player if it exists.
+     * Returns the limbo player for the player with the given UUID if it exists.
      *
-     * @param player the player
+     * @param uuid the UUID of the player
+     * @param name the name of the player (for logging)
      * @return the stored limbo player, or null if not available
      */
-    LimboPlayer getLimboPlayer(Player player);
+    LimboPlayer getLimboPlayer(UUID uuid, String name);
 
     /**
      * Saves the given limbo player for the given player to the disk.
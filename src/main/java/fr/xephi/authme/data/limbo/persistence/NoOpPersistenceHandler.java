@@ -3,13 +3,15 @@ package fr.xephi.authme.data.limbo.persistence;
 import fr.xephi.authme.data.limbo.LimboPlayer;
 import org.bukkit.entity.Player;
 
+import java.util.UUID;
+
 /**
  * Limbo player persistence implementation that does nothing.
  */
 class NoOpPersistenceHandler implements LimboPersistenceHandler {
 
     @Override
-    public LimboPlayer getLimboPlayer(Player player) {
+    public LimboPlayer getLimboPlayer(UUID uuid, String name) {
         return null;
     }
 
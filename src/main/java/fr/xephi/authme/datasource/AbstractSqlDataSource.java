@@ -4,18 +4,30 @@ import ch.jalu.datasourcecolumns.data.DataSourceValue;
 import ch.jalu.datasourcecolumns.data.DataSourceValueImpl;
 import ch.jalu.datasourcecolumns.data.DataSourceValues;
 import ch.jalu.datasourcecolumns.predicate.AlwaysTruePredicate;
+import ch.jalu.datasourcecolumns.predicate.Predicate;
 import fr.xephi.authme.data.auth.PlayerAuth;
 import fr.xephi.authme.datasource.columnshandler.AuthMeColumns;
 import fr.xephi.authme.datasource.columnshandler.AuthMeColumnsHandler;
+import fr.xephi.authme.datasource.columnshandler.ColumnContext;
 import fr.xephi.authme.security.crypts.HashedPassword;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 import static ch.jalu.datasourcecolumns.data.UpdateValues.with;
+import static ch.jalu.datasourcecolumns.predicate.StandardPredicates.and;
 import static ch.jalu.datasourcecolumns.predicate.StandardPredicates.eq;
 import static ch.jalu.datasourcecolumns.predicate.StandardPredicates.eqIgnoreCase;
+import static ch.jalu.datasourcecolumns.predicate.StandardPredicates.greaterThan;
+import static ch.jalu.datasourcecolumns.predicate.StandardPredicates.isNull;
+import static ch.jalu.datasourcecolumns.predicate.StandardPredicates.lessThan;
+import static ch.jalu.datasourcecolumns.predicate.StandardPredicates.notEq;
+import static ch.jalu.datasourcecolumns.predicate.StandardPredicates.or;
 import static fr.xephi.authme.datasource.SqlDataSourceUtils.logSqlException;
 
 /**
@@ -25,6 +37,8 @@ import static fr.xephi.authme.datasource.SqlDataSourceUtils.logSqlException;
 public abstract class AbstractSqlDataSource implements DataSource {
 
     protected AuthMeColumnsHandler columnsHandler;
+    /** Handler of the IP history table, or null if the IP history is disabled. */
+    protected IpHistoryTable ipHistory;
 
     @Override
     public boolean isAuthAvailable(String user) {
@@ -57,6 +71,29 @@ public abstract class AbstractSqlDataSource implements DataSource {
             AuthMeColumns.UUID);
     }
 
+    @Override
+    public int saveAuths(List<PlayerAuth> auths) {
+        if (!supportsBulkInsert()) {
+            return DataSource.super.saveAuths(auths);
+        }
+        return columnsHandler.insertAll(auths,
+            AuthMeColumns.NAME, AuthMeColumns.NICK_NAME, AuthMeColumns.PASSWORD, AuthMeColumns.SALT,
+            AuthMeColumns.EMAIL, AuthMeColumns.REGISTRATION_DATE, AuthMeColumns.REGISTRATION_IP,
+            AuthMeColumns.UUID, AuthMeColumns.LAST_IP, AuthMeColumns.LAST_LOGIN,
+            AuthMeColumns.LOCATION_X, AuthMeColumns.LOCATION_Y, AuthMeColumns.LOCATION_Z,
+            AuthMeColumns.LOCATION_WORLD, AuthMeColumns.LOCATION_YAW, AuthMeColumns.LOCATION_PITCH);
+    }
+
+    /**
+     * Returns whether new accounts can be inserted with multi-row statements, i.e. whether saving an account
+     * doesn't involve anything besides inserting its row.
+     *
+     * @return true if {@link #saveAuths} may insert the accounts in bulk, false to save them one by one
+     */
+    protected boolean supportsBulkInsert() {
+        return true;
+    }
+
     @Override
     public boolean hasSession(String user) {
         try {
@@ -92,6 +129,27 @@ public abstract class AbstractSqlDataSource implements DataSource {
             AuthMeColumns.LOCATION_WORLD, AuthMeColumns.LOCATION_YAW, AuthMeColumns.LOCATION_PITCH);
     }
 
+    @Override
+    public Set<String> updateAllQuitLocs(double x, double y, double z, String world) {
+        Predicate<ColumnContext> isDifferent = or(
+            or(notEq(AuthMeColumns.LOCATION_X, x), notEq(AuthMeColumns.LOCATION_Y, y)),
+            or(notEq(AuthMeColumns.LOCATION_Z, z),
+                or(notEq(AuthMeColumns.LOCATION_WORLD, world), isNull(AuthMeColumns.LOCATION_WORLD))));
+        try {
+            // The names are needed to notify other servers; the update itself is a single statement
+            Set<String> names = new HashSet<>(columnsHandler.retrieve(isDifferent, AuthMeColumns.NAME));
+            columnsHandler.update(isDifferent,
+                with(AuthMeColumns.LOCATION_X, x)
+                .and(AuthMeColumns.LOCATION_Y, y)
+                .and(AuthMeColumns.LOCATION_Z, z)
+                .and(AuthMeColumns.LOCATION_WORLD, world).build());
+            return names;
+        } catch (SQLException e) {
+            logSqlException(e);
+            return Collections.emptySet();
+        }
+    }
+
     @Override
     public List<String> getAllAuthsByIp(String ip) {
         try {
@@ -102,6 +160,55 @@ public abstract class AbstractSqlDataSource implements DataSource {
         }
     }
 
+    @Override
+    public boolean hasIpHistory() {
+        return ipHistory != null;
+    }
+
+    @Override
+    public boolean saveIpHistory(Collection<IpHistoryEntry> entries) {
+        if (ipHistory == null) {
+            return false;
+        } else if (entries.isEmpty()) {
+            return true;
+        }
+        try {
+            ipHistory.save(entries);
+            return true;
+        } catch (SQLException e) {
+            logSqlException(e);
+            return false;
+        }
+    }
+
+    /**
+     * Deletes the IP history of the given accounts, so that the addresses of a removed account are not
+     * linked to whoever registers the name next. Must be called by every method which removes accounts.
+     *
+     * @param names the names of the removed accounts
+     */
+    protected void removeIpHistory(Collection<String> names) {
+        if (ipHistory != null && !names.isEmpty()) {
+            try {
+                ipHistory.delete(names);
+            } catch (SQLException e) {
+                logSqlException(e);
+            }
+        }
+    }
+
+    @Override
+    public List<String> getNamesByIpHistory(byte[] from, byte[] to) {
+        if (ipHistory != null) {
+            try {
+                return ipHistory.getNames(from, to);
+            } catch (SQLException e) {
+                logSqlException(e);
+            }
+        }
+        return Collections.emptyList();
+    }
+
     @Override
     public int countAuthsByEmail(String email) {
         return columnsHandler.count(eqIgnoreCase(AuthMeColumns.EMAIL, email));
@@ -143,6 +250,19 @@ public abstract class AbstractSqlDataSource implements DataSource {
         columnsHandler.update(user, AuthMeColumns.HAS_SESSION, 0);
     }
 
+    @Override
+    public boolean consumeSession(String user, String ip, long minLastLogin, long maxLastLogin) {
+        // A single conditional update, so that only one of concurrent calls can consume the session
+        Predicate<ColumnContext> isValidSession = and(
+            and(eq(AuthMeColumns.NAME, user.toLowerCase(Locale.ROOT)), eq(AuthMeColumns.HAS_SESSION, 1)),
+            and(eq(AuthMeColumns.LAST_IP, ip),
+                and(greaterThan(AuthMeColumns.LAST_LOGIN, minLastLogin),
+                    lessThan(AuthMeColumns.LAST_LOGIN, maxLastLogin))));
+        return columnsHandler.update(isValidSession,
+            with(AuthMeColumns.HAS_SESSION, 0)
+            .and(AuthMeColumns.IS_LOGGED, 0).build()) > 0;
+    }
+
     @Override
     public void purgeLogged() {
         columnsHandler.update(eq(AuthMeColumns.IS_LOGGED, 1), AuthMeColumns.IS_LOGGED, 0);
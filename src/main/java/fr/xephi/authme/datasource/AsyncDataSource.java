@@ -0,0 +1,179 @@
+package fr.xephi.authme.datasource;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import fr.xephi.authme.ConsoleLogger;
+import fr.xephi.authme.data.auth.PlayerAuth;
+import fr.xephi.authme.initialization.SettingsDependent;
+import fr.xephi.authme.output.ConsoleLoggerFactory;
+import fr.xephi.authme.settings.Settings;
+import fr.xephi.authme.settings.properties.DatabaseSettings;
+import fr.xephi.authme.settings.properties.PluginSettings;
+import fr.xephi.authme.util.VirtualThreads;
+
+import javax.inject.Inject;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs data source calls on a dedicated, bounded pool of I/O threads and returns their results as
+ * {@link CompletableFuture}s. Independent calls can so run in parallel, and processes can continue once
+ * the results are available instead of blocking a scheduler thread for the duration of each call.
+ * <p>
+ * Works with any {@link DataSource}: the calls are made on the synchronous data source, so caching and
+ * timing apply as usual. Failed calls are logged, and the returned future completes exceptionally.
+ * <p>
+ * If virtual threads are enabled and supported, each call runs on its own virtual thread; the
+ * connection pool of the data source then limits the number of concurrent queries.
+ */
+public class AsyncDataSource implements SettingsDependent {
+
+    private static final long IDLE_THREAD_SECONDS = 60;
+
+    private final ConsoleLogger logger = ConsoleLoggerFactory.get(AsyncDataSource.class);
+
+    private final DataSource dataSource;
+    private final ExecutorService executor;
+    /** The executor if it is a pool of platform threads; null if virtual threads are used. */
+    private final ThreadPoolExecutor threadPool;
+
+    @Inject
+    AsyncDataSource(DataSource dataSource, Settings settings) {
+        this.dataSource = dataSource;
+        ExecutorService virtualThreadExecutor = settings.getProperty(PluginSettings.USE_VIRTUAL_THREADS)
+            ? VirtualThreads.newExecutorIfAvailable("AuthMe-DataSourceIO-")
+            : null;
+        if (virtualThreadExecutor == null) {
+            int threads = getThreadCount(settings);
+            threadPool = new ThreadPoolExecutor(threads, threads, IDLE_THREAD_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("AuthMe-DataSourceIO-%d")
+                    .build());
+            threadPool.allowCoreThreadTimeOut(true);
+            executor = threadPool;
+        } else {
+            threadPool = null;
+            executor = virtualThreadExecutor;
+        }
+    }
+
+    /**
+     * Runs the given call on the data source.
+     *
+     * @param call the call to make
+     * @param <T> the result type
+     * @return future with the result of the call
+     */
+    public <T> CompletableFuture<T> query(Function<DataSource, T> call) {
+        return supply(() -> call.apply(dataSource));
+    }
+
+    /**
+     * Runs the given blocking operation on the I/O threads, e.g. a lookup by a service which uses the data source.
+     *
+     * @param operation the operation to run
+     * @param <T> the result type
+     * @return future with the result of the operation
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> operation) {
+        return CompletableFuture.supplyAsync(operation, executor).whenComplete((result, failure) -> {
+            if (failure != null) {
+                logger.logException("Asynchronous data source call failed:", failure);
+            }
+        });
+    }
+
+    /**
+     * Runs the given blocking operation on the I/O threads.
+     *
+     * @param operation the operation to run
+     * @return future which completes when the operation has run
+     */
+    public CompletableFuture<Void> run(Runnable operation) {
+        return supply(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return the executor of the I/O threads, for composing further blocking steps
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public CompletableFuture<Boolean> isAuthAvailable(String user) {
+        return query(source -> source.isAuthAvailable(user));
+    }
+
+    public CompletableFuture<PlayerAuth> getAuth(String user) {
+        return query(source -> source.getAuth(user));
+    }
+
+    public CompletableFuture<Boolean> saveAuth(PlayerAuth auth) {
+        return query(source -> source.saveAuth(auth));
+    }
+
+    public CompletableFuture<Boolean> updateSession(PlayerAuth auth) {
+        return query(source -> source.updateSession(auth));
+    }
+
+    public CompletableFuture<Boolean> hasSession(String user) {
+        return query(source -> source.hasSession(user));
+    }
+
+    public CompletableFuture<Boolean> isLogged(String user) {
+        return query(source -> source.isLogged(user));
+    }
+
+    public CompletableFuture<Void> setLogged(String user) {
+        return run(() -> dataSource.setLogged(user));
+    }
+
+    public CompletableFuture<Void> setUnlogged(String user) {
+        return run(() -> dataSource.setUnlogged(user));
+    }
+
+    /**
+     * Waits for the pending calls to finish and stops the I/O threads. To be called when the plugin is
+     * disabled, before the data source is closed.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warning("Data source calls were still running on shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void reload(Settings settings) {
+        if (threadPool == null) {
+            return;
+        }
+        int threads = getThreadCount(settings);
+        // The core size may never exceed the maximum size, so change them in the order which keeps this true
+        if (threads > threadPool.getMaximumPoolSize()) {
+            threadPool.setMaximumPoolSize(threads);
+            threadPool.setCorePoolSize(threads);
+        } else {
+            threadPool.setCorePoolSize(threads);
+            threadPool.setMaximumPoolSize(threads);
+        }
+    }
+
+    private static int getThreadCount(Settings settings) {
+        return Math.max(1, settings.getProperty(DatabaseSettings.DATA_SOURCE_IO_THREADS));
+    }
+}
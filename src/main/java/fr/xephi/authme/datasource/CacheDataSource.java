@@ -2,36 +2,70 @@ package fr.xephi.authme.datasource;
 
 import ch.jalu.datasourcecolumns.data.DataSourceValue;
 import ch.jalu.datasourcecolumns.data.DataSourceValueImpl;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import fr.xephi.authme.ConsoleLogger;
 import fr.xephi.authme.data.auth.PlayerAuth;
+import fr.xephi.authme.data.auth.PlayerAuthSnapshot;
 import fr.xephi.authme.data.auth.PlayerCache;
 import fr.xephi.authme.output.ConsoleLoggerFactory;
 import fr.xephi.authme.security.crypts.HashedPassword;
+import fr.xephi.authme.settings.Settings;
+import fr.xephi.authme.settings.properties.DatabaseSettings;
 import fr.xephi.authme.util.Utils;
 
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.stream.Collectors;
 
 public class CacheDataSource implements DataSource {
 
+    /** Maximum number of refreshes waiting for a refresh thread; further refreshes are skipped. */
+    private static final int REFRESH_QUEUE_CAPACITY = 1000;
+    /** Maximum number of names remembered as unregistered. */
+    private static final int UNKNOWN_NAMES_MAXIMUM_SIZE = 1000;
+    /** Number of write generation counters; names share a counter by their hash. */
+    private static final int WRITE_GENERATION_STRIPES = 256;
+
     private final ConsoleLogger logger = ConsoleLoggerFactory.get(CacheDataSource.class);
 
     private final DataSource source;
     private final PlayerCache playerCache;
-    private final LoadingCache<String, Optional<PlayerAuth>> cachedAuths;
+    /**
+     * Cached accounts as immutable snapshots; callers get their own copy of the data. Lookups of unregistered
+     * names are only kept here until they are moved to {@link #unknownNames}.
+     */
+    private final LoadingCache<String, Optional<PlayerAuthSnapshot>> cachedAuths;
+    /** Names which are not registered, kept separately so that e.g. bot names don't evict cached accounts. */
+    private final Cache<String, Boolean> unknownNames;
+    /**
+     * Number of writes by name hash, see {@link #getWriteGeneration}. A name is only remembered as unknown if no
+     * write for it has completed since its lookup started, as the lookup may not have seen the write.
+     */
+    private final AtomicLongArray writeGenerations = new AtomicLongArray(WRITE_GENERATION_STRIPES);
+    private final ThreadPoolExecutor refreshExecutor;
     private final ListeningExecutorService executorService;
 
     /**
@@ -39,37 +73,131 @@ public class CacheDataSource implements DataSource {
      *
      * @param source the source
      * @param playerCache the player cache
+     * @param settings the settings
      */
-    public CacheDataSource(DataSource source, PlayerCache playerCache) {
+    public CacheDataSource(DataSource source, PlayerCache playerCache, Settings settings) {
         this.source = source;
         this.playerCache = playerCache;
 
-        executorService = MoreExecutors.listeningDecorator(
-            Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+        int refreshThreads = Math.max(1, settings.getProperty(DatabaseSettings.CACHE_REFRESH_THREADS));
+        refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(REFRESH_QUEUE_CAPACITY),
+            new ThreadFactoryBuilder()
                 .setDaemon(true)
-                .setNameFormat("AuthMe-CacheLoader")
-                .build())
-        );
+                .setNameFormat("AuthMe-CacheLoader-%d")
+                .build());
+        executorService = MoreExecutors.listeningDecorator(refreshExecutor);
+
+        unknownNames = CacheBuilder.newBuilder()
+            .maximumSize(UNKNOWN_NAMES_MAXIMUM_SIZE)
+            .expireAfterWrite(settings.getProperty(DatabaseSettings.CACHE_UNKNOWN_NAME_EXPIRATION), TimeUnit.SECONDS)
+            .build();
         cachedAuths = CacheBuilder.newBuilder()
+            .maximumSize(Math.max(1, settings.getProperty(DatabaseSettings.CACHE_MAXIMUM_SIZE)))
             .refreshAfterWrite(5, TimeUnit.MINUTES)
             .expireAfterAccess(15, TimeUnit.MINUTES)
-            .build(new CacheLoader<String, Optional<PlayerAuth>>() {
+            .recordStats()
+            .build(new CacheLoader<String, Optional<PlayerAuthSnapshot>>() {
                 @Override
-                public Optional<PlayerAuth> load(String key) {
-                    return Optional.ofNullable(source.getAuth(key));
+                public Optional<PlayerAuthSnapshot> load(String key) {
+                    return toSnapshot(source.getAuth(key));
                 }
 
                 @Override
-                public ListenableFuture<Optional<PlayerAuth>> reload(final String key, Optional<PlayerAuth> oldValue) {
-                    return executorService.submit(() -> load(key));
+                public Map<String, Optional<PlayerAuthSnapshot>> loadAll(Iterable<? extends String> keys) {
+                    List<String> names = Lists.newArrayList(keys);
+                    Map<String, PlayerAuth> auths = source.getAuths(names);
+                    Map<String, Optional<PlayerAuthSnapshot>> result = new HashMap<>();
+                    for (String name : names) {
+                        result.put(name, toSnapshot(auths.get(name)));
+                    }
+                    return result;
+                }
+
+                @Override
+                public ListenableFuture<Optional<PlayerAuthSnapshot>> reload(final String key,
+                                                                             Optional<PlayerAuthSnapshot> oldValue) {
+                    try {
+                        return executorService.submit(() -> load(key));
+                    } catch (RejectedExecutionException e) {
+                        // Too many pending refreshes: drop the entry so that it is loaded again on the next access.
+                        // The failed refresh leaves the removed entry alone, whereas a value would be stored again
+                        cachedAuths.invalidate(key);
+                        return Futures.immediateFailedFuture(e);
+                    }
                 }
             });
     }
 
-    public LoadingCache<String, Optional<PlayerAuth>> getCachedAuths() {
+    private static Optional<PlayerAuthSnapshot> toSnapshot(PlayerAuth auth) {
+        return auth == null ? Optional.empty() : Optional.of(PlayerAuthSnapshot.of(auth));
+    }
+
+    private Optional<PlayerAuthSnapshot> getCachedAuth(String user) {
+        String name = user.toLowerCase(Locale.ROOT);
+        if (isUnknownName(name)) {
+            return Optional.empty();
+        }
+        long writeGeneration = getWriteGeneration(name);
+        Optional<PlayerAuthSnapshot> auth = cachedAuths.getUnchecked(name);
+        if (!auth.isPresent()) {
+            rememberUnknownName(name, writeGeneration);
+        }
+        return auth;
+    }
+
+    private boolean isUnknownName(String name) {
+        return unknownNames.getIfPresent(name) != null;
+    }
+
+    /**
+     * Remembers the given name as unregistered, unless a write for the name has completed since the lookup
+     * which found it to be unregistered started.
+     *
+     * @param name the name (lowercase)
+     * @param writeGeneration the write generation of the name before the lookup
+     */
+    private void rememberUnknownName(String name, long writeGeneration) {
+        unknownNames.put(name, Boolean.TRUE);
+        cachedAuths.invalidate(name);
+        // Checked after storing the name: a write completing later invalidates the name itself
+        if (getWriteGeneration(name) != writeGeneration) {
+            unknownNames.invalidate(name);
+        }
+    }
+
+    private long getWriteGeneration(String name) {
+        return writeGenerations.get(Math.floorMod(name.hashCode(), WRITE_GENERATION_STRIPES));
+    }
+
+    /**
+     * Removes everything cached for the given name, so that it is loaded from the source on the next access.
+     * Called after every write, since refreshing the entry instead might keep the old data for a while.
+     *
+     * @param user the name to invalidate
+     */
+    private void invalidate(String user) {
+        String name = user.toLowerCase(Locale.ROOT);
+        writeGenerations.incrementAndGet(Math.floorMod(name.hashCode(), WRITE_GENERATION_STRIPES));
+        cachedAuths.invalidate(name);
+        unknownNames.invalidate(name);
+    }
+
+    private void invalidateAll(Collection<String> users) {
+        users.forEach(this::invalidate);
+    }
+
+    public LoadingCache<String, Optional<PlayerAuthSnapshot>> getCachedAuths() {
         return cachedAuths;
     }
 
+    /**
+     * @return number of refreshes waiting for a refresh thread
+     */
+    public int getPendingRefreshes() {
+        return refreshExecutor.getQueue().size();
+    }
+
     @Override
     public void reload() {
         source.reload();
@@ -82,13 +210,16 @@ public class CacheDataSource implements DataSource {
 
     @Override
     public boolean isAuthAvailable(String user) {
-        return getAuth(user) != null;
+        return getCachedAuth(user).isPresent();
     }
 
     @Override
     public HashedPassword getPassword(String user) {
         user = user.toLowerCase(Locale.ROOT);
-        Optional<PlayerAuth> pAuthOpt = cachedAuths.getIfPresent(user);
+        if (isUnknownName(user)) {
+            return null;
+        }
+        Optional<PlayerAuthSnapshot> pAuthOpt = cachedAuths.getIfPresent(user);
         if (pAuthOpt != null && pAuthOpt.isPresent()) {
             return pAuthOpt.get().getPassword();
         }
@@ -97,24 +228,56 @@ public class CacheDataSource implements DataSource {
 
     @Override
     public PlayerAuth getAuth(String user) {
-        user = user.toLowerCase(Locale.ROOT);
-        return cachedAuths.getUnchecked(user).orElse(null);
+        return getCachedAuth(user).map(PlayerAuthSnapshot::toPlayerAuth).orElse(null);
+    }
+
+    @Override
+    public Map<String, PlayerAuth> getAuths(Collection<String> users) {
+        List<String> names = users.stream()
+            .map(user -> user.toLowerCase(Locale.ROOT))
+            .distinct()
+            .filter(name -> !isUnknownName(name))
+            .collect(Collectors.toList());
+        Map<String, Long> generationsBeforeLookup = new HashMap<>();
+        names.forEach(name -> generationsBeforeLookup.put(name, getWriteGeneration(name)));
+
+        Map<String, PlayerAuth> auths = new HashMap<>();
+        try {
+            cachedAuths.getAll(names).forEach((name, snapshot) -> {
+                if (snapshot.isPresent()) {
+                    auths.put(name, snapshot.get().toPlayerAuth());
+                } else {
+                    rememberUnknownName(name, generationsBeforeLookup.get(name));
+                }
+            });
+        } catch (ExecutionException e) {
+            logger.logException("Could not load accounts in bulk:", e);
+            return source.getAuths(names);
+        }
+        return auths;
     }
 
     @Override
     public boolean saveAuth(PlayerAuth auth) {
         boolean result = source.saveAuth(auth);
         if (result) {
-            cachedAuths.refresh(auth.getNickname());
+            invalidate(auth.getNickname());
         }
         return result;
     }
 
+    @Override
+    public int saveAuths(List<PlayerAuth> auths) {
+        int savedAuths = source.saveAuths(auths);
+        invalidateAll(auths.stream().map(PlayerAuth::getNickname).collect(Collectors.toList()));
+        return savedAuths;
+    }
+
     @Override
     public boolean updatePassword(PlayerAuth auth) {
         boolean result = source.updatePassword(auth);
         if (result) {
-            cachedAuths.refresh(auth.getNickname());
+            invalidate(auth.getNickname());
         }
         return result;
     }
@@ -124,7 +287,7 @@ public class CacheDataSource implements DataSource {
         user = user.toLowerCase(Locale.ROOT);
         boolean result = source.updatePassword(user, password);
         if (result) {
-            cachedAuths.refresh(user);
+            invalidate(user);
         }
         return result;
     }
@@ -133,7 +296,7 @@ public class CacheDataSource implements DataSource {
     public boolean updateSession(PlayerAuth auth) {
         boolean result = source.updateSession(auth);
         if (result) {
-            cachedAuths.refresh(auth.getNickname());
+            invalidate(auth.getNickname());
         }
         return result;
     }
@@ -142,7 +305,7 @@ public class CacheDataSource implements DataSource {
     public boolean updateQuitLoc(final PlayerAuth auth) {
         boolean result = source.updateQuitLoc(auth);
         if (result) {
-            cachedAuths.refresh(auth.getNickname());
+            invalidate(auth.getNickname());
         }
         return result;
     }
@@ -157,11 +320,25 @@ public class CacheDataSource implements DataSource {
         name = name.toLowerCase(Locale.ROOT);
         boolean result = source.removeAuth(name);
         if (result) {
-            cachedAuths.invalidate(name);
+            invalidate(name);
         }
         return result;
     }
 
+    @Override
+    public Set<String> updateAllQuitLocs(double x, double y, double z, String world) {
+        Set<String> updatedNames = source.updateAllQuitLocs(x, y, z, world);
+        invalidateAll(updatedNames);
+        return updatedNames;
+    }
+
+    @Override
+    public Set<String> removeNeverLoggedInAuths() {
+        Set<String> removedNames = source.removeNeverLoggedInAuths();
+        invalidateAll(removedNames);
+        return removedNames;
+    }
+
     @Override
     public void closeConnection() {
         executorService.shutdown();
@@ -171,14 +348,20 @@ public class CacheDataSource implements DataSource {
             logger.logException("Could not close executor service:", e);
         }
         cachedAuths.invalidateAll();
+        unknownNames.invalidateAll();
         source.closeConnection();
     }
 
+    @Override
+    public void backup(File target) throws SQLException, IOException {
+        source.backup(target);
+    }
+
     @Override
     public boolean updateEmail(final PlayerAuth auth) {
         boolean result = source.updateEmail(auth);
         if (result) {
-            cachedAuths.refresh(auth.getNickname());
+            invalidate(auth.getNickname());
         }
         return result;
     }
@@ -188,6 +371,21 @@ public class CacheDataSource implements DataSource {
         return source.getAllAuthsByIp(ip);
     }
 
+    @Override
+    public boolean hasIpHistory() {
+        return source.hasIpHistory();
+    }
+
+    @Override
+    public boolean saveIpHistory(Collection<IpHistoryEntry> entries) {
+        return source.saveIpHistory(entries);
+    }
+
+    @Override
+    public List<String> getNamesByIpHistory(byte[] from, byte[] to) {
+        return source.getNamesByIpHistory(from, to);
+    }
+
     @Override
     public int countAuthsByEmail(String email) {
         return source.countAuthsByEmail(email);
@@ -196,7 +394,7 @@ public class CacheDataSource implements DataSource {
     @Override
     public void purgeRecords(Collection<String> banned) {
         source.purgeRecords(banned);
-        cachedAuths.invalidateAll(banned);
+        invalidateAll(banned);
     }
 
     @Override
@@ -234,6 +432,11 @@ public class CacheDataSource implements DataSource {
         source.revokeSession(user);
     }
 
+    @Override
+    public boolean consumeSession(String user, String ip, long minLastLogin, long maxLastLogin) {
+        return source.consumeSession(user, ip, minLastLogin, maxLastLogin);
+    }
+
     @Override
     public void purgeLogged() {
         source.purgeLogged();
@@ -249,14 +452,14 @@ public class CacheDataSource implements DataSource {
     public boolean updateRealName(String user, String realName) {
         boolean result = source.updateRealName(user, realName);
         if (result) {
-            cachedAuths.refresh(user);
+            invalidate(user);
         }
         return result;
     }
 
     @Override
     public DataSourceValue<String> getEmail(String user) {
-        return cachedAuths.getUnchecked(user)
+        return getCachedAuth(user)
             .map(auth -> DataSourceValueImpl.of(auth.getEmail()))
             .orElse(DataSourceValueImpl.unknownRow());
     }
@@ -270,7 +473,7 @@ public class CacheDataSource implements DataSource {
     public List<String> getLoggedPlayersWithEmptyMail() {
         return playerCache.getCache().values().stream()
             .filter(auth -> Utils.isEmailEmpty(auth.getEmail()))
-            .map(PlayerAuth::getRealName)
+            .map(PlayerAuthSnapshot::getRealName)
             .collect(Collectors.toList());
     }
 
@@ -283,21 +486,20 @@ public class CacheDataSource implements DataSource {
     public boolean setTotpKey(String user, String totpKey) {
         boolean result = source.setTotpKey(user, totpKey);
         if (result) {
-            cachedAuths.refresh(user);
+            invalidate(user);
         }
         return result;
     }
 
     @Override
     public void invalidateCache(String playerName) {
-        cachedAuths.invalidate(playerName);
+        invalidate(playerName);
     }
 
     @Override
     public void refreshCache(String playerName) {
-        if (cachedAuths.getIfPresent(playerName) != null) {
-            cachedAuths.refresh(playerName);
-        }
+        // The account was changed on another server: load it again on the next access
+        invalidate(playerName);
     }
 
 }
@@ -5,8 +5,15 @@ import fr.xephi.authme.data.auth.PlayerAuth;
 import fr.xephi.authme.initialization.Reloadable;
 import fr.xephi.authme.security.crypts.HashedPassword;
 
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -47,6 +54,23 @@ public interface DataSource extends Reloadable {
      */
     PlayerAuth getAuth(String user);
 
+    /**
+     * Retrieve the PlayerAuth objects associated with the given usernames.
+     *
+     * @param users The users to retrieve
+     * @return The PlayerAuth objects of the users that exist, by lowercase username
+     */
+    default Map<String, PlayerAuth> getAuths(Collection<String> users) {
+        Map<String, PlayerAuth> auths = new HashMap<>();
+        for (String user : users) {
+            PlayerAuth auth = getAuth(user);
+            if (auth != null) {
+                auths.put(auth.getNickname(), auth);
+            }
+        }
+        return auths;
+    }
+
     /**
      * Save a new PlayerAuth object.
      *
@@ -55,6 +79,25 @@ public interface DataSource extends Reloadable {
      */
     boolean saveAuth(PlayerAuth auth);
 
+    /**
+     * Saves the given new accounts, including their last login data and quit location. Accounts whose
+     * name already exists are skipped.
+     *
+     * @param auths the accounts to save
+     * @return the number of saved accounts
+     */
+    default int saveAuths(List<PlayerAuth> auths) {
+        int savedAuths = 0;
+        for (PlayerAuth auth : auths) {
+            if (saveAuth(auth)) {
+                updateSession(auth);
+                updateQuitLoc(auth);
+                ++savedAuths;
+            }
+        }
+        return savedAuths;
+    }
+
     /**
      * Update the session of a record (IP, last login, real name).
      *
@@ -95,6 +138,21 @@ public interface DataSource extends Reloadable {
      */
     void purgeRecords(Collection<String> toPurge);
 
+    /**
+     * Removes all accounts which have never logged in, i.e. whose last login date is not set.
+     *
+     * @return the names of the removed accounts
+     */
+    default Set<String> removeNeverLoggedInAuths() {
+        Set<String> removedNames = new HashSet<>();
+        for (PlayerAuth auth : getAllAuths()) {
+            if (auth.getLastLogin() == null && removeAuth(auth.getNickname())) {
+                removedNames.add(auth.getNickname());
+            }
+        }
+        return removedNames;
+    }
+
     /**
      * Remove a user record from the database.
      *
@@ -111,6 +169,29 @@ public interface DataSource extends Reloadable {
      */
     boolean updateQuitLoc(PlayerAuth auth);
 
+    /**
+     * Sets the quit location of all accounts to the given coordinates and world. Yaw and pitch are kept.
+     *
+     * @param x the x coordinate to set
+     * @param y the y coordinate to set
+     * @param z the z coordinate to set
+     * @param world the world to set
+     * @return the names of the accounts whose quit location was changed
+     */
+    default Set<String> updateAllQuitLocs(double x, double y, double z, String world) {
+        Set<String> updatedNames = new HashSet<>();
+        for (PlayerAuth auth : getAllAuths()) {
+            auth.setQuitLocX(x);
+            auth.setQuitLocY(y);
+            auth.setQuitLocZ(z);
+            auth.setWorld(world);
+            if (updateQuitLoc(auth)) {
+                updatedNames.add(auth.getNickname());
+            }
+        }
+        return updatedNames;
+    }
+
     /**
      * Return all usernames associated with the given IP address.
      *
@@ -119,6 +200,37 @@ public interface DataSource extends Reloadable {
      */
     List<String> getAllAuthsByIp(String ip);
 
+    /**
+     * Return whether the data source keeps the IP history of accounts, see {@link #saveIpHistory}.
+     *
+     * @return true if the IP history is available, false otherwise
+     */
+    default boolean hasIpHistory() {
+        return false;
+    }
+
+    /**
+     * Save the given entries to the IP history. Entries which already exist only have their last-seen
+     * timestamp updated.
+     *
+     * @param entries the entries to save
+     * @return true if the entries were saved, false if the IP history is not available or an error occurred
+     */
+    default boolean saveIpHistory(Collection<IpHistoryEntry> entries) {
+        return false;
+    }
+
+    /**
+     * Return the names of all accounts which have used an IP address in the given range.
+     *
+     * @param from the lowest address key of the range, see {@link IpHistoryEntry#toAddressKey}
+     * @param to the highest address key of the range
+     * @return names of the accounts, empty if the IP history is not available
+     */
+    default List<String> getNamesByIpHistory(byte[] from, byte[] to) {
+        return Collections.emptyList();
+    }
+
     /**
      * Return the number of accounts associated with the given email address.
      *
@@ -192,6 +304,20 @@ public interface DataSource extends Reloadable {
      */
     void revokeSession(String user);
 
+    /**
+     * Consumes the user's session in one atomic operation if it is still valid, i.e. if the user has
+     * a session, his last IP is the given one and his last login lies within the given window.
+     * A consumed session is revoked and the user is marked as not logged in. If the same session
+     * is consumed concurrently (e.g. by multiple servers), only one call succeeds.
+     *
+     * @param user The name of the player
+     * @param ip The IP address the player is connecting with
+     * @param minLastLogin The last login must be after this timestamp (exclusive)
+     * @param maxLastLogin The last login must be before this timestamp (exclusive)
+     * @return True if a valid session was consumed, false otherwise
+     */
+    boolean consumeSession(String user, String ip, long minLastLogin, long maxLastLogin);
+
     /**
      * Set all players who are marked as logged in as NOT logged in.
      */
@@ -261,6 +387,17 @@ public interface DataSource extends Reloadable {
         return setTotpKey(user, null);
     }
 
+    /**
+     * Writes a consistent copy of all accounts to the given file, without blocking other operations on the
+     * data source while doing so. Must not be called from the main thread. SQLite data sources write a
+     * database file; the other SQL data sources write gzip-compressed SQL statements.
+     *
+     * @param target the file to write to (must not exist)
+     * @throws SQLException if the data could not be read
+     * @throws IOException if the file could not be written
+     */
+    void backup(File target) throws SQLException, IOException;
+
     /**
      * Reload the data source.
      */
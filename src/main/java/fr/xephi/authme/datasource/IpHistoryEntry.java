@@ -0,0 +1,72 @@
+package fr.xephi.authme.datasource;
+
+import com.google.common.net.InetAddresses;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.Locale;
+
+/**
+ * Record of an IP address having been used by an account, as kept in the IP history table.
+ * <p>
+ * Addresses are stored as 16 bytes: IPv6 addresses as they are and IPv4 addresses in their IPv4-mapped form
+ * (::ffff:a.b.c.d), so that all addresses sort in one order and networks are ranges of keys.
+ */
+public final class IpHistoryEntry {
+
+    /** Length of an address key in bytes. */
+    public static final int ADDRESS_KEY_LENGTH = 16;
+    /** Number of bits before an IPv4 address in its IPv4-mapped form. */
+    public static final int IPV4_MAPPED_PREFIX_BITS = 96;
+
+    private final String name;
+    private final byte[] address;
+    private final long lastSeen;
+
+    /**
+     * Constructor.
+     *
+     * @param name the name of the account
+     * @param address the address key, see {@link #toAddressKey}
+     * @param lastSeen timestamp (in milliseconds) at which the account last used the address
+     */
+    public IpHistoryEntry(String name, byte[] address, long lastSeen) {
+        this.name = name.toLowerCase(Locale.ROOT);
+        this.address = address;
+        this.lastSeen = lastSeen;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public byte[] getAddress() {
+        return address;
+    }
+
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    /**
+     * Converts the given IP address to the key used in the IP history table.
+     *
+     * @param ip the textual IP address
+     * @return the address key, or null if the text is not an IP address
+     */
+    public static byte[] toAddressKey(String ip) {
+        if (ip == null || !InetAddresses.isInetAddress(ip)) {
+            return null;
+        }
+        InetAddress address = InetAddresses.forString(ip);
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet4Address) {
+            byte[] key = new byte[ADDRESS_KEY_LENGTH];
+            key[10] = (byte) 0xFF;
+            key[11] = (byte) 0xFF;
+            System.arraycopy(bytes, 0, key, 12, bytes.length);
+            return key;
+        }
+        return bytes;
+    }
+}
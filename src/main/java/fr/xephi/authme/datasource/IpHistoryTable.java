@@ -0,0 +1,271 @@
+package fr.xephi.authme.datasource;
+
+import ch.jalu.datasourcecolumns.sqlimplementation.statementgenerator.ConnectionSupplier;
+import fr.xephi.authme.ConsoleLogger;
+import fr.xephi.authme.output.ConsoleLoggerFactory;
+import fr.xephi.authme.settings.Settings;
+import fr.xephi.authme.settings.properties.DatabaseSettings;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static fr.xephi.authme.datasource.SqlDataSourceUtils.BULK_CHUNK_SIZE;
+import static fr.xephi.authme.datasource.SqlDataSourceUtils.deleteByNames;
+
+/**
+ * Table with the IP addresses used by each account, see {@link IpHistoryEntry}.
+ * <p>
+ * The primary key is (ip, name), so looking up the accounts of an address or of a network is a range scan
+ * over the index. Names are only returned if the account still exists in the main table.
+ */
+final class IpHistoryTable {
+
+    /**
+     * SQL dialect of the database.
+     */
+    enum Dialect {
+        MYSQL, POSTGRESQL, SQLITE
+    }
+
+    private static final Pattern MYSQL_VERSION = Pattern.compile("(\\d+)\\.(\\d+)\\.(\\d+)");
+
+    private final ConsoleLogger logger = ConsoleLoggerFactory.get(IpHistoryTable.class);
+
+    private final String tableName;
+    private final String authTableName;
+    private final Columns col;
+    private final Dialect dialect;
+    private final ConnectionSupplier connectionSupplier;
+    private final boolean closeConnections;
+    /** Statement to save entries, created on set up as it depends on the database version. */
+    private String upsertStatement;
+
+    private IpHistoryTable(String tableName, String authTableName, Columns col, Dialect dialect,
+                           ConnectionSupplier connectionSupplier, boolean closeConnections) {
+        this.tableName = tableName;
+        this.authTableName = authTableName;
+        this.col = col;
+        this.dialect = dialect;
+        this.connectionSupplier = connectionSupplier;
+        this.closeConnections = closeConnections;
+    }
+
+    /**
+     * Creates the IP history table handler if the IP history is enabled.
+     *
+     * @param settings the settings
+     * @param col the columns of the main table
+     * @param dialect the SQL dialect
+     * @param connectionSupplier supplier of connections
+     * @param closeConnections whether connections should be closed after use (i.e. whether they are pooled)
+     * @return the created handler, or null if the IP history is disabled
+     */
+    static IpHistoryTable createIfEnabled(Settings settings, Columns col, Dialect dialect,
+                                          ConnectionSupplier connectionSupplier, boolean closeConnections) {
+        if (!settings.getProperty(DatabaseSettings.USE_IP_HISTORY)) {
+            return null;
+        }
+        return new IpHistoryTable(settings.getProperty(DatabaseSettings.IP_HISTORY_TABLE),
+            settings.getProperty(DatabaseSettings.MYSQL_TABLE), col, dialect, connectionSupplier, closeConnections);
+    }
+
+    /**
+     * Creates the table if it doesn't exist. If the table is empty, it is filled with the last IP and the
+     * registration IP of all accounts.
+     *
+     * @throws SQLException :)
+     */
+    void setUp() throws SQLException {
+        Connection con = connectionSupplier.get();
+        try (Statement st = con.createStatement()) {
+            upsertStatement = createUpsertStatement(con.getMetaData());
+            switch (dialect) {
+                case MYSQL:
+                    st.executeUpdate("CREATE TABLE IF NOT EXISTS " + tableName + " ("
+                        + "ip VARBINARY(16) NOT NULL, name VARCHAR(255) NOT NULL, "
+                        + "first_seen BIGINT NOT NULL, last_seen BIGINT NOT NULL, "
+                        + "PRIMARY KEY (ip, name), INDEX " + tableName + "_name (name)"
+                        + ") CHARACTER SET = utf8;");
+                    break;
+                case POSTGRESQL:
+                case SQLITE:
+                    st.executeUpdate("CREATE TABLE IF NOT EXISTS " + tableName + " ("
+                        + "ip " + (dialect == Dialect.SQLITE ? "BLOB" : "BYTEA") + " NOT NULL, "
+                        + "name VARCHAR(255) NOT NULL, "
+                        + "first_seen BIGINT NOT NULL, last_seen BIGINT NOT NULL, "
+                        + "PRIMARY KEY (ip, name));");
+                    st.executeUpdate("CREATE INDEX IF NOT EXISTS " + tableName + "_name ON " + tableName + " (name);");
+                    break;
+                default:
+                    throw new IllegalStateException("Unhandled dialect '" + dialect + "'");
+            }
+
+            boolean isEmpty;
+            try (ResultSet rs = st.executeQuery("SELECT 1 FROM " + tableName + " LIMIT 1;")) {
+                isEmpty = !rs.next();
+            }
+            if (isEmpty) {
+                fillFromAccounts(con);
+            }
+        } finally {
+            close(con);
+        }
+    }
+
+    /**
+     * Saves the given entries. The last-seen time of existing entries is updated.
+     *
+     * @param entries the entries to save
+     * @throws SQLException :)
+     */
+    void save(Collection<IpHistoryEntry> entries) throws SQLException {
+        Connection con = connectionSupplier.get();
+        try {
+            save(con, entries);
+        } finally {
+            close(con);
+        }
+    }
+
+    /**
+     * Deletes the entries of the given accounts.
+     *
+     * @param names the names of the accounts
+     * @throws SQLException :)
+     */
+    void delete(Collection<String> names) throws SQLException {
+        Connection con = connectionSupplier.get();
+        try {
+            deleteByNames(con, tableName, "name", names);
+        } finally {
+            close(con);
+        }
+    }
+
+    /**
+     * Returns the names of the existing accounts which have used an address in the given range.
+     *
+     * @param from the lowest address key of the range
+     * @param to the highest address key of the range
+     * @return names of the accounts (lowercase)
+     * @throws SQLException :)
+     */
+    List<String> getNames(byte[] from, byte[] to) throws SQLException {
+        String sql = "SELECT DISTINCT h.name FROM " + tableName + " h"
+            + " JOIN " + authTableName + " a ON a." + col.NAME + " = h.name"
+            + " WHERE h.ip BETWEEN ? AND ?;";
+        Connection con = connectionSupplier.get();
+        try (PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setBytes(1, from);
+            pst.setBytes(2, to);
+            List<String> names = new ArrayList<>();
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString(1));
+                }
+            }
+            return names;
+        } finally {
+            close(con);
+        }
+    }
+
+    private void save(Connection con, Collection<IpHistoryEntry> entries) throws SQLException {
+        try (PreparedStatement pst = con.prepareStatement(upsertStatement)) {
+            int batchSize = 0;
+            for (IpHistoryEntry entry : entries) {
+                pst.setBytes(1, entry.getAddress());
+                pst.setString(2, entry.getName());
+                pst.setLong(3, entry.getLastSeen());
+                pst.setLong(4, entry.getLastSeen());
+                pst.addBatch();
+                if (++batchSize == BULK_CHUNK_SIZE) {
+                    pst.executeBatch();
+                    batchSize = 0;
+                }
+            }
+            if (batchSize > 0) {
+                pst.executeBatch();
+            }
+        }
+    }
+
+    private String createUpsertStatement(DatabaseMetaData metaData) throws SQLException {
+        String insert = "INSERT INTO " + tableName + " (ip, name, first_seen, last_seen) VALUES (?, ?, ?, ?)";
+        switch (dialect) {
+            case MYSQL:
+                // VALUES() in the update is deprecated as of MySQL 8.0.20, but the row alias is not supported by
+                // older versions and MariaDB
+                return supportsRowAlias(metaData)
+                    ? insert + " AS new ON DUPLICATE KEY UPDATE last_seen = GREATEST(last_seen, new.last_seen);"
+                    : insert + " ON DUPLICATE KEY UPDATE last_seen = GREATEST(last_seen, VALUES(last_seen));";
+            case POSTGRESQL:
+                return insert + " ON CONFLICT (ip, name) DO UPDATE"
+                    + " SET last_seen = GREATEST(" + tableName + ".last_seen, EXCLUDED.last_seen);";
+            case SQLITE:
+                return insert + " ON CONFLICT (ip, name) DO UPDATE SET last_seen = MAX(last_seen, excluded.last_seen);";
+            default:
+                throw new IllegalStateException("Unhandled dialect '" + dialect + "'");
+        }
+    }
+
+    /**
+     * Returns whether the database supports a row alias in INSERT ... ON DUPLICATE KEY UPDATE statements,
+     * which is the case as of MySQL 8.0.19.
+     *
+     * @param metaData the metadata of the database
+     * @return true if the row alias is supported, false otherwise
+     * @throws SQLException :)
+     */
+    private static boolean supportsRowAlias(DatabaseMetaData metaData) throws SQLException {
+        // MariaDB reports itself as MySQL 5.5.5 to the MySQL driver
+        Matcher version = MYSQL_VERSION.matcher(metaData.getDatabaseProductVersion());
+        if (!"MySQL".equalsIgnoreCase(metaData.getDatabaseProductName()) || !version.lookingAt()) {
+            return false;
+        }
+        int major = Integer.parseInt(version.group(1));
+        int minor = Integer.parseInt(version.group(2));
+        int patch = Integer.parseInt(version.group(3));
+        return major > 8 || major == 8 && (minor > 0 || patch >= 19);
+    }
+
+    private void fillFromAccounts(Connection con) throws SQLException {
+        List<IpHistoryEntry> entries = new ArrayList<>();
+        String sql = "SELECT " + col.NAME + ", " + col.LAST_IP + ", " + col.LAST_LOGIN + ", "
+            + col.REGISTRATION_IP + ", " + col.REGISTRATION_DATE + " FROM " + authTableName + ";";
+        try (Statement st = con.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                String name = rs.getString(1);
+                long registrationDate = rs.getLong(5);
+                addEntry(entries, name, rs.getString(2), Math.max(rs.getLong(3), registrationDate));
+                addEntry(entries, name, rs.getString(4), registrationDate);
+            }
+        }
+        if (!entries.isEmpty()) {
+            save(con, entries);
+            logger.info("Filled the IP history with " + entries.size() + " entries from the accounts");
+        }
+    }
+
+    private static void addEntry(List<IpHistoryEntry> entries, String name, String ip, long lastSeen) {
+        byte[] address = IpHistoryEntry.toAddressKey(ip);
+        if (name != null && address != null) {
+            entries.add(new IpHistoryEntry(name, address, lastSeen));
+        }
+    }
+
+    private void close(Connection con) throws SQLException {
+        if (closeConnections) {
+            con.close();
+        }
+    }
+}
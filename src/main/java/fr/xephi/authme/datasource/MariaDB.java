@@ -20,6 +20,11 @@ public class MariaDB extends MySQL {
         return "org.mariadb.jdbc.Driver";
     }
 
+    @Override
+    protected int getBackupFetchSize() {
+        return 1000;
+    }
+
     @Override
     public DataSourceType getType() {
         return DataSourceType.MARIADB;
@@ -13,6 +13,8 @@ import fr.xephi.authme.settings.Settings;
 import fr.xephi.authme.settings.properties.DatabaseSettings;
 import fr.xephi.authme.settings.properties.HooksSettings;
 
+import java.io.File;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
@@ -21,13 +23,22 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
+import static fr.xephi.authme.datasource.SqlDataSourceUtils.bindStrings;
+import static fr.xephi.authme.datasource.SqlDataSourceUtils.createPlaceholders;
+import static fr.xephi.authme.datasource.SqlDataSourceUtils.deleteByNames;
+import static fr.xephi.authme.datasource.SqlDataSourceUtils.deleteNeverLoggedIn;
 import static fr.xephi.authme.datasource.SqlDataSourceUtils.getNullableLong;
 import static fr.xephi.authme.datasource.SqlDataSourceUtils.logSqlException;
+import static fr.xephi.authme.datasource.SqlDataSourceUtils.openUnpooledConnection;
+import static fr.xephi.authme.datasource.SqlDataSourceUtils.toLowerCaseChunks;
 
 /**
  * PostgreSQL data source.
@@ -102,6 +113,8 @@ public class PostgreSqlDataSource extends AbstractSqlDataSource {
         this.columnOthers = settings.getProperty(HooksSettings.MYSQL_OTHER_USERNAME_COLS);
         this.col = new Columns(settings);
         this.columnsHandler = AuthMeColumnsHandler.createForMySql(this::getConnection, settings);
+        this.ipHistory = IpHistoryTable.createIfEnabled(
+            settings, col, IpHistoryTable.Dialect.POSTGRESQL, this::getConnection, true);
         this.sqlExtension = extensionsFactory.buildExtension(col);
         this.poolSize = settings.getProperty(DatabaseSettings.MYSQL_POOL_SIZE);
         this.maxLifetime = settings.getProperty(DatabaseSettings.MYSQL_CONNECTION_MAX_LIFETIME);
@@ -254,6 +267,9 @@ public class PostgreSqlDataSource extends AbstractSqlDataSource {
                     + " ADD COLUMN " + col.PLAYER_UUID + " VARCHAR(36)");
             }
         }
+        if (ipHistory != null) {
+            ipHistory.setUp();
+        }
         logger.info("PostgreSQL setup finished");
     }
 
@@ -283,6 +299,30 @@ public class PostgreSqlDataSource extends AbstractSqlDataSource {
         return null;
     }
 
+    @Override
+    public Map<String, PlayerAuth> getAuths(Collection<String> users) {
+        Map<String, PlayerAuth> auths = new HashMap<>();
+        try (Connection con = getConnection()) {
+            for (List<String> chunk : toLowerCaseChunks(users)) {
+                String sql = "SELECT * FROM " + tableName + " WHERE " + col.NAME
+                    + " IN (" + createPlaceholders(chunk.size()) + ");";
+                try (PreparedStatement pst = con.prepareStatement(sql)) {
+                    bindStrings(pst, 1, chunk);
+                    try (ResultSet rs = pst.executeQuery()) {
+                        while (rs.next()) {
+                            PlayerAuth auth = buildAuthFromResultSet(rs);
+                            sqlExtension.extendAuth(auth, rs.getInt(col.ID), con);
+                            auths.put(auth.getNickname(), auth);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException ex) {
+            logSqlException(ex);
+        }
+        return auths;
+    }
+
     @Override
     public boolean saveAuth(PlayerAuth auth) {
         super.saveAuth(auth);
@@ -334,6 +374,18 @@ public class PostgreSqlDataSource extends AbstractSqlDataSource {
         return list;
     }
 
+    @Override
+    public Set<String> removeNeverLoggedInAuths() {
+        try (Connection con = getConnection()) {
+            Set<String> removedNames = deleteNeverLoggedIn(con, tableName, col.NAME, col.LAST_LOGIN);
+            removeIpHistory(removedNames);
+            return removedNames;
+        } catch (SQLException ex) {
+            logSqlException(ex);
+            return Collections.emptySet();
+        }
+    }
+
     @Override
     public boolean removeAuth(String user) {
         user = user.toLowerCase(Locale.ROOT);
@@ -342,6 +394,7 @@ public class PostgreSqlDataSource extends AbstractSqlDataSource {
             sqlExtension.removeAuth(user, con);
             pst.setString(1, user.toLowerCase(Locale.ROOT));
             pst.executeUpdate();
+            removeIpHistory(Collections.singleton(user));
             return true;
         } catch (SQLException ex) {
             logSqlException(ex);
@@ -356,14 +409,28 @@ public class PostgreSqlDataSource extends AbstractSqlDataSource {
         }
     }
 
+    @Override
+    public void backup(File target) throws SQLException, IOException {
+        // Own connection so that the backup neither occupies the pool nor is aborted when the pool closes
+        try (Connection con = openUnpooledConnection(ds)) {
+            // The PostgreSQL driver only fetches rows in batches within a transaction
+            con.setAutoCommit(false);
+            con.setReadOnly(true);
+            SqlDumpWriter.POSTGRESQL.write(con, tableName, null, 1000, target);
+            con.commit();
+        }
+    }
+
+    @Override
+    protected boolean supportsBulkInsert() {
+        return columnOthers.isEmpty() && !sqlExtension.hasSaveAuthActions();
+    }
+
     @Override
     public void purgeRecords(Collection<String> toPurge) {
-        String sql = "DELETE FROM " + tableName + " WHERE " + col.NAME + "=?;";
-        try (Connection con = getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
-            for (String name : toPurge) {
-                pst.setString(1, name.toLowerCase(Locale.ROOT));
-                pst.executeUpdate();
-            }
+        try (Connection con = getConnection()) {
+            deleteByNames(con, tableName, col.NAME, toPurge);
+            removeIpHistory(toPurge);
         } catch (SQLException ex) {
             logSqlException(ex);
         }
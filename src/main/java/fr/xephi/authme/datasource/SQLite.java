@@ -18,13 +18,21 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
+import static fr.xephi.authme.datasource.SqlDataSourceUtils.bindStrings;
+import static fr.xephi.authme.datasource.SqlDataSourceUtils.createPlaceholders;
+import static fr.xephi.authme.datasource.SqlDataSourceUtils.deleteByNames;
+import static fr.xephi.authme.datasource.SqlDataSourceUtils.deleteNeverLoggedIn;
 import static fr.xephi.authme.datasource.SqlDataSourceUtils.getNullableLong;
 import static fr.xephi.authme.datasource.SqlDataSourceUtils.logSqlException;
+import static fr.xephi.authme.datasource.SqlDataSourceUtils.toLowerCaseChunks;
 
 /**
  * SQLite data source.
@@ -59,6 +67,10 @@ public class SQLite extends AbstractSqlDataSource {
             this.connect();
             this.setup();
             this.migrateIfNeeded();
+            if (ipHistory != null) {
+                // After the migration, which may change the type of the columns the history is filled from
+                ipHistory.setUp();
+            }
         } catch (Exception ex) {
             logger.logException("Error during SQLite initialization:", ex);
             throw ex;
@@ -91,6 +103,8 @@ public class SQLite extends AbstractSqlDataSource {
         logger.debug("SQLite driver loaded");
         this.con = DriverManager.getConnection(this.getJdbcUrl(this.dataFolder.getAbsolutePath(), "", this.database));
         this.columnsHandler = AuthMeColumnsHandler.createForSqlite(con, settings);
+        this.ipHistory = IpHistoryTable.createIfEnabled(
+            settings, col, IpHistoryTable.Dialect.SQLITE, () -> con, false);
     }
 
     /**
@@ -222,6 +236,10 @@ public class SQLite extends AbstractSqlDataSource {
             this.connect();
             this.setup();
             this.migrateIfNeeded();
+            if (ipHistory != null) {
+                // After the migration, which may change the type of the columns the history is filled from
+                ipHistory.setUp();
+            }
         } catch (SQLException ex) {
             logger.logException("Error while reloading SQLite:", ex);
         }
@@ -243,6 +261,27 @@ public class SQLite extends AbstractSqlDataSource {
         return null;
     }
 
+    @Override
+    public Map<String, PlayerAuth> getAuths(Collection<String> users) {
+        Map<String, PlayerAuth> auths = new HashMap<>();
+        for (List<String> chunk : toLowerCaseChunks(users)) {
+            String sql = "SELECT * FROM " + tableName + " WHERE LOWER(" + col.NAME + ")"
+                + " IN (" + createPlaceholders(chunk.size()) + ");";
+            try (PreparedStatement pst = con.prepareStatement(sql)) {
+                bindStrings(pst, 1, chunk);
+                try (ResultSet rs = pst.executeQuery()) {
+                    while (rs.next()) {
+                        PlayerAuth auth = buildAuthFromResultSet(rs);
+                        auths.put(auth.getNickname(), auth);
+                    }
+                }
+            } catch (SQLException ex) {
+                logSqlException(ex);
+            }
+        }
+        return auths;
+    }
+
     @Override
     public Set<String> getRecordsToPurge(long until) {
         Set<String> list = new HashSet<>();
@@ -266,23 +305,33 @@ public class SQLite extends AbstractSqlDataSource {
 
     @Override
     public void purgeRecords(Collection<String> toPurge) {
-        String delete = "DELETE FROM " + tableName + " WHERE " + col.NAME + "=?;";
-        try (PreparedStatement deletePst = con.prepareStatement(delete)) {
-            for (String name : toPurge) {
-                deletePst.setString(1, name.toLowerCase(Locale.ROOT));
-                deletePst.executeUpdate();
-            }
+        try {
+            deleteByNames(con, tableName, col.NAME, toPurge);
+            removeIpHistory(toPurge);
         } catch (SQLException ex) {
             logSqlException(ex);
         }
     }
 
+    @Override
+    public Set<String> removeNeverLoggedInAuths() {
+        try {
+            Set<String> removedNames = deleteNeverLoggedIn(con, tableName, col.NAME, col.LAST_LOGIN);
+            removeIpHistory(removedNames);
+            return removedNames;
+        } catch (SQLException ex) {
+            logSqlException(ex);
+            return Collections.emptySet();
+        }
+    }
+
     @Override
     public boolean removeAuth(String user) {
         String sql = "DELETE FROM " + tableName + " WHERE " + col.NAME + "=?;";
         try (PreparedStatement pst = con.prepareStatement(sql)) {
             pst.setString(1, user.toLowerCase(Locale.ROOT));
             pst.executeUpdate();
+            removeIpHistory(Collections.singleton(user));
             return true;
         } catch (SQLException ex) {
             logSqlException(ex);
@@ -290,6 +339,25 @@ public class SQLite extends AbstractSqlDataSource {
         return false;
     }
 
+    @Override
+    public void backup(File target) throws SQLException {
+        // A separate connection copies the database within its own read transaction, so the plugin's
+        // connection can continue to write (including to the WAL) during the backup
+        try (Connection backupCon = DriverManager.getConnection(
+                 getJdbcUrl(dataFolder.getAbsolutePath(), "", database))) {
+            try (PreparedStatement pst = backupCon.prepareStatement("VACUUM INTO ?")) {
+                pst.setString(1, target.getAbsolutePath());
+                pst.execute();
+            } catch (SQLException e) {
+                // VACUUM INTO requires SQLite 3.27; fall back to the online backup API of the driver
+                logger.debug("VACUUM INTO failed ({0}), using the online backup instead", e.getMessage());
+                try (Statement st = backupCon.createStatement()) {
+                    st.executeUpdate("backup to \"" + target.getAbsolutePath() + "\"");
+                }
+            }
+        }
+    }
+
     @Override
     public void closeConnection() {
         try {
@@ -350,7 +418,6 @@ public class SQLite extends AbstractSqlDataSource {
         return players;
     }
 
-
     @Override
     public boolean setTotpKey(String user, String totpKey) {
         String sql = "UPDATE " + tableName + " SET " + col.TOTP_KEY + " = ? WHERE " + col.NAME + " = ?";
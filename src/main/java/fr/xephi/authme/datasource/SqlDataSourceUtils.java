@@ -1,18 +1,38 @@
 package fr.xephi.authme.datasource;
 
+import com.google.common.collect.Lists;
+import com.zaxxer.hikari.HikariDataSource;
 import fr.xephi.authme.ConsoleLogger;
 import fr.xephi.authme.output.ConsoleLoggerFactory;
 
+import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.Driver;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Utilities for SQL data sources.
  */
 public final class SqlDataSourceUtils {
 
+    /** Maximum number of parameters bound in one statement by bulk operations (SQLite's limit is 999). */
+    public static final int BULK_CHUNK_SIZE = 500;
+
     private static final ConsoleLogger logger = ConsoleLoggerFactory.get(SqlDataSourceUtils.class);
+    /** Number of SQL exceptions logged on each thread, see {@link #getLoggedExceptionCount()}. */
+    private static final ThreadLocal<int[]> loggedExceptionCount = ThreadLocal.withInitial(() -> new int[1]);
 
     private SqlDataSourceUtils() {
     }
@@ -23,9 +43,160 @@ public final class SqlDataSourceUtils {
      * @param e the exception to log
      */
     public static void logSqlException(SQLException e) {
+        ++loggedExceptionCount.get()[0];
         logger.logException("Error during SQL operation:", e);
     }
 
+    /**
+     * Returns the number of SQL exceptions which have been logged on the current thread with
+     * {@link #logSqlException}. The SQL data sources handle their exceptions themselves, so a call
+     * has failed if the count is higher after the call than before.
+     *
+     * @return number of SQL exceptions logged on the current thread
+     */
+    static int getLoggedExceptionCount() {
+        return loggedExceptionCount.get()[0];
+    }
+
+    /**
+     * Returns a list of the given number of parameter placeholders, e.g. "?, ?, ?" for 3.
+     *
+     * @param count the number of placeholders
+     * @return the placeholders, separated by commas
+     */
+    public static String createPlaceholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * Lowercases the given names, removes duplicates and splits them into chunks of at most
+     * {@link #BULK_CHUNK_SIZE} entries, to be bound to an IN (...) clause.
+     *
+     * @param names the names to process
+     * @return the chunks of lowercase names
+     */
+    public static List<List<String>> toLowerCaseChunks(Collection<String> names) {
+        List<String> lowerCaseNames = names.stream()
+            .map(name -> name.toLowerCase(Locale.ROOT))
+            .distinct()
+            .collect(Collectors.toList());
+        return Lists.partition(lowerCaseNames, BULK_CHUNK_SIZE);
+    }
+
+    /**
+     * Binds the given values to the statement's parameters, starting at the given index.
+     *
+     * @param pst the statement to bind to
+     * @param startIndex the index of the first parameter to set (1-based)
+     * @param values the values to bind
+     * @throws SQLException :)
+     */
+    public static void bindStrings(PreparedStatement pst, int startIndex, List<String> values) throws SQLException {
+        for (int i = 0; i < values.size(); ++i) {
+            pst.setString(startIndex + i, values.get(i));
+        }
+    }
+
+    /**
+     * Deletes the accounts with the given names, with one statement per chunk of names.
+     *
+     * @param con the connection to use
+     * @param tableName the name of the table
+     * @param nameColumn the name of the column with the (lowercase) player names
+     * @param names the names of the accounts to delete
+     * @return the number of deleted rows
+     * @throws SQLException :)
+     */
+    public static int deleteByNames(Connection con, String tableName, String nameColumn,
+                                    Collection<String> names) throws SQLException {
+        int deletedRows = 0;
+        for (List<String> chunk : toLowerCaseChunks(names)) {
+            try (PreparedStatement pst = con.prepareStatement("DELETE FROM " + tableName + " WHERE "
+                + nameColumn + " IN (" + createPlaceholders(chunk.size()) + ");")) {
+                bindStrings(pst, 1, chunk);
+                deletedRows += pst.executeUpdate();
+            }
+        }
+        return deletedRows;
+    }
+
+    /**
+     * Deletes all accounts whose last login is null. The names are selected first and then deleted in
+     * chunks, so that an account which logs in during the operation is neither deleted nor reported.
+     *
+     * @param con the connection to use
+     * @param tableName the name of the table
+     * @param nameColumn the name of the column with the (lowercase) player names
+     * @param lastLoginColumn the name of the column with the last login timestamp
+     * @return the names of the deleted accounts
+     * @throws SQLException :)
+     */
+    public static Set<String> deleteNeverLoggedIn(Connection con, String tableName, String nameColumn,
+                                                  String lastLoginColumn) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery(
+                 "SELECT " + nameColumn + " FROM " + tableName + " WHERE " + lastLoginColumn + " IS NULL;")) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        }
+
+        Set<String> deletedNames = new HashSet<>();
+        for (List<String> chunk : toLowerCaseChunks(names)) {
+            String inClause = " IN (" + createPlaceholders(chunk.size()) + ")";
+            int deletedRows;
+            try (PreparedStatement pst = con.prepareStatement("DELETE FROM " + tableName + " WHERE "
+                + nameColumn + inClause + " AND " + lastLoginColumn + " IS NULL;")) {
+                bindStrings(pst, 1, chunk);
+                deletedRows = pst.executeUpdate();
+            }
+            if (deletedRows == chunk.size()) {
+                deletedNames.addAll(chunk);
+            } else {
+                // Some players have logged in meanwhile: only report the accounts which are gone
+                Set<String> remainingNames = new HashSet<>();
+                try (PreparedStatement pst = con.prepareStatement(
+                    "SELECT " + nameColumn + " FROM " + tableName + " WHERE " + nameColumn + inClause + ";")) {
+                    bindStrings(pst, 1, chunk);
+                    try (ResultSet rs = pst.executeQuery()) {
+                        while (rs.next()) {
+                            remainingNames.add(rs.getString(1).toLowerCase(Locale.ROOT));
+                        }
+                    }
+                }
+                chunk.stream().filter(name -> !remainingNames.contains(name)).forEach(deletedNames::add);
+            }
+        }
+        return deletedNames;
+    }
+
+    /**
+     * Opens a connection with the settings of the given pool which is not managed by the pool, e.g. for
+     * long-running operations which should not occupy a pooled connection or be aborted when the pool closes.
+     *
+     * @param ds the pool whose settings should be used
+     * @return the new connection
+     * @throws SQLException if the connection could not be established
+     */
+    public static Connection openUnpooledConnection(HikariDataSource ds) throws SQLException {
+        Properties properties = new Properties();
+        properties.putAll(ds.getDataSourceProperties());
+        properties.setProperty("user", ds.getUsername());
+        properties.setProperty("password", ds.getPassword());
+        Driver driver;
+        try {
+            driver = (Driver) Class.forName(ds.getDriverClassName()).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new SQLException("Could not load JDBC driver '" + ds.getDriverClassName() + "'", e);
+        }
+        Connection con = driver.connect(ds.getJdbcUrl(), properties);
+        if (con == null) {
+            throw new SQLException("JDBC driver '" + ds.getDriverClassName() + "' does not accept the URL");
+        }
+        return con;
+    }
+
     /**
      * Returns the long value of a column, or null when appropriate. This method is necessary because
      * JDBC's {@link ResultSet#getLong} returns {@code 0} if the entry in the database is {@code null}.
@@ -0,0 +1,143 @@
+package fr.xephi.authme.datasource;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the rows of a table as gzip-compressed SQL insert statements. Rows are streamed from the
+ * database with the given fetch size, so the table is never held in memory as a whole.
+ */
+final class SqlDumpWriter {
+
+    /** Writer for MySQL and MariaDB, which quote identifiers with backticks and treat backslashes as escapes. */
+    static final SqlDumpWriter MYSQL = new SqlDumpWriter('`', true);
+    /** Writer for PostgreSQL, which quotes identifiers with double quotes and uses standard strings. */
+    static final SqlDumpWriter POSTGRESQL = new SqlDumpWriter('"', false);
+
+    private static final int ROWS_PER_INSERT = 100;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final char identifierQuote;
+    private final boolean isMySql;
+
+    private SqlDumpWriter(char identifierQuote, boolean isMySql) {
+        this.identifierQuote = identifierQuote;
+        this.isMySql = isMySql;
+    }
+
+    /**
+     * Writes all rows of the given table to the target file.
+     *
+     * @param con the connection to read from
+     * @param tableName the name of the table
+     * @param createTableStatement the statement creating the table, or null to only write the rows
+     * @param fetchSize the fetch size which makes the driver stream the rows
+     * @param target the file to write to
+     * @throws SQLException if the rows could not be read
+     * @throws IOException if the file could not be written
+     */
+    void write(Connection con, String tableName, String createTableStatement, int fetchSize,
+               File target) throws SQLException, IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                 new GZIPOutputStream(new FileOutputStream(target), 65536), StandardCharsets.UTF_8));
+             Statement st = con.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            st.setFetchSize(fetchSize);
+            out.write("-- AuthMe backup of table " + tableName + ", created " + Instant.now() + "\n\n");
+            if (createTableStatement != null) {
+                out.write(createTableStatement + ";\n\n");
+            }
+
+            try (ResultSet rs = st.executeQuery("SELECT * FROM " + tableName)) {
+                String insertPrefix = buildInsertPrefix(tableName, rs.getMetaData());
+                int columnCount = rs.getMetaData().getColumnCount();
+                int rowsInStatement = 0;
+                while (rs.next()) {
+                    out.write(rowsInStatement == 0 ? insertPrefix : ",\n");
+                    writeRow(rs, columnCount, out);
+                    if (++rowsInStatement == ROWS_PER_INSERT) {
+                        out.write(";\n");
+                        rowsInStatement = 0;
+                    }
+                }
+                if (rowsInStatement > 0) {
+                    out.write(";\n");
+                }
+            }
+        }
+    }
+
+    private String buildInsertPrefix(String tableName, ResultSetMetaData metaData) throws SQLException {
+        StringBuilder prefix = new StringBuilder("INSERT INTO ").append(tableName).append(" (");
+        for (int i = 1; i <= metaData.getColumnCount(); ++i) {
+            if (i > 1) {
+                prefix.append(", ");
+            }
+            prefix.append(identifierQuote).append(metaData.getColumnName(i)).append(identifierQuote);
+        }
+        return prefix.append(") VALUES\n").toString();
+    }
+
+    private void writeRow(ResultSet rs, int columnCount, Writer out) throws SQLException, IOException {
+        out.write('(');
+        for (int i = 1; i <= columnCount; ++i) {
+            if (i > 1) {
+                out.write(", ");
+            }
+            writeValue(rs.getObject(i), out);
+        }
+        out.write(')');
+    }
+
+    private void writeValue(Object value, Writer out) throws IOException {
+        if (value == null) {
+            out.write("NULL");
+        } else if (value instanceof BigDecimal) {
+            out.write(((BigDecimal) value).toPlainString());
+        } else if (value instanceof Number) {
+            out.write(value.toString());
+        } else if (value instanceof Boolean) {
+            out.write((Boolean) value ? "TRUE" : "FALSE");
+        } else if (value instanceof byte[]) {
+            writeBytes((byte[]) value, out);
+        } else {
+            writeString(value.toString(), out);
+        }
+    }
+
+    private void writeString(String value, Writer out) throws IOException {
+        out.write('\'');
+        for (int i = 0; i < value.length(); ++i) {
+            char chr = value.charAt(i);
+            if (chr == '\'') {
+                out.write("''");
+            } else if (chr == '\\' && isMySql) {
+                out.write("\\\\");
+            } else {
+                out.write(chr);
+            }
+        }
+        out.write('\'');
+    }
+
+    private void writeBytes(byte[] bytes, Writer out) throws IOException {
+        out.write(isMySql ? "X'" : "'\\x");
+        for (byte b : bytes) {
+            out.write(HEX_DIGITS[(b >> 4) & 0xF]);
+            out.write(HEX_DIGITS[b & 0xF]);
+        }
+        out.write(isMySql ? "'" : "'::bytea");
+    }
+}
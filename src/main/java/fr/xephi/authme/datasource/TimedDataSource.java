@@ -0,0 +1,351 @@
+package fr.xephi.authme.datasource;
+
+import ch.jalu.datasourcecolumns.data.DataSourceValue;
+import fr.xephi.authme.ConsoleLogger;
+import fr.xephi.authme.data.auth.PlayerAuth;
+import fr.xephi.authme.metrics.MetricsRegistry;
+import fr.xephi.authme.output.ConsoleLoggerFactory;
+import fr.xephi.authme.security.crypts.HashedPassword;
+import fr.xephi.authme.settings.Settings;
+import fr.xephi.authme.settings.properties.DatabaseSettings;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Data source decorator which records the number of calls, the latency and the number of failures of each
+ * method in the {@link MetricsRegistry}, under the names {@code datasource.<method>} and
+ * {@code datasource.<method>.errors}. Calls slower than the configured threshold are logged with the
+ * type of their arguments, but never their values.
+ */
+public class TimedDataSource implements DataSource {
+
+    /** Prefix of the names of the metrics recorded by this class. */
+    public static final String METRIC_PREFIX = "datasource.";
+
+    private final ConsoleLogger logger = ConsoleLoggerFactory.get(TimedDataSource.class);
+
+    private final DataSource source;
+    private final Settings settings;
+    private final MetricsRegistry metricsRegistry;
+    private volatile long slowCallThresholdNanos;
+
+    /**
+     * Constructor.
+     *
+     * @param source the data source to time
+     * @param settings the settings
+     * @param metricsRegistry the registry to record the timings in
+     */
+    public TimedDataSource(DataSource source, Settings settings, MetricsRegistry metricsRegistry) {
+        this.source = source;
+        this.settings = settings;
+        this.metricsRegistry = metricsRegistry;
+        loadSlowCallThreshold();
+    }
+
+    /**
+     * @return the data source whose calls are timed
+     */
+    public DataSource getSource() {
+        return source;
+    }
+
+    @Override
+    public void reload() {
+        loadSlowCallThreshold();
+        source.reload();
+    }
+
+    private void loadSlowCallThreshold() {
+        slowCallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(
+            settings.getProperty(DatabaseSettings.SLOW_CALL_THRESHOLD));
+    }
+
+    @Override
+    public boolean isCached() {
+        return source.isCached();
+    }
+
+    @Override
+    public boolean isAuthAvailable(String user) {
+        return timed("isAuthAvailable", user, () -> source.isAuthAvailable(user));
+    }
+
+    @Override
+    public HashedPassword getPassword(String user) {
+        return timed("getPassword", user, () -> source.getPassword(user));
+    }
+
+    @Override
+    public PlayerAuth getAuth(String user) {
+        return timed("getAuth", user, () -> source.getAuth(user));
+    }
+
+    @Override
+    public Map<String, PlayerAuth> getAuths(Collection<String> users) {
+        return timed("getAuths", users, () -> source.getAuths(users));
+    }
+
+    @Override
+    public boolean saveAuth(PlayerAuth auth) {
+        return timed("saveAuth", auth, () -> source.saveAuth(auth));
+    }
+
+    @Override
+    public int saveAuths(List<PlayerAuth> auths) {
+        return timed("saveAuths", auths, () -> source.saveAuths(auths));
+    }
+
+    @Override
+    public boolean updateSession(PlayerAuth auth) {
+        return timed("updateSession", auth, () -> source.updateSession(auth));
+    }
+
+    @Override
+    public boolean updatePassword(PlayerAuth auth) {
+        return timed("updatePassword", auth, () -> source.updatePassword(auth));
+    }
+
+    @Override
+    public boolean updatePassword(String user, HashedPassword password) {
+        return timed("updatePassword", user, () -> source.updatePassword(user, password));
+    }
+
+    @Override
+    public Set<String> getRecordsToPurge(long until) {
+        return timed("getRecordsToPurge", until, () -> source.getRecordsToPurge(until));
+    }
+
+    @Override
+    public void purgeRecords(Collection<String> toPurge) {
+        timed("purgeRecords", toPurge, () -> {
+            source.purgeRecords(toPurge);
+            return null;
+        });
+    }
+
+    @Override
+    public Set<String> updateAllQuitLocs(double x, double y, double z, String world) {
+        return timed("updateAllQuitLocs", null, () -> source.updateAllQuitLocs(x, y, z, world));
+    }
+
+    @Override
+    public Set<String> removeNeverLoggedInAuths() {
+        return timed("removeNeverLoggedInAuths", null, source::removeNeverLoggedInAuths);
+    }
+
+    @Override
+    public boolean removeAuth(String user) {
+        return timed("removeAuth", user, () -> source.removeAuth(user));
+    }
+
+    @Override
+    public boolean updateQuitLoc(PlayerAuth auth) {
+        return timed("updateQuitLoc", auth, () -> source.updateQuitLoc(auth));
+    }
+
+    @Override
+    public List<String> getAllAuthsByIp(String ip) {
+        return timed("getAllAuthsByIp", ip, () -> source.getAllAuthsByIp(ip));
+    }
+
+    @Override
+    public boolean hasIpHistory() {
+        return source.hasIpHistory();
+    }
+
+    @Override
+    public boolean saveIpHistory(Collection<IpHistoryEntry> entries) {
+        return timed("saveIpHistory", entries, () -> source.saveIpHistory(entries));
+    }
+
+    @Override
+    public List<String> getNamesByIpHistory(byte[] from, byte[] to) {
+        return timed("getNamesByIpHistory", null, () -> source.getNamesByIpHistory(from, to));
+    }
+
+    @Override
+    public int countAuthsByEmail(String email) {
+        return timed("countAuthsByEmail", email, () -> source.countAuthsByEmail(email));
+    }
+
+    @Override
+    public boolean updateEmail(PlayerAuth auth) {
+        return timed("updateEmail", auth, () -> source.updateEmail(auth));
+    }
+
+    @Override
+    public void closeConnection() {
+        source.closeConnection();
+    }
+
+    @Override
+    public DataSourceType getType() {
+        return source.getType();
+    }
+
+    @Override
+    public boolean isLogged(String user) {
+        return timed("isLogged", user, () -> source.isLogged(user));
+    }
+
+    @Override
+    public void setLogged(String user) {
+        timed("setLogged", user, () -> {
+            source.setLogged(user);
+            return null;
+        });
+    }
+
+    @Override
+    public void setUnlogged(String user) {
+        timed("setUnlogged", user, () -> {
+            source.setUnlogged(user);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean hasSession(String user) {
+        return timed("hasSession", user, () -> source.hasSession(user));
+    }
+
+    @Override
+    public void grantSession(String user) {
+        timed("grantSession", user, () -> {
+            source.grantSession(user);
+            return null;
+        });
+    }
+
+    @Override
+    public void revokeSession(String user) {
+        timed("revokeSession", user, () -> {
+            source.revokeSession(user);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean consumeSession(String user, String ip, long minLastLogin, long maxLastLogin) {
+        return timed("consumeSession", user, () -> source.consumeSession(user, ip, minLastLogin, maxLastLogin));
+    }
+
+    @Override
+    public void purgeLogged() {
+        timed("purgeLogged", null, () -> {
+            source.purgeLogged();
+            return null;
+        });
+    }
+
+    @Override
+    public List<String> getLoggedPlayersWithEmptyMail() {
+        return timed("getLoggedPlayersWithEmptyMail", null, source::getLoggedPlayersWithEmptyMail);
+    }
+
+    @Override
+    public int getAccountsRegistered() {
+        return timed("getAccountsRegistered", null, source::getAccountsRegistered);
+    }
+
+    @Override
+    public boolean updateRealName(String user, String realName) {
+        return timed("updateRealName", user, () -> source.updateRealName(user, realName));
+    }
+
+    @Override
+    public DataSourceValue<String> getEmail(String user) {
+        return timed("getEmail", user, () -> source.getEmail(user));
+    }
+
+    @Override
+    public List<PlayerAuth> getAllAuths() {
+        return timed("getAllAuths", null, source::getAllAuths);
+    }
+
+    @Override
+    public List<PlayerAuth> getRecentlyLoggedInPlayers() {
+        return timed("getRecentlyLoggedInPlayers", null, source::getRecentlyLoggedInPlayers);
+    }
+
+    @Override
+    public boolean setTotpKey(String user, String totpKey) {
+        return timed("setTotpKey", user, () -> source.setTotpKey(user, totpKey));
+    }
+
+    @Override
+    public boolean removeTotpKey(String user) {
+        return timed("removeTotpKey", user, () -> source.removeTotpKey(user));
+    }
+
+    @Override
+    public void backup(File target) throws SQLException, IOException {
+        source.backup(target);
+    }
+
+    @Override
+    public void invalidateCache(String playerName) {
+        source.invalidateCache(playerName);
+    }
+
+    @Override
+    public void refreshCache(String playerName) {
+        source.refreshCache(playerName);
+    }
+
+    /**
+     * Runs the given call of the data source and records its duration and whether it failed.
+     *
+     * @param method the name of the data source method
+     * @param mainArgument the argument which best describes the call, or null; only its type is logged
+     * @param call the call to the data source
+     * @param <T> the return type
+     * @return the result of the call
+     */
+    private <T> T timed(String method, Object mainArgument, Supplier<T> call) {
+        // The SQL data sources log their exceptions rather than throwing them: count those too
+        int exceptionCount = SqlDataSourceUtils.getLoggedExceptionCount();
+        long start = System.nanoTime();
+        boolean isSuccessful = false;
+        try {
+            T result = call.get();
+            isSuccessful = SqlDataSourceUtils.getLoggedExceptionCount() == exceptionCount;
+            return result;
+        } finally {
+            if (!isSuccessful) {
+                metricsRegistry.increment(METRIC_PREFIX + method + ".errors");
+            }
+            long end = System.nanoTime();
+            metricsRegistry.recordBetween(METRIC_PREFIX + method, start, end);
+            long threshold = slowCallThresholdNanos;
+            if (threshold > 0 && end - start >= threshold) {
+                logger.warning("Slow data source call " + method + "(" + describeShape(mainArgument) + ") took "
+                    + TimeUnit.NANOSECONDS.toMillis(end - start) + " ms on thread " + Thread.currentThread().getName());
+            }
+        }
+    }
+
+    /**
+     * Describes the given argument without revealing its contents, e.g. "Collection[250]".
+     *
+     * @param argument the argument to describe
+     * @return description of the argument
+     */
+    private static String describeShape(Object argument) {
+        if (argument == null) {
+            return "";
+        } else if (argument instanceof Collection<?>) {
+            return "Collection[" + ((Collection<?>) argument).size() + "]";
+        }
+        return argument.getClass().getSimpleName();
+    }
+}
@@ -7,14 +7,22 @@ import ch.jalu.datasourcecolumns.predicate.Predicate;
 import ch.jalu.datasourcecolumns.sqlimplementation.PredicateSqlGenerator;
 import ch.jalu.datasourcecolumns.sqlimplementation.SqlColumnsHandler;
 import ch.jalu.datasourcecolumns.sqlimplementation.statementgenerator.ConnectionSupplier;
+import com.google.common.collect.Lists;
+import fr.xephi.authme.ConsoleLogger;
 import fr.xephi.authme.data.auth.PlayerAuth;
+import fr.xephi.authme.datasource.SqlDataSourceUtils;
+import fr.xephi.authme.output.ConsoleLoggerFactory;
 import fr.xephi.authme.settings.Settings;
 import fr.xephi.authme.settings.properties.DatabaseSettings;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.stream.Collectors;
 
 import static ch.jalu.datasourcecolumns.sqlimplementation.SqlColumnsHandlerConfig.forConnectionPool;
 import static ch.jalu.datasourcecolumns.sqlimplementation.SqlColumnsHandlerConfig.forSingleConnection;
@@ -26,10 +34,21 @@ import static fr.xephi.authme.datasource.SqlDataSourceUtils.logSqlException;
  */
 public final class AuthMeColumnsHandler {
 
+    private final ConsoleLogger logger = ConsoleLoggerFactory.get(AuthMeColumnsHandler.class);
+
     private final SqlColumnsHandler<ColumnContext, String> internalHandler;
+    private final ColumnContext columnContext;
+    private final String tableName;
+    private final ConnectionSupplier connectionSupplier;
+    private final boolean closeConnections;
 
-    private AuthMeColumnsHandler(SqlColumnsHandler<ColumnContext, String> internalHandler) {
+    private AuthMeColumnsHandler(SqlColumnsHandler<ColumnContext, String> internalHandler, ColumnContext columnContext,
+                                 String tableName, ConnectionSupplier connectionSupplier, boolean closeConnections) {
         this.internalHandler = internalHandler;
+        this.columnContext = columnContext;
+        this.tableName = tableName;
+        this.connectionSupplier = connectionSupplier;
+        this.closeConnections = closeConnections;
     }
 
     /**
@@ -48,7 +67,7 @@ public final class AuthMeColumnsHandler {
             forSingleConnection(connection, tableName, nameColumn, columnContext)
                 .setPredicateSqlGenerator(new PredicateSqlGenerator<>(columnContext, true))
         );
-        return new AuthMeColumnsHandler(sqlColHandler);
+        return new AuthMeColumnsHandler(sqlColHandler, columnContext, tableName, () -> connection, false);
     }
 
     /**
@@ -65,7 +84,7 @@ public final class AuthMeColumnsHandler {
 
         SqlColumnsHandler<ColumnContext, String> sqlColHandler = new SqlColumnsHandler<>(
             forConnectionPool(connectionSupplier, tableName, nameColumn, columnContext));
-        return new AuthMeColumnsHandler(sqlColHandler);
+        return new AuthMeColumnsHandler(sqlColHandler, columnContext, tableName, connectionSupplier, true);
     }
 
     /**
@@ -136,6 +155,22 @@ public final class AuthMeColumnsHandler {
         }
     }
 
+    /**
+     * Sets the given values on all rows which match the predicate.
+     *
+     * @param predicate the predicate to filter rows by
+     * @param updateValues the values to set on the matched rows
+     * @return number of modified rows
+     */
+    public int update(Predicate<ColumnContext> predicate, UpdateValues<ColumnContext> updateValues) {
+        try {
+            return internalHandler.update(predicate, updateValues);
+        } catch (SQLException e) {
+            logSqlException(e);
+            return 0;
+        }
+    }
+
     /**
      * Retrieves the given column from a given row.
      *
@@ -190,6 +225,78 @@ public final class AuthMeColumnsHandler {
         }
     }
 
+    /**
+     * Inserts a new row for each player auth with multi-row INSERT statements. The rows are inserted in
+     * chunks so that no statement has more than {@link SqlDataSourceUtils#BULK_CHUNK_SIZE} parameters.
+     * If a chunk cannot be inserted (e.g. because one of the names already exists), its rows are inserted
+     * one by one so that the other rows are still saved.
+     *
+     * @param auths the player auths to insert
+     * @param columns the columns to insert
+     * @return the number of inserted rows
+     */
+    public int insertAll(List<PlayerAuth> auths, PlayerAuthColumn<?>... columns) {
+        List<PlayerAuthColumn<?>> usedColumns = Arrays.stream(columns)
+            .filter(column -> column.isColumnUsed(columnContext))
+            .collect(Collectors.toList());
+        String columnList = usedColumns.stream()
+            .map(column -> column.resolveName(columnContext))
+            .collect(Collectors.joining(", "));
+        int rowsPerStatement = Math.max(1, SqlDataSourceUtils.BULK_CHUNK_SIZE / usedColumns.size());
+
+        int insertedRows = 0;
+        for (List<PlayerAuth> chunk : Lists.partition(auths, rowsPerStatement)) {
+            try {
+                insertedRows += insertRows(chunk, usedColumns, columnList);
+            } catch (SQLException e) {
+                logger.debug("Could not insert {0} rows at once ({1}), inserting them individually",
+                    chunk.size(), e.getMessage());
+                for (PlayerAuth auth : chunk) {
+                    if (insert(auth, columns)) {
+                        ++insertedRows;
+                    }
+                }
+            }
+        }
+        return insertedRows;
+    }
+
+    private int insertRows(List<PlayerAuth> rows, List<PlayerAuthColumn<?>> columns,
+                           String columnList) throws SQLException {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(tableName)
+            .append(" (").append(columnList).append(") VALUES ");
+        List<Object> bindings = new ArrayList<>();
+        for (int i = 0; i < rows.size(); ++i) {
+            sql.append(i == 0 ? "(" : ", (");
+            for (int j = 0; j < columns.size(); ++j) {
+                PlayerAuthColumn<?> column = columns.get(j);
+                Object value = column.getValueFromDependent(rows.get(i));
+                if (j > 0) {
+                    sql.append(", ");
+                }
+                if (value == null && column.useDefaultForNullValue(columnContext)) {
+                    sql.append("DEFAULT");
+                } else {
+                    sql.append('?');
+                    bindings.add(value);
+                }
+            }
+            sql.append(')');
+        }
+
+        Connection con = connectionSupplier.get();
+        try (PreparedStatement pst = con.prepareStatement(sql.toString())) {
+            for (int i = 0; i < bindings.size(); ++i) {
+                pst.setObject(i + 1, bindings.get(i));
+            }
+            return pst.executeUpdate();
+        } finally {
+            if (closeConnections) {
+                con.close();
+            }
+        }
+    }
+
     /**
      * Returns the number of rows that match the provided predicate.
      *
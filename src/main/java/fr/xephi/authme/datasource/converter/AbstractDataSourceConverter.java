@@ -9,6 +9,8 @@ import org.bukkit.command.CommandSender;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static fr.xephi.authme.util.Utils.logAndSendMessage;
 
@@ -58,16 +60,21 @@ public abstract class AbstractDataSourceConverter<S extends DataSource> implemen
             return;
         }
 
+        List<PlayerAuth> sourceAuths = source.getAllAuths();
+        Set<String> existingNames = destination.getAuths(sourceAuths.stream()
+            .map(PlayerAuth::getNickname)
+            .collect(Collectors.toList())).keySet();
+
         List<String> skippedPlayers = new ArrayList<>();
-        for (PlayerAuth auth : source.getAllAuths()) {
-            if (destination.isAuthAvailable(auth.getNickname())) {
+        List<PlayerAuth> authsToSave = new ArrayList<>();
+        for (PlayerAuth auth : sourceAuths) {
+            if (existingNames.contains(auth.getNickname())) {
                 skippedPlayers.add(auth.getNickname());
             } else {
-                destination.saveAuth(auth);
-                destination.updateSession(auth);
-                destination.updateQuitLoc(auth);
+                authsToSave.add(auth);
             }
         }
+        destination.saveAuths(authsToSave);
 
         if (!skippedPlayers.isEmpty()) {
             logAndSendMessage(sender, "Skipped conversion for players which were already in "
@@ -37,6 +37,16 @@ public abstract class MySqlExtension {
         // extend for custom behavior
     }
 
+    /**
+     * Returns whether {@link #saveAuth} performs additional actions, i.e. whether new players need to be
+     * saved one by one.
+     *
+     * @return true if saving a player requires more than inserting its row, false otherwise
+     */
+    public boolean hasSaveAuthActions() {
+        return true;
+    }
+
     /**
      * Writes properties to the given PlayerAuth object that need to be retrieved in a specific manner
      * when a PlayerAuth object is read from the table.
@@ -11,4 +11,9 @@ class NoOpExtension extends MySqlExtension {
     NoOpExtension(Settings settings, Columns col) {
         super(settings, col);
     }
+
+    @Override
+    public boolean hasSaveAuthActions() {
+        return false;
+    }
 }
@@ -9,7 +9,9 @@ import fr.xephi.authme.datasource.MariaDB;
 import fr.xephi.authme.datasource.MySQL;
 import fr.xephi.authme.datasource.PostgreSqlDataSource;
 import fr.xephi.authme.datasource.SQLite;
+import fr.xephi.authme.datasource.TimedDataSource;
 import fr.xephi.authme.datasource.mysqlextensions.MySqlExtensionsFactory;
+import fr.xephi.authme.metrics.MetricsRegistry;
 import fr.xephi.authme.output.ConsoleLoggerFactory;
 import fr.xephi.authme.service.BukkitService;
 import fr.xephi.authme.settings.Settings;
@@ -40,6 +42,8 @@ public class DataSourceProvider implements Provider<DataSource> {
     private PlayerCache playerCache;
     @Inject
     private MySqlExtensionsFactory mySqlExtensionsFactory;
+    @Inject
+    private MetricsRegistry metricsRegistry;
 
     DataSourceProvider() {
     }
@@ -80,8 +84,10 @@ public class DataSourceProvider implements Provider<DataSource> {
                 throw new UnsupportedOperationException("Unknown data source type '" + dataSourceType + "'");
         }
 
+        // Time the calls which actually reach the database, i.e. below the cache
+        dataSource = new TimedDataSource(dataSource, settings, metricsRegistry);
         if (settings.getProperty(DatabaseSettings.USE_CACHING)) {
-            dataSource = new CacheDataSource(dataSource, playerCache);
+            dataSource = new CacheDataSource(dataSource, playerCache, settings);
         }
         if (DataSourceType.SQLITE.equals(dataSourceType)) {
             checkDataSourceSize(dataSource);
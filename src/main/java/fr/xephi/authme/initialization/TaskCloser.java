@@ -16,19 +16,24 @@ public class TaskCloser implements SchedulerCallBack {
 
     private final DataSource dataSource;
 
+    private final Runnable beforeClose;
+
     /**
      * Constructor.
      *
      * @param dataSource the data source (nullable)
+     * @param beforeClose action to run after the tasks have been cancelled, before the data source is closed
      */
-    public TaskCloser(DataSource dataSource) {
+    public TaskCloser(DataSource dataSource, Runnable beforeClose) {
         this.scheduler = AuthMe.getEnergie().getMinecraftScheduler();
         this.dataSource = dataSource;
+        this.beforeClose = beforeClose;
     }
 
     @Override
     public void run(SchedulerTaskInter schedulerTaskInter) {
         scheduler.cancelAllTask();
+        beforeClose.run();
         if (dataSource != null) {
             dataSource.closeConnection();
         }
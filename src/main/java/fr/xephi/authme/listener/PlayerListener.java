@@ -3,6 +3,7 @@ package fr.xephi.authme.listener;
 import fr.euphyllia.energie.utils.EntityUtils;
 import fr.xephi.authme.data.QuickCommandsProtectionManager;
 import fr.xephi.authme.data.auth.PlayerAuth;
+import fr.xephi.authme.data.join.JoinContextManager;
 import fr.xephi.authme.datasource.DataSource;
 import fr.xephi.authme.message.MessageKey;
 import fr.xephi.authme.message.Messages;
@@ -14,9 +15,10 @@ import fr.xephi.authme.service.BukkitService;
 import fr.xephi.authme.service.JoinMessageService;
 import fr.xephi.authme.service.TeleportationService;
 import fr.xephi.authme.service.ValidationService;
+import fr.xephi.authme.settings.RestrictionSnapshot;
+import fr.xephi.authme.settings.RestrictionSnapshotHolder;
 import fr.xephi.authme.settings.Settings;
 import fr.xephi.authme.settings.SpawnLoader;
-import fr.xephi.authme.settings.properties.HooksSettings;
 import fr.xephi.authme.settings.properties.RegistrationSettings;
 import fr.xephi.authme.settings.properties.RestrictionSettings;
 import org.bukkit.ChatColor;
@@ -55,10 +57,6 @@ import org.bukkit.inventory.InventoryView;
 
 import javax.inject.Inject;
 import java.util.Locale;
-import java.util.Set;
-
-import static fr.xephi.authme.settings.properties.RestrictionSettings.ALLOWED_MOVEMENT_RADIUS;
-import static fr.xephi.authme.settings.properties.RestrictionSettings.ALLOW_UNAUTHED_MOVEMENT;
 
 /**
  * Listener class for player events.
@@ -68,6 +66,8 @@ public class PlayerListener implements Listener {
     @Inject
     private Settings settings;
     @Inject
+    private RestrictionSnapshotHolder restrictions;
+    @Inject
     private Messages messages;
     @Inject
     private DataSource dataSource;
@@ -93,6 +93,8 @@ public class PlayerListener implements Listener {
     private PermissionsManager permissionsManager;
     @Inject
     private QuickCommandsProtectionManager quickCommandsProtectionManager;
+    @Inject
+    private JoinContextManager joinContextManager;
 
     // Lowest priority to apply fast protection checks
     @EventHandler(priority = EventPriority.LOWEST)
@@ -149,12 +151,23 @@ public class PlayerListener implements Listener {
             onJoinVerifier.checkNameCasing(name, auth);
             final String ip = event.getAddress().getHostAddress();
             onJoinVerifier.checkPlayerCountry(name, ip, isAuthAvailable);
+            validationService.prefetchHostNameForRestrictions(name, event.getAddress());
+            // Load everything the join process needs while we are still off the main thread
+            joinContextManager.prefetch(name, event.getUniqueId(), auth);
         } catch (FailedVerificationException e) {
             event.setKickMessage(messages.retrieveSingle(name, e.getReason(), e.getArgs()));
             event.setLoginResult(AsyncPlayerPreLoginEvent.Result.KICK_OTHER);
         }
     }
 
+    // Drop the prefetched join data if another plugin refuses the connection after us
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPlayerPreLoginEventMonitor(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            joinContextManager.evict(event.getName());
+        }
+    }
+
     // Note: We can't teleport the player in the PlayerLoginEvent listener
     // as the new player location will be reverted by the server.
 
@@ -178,6 +191,13 @@ public class PlayerListener implements Listener {
         onJoinVerifier.refusePlayerForFullServer(event);
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLoginMonitor(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            joinContextManager.evict(event.getPlayer().getName());
+        }
+    }
+
     @EventHandler(priority = EventPriority.NORMAL)
     public void onPlayerJoin(PlayerJoinEvent event) {
         final Player player = event.getPlayer();
@@ -240,6 +260,8 @@ public class PlayerListener implements Listener {
             }
         }
 
+        joinContextManager.evict(player.getName());
+        permissionsManager.invalidateCache(player.getName());
         if (antiBotService.wasPlayerKicked(player.getName())) {
             return;
         }
@@ -268,7 +290,7 @@ public class PlayerListener implements Listener {
      */
 
     private void removeUnauthorizedRecipients(AsyncPlayerChatEvent event) {
-        if (settings.getProperty(RestrictionSettings.HIDE_CHAT)) {
+        if (restrictions.get().isHideChat()) {
             event.getRecipients().removeIf(listenerService::shouldCancelEvent);
             if (event.getRecipients().isEmpty()) {
                 event.setCancelled(true);
@@ -278,7 +300,7 @@ public class PlayerListener implements Listener {
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
     public void onPlayerChat(AsyncPlayerChatEvent event) {
-        if (settings.getProperty(RestrictionSettings.ALLOW_CHAT)) {
+        if (restrictions.get().isAllowChat()) {
             return;
         }
 
@@ -295,11 +317,14 @@ public class PlayerListener implements Listener {
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
     public void onPlayerCommandPreprocess(PlayerCommandPreprocessEvent event) {
-        String cmd = event.getMessage().split(" ")[0].toLowerCase(Locale.ROOT);
-        if (settings.getProperty(HooksSettings.USE_ESSENTIALS_MOTD) && "/motd".equals(cmd)) {
+        String message = event.getMessage();
+        int labelEnd = message.indexOf(' ');
+        String cmd = (labelEnd < 0 ? message : message.substring(0, labelEnd)).toLowerCase(Locale.ROOT);
+        RestrictionSnapshot snapshot = restrictions.get();
+        if (snapshot.isUseEssentialsMotd() && "/motd".equals(cmd)) {
             return;
         }
-        if (settings.getProperty(RestrictionSettings.ALLOW_COMMANDS).contains(cmd)) {
+        if (snapshot.isCommandAllowed(cmd)) {
             return;
         }
         final Player player = event.getPlayer();
@@ -320,7 +345,8 @@ public class PlayerListener implements Listener {
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.HIGHEST)
     public void onPlayerMove(PlayerMoveEvent event) {
-        if (settings.getProperty(ALLOW_UNAUTHED_MOVEMENT) && settings.getProperty(ALLOWED_MOVEMENT_RADIUS) <= 0) {
+        RestrictionSnapshot snapshot = restrictions.get();
+        if (snapshot.isMovementUnrestricted()) {
             return;
         }
 
@@ -346,13 +372,13 @@ public class PlayerListener implements Listener {
             return;
         }
 
-        if (!settings.getProperty(RestrictionSettings.ALLOW_UNAUTHED_MOVEMENT)) {
+        if (!snapshot.isAllowUnauthedMovement()) {
             // "cancel" the event
             event.setTo(event.getFrom());
             return;
         }
 
-        if (settings.getProperty(RestrictionSettings.NO_TELEPORT)) {
+        if (snapshot.isNoTeleport()) {
             return;
         }
 
@@ -360,7 +386,7 @@ public class PlayerListener implements Listener {
         if (spawn != null && spawn.getWorld() != null) {
             if (!player.getWorld().equals(spawn.getWorld())) {
                 EntityUtils.teleportAsync(player, spawn);
-            } else if (spawn.distance(player.getLocation()) > settings.getProperty(ALLOWED_MOVEMENT_RADIUS)) {
+            } else if (spawn.distanceSquared(player.getLocation()) > snapshot.getAllowedMovementRadiusSquared()) {
                 EntityUtils.teleportAsync(player, spawn);
             }
         }
@@ -368,7 +394,7 @@ public class PlayerListener implements Listener {
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.HIGHEST)
     public void onPlayerRespawn(PlayerRespawnEvent event) {
-        if (settings.getProperty(RestrictionSettings.NO_TELEPORT)) {
+        if (restrictions.get().isNoTeleport()) {
             return;
         }
         if (!listenerService.shouldCancelEvent(event)) {
@@ -421,7 +447,7 @@ public class PlayerListener implements Listener {
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
     public void onPlayerTeleport(PlayerTeleportEvent event) {
-        if (!settings.getProperty(RestrictionSettings.CANCEL_ALL_TELEPORT)) {
+        if (!restrictions.get().isCancelAllTeleports()) {
             return;
         }
         if (listenerService.shouldCancelEvent(event)) {
@@ -496,8 +522,8 @@ public class PlayerListener implements Listener {
         if (inventory == null) {
             return false;
         }
-        Set<String> whitelist = settings.getProperty(RestrictionSettings.UNRESTRICTED_INVENTORIES);
-        return whitelist.contains(ChatColor.stripColor(inventory.getTitle()).toLowerCase(Locale.ROOT));
+        return restrictions.get()
+            .isInventoryUnrestricted(ChatColor.stripColor(inventory.getTitle()).toLowerCase(Locale.ROOT));
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
@@ -1,21 +1,19 @@
 package fr.xephi.authme.mail;
 
 import fr.xephi.authme.ConsoleLogger;
-import fr.xephi.authme.initialization.DataFolder;
 import fr.xephi.authme.output.ConsoleLoggerFactory;
 import fr.xephi.authme.settings.Settings;
 import fr.xephi.authme.settings.properties.EmailSettings;
 import fr.xephi.authme.settings.properties.PluginSettings;
 import fr.xephi.authme.settings.properties.SecuritySettings;
-import fr.xephi.authme.util.FileUtils;
 import org.apache.commons.mail.EmailException;
 import org.apache.commons.mail.HtmlEmail;
 
 import javax.activation.DataSource;
-import javax.activation.FileDataSource;
 import javax.imageio.ImageIO;
 import javax.inject.Inject;
-import java.io.File;
+import javax.mail.util.ByteArrayDataSource;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 /**
@@ -25,13 +23,11 @@ public class EmailService {
 
     private final ConsoleLogger logger = ConsoleLoggerFactory.get(EmailService.class);
 
-    private final File dataFolder;
     private final Settings settings;
     private final SendMailSsl sendMailSsl;
 
     @Inject
-    EmailService(@DataFolder File dataFolder, Settings settings, SendMailSsl sendMailSsl) {
-        this.dataFolder = dataFolder;
+    EmailService(Settings settings, SendMailSsl sendMailSsl) {
         this.settings = settings;
         this.sendMailSsl = sendMailSsl;
     }
@@ -66,11 +62,10 @@ public class EmailService {
         String mailText = isNew && ip != null ? replaceTagsForPasswordMail(settings.getNewPasswordEmailMessage(),
             name, newPass, ip, time) : replaceTagsForPasswordMail(settings.getPasswordEmailMessage(), name, newPass, time);
         // Generate an image?
-        File file = null;
         if (settings.getProperty(EmailSettings.PASSWORD_AS_IMAGE)) {
             try {
-                file = generatePasswordImage(name, newPass);
-                mailText = embedImageIntoEmailContent(file, email, mailText);
+                byte[] image = generatePasswordImage(newPass);
+                mailText = embedImageIntoEmailContent(image, name + "_new_pass.jpg", email, mailText);
             } catch (IOException | EmailException e) {
                 logger.logException(
                     "Unable to send new password as image for email " + mailAddress + ":", e);
@@ -78,7 +73,6 @@ public class EmailService {
         }
 
         sendMailSsl.sendEmail(mailText, email);
-        FileUtils.delete(file);
         return true;
     }
 
@@ -152,17 +146,24 @@ public class EmailService {
         sendMailSsl.sendEmail(message, htmlEmail);
     }
 
-    private File generatePasswordImage(String name, String newPass) throws IOException {
+    /**
+     * Stops sending emails; see {@link SendMailSsl#shutdown()}.
+     */
+    public void shutdown() {
+        sendMailSsl.shutdown();
+    }
+
+    private static byte[] generatePasswordImage(String newPass) throws IOException {
         ImageGenerator gen = new ImageGenerator(newPass);
-        File file = new File(dataFolder, name + "_new_pass.jpg");
-        ImageIO.write(gen.generateImage(), "jpg", file);
-        return file;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(gen.generateImage(), "jpg", out);
+        return out.toByteArray();
     }
 
-    private static String embedImageIntoEmailContent(File image, HtmlEmail email, String content)
-        throws EmailException {
-        DataSource source = new FileDataSource(image);
-        String tag = email.embed(source, image.getName());
+    private static String embedImageIntoEmailContent(byte[] image, String imageName, HtmlEmail email,
+                                                     String content) throws EmailException {
+        DataSource source = new ByteArrayDataSource(image, "image/jpeg");
+        String tag = email.embed(source, imageName);
         return content.replace("#image", "<img src=\"cid:" + tag + "\">");
     }
 
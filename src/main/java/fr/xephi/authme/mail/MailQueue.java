@@ -0,0 +1,354 @@
+package fr.xephi.authme.mail;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import fr.xephi.authme.ConsoleLogger;
+import fr.xephi.authme.output.ConsoleLoggerFactory;
+import fr.xephi.authme.settings.Settings;
+import fr.xephi.authme.settings.properties.EmailSettings;
+import org.apache.commons.mail.EmailException;
+
+import javax.activation.CommandMap;
+import javax.activation.MailcapCommandMap;
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue of outgoing emails.
+ * <p>
+ * Emails are only kept in memory, since they contain passwords and verification codes; emails which have
+ * not been sent when the server stops are dropped. They are sent by a small number of workers, each of which
+ * keeps its connection to the SMTP server open and sends up to {@link #BATCH_SIZE} emails at a time over it.
+ * Emails which fail are retried with an exponentially growing delay; emails to the same address are spaced
+ * out by a configurable interval.
+ */
+public class MailQueue {
+
+    private static final int BATCH_SIZE = 20;
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+    private static final long IDLE_CONNECTION_MILLIS = 30_000;
+    private static final long INITIAL_RETRY_DELAY_MILLIS = 30_000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 3_600_000;
+    private static final long SHUTDOWN_GRACE_SECONDS = 5;
+
+    private final ConsoleLogger logger = ConsoleLoggerFactory.get(MailQueue.class);
+
+    private final DelayQueue<QueuedMail> queue = new DelayQueue<>();
+    private final Map<String, Long> nextSendByRecipient = new ConcurrentHashMap<>();
+    private final Settings settings;
+    private final MailSessionFactory sessionFactory;
+
+    private volatile Session session;
+    private volatile boolean shuttingDown;
+    private ExecutorService workers;
+
+    /**
+     * Constructor.
+     *
+     * @param settings the settings
+     * @param sessionFactory creates the mail session used to connect to the SMTP server
+     */
+    MailQueue(Settings settings, MailSessionFactory sessionFactory) {
+        this.settings = settings;
+        this.sessionFactory = sessionFactory;
+        registerMailcaps();
+    }
+
+    /**
+     * Adds the given message to the queue. The message is sent asynchronously.
+     *
+     * @param message the message to send
+     */
+    public void enqueue(MimeMessage message) {
+        Thread thread = Thread.currentThread();
+        ClassLoader previousClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(MailQueue.class.getClassLoader());
+        try {
+            message.saveChanges();
+            queue.add(new QueuedMail(message, getRecipient(message)));
+        } catch (MessagingException e) {
+            logger.logException("Failed to queue a mail:", e);
+            return;
+        } finally {
+            thread.setContextClassLoader(previousClassLoader);
+        }
+        startWorkers();
+    }
+
+    /**
+     * @return the number of emails which are waiting to be sent
+     */
+    public int getSize() {
+        return queue.size();
+    }
+
+    /**
+     * Discards the current mail session so that the workers reconnect with the latest settings.
+     */
+    void invalidateSession() {
+        session = null;
+    }
+
+    /**
+     * Stops the workers. Emails which are ready are still sent if possible within a short grace period;
+     * the remaining emails are dropped.
+     */
+    synchronized void shutdown() {
+        shuttingDown = true;
+        if (workers != null) {
+            workers.shutdown();
+            try {
+                if (!workers.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                    workers.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                workers.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!queue.isEmpty()) {
+            logger.warning("Dropping " + queue.size() + " emails which could not be sent before the shutdown");
+            queue.clear();
+        }
+    }
+
+    private synchronized void startWorkers() {
+        if (workers != null || shuttingDown) {
+            return;
+        }
+        int workerCount = Math.max(1, settings.getProperty(EmailSettings.MAIL_QUEUE_WORKERS));
+        workers = Executors.newFixedThreadPool(workerCount, new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("AuthMe-MailSender-%d")
+            .build());
+        for (int i = 0; i < workerCount; ++i) {
+            workers.execute(new Worker());
+        }
+    }
+
+    private Session getSession() throws EmailException {
+        Session currentSession = session;
+        if (currentSession == null) {
+            currentSession = sessionFactory.createSession();
+            session = currentSession;
+        }
+        return currentSession;
+    }
+
+    /**
+     * Returns whether the given mail may not be sent yet because another email was recently sent to
+     * the same address. If so, the mail is put back into the queue for when it may be sent.
+     */
+    private boolean deferIfRateLimited(QueuedMail mail) {
+        Long nextSend = nextSendByRecipient.get(mail.getRecipient());
+        if (nextSend != null && nextSend > System.currentTimeMillis()) {
+            mail.setSendAt(nextSend);
+            queue.add(mail);
+            return true;
+        }
+        return false;
+    }
+
+    private void onSent(QueuedMail mail) {
+        long interval = TimeUnit.SECONDS.toMillis(settings.getProperty(EmailSettings.MAIL_QUEUE_RECIPIENT_INTERVAL));
+        nextSendByRecipient.put(mail.getRecipient(), System.currentTimeMillis() + interval);
+        logger.debug("Sent email to `{0}`", mail.getRecipient());
+    }
+
+    private void onFailure(QueuedMail mail, Exception e) {
+        int attempts = mail.incrementAttempts();
+        if (attempts >= settings.getProperty(EmailSettings.MAIL_QUEUE_MAX_ATTEMPTS)) {
+            logger.logException("Failed to send a mail to " + mail.getRecipient()
+                + " after " + attempts + " attempts:", e);
+        } else {
+            long delay = Math.min(INITIAL_RETRY_DELAY_MILLIS << (attempts - 1), MAX_RETRY_DELAY_MILLIS);
+            logger.warning("Failed to send a mail to " + mail.getRecipient() + ", retrying in "
+                + TimeUnit.MILLISECONDS.toSeconds(delay) + " seconds: " + e.getMessage());
+            mail.setSendAt(System.currentTimeMillis() + delay);
+            queue.add(mail);
+        }
+    }
+
+    private void removeExpiredRateLimits() {
+        long now = System.currentTimeMillis();
+        nextSendByRecipient.values().removeIf(nextSend -> nextSend <= now);
+    }
+
+    private static String getRecipient(MimeMessage message) throws MessagingException {
+        Address[] recipients = message.getRecipients(Message.RecipientType.TO);
+        if (recipients == null || recipients.length == 0) {
+            return "";
+        }
+        Address recipient = recipients[0];
+        return recipient instanceof InternetAddress
+            ? ((InternetAddress) recipient).getAddress().toLowerCase(Locale.ROOT)
+            : recipient.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static void closeQuietly(Transport transport) {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (MessagingException ignore) {
+                // The connection is discarded either way
+            }
+        }
+    }
+
+    private static void registerMailcaps() {
+        // Issue #999: Prevent UnsupportedDataTypeException: no object DCH for MIME type multipart/alternative
+        // cf. http://stackoverflow.com/questions/21856211/unsupporteddatatypeexception-no-object-dch-for-mime-type
+        MailcapCommandMap mc = (MailcapCommandMap) CommandMap.getDefaultCommandMap();
+        mc.addMailcap("text/html;; x-java-content-handler=com.sun.mail.handlers.text_html");
+        mc.addMailcap("text/xml;; x-java-content-handler=com.sun.mail.handlers.text_xml");
+        mc.addMailcap("text/plain;; x-java-content-handler=com.sun.mail.handlers.text_plain");
+        mc.addMailcap("multipart/*;; x-java-content-handler=com.sun.mail.handlers.multipart_mixed");
+        mc.addMailcap("message/rfc822;; x-java-content- handler=com.sun.mail.handlers.message_rfc822");
+    }
+
+    /**
+     * Creates the mail session with which the workers connect to the SMTP server.
+     */
+    @FunctionalInterface
+    interface MailSessionFactory {
+
+        Session createSession() throws EmailException;
+    }
+
+    /**
+     * Sends queued emails over a connection which is kept open while there are emails to send.
+     */
+    private final class Worker implements Runnable {
+
+        private Transport transport;
+        private Session transportSession;
+        private long lastSend;
+
+        @Override
+        public void run() {
+            Thread.currentThread().setContextClassLoader(MailQueue.class.getClassLoader());
+            List<QueuedMail> batch = new ArrayList<>(BATCH_SIZE);
+            try {
+                while (true) {
+                    QueuedMail first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        if (shuttingDown) {
+                            return;
+                        }
+                        closeIfIdle();
+                        removeExpiredRateLimits();
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, BATCH_SIZE - 1);
+                    sendBatch(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                // Shutting down: the unsent mails of the batch are dropped
+                Thread.currentThread().interrupt();
+            } finally {
+                closeQuietly(transport);
+            }
+        }
+
+        private void sendBatch(List<QueuedMail> batch) {
+            for (QueuedMail mail : batch) {
+                if (deferIfRateLimited(mail)) {
+                    continue;
+                }
+                try {
+                    Transport connectedTransport = getConnectedTransport();
+                    MimeMessage message = mail.getMessage();
+                    connectedTransport.sendMessage(message, message.getAllRecipients());
+                    lastSend = System.currentTimeMillis();
+                    onSent(mail);
+                } catch (MessagingException | EmailException e) {
+                    // Reconnect for the next mail in case the connection is broken
+                    closeQuietly(transport);
+                    transport = null;
+                    onFailure(mail, e);
+                }
+            }
+        }
+
+        private Transport getConnectedTransport() throws MessagingException, EmailException {
+            Session currentSession = getSession();
+            if (transport != null && (transportSession != currentSession || !transport.isConnected())) {
+                closeQuietly(transport);
+                transport = null;
+            }
+            if (transport == null) {
+                Transport newTransport = currentSession.getTransport();
+                newTransport.connect();
+                transport = newTransport;
+                transportSession = currentSession;
+            }
+            return transport;
+        }
+
+        private void closeIfIdle() {
+            if (transport != null && System.currentTimeMillis() - lastSend > IDLE_CONNECTION_MILLIS) {
+                closeQuietly(transport);
+                transport = null;
+            }
+        }
+    }
+
+    /**
+     * Email in the queue.
+     */
+    private final class QueuedMail implements Delayed {
+
+        private final MimeMessage message;
+        private final String recipient;
+        private int attempts;
+        private volatile long sendAt;
+
+        QueuedMail(MimeMessage message, String recipient) {
+            this.message = message;
+            this.recipient = recipient;
+            this.sendAt = System.currentTimeMillis();
+        }
+
+        MimeMessage getMessage() {
+            return message;
+        }
+
+        String getRecipient() {
+            return recipient;
+        }
+
+        int incrementAttempts() {
+            return ++attempts;
+        }
+
+        void setSendAt(long sendAt) {
+            this.sendAt = sendAt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(sendAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package fr.xephi.authme.mail;
 
 import fr.xephi.authme.ConsoleLogger;
+import fr.xephi.authme.initialization.Reloadable;
 import fr.xephi.authme.output.ConsoleLoggerFactory;
 import fr.xephi.authme.output.LogLevel;
-import fr.xephi.authme.service.BukkitService;
 import fr.xephi.authme.settings.Settings;
 import fr.xephi.authme.settings.properties.EmailSettings;
 import fr.xephi.authme.settings.properties.PluginSettings;
@@ -11,15 +11,12 @@ import fr.xephi.authme.util.StringUtils;
 import org.apache.commons.mail.EmailConstants;
 import org.apache.commons.mail.EmailException;
 import org.apache.commons.mail.HtmlEmail;
-import org.bukkit.scheduler.BukkitScheduler;
 
-import javax.activation.CommandMap;
-import javax.activation.MailcapCommandMap;
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.mail.Session;
 import java.security.Security;
 import java.util.Properties;
-import java.util.concurrent.CompletableFuture;
 
 import static fr.xephi.authme.settings.properties.EmailSettings.MAIL_ACCOUNT;
 import static fr.xephi.authme.settings.properties.EmailSettings.MAIL_PASSWORD;
@@ -28,15 +25,19 @@ import static fr.xephi.authme.settings.properties.EmailSettings.MAIL_PASSWORD;
 /**
  * Sends emails to players on behalf of the server.
  */
-public class SendMailSsl {
+public class SendMailSsl implements Reloadable {
 
     private ConsoleLogger logger = ConsoleLoggerFactory.get(SendMailSsl.class);
 
     @Inject
     private Settings settings;
 
-    @Inject
-    private BukkitService bukkitService;
+    private MailQueue mailQueue;
+
+    @PostConstruct
+    void initializeMailQueue() {
+        mailQueue = new MailQueue(settings, this::createMailSession);
+    }
 
     /**
      * Returns whether all necessary settings are set for sending mails.
@@ -64,56 +65,87 @@ public class SendMailSsl {
         String senderName = StringUtils.isBlank(settings.getProperty(EmailSettings.MAIL_SENDER_NAME))
             ? senderMail
             : settings.getProperty(EmailSettings.MAIL_SENDER_NAME);
-        String mailPassword = settings.getProperty(EmailSettings.MAIL_PASSWORD);
-        int port = settings.getProperty(EmailSettings.SMTP_PORT);
 
         HtmlEmail email = new HtmlEmail();
         email.setCharset(EmailConstants.UTF_8);
-        email.setSmtpPort(port);
-        email.setHostName(settings.getProperty(EmailSettings.SMTP_HOST));
+        configureServer(email);
         email.addTo(emailAddress);
         email.setFrom(senderMail, senderName);
         email.setSubject(settings.getProperty(EmailSettings.RECOVERY_MAIL_SUBJECT));
-        email.setAuthentication(settings.getProperty(EmailSettings.MAIL_ACCOUNT), mailPassword);
-        if (settings.getProperty(PluginSettings.LOG_LEVEL).includes(LogLevel.DEBUG)) {
-            email.setDebug(true);
-        }
-
-        setPropertiesForPort(email, port);
         return email;
     }
 
     /**
-     * Sets the given content to the HtmlEmail object and sends it.
+     * Creates a mail session configured for the SMTP server as per the AuthMe config. The session
+     * is used to open the connections over which queued emails are sent.
+     *
+     * @return the created mail session
+     * @throws EmailException if the session cannot be configured
+     */
+    public Session createMailSession() throws EmailException {
+        HtmlEmail email = new HtmlEmail();
+        configureServer(email);
+        return email.getMailSession();
+    }
+
+    /**
+     * Sets the given content to the HtmlEmail object and hands it to the mail queue for sending.
      *
      * @param content the content to set
      * @param email the email object to send
      */
     public void sendEmail(String content, HtmlEmail email) {
-        bukkitService.runTaskAsynchronously(task -> {
-            Thread.currentThread().setContextClassLoader(SendMailSsl.class.getClassLoader());
-            // Issue #999: Prevent UnsupportedDataTypeException: no object DCH for MIME type multipart/alternative
-            // cf. http://stackoverflow.com/questions/21856211/unsupporteddatatypeexception-no-object-dch-for-mime-type
-            MailcapCommandMap mc = (MailcapCommandMap) CommandMap.getDefaultCommandMap();
-            mc.addMailcap("text/html;; x-java-content-handler=com.sun.mail.handlers.text_html");
-            mc.addMailcap("text/xml;; x-java-content-handler=com.sun.mail.handlers.text_xml");
-            mc.addMailcap("text/plain;; x-java-content-handler=com.sun.mail.handlers.text_plain");
-            mc.addMailcap("multipart/*;; x-java-content-handler=com.sun.mail.handlers.multipart_mixed");
-            mc.addMailcap("message/rfc822;; x-java-content- handler=com.sun.mail.handlers.message_rfc822");
-
-            try {
-                email.setHtmlMsg(content);
-                email.setTextMsg(content);
-            } catch (EmailException e) {
-                logger.logException("Your email.html config contains an error and cannot be sent:", e);
-                return;
-            }
-            try {
-                email.send();
-            } catch (EmailException e) {
-                logger.logException("Failed to send a mail to " + email.getToAddresses() + ":", e);
-            }
-        });
+        try {
+            email.setHtmlMsg(content);
+            email.setTextMsg(content);
+        } catch (EmailException e) {
+            logger.logException("Your email.html config contains an error and cannot be sent:", e);
+            return;
+        }
+        try {
+            email.buildMimeMessage();
+        } catch (EmailException e) {
+            logger.logException("Failed to create a mail to " + email.getToAddresses() + ":", e);
+            return;
+        }
+        mailQueue.enqueue(email.getMimeMessage());
+    }
+
+    /**
+     * @return the number of emails which are waiting to be sent
+     */
+    public int getQueuedMailCount() {
+        return mailQueue.getSize();
+    }
+
+    /**
+     * Stops sending emails. Emails which could not be sent in time are dropped.
+     */
+    public void shutdown() {
+        mailQueue.shutdown();
+    }
+
+    @Override
+    public void reload() {
+        mailQueue.invalidateSession();
+    }
+
+    /**
+     * Sets the SMTP server, port and credentials to the given HtmlEmail object.
+     *
+     * @param email the email object to configure
+     */
+    private void configureServer(HtmlEmail email) throws EmailException {
+        int port = settings.getProperty(EmailSettings.SMTP_PORT);
+        email.setSmtpPort(port);
+        email.setHostName(settings.getProperty(EmailSettings.SMTP_HOST));
+        email.setAuthentication(settings.getProperty(EmailSettings.MAIL_ACCOUNT),
+            settings.getProperty(EmailSettings.MAIL_PASSWORD));
+        if (settings.getProperty(PluginSettings.LOG_LEVEL).includes(LogLevel.DEBUG)) {
+            email.setDebug(true);
+        }
+
+        setPropertiesForPort(email, port);
     }
 
     /**
@@ -0,0 +1,95 @@
+package fr.xephi.authme.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of the metrics collected by AuthMe: latency histograms, counters and gauges.
+ * <p>
+ * Metric names are dot-separated, e.g. {@code process.login.run}. Metrics are created the first
+ * time they are used; recording into an existing metric does not lock or allocate.
+ */
+public class MetricsRegistry {
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the histogram with the given name, creating it if needed.
+     *
+     * @param name the name of the histogram
+     * @return the histogram
+     */
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        return histogram == null ? histograms.computeIfAbsent(name, n -> new LatencyHistogram()) : histogram;
+    }
+
+    /**
+     * Records the time elapsed since the given start into the histogram with the given name.
+     *
+     * @param name the name of the histogram
+     * @param startNanos the start time as returned by {@link System#nanoTime()}
+     */
+    public void recordSince(String name, long startNanos) {
+        recordBetween(name, startNanos, System.nanoTime());
+    }
+
+    /**
+     * Records the time elapsed between the given start and end into the histogram with the given name.
+     *
+     * @param name the name of the histogram
+     * @param startNanos the start time as returned by {@link System#nanoTime()}
+     * @param endNanos the end time as returned by {@link System#nanoTime()}
+     */
+    public void recordBetween(String name, long startNanos, long endNanos) {
+        histogram(name).record(TimeUnit.NANOSECONDS.toMicros(endNanos - startNanos));
+    }
+
+    /**
+     * Increments the counter with the given name by one.
+     *
+     * @param name the name of the counter
+     */
+    public void increment(String name) {
+        LongAdder counter = counters.get(name);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(name, n -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * Registers a gauge, whose value is read from the given supplier whenever the metrics are reported.
+     *
+     * @param name the name of the gauge
+     * @param valueSupplier supplier of the gauge's current value
+     */
+    public void registerGauge(String name, LongSupplier valueSupplier) {
+        gauges.put(name, valueSupplier);
+    }
+
+    /**
+     * @return snapshots of all histograms, sorted by name
+     */
+    public Map<String, LatencyHistogram.Snapshot> getHistogramSnapshots() {
+        Map<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+        histograms.forEach((name, histogram) -> snapshots.put(name, histogram.snapshot()));
+        return snapshots;
+    }
+
+    /**
+     * @return the current values of all counters and gauges, sorted by name
+     */
+    public Map<String, Long> getValues() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+}
@@ -0,0 +1,85 @@
+package fr.xephi.authme.metrics;
+
+import fr.xephi.authme.ConsoleLogger;
+import fr.xephi.authme.data.auth.PlayerCache;
+import fr.xephi.authme.datasource.CacheDataSource;
+import fr.xephi.authme.datasource.DataSource;
+import fr.xephi.authme.initialization.Reloadable;
+import fr.xephi.authme.mail.SendMailSsl;
+import fr.xephi.authme.output.ConsoleLoggerFactory;
+import fr.xephi.authme.settings.Settings;
+import fr.xephi.authme.settings.properties.PluginSettings;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Registers the gauges of AuthMe's main components and manages the optional Prometheus endpoint.
+ */
+public class MetricsService implements Reloadable {
+
+    private final ConsoleLogger logger = ConsoleLoggerFactory.get(MetricsService.class);
+
+    @Inject
+    private MetricsRegistry metricsRegistry;
+
+    @Inject
+    private Settings settings;
+
+    @Inject
+    private DataSource dataSource;
+
+    @Inject
+    private PlayerCache playerCache;
+
+    @Inject
+    private SendMailSsl sendMailSsl;
+
+    private PrometheusExporter exporter;
+
+    MetricsService() {
+    }
+
+    @PostConstruct
+    void registerGauges() {
+        metricsRegistry.registerGauge("players.logged_in", playerCache::getLogged);
+        metricsRegistry.registerGauge("mail.queue.size", sendMailSsl::getQueuedMailCount);
+        metricsRegistry.registerGauge("log.dropped_lines", ConsoleLogger::getDroppedFileLogLines);
+        if (dataSource instanceof CacheDataSource) {
+            CacheDataSource cacheDataSource = (CacheDataSource) dataSource;
+            metricsRegistry.registerGauge("cache.size", () -> cacheDataSource.getCachedAuths().size());
+            metricsRegistry.registerGauge("cache.hits", () -> cacheDataSource.getCachedAuths().stats().hitCount());
+            metricsRegistry.registerGauge("cache.misses", () -> cacheDataSource.getCachedAuths().stats().missCount());
+            metricsRegistry.registerGauge("cache.pending_refreshes", cacheDataSource::getPendingRefreshes);
+        }
+        reload();
+    }
+
+    @Override
+    public void reload() {
+        stopExporter();
+        if (settings.getProperty(PluginSettings.METRICS_EXPORTER_ENABLED)) {
+            InetSocketAddress address = new InetSocketAddress(
+                settings.getProperty(PluginSettings.METRICS_EXPORTER_ADDRESS),
+                settings.getProperty(PluginSettings.METRICS_EXPORTER_PORT));
+            try {
+                exporter = PrometheusExporter.start(metricsRegistry, address);
+                logger.info("Serving metrics at http://" + address.getHostString() + ":" + address.getPort() + "/metrics");
+            } catch (IOException e) {
+                logger.logException("Could not start the metrics endpoint on " + address + ":", e);
+            }
+        }
+    }
+
+    /**
+     * Stops the Prometheus endpoint if it is running.
+     */
+    public void stopExporter() {
+        if (exporter != null) {
+            exporter.stop();
+            exporter = null;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package fr.xephi.authme.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the metrics of a {@link MetricsRegistry} in the Prometheus text format over HTTP.
+ * Histograms are exported as summaries in seconds.
+ */
+final class PrometheusExporter {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+
+    private final MetricsRegistry metricsRegistry;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private PrometheusExporter(MetricsRegistry metricsRegistry, HttpServer server, ExecutorService executor) {
+        this.metricsRegistry = metricsRegistry;
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts serving the metrics at /metrics on the given address.
+     *
+     * @param metricsRegistry the registry whose metrics should be served
+     * @param address the address to listen on
+     * @return the started exporter
+     * @throws IOException if the server could not be bound to the address
+     */
+    static PrometheusExporter start(MetricsRegistry metricsRegistry, InetSocketAddress address) throws IOException {
+        HttpServer server = HttpServer.create(address, 0);
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AuthMe-MetricsExporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        PrometheusExporter exporter = new PrometheusExporter(metricsRegistry, server, executor);
+        server.createContext("/metrics", exporter::handle);
+        server.setExecutor(executor);
+        server.start();
+        return exporter;
+    }
+
+    /**
+     * Stops the server.
+     */
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return all metrics of the registry in the Prometheus text format
+     */
+    String render() {
+        StringBuilder output = new StringBuilder(4096);
+        for (Map.Entry<String, LatencyHistogram.Snapshot> entry : metricsRegistry.getHistogramSnapshots().entrySet()) {
+            String name = toMetricName(entry.getKey()) + "_seconds";
+            LatencyHistogram.Snapshot snapshot = entry.getValue();
+            output.append("# TYPE ").append(name).append(" summary\n");
+            for (double quantile : QUANTILES) {
+                output.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(toSeconds(snapshot.getValueAtQuantile(quantile))).append('\n');
+            }
+            output.append(name).append("_sum ").append(toSeconds(snapshot.getSum())).append('\n');
+            output.append(name).append("_count ").append(snapshot.getCount()).append('\n');
+        }
+        for (Map.Entry<String, Long> entry : metricsRegistry.getValues().entrySet()) {
+            String name = toMetricName(entry.getKey());
+            output.append("# TYPE ").append(name).append(" untyped\n");
+            output.append(name).append(' ').append(entry.getValue()).append('\n');
+        }
+        return output.toString();
+    }
+
+    private static String toMetricName(String name) {
+        return "authme_" + name.replaceAll("[^A-Za-z0-9_]", "_").toLowerCase(Locale.ROOT);
+    }
+
+    private static String toSeconds(long micros) {
+        return Double.toString(micros / 1_000_000.0);
+    }
+}
@@ -0,0 +1,94 @@
+package fr.xephi.authme.output;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer for multiple producers and a single consumer.
+ * <p>
+ * Each slot has a sequence number telling producers and the consumer whose turn it is: a producer claims
+ * a position by advancing the tail, writes the element and then publishes the slot for the consumer.
+ * Producers never block; {@link #offer} returns false when the buffer is full.
+ *
+ * @param <E> the element type
+ */
+final class BoundedMpscBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    /** Position of the next element to consume; only accessed by the consumer thread. */
+    private long head;
+
+    /**
+     * Constructor.
+     *
+     * @param requestedCapacity the minimum capacity (rounded up to the next power of two)
+     */
+    BoundedMpscBuffer(int requestedCapacity) {
+        int size = 2;
+        while (size < requestedCapacity) {
+            size <<= 1;
+        }
+        capacity = size;
+        mask = size - 1;
+        elements = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; ++i) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds the element to the buffer if there is space. Can be called from any thread.
+     *
+     * @param element the element to add
+     * @return true if the element was added, false if the buffer is full
+     */
+    boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+            // Another producer claimed this position in the meantime: try again
+        }
+    }
+
+    /**
+     * Returns whether the buffer has no element to consume. Must only be called from the consumer thread.
+     *
+     * @return true if the buffer is empty, false otherwise
+     */
+    boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+
+    /**
+     * Removes and returns the next element. Must only be called from the consumer thread.
+     *
+     * @return the next element, or null if the buffer is empty
+     */
+    E poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        E element = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.set(index, head + capacity);
+        ++head;
+        return element;
+    }
+}
@@ -0,0 +1,268 @@
+package fr.xephi.authme.output;
+
+import com.google.common.io.CountingOutputStream;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes log lines to a file on a background thread.
+ * <p>
+ * Logging threads only put the line into a bounded buffer, which the writer thread empties in batches
+ * at the configured flush interval. Lines which do not fit into the buffer are dropped and counted.
+ * The log file is archived as a gzip file once it exceeds the maximum size or, if enabled, when the day
+ * changes. Errors while writing are logged once and the writer keeps retrying at each flush.
+ */
+public final class LogFileSink {
+
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final File logFile;
+    private final Logger errorLogger;
+    private final AtomicLong droppedLines = new AtomicLong();
+    private final Thread writerThread;
+
+    private volatile BoundedMpscBuffer<String> buffer;
+    private volatile boolean running = true;
+    private volatile int bufferSize;
+    private volatile long flushIntervalMillis;
+    private volatile long maxFileSize;
+    private volatile boolean rotateDaily;
+
+    // Only accessed by the writer thread
+    private Writer writer;
+    private CountingOutputStream fileOutput;
+    private long initialFileSize;
+    private LocalDate fileDate;
+    private long reportedDroppedLines;
+    private boolean hasWriteFailed;
+    private int bufferSizeInUse;
+    /** Buffer replaced by a buffer of another size, still to be emptied. */
+    private BoundedMpscBuffer<String> retiredBuffer;
+
+    /**
+     * Constructor. Call {@link #start()} to start writing to the file.
+     *
+     * @param logFile the file to write to
+     * @param errorLogger logger for errors of the file sink itself
+     * @param bufferSize the maximum number of lines waiting to be written
+     */
+    public LogFileSink(File logFile, Logger errorLogger, int bufferSize) {
+        this.logFile = logFile;
+        this.errorLogger = errorLogger;
+        this.bufferSize = Math.max(bufferSize, 16);
+        this.bufferSizeInUse = this.bufferSize;
+        this.buffer = new BoundedMpscBuffer<>(this.bufferSize);
+        this.writerThread = new Thread(this::runWriter, "AuthMe-LogWriter");
+        writerThread.setDaemon(true);
+    }
+
+    /**
+     * Sets the parameters which can be changed while the sink is running.
+     *
+     * @param flushIntervalMillis interval at which buffered lines are written
+     * @param maxFileSizeBytes size after which the file is archived, 0 to disable
+     * @param rotateDaily whether the file should be archived when the day changes
+     * @param bufferSize the maximum number of lines waiting to be written
+     */
+    public void configure(long flushIntervalMillis, long maxFileSizeBytes, boolean rotateDaily, int bufferSize) {
+        this.flushIntervalMillis = Math.max(flushIntervalMillis, 10);
+        this.maxFileSize = maxFileSizeBytes;
+        this.rotateDaily = rotateDaily;
+        this.bufferSize = Math.max(bufferSize, 16);
+    }
+
+    /**
+     * Starts the writer thread.
+     */
+    public void start() {
+        writerThread.start();
+    }
+
+    /**
+     * Adds the line to the buffer of lines to write. Never blocks; the line is dropped if the buffer is full.
+     *
+     * @param line the line to write (including the line separator)
+     */
+    public void append(String line) {
+        if (!buffer.offer(line)) {
+            droppedLines.incrementAndGet();
+            // Don't wait for the flush interval to empty the buffer
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * @return the total number of lines which were dropped because the buffer was full
+     */
+    public long getDroppedLines() {
+        return droppedLines.get();
+    }
+
+    /**
+     * Stops the writer thread after it has written all remaining lines, and closes the file.
+     */
+    public void close() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWriter() {
+        try {
+            while (running) {
+                tryWriteBufferedLines();
+                resizeBufferIfNeeded();
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis));
+            }
+            tryWriteBufferedLines();
+        } finally {
+            closeFile();
+        }
+    }
+
+    private void tryWriteBufferedLines() {
+        try {
+            writeBufferedLines();
+            if (hasWriteFailed) {
+                hasWriteFailed = false;
+                errorLogger.info("Resumed writing to AuthMe log file");
+            }
+        } catch (IOException e) {
+            // Log once rather than at every flush while the problem lasts, e.g. while the disk is full
+            if (!hasWriteFailed) {
+                hasWriteFailed = true;
+                errorLogger.log(Level.SEVERE, "Failed to write to AuthMe log file, will keep retrying", e);
+            }
+            closeFile();
+        }
+    }
+
+    private void writeBufferedLines() throws IOException {
+        if (retiredBuffer == null && buffer.isEmpty() && droppedLines.get() == reportedDroppedLines) {
+            return;
+        }
+
+        if (writer == null) {
+            openFile();
+        }
+        rotateIfNeeded();
+        if (retiredBuffer != null) {
+            writeLines(retiredBuffer);
+            retiredBuffer = null;
+        }
+        writeLines(buffer);
+        long dropped = droppedLines.get();
+        if (dropped != reportedDroppedLines) {
+            writer.write("[WARN] " + (dropped - reportedDroppedLines)
+                + " log lines were dropped because the log buffer was full" + System.lineSeparator());
+            reportedDroppedLines = dropped;
+        }
+        writer.flush();
+    }
+
+    private void writeLines(BoundedMpscBuffer<String> lines) throws IOException {
+        String line;
+        while ((line = lines.poll()) != null) {
+            writer.write(line);
+        }
+    }
+
+    /**
+     * Replaces the buffer if another size was configured. The old buffer is emptied with the next flush, so
+     * that lines which were being added to it while it was replaced are written as well.
+     */
+    private void resizeBufferIfNeeded() {
+        int size = bufferSize;
+        if (size != bufferSizeInUse && retiredBuffer == null) {
+            retiredBuffer = buffer;
+            buffer = new BoundedMpscBuffer<>(size);
+            bufferSizeInUse = size;
+        }
+    }
+
+    private void rotateIfNeeded() throws IOException {
+        LocalDate today = LocalDate.now();
+        boolean isNewDay = rotateDaily && !today.equals(fileDate);
+        boolean isTooLarge = maxFileSize > 0 && initialFileSize + fileOutput.getCount() >= maxFileSize;
+        if (isNewDay || isTooLarge) {
+            closeFile();
+            archiveLogFile();
+            openFile();
+        }
+    }
+
+    private void openFile() throws IOException {
+        if (logFile.exists()) {
+            fileDate = Instant.ofEpochMilli(logFile.lastModified()).atZone(ZoneId.systemDefault()).toLocalDate();
+            initialFileSize = logFile.length();
+        } else {
+            fileDate = LocalDate.now();
+            initialFileSize = 0;
+        }
+        fileOutput = new CountingOutputStream(new FileOutputStream(logFile, true));
+        writer = new BufferedWriter(new OutputStreamWriter(fileOutput, StandardCharsets.UTF_8));
+    }
+
+    private void closeFile() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (!hasWriteFailed) {
+                    errorLogger.log(Level.SEVERE, "Failed to close AuthMe log file", e);
+                }
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * Compresses the current log file to an archive named after the log file's date, and deletes it.
+     */
+    private void archiveLogFile() {
+        String baseName = logFile.getName().replaceFirst("\\.log$", "");
+        File archive;
+        int index = 1;
+        do {
+            archive = new File(logFile.getParentFile(), baseName + "-" + fileDate + "." + index + ".log.gz");
+            ++index;
+        } while (archive.exists());
+
+        try (InputStream in = new FileInputStream(logFile);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(archive))) {
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+        } catch (IOException e) {
+            errorLogger.log(Level.SEVERE, "Failed to archive AuthMe log file to '" + archive + "'", e);
+            return;
+        }
+        if (!logFile.delete()) {
+            errorLogger.warning("Could not delete archived AuthMe log file '" + logFile + "'");
+        }
+    }
+}
@@ -1,12 +1,10 @@
 package fr.xephi.authme.output;
 
 import com.google.common.annotations.VisibleForTesting;
-import fr.xephi.authme.util.StringUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
 
 /**
  * Service class for the log filters.
@@ -21,6 +19,10 @@ final class LogFilterHelper {
 
     private static final String ISSUED_COMMAND_TEXT = "issued server command:";
 
+    /** Matches messages which contain both the issued command text and a sensitive command, in one pass. */
+    private static final MultiPatternMatcher SENSITIVE_COMMAND_MATCHER = MultiPatternMatcher.compile(
+        Collections.singletonList(ISSUED_COMMAND_TEXT), COMMANDS_TO_SKIP);
+
     private LogFilterHelper() {
         // Util class
     }
@@ -33,11 +35,7 @@ final class LogFilterHelper {
      * @return True if it is a sensitive AuthMe command, false otherwise
      */
     static boolean isSensitiveAuthMeCommand(String message) {
-        if (message == null) {
-            return false;
-        }
-        String lowerMessage = message.toLowerCase(Locale.ROOT);
-        return lowerMessage.contains(ISSUED_COMMAND_TEXT) && StringUtils.containsAny(lowerMessage, COMMANDS_TO_SKIP);
+        return message != null && SENSITIVE_COMMAND_MATCHER.matchesAllGroups(message);
     }
 
     private static List<String> withAndWithoutAuthMePrefix(String... commands) {
@@ -0,0 +1,155 @@
+package fr.xephi.authme.output;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton which finds multiple patterns in a text in one pass, ignoring case.
+ * <p>
+ * Patterns are divided into groups; {@link #matchesAllGroups} tells whether the text contains at least
+ * one pattern of each group. The text is not copied: each character is lower-cased on the fly and
+ * mapped to a compact alphabet made up of the characters which appear in the patterns, so the
+ * transition table stays small.
+ */
+final class MultiPatternMatcher {
+
+    /** Alphabet index of all characters which do not appear in any pattern. */
+    private static final int OTHER_CHARACTER = 0;
+
+    private final char[] alphabetIndex;
+    private final int alphabetSize;
+    /** Transitions of the automaton: the next state is at [state * alphabetSize + character index]. */
+    private final int[] transitions;
+    /** Bit mask per state of the groups of the patterns which end in that state. */
+    private final int[] groupMatches;
+    private final int allGroupsMask;
+
+    private MultiPatternMatcher(char[] alphabetIndex, int alphabetSize, int[] transitions,
+                                int[] groupMatches, int allGroupsMask) {
+        this.alphabetIndex = alphabetIndex;
+        this.alphabetSize = alphabetSize;
+        this.transitions = transitions;
+        this.groupMatches = groupMatches;
+        this.allGroupsMask = allGroupsMask;
+    }
+
+    /**
+     * Creates a matcher for the given groups of patterns. Patterns may only consist of ASCII characters.
+     *
+     * @param patternGroups the groups of patterns (at most 31)
+     * @return the created matcher
+     */
+    @SafeVarargs
+    static MultiPatternMatcher compile(List<String>... patternGroups) {
+        if (patternGroups.length > 31) {
+            throw new IllegalArgumentException("At most 31 pattern groups are supported");
+        }
+
+        // Map each character used in the patterns to a small index
+        char[] alphabetIndex = new char[128];
+        int alphabetSize = 1;
+        for (List<String> group : patternGroups) {
+            for (String pattern : group) {
+                for (char chr : pattern.toLowerCase(Locale.ROOT).toCharArray()) {
+                    if (chr >= 128) {
+                        throw new IllegalArgumentException("Pattern '" + pattern + "' has non-ASCII characters");
+                    }
+                    if (alphabetIndex[chr] == OTHER_CHARACTER) {
+                        alphabetIndex[chr] = (char) alphabetSize++;
+                    }
+                }
+            }
+        }
+
+        // Build the trie
+        List<int[]> trie = new ArrayList<>();
+        List<Integer> matches = new ArrayList<>();
+        trie.add(newState(alphabetSize));
+        matches.add(0);
+        for (int group = 0; group < patternGroups.length; ++group) {
+            for (String pattern : patternGroups[group]) {
+                int state = 0;
+                for (char chr : pattern.toLowerCase(Locale.ROOT).toCharArray()) {
+                    int index = alphabetIndex[chr];
+                    if (trie.get(state)[index] < 0) {
+                        trie.get(state)[index] = trie.size();
+                        trie.add(newState(alphabetSize));
+                        matches.add(0);
+                    }
+                    state = trie.get(state)[index];
+                }
+                matches.set(state, matches.get(state) | (1 << group));
+            }
+        }
+
+        // Turn the trie into a complete automaton by following the failure links breadth-first
+        int stateCount = trie.size();
+        int[] transitions = new int[stateCount * alphabetSize];
+        int[] groupMatches = new int[stateCount];
+        int[] failure = new int[stateCount];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int index = 0; index < alphabetSize; ++index) {
+            int next = trie.get(0)[index];
+            if (next < 0) {
+                transitions[index] = 0;
+            } else {
+                transitions[index] = next;
+                failure[next] = 0;
+                queue.add(next);
+            }
+        }
+        groupMatches[0] = matches.get(0);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            groupMatches[state] = matches.get(state) | groupMatches[failure[state]];
+            for (int index = 0; index < alphabetSize; ++index) {
+                int next = trie.get(state)[index];
+                int fallback = transitions[failure[state] * alphabetSize + index];
+                if (next < 0) {
+                    transitions[state * alphabetSize + index] = fallback;
+                } else {
+                    transitions[state * alphabetSize + index] = next;
+                    failure[next] = fallback;
+                    queue.add(next);
+                }
+            }
+        }
+
+        int allGroupsMask = (1 << patternGroups.length) - 1;
+        return new MultiPatternMatcher(alphabetIndex, alphabetSize, transitions, groupMatches, allGroupsMask);
+    }
+
+    /**
+     * Returns whether the text contains, ignoring case, at least one pattern of each group.
+     *
+     * @param text the text to search in
+     * @return true if a pattern of every group was found, false otherwise
+     */
+    boolean matchesAllGroups(CharSequence text) {
+        int state = 0;
+        int foundGroups = 0;
+        for (int i = 0; i < text.length(); ++i) {
+            state = transitions[state * alphabetSize + toAlphabetIndex(text.charAt(i))];
+            foundGroups |= groupMatches[state];
+            if (foundGroups == allGroupsMask) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int toAlphabetIndex(char chr) {
+        char lowerChr = Character.toLowerCase(chr);
+        return lowerChr < 128 ? alphabetIndex[lowerChr] : OTHER_CHARACTER;
+    }
+
+    private static int[] newState(int alphabetSize) {
+        int[] state = new int[alphabetSize];
+        Arrays.fill(state, -1);
+        return state;
+    }
+}
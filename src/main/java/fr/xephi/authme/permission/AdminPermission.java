@@ -135,6 +135,11 @@ public enum AdminPermission implements PermissionNode {
      */
     SEE_OTHER_ACCOUNTS("authme.admin.seeotheraccounts"),
 
+    /**
+     * Administrator command to see performance metrics.
+     */
+    METRICS("authme.admin.metrics"),
+
     /**
      * Allows to use the backup command.
      */
@@ -14,12 +14,21 @@ public enum DebugSectionPermissions implements PermissionNode {
     /** Permission to use the stats section. */
     DATA_STATISTICS("authme.debug.stats"),
 
+    /** Permission to view the timings of the data source methods. */
+    DATA_SOURCE_TIMINGS("authme.debug.dbstats"),
+
     /** Permission to use the permission checker. */
     HAS_PERMISSION_CHECK("authme.debug.perm"),
 
+    /** Permission to create the password blocklist. */
+    PASSWORD_BLOCKLIST("authme.debug.blocklist"),
+
     /** Permission to use sample validation. */
     INPUT_VALIDATOR("authme.debug.valid"),
 
+    /** Permission to run the login load test. */
+    LOAD_TEST("authme.debug.loadtest"),
+
     /** Permission to use the limbo data viewer. */
     LIMBO_PLAYER_VIEWER("authme.debug.limbo"),
 
@@ -0,0 +1,175 @@
+package fr.xephi.authme.permission;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Short-lived cache of the results of permission checks for the {@link PlayerStatePermission} nodes, which
+ * are checked on every join and login. Other nodes, such as those authorizing commands, are not cached so
+ * that revoking them takes effect immediately.
+ * <p>
+ * Every cached node has a fixed index, so the results of a player are kept in two bit sets: one telling which
+ * nodes have been checked and one with the results. Online and offline checks are cached separately
+ * since they may be evaluated differently. A player's entry expires after the configured time and is
+ * discarded as soon as the permission data may have changed.
+ * <p>
+ * To avoid caching a result which was computed before an invalidation, callers take a
+ * {@link #getGeneration() generation} before checking the permission and pass it to {@link #put}; the
+ * result is dropped if anything has been invalidated in the meantime.
+ */
+final class PermissionCache {
+
+    private static final Map<PermissionNode, Integer> NODE_INDICES =
+        createNodeIndices(PlayerStatePermission.values());
+    /** Number of bits per node: one for online checks and one for offline checks. */
+    private static final int BITS_PER_NODE = 2;
+    private static final int WORD_COUNT = (NODE_INDICES.size() * BITS_PER_NODE + 63) / 64;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private volatile long timeToLiveMillis;
+
+    /**
+     * Sets how long the results of a player are kept. A value of 0 or less disables the cache.
+     *
+     * @param timeToLiveMillis the time to live of a player's entry in milliseconds
+     */
+    void setTimeToLive(long timeToLiveMillis) {
+        this.timeToLiveMillis = timeToLiveMillis;
+        invalidateAll();
+    }
+
+    /**
+     * @return the current generation, to pass to {@link #put}
+     */
+    long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Returns whether the results of checks for the given node are cached.
+     *
+     * @param node the permission node
+     * @return true if the node's results are cached, false otherwise
+     */
+    static boolean isCached(PermissionNode node) {
+        return NODE_INDICES.containsKey(node);
+    }
+
+    /**
+     * Returns the cached result of the given permission check.
+     *
+     * @param name the name of the player
+     * @param node the permission node
+     * @param offline whether the check is for an offline player
+     * @return the cached result, or null if not available
+     */
+    Boolean get(String name, PermissionNode node, boolean offline) {
+        Integer index = NODE_INDICES.get(node);
+        if (index == null || name == null) {
+            return null;
+        }
+        Entry entry = entries.get(name.toLowerCase(Locale.ROOT));
+        if (entry == null || entry.isExpired()) {
+            return null;
+        }
+        return entry.get(index * BITS_PER_NODE + (offline ? 1 : 0));
+    }
+
+    /**
+     * Saves the result of a permission check, unless the cache has been invalidated since the given
+     * generation was taken.
+     *
+     * @param name the name of the player
+     * @param node the permission node
+     * @param offline whether the check was for an offline player
+     * @param result the result of the check
+     * @param checkGeneration the generation taken before the permission was checked
+     */
+    void put(String name, PermissionNode node, boolean offline, boolean result, long checkGeneration) {
+        Integer index = NODE_INDICES.get(node);
+        long ttl = timeToLiveMillis;
+        if (index == null || name == null || ttl <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Entry entry = entries.compute(name.toLowerCase(Locale.ROOT),
+            (key, existing) -> existing == null || existing.isExpired() ? new Entry(now + ttl) : existing);
+        entry.set(index * BITS_PER_NODE + (offline ? 1 : 0), result);
+        // Drop what we just wrote if an invalidation happened concurrently
+        if (generation.get() != checkGeneration) {
+            entries.remove(name.toLowerCase(Locale.ROOT), entry);
+        }
+    }
+
+    /**
+     * Discards the cached results of the given player.
+     *
+     * @param name the name of the player, or null if unknown (discards all results)
+     */
+    void invalidate(String name) {
+        generation.incrementAndGet();
+        if (name == null) {
+            entries.clear();
+        } else {
+            entries.remove(name.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Discards all cached results.
+     */
+    void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    private static Map<PermissionNode, Integer> createNodeIndices(PermissionNode[] nodes) {
+        Map<PermissionNode, Integer> indices = new HashMap<>();
+        for (PermissionNode node : nodes) {
+            indices.put(node, indices.size());
+        }
+        return indices;
+    }
+
+    /**
+     * Cached results of one player.
+     */
+    private static final class Entry {
+
+        private final long expiresAt;
+        private final AtomicLongArray checked = new AtomicLongArray(WORD_COUNT);
+        private final AtomicLongArray granted = new AtomicLongArray(WORD_COUNT);
+
+        Entry(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+
+        Boolean get(int bit) {
+            long mask = 1L << bit;
+            if ((checked.get(bit >>> 6) & mask) == 0) {
+                return null;
+            }
+            return (granted.get(bit >>> 6) & mask) != 0;
+        }
+
+        void set(int bit, boolean result) {
+            long mask = 1L << bit;
+            // The result must be visible before the bit saying that it is available
+            if (result) {
+                granted.accumulateAndGet(bit >>> 6, mask, (word, m) -> word | m);
+            } else {
+                granted.accumulateAndGet(bit >>> 6, ~mask, (word, m) -> word & m);
+            }
+            checked.accumulateAndGet(bit >>> 6, mask, (word, m) -> word | m);
+        }
+    }
+}
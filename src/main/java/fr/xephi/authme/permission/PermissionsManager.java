@@ -27,6 +27,7 @@ import javax.inject.Inject;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * PermissionsManager.
@@ -52,6 +53,11 @@ public class PermissionsManager implements Reloadable {
      */
     private PermissionHandler handler = null;
 
+    /**
+     * Cache of the results of player state permission checks; other nodes are always checked directly.
+     */
+    private final PermissionCache permissionCache = new PermissionCache();
+
     @Inject
     PermissionsManager(Server server, PluginManager pluginManager, Settings settings) {
         this.server = server;
@@ -74,12 +80,14 @@ public class PermissionsManager implements Reloadable {
     @PostConstruct
     @VisibleForTesting
     void setup() {
+        permissionCache.setTimeToLive(
+            TimeUnit.SECONDS.toMillis(settings.getProperty(PluginSettings.PERMISSION_CACHE_SECONDS)));
         if (settings.getProperty(PluginSettings.FORCE_VAULT_HOOK)) {
             try {
                 PermissionHandler handler = createPermissionHandler(PermissionsSystemType.VAULT);
                 if (handler != null) {
                     // Show a success message and return
-                    this.handler = handler;
+                    useHandler(handler);
                     logger.info("Hooked into " + PermissionsSystemType.VAULT.getDisplayName() + "!");
                     return;
                 }
@@ -93,7 +101,7 @@ public class PermissionsManager implements Reloadable {
                     PermissionHandler handler = createPermissionHandler(type);
                     if (handler != null) {
                         // Show a success message and return
-                        this.handler = handler;
+                        useHandler(handler);
                         logger.info("Hooked into " + type.getDisplayName() + "!");
                         return;
                     }
@@ -145,12 +153,30 @@ public class PermissionsManager implements Reloadable {
         }
     }
 
+    /**
+     * Sets the permission handler to use and listens to its changes of permission data.
+     *
+     * @param handler the permission handler
+     */
+    private void useHandler(PermissionHandler handler) {
+        if (this.handler != null) {
+            this.handler.unregisterChangeListeners();
+        }
+        this.handler = handler;
+        permissionCache.invalidateAll();
+        handler.registerChangeListeners(permissionCache::invalidate, permissionCache::invalidateAll);
+    }
+
     /**
      * Break the hook with all permission systems.
      */
     private void unhook() {
         // Reset the current used permissions system
+        if (this.handler != null) {
+            this.handler.unregisterChangeListeners();
+        }
         this.handler = null;
+        permissionCache.invalidateAll();
 
         // Print a status message to the console
         logger.info("Unhooked from Permissions!");
@@ -224,7 +250,17 @@ public class PermissionsManager implements Reloadable {
         }
 
         Player player = (Player) sender;
-        return player.hasPermission(permissionNode.getNode());
+        if (!PermissionCache.isCached(permissionNode)) {
+            return player.hasPermission(permissionNode.getNode());
+        }
+        Boolean cachedResult = permissionCache.get(player.getName(), permissionNode, false);
+        if (cachedResult != null) {
+            return cachedResult;
+        }
+        long generation = permissionCache.getGeneration();
+        boolean result = player.hasPermission(permissionNode.getNode());
+        permissionCache.put(player.getName(), permissionNode, false, result, generation);
+        return result;
     }
 
     /**
@@ -246,7 +282,7 @@ public class PermissionsManager implements Reloadable {
             return permissionNode.getDefaultPermission().evaluate(player);
         }
 
-        return handler.hasPermissionOffline(player.getName(), permissionNode);
+        return hasPermissionOfflineCached(player.getName(), permissionNode);
     }
 
     /**
@@ -266,7 +302,32 @@ public class PermissionsManager implements Reloadable {
             return permissionNode.getDefaultPermission().evaluate(null);
         }
 
-        return handler.hasPermissionOffline(name, permissionNode);
+        return hasPermissionOfflineCached(name, permissionNode);
+    }
+
+    private boolean hasPermissionOfflineCached(String name, PermissionNode permissionNode) {
+        if (!PermissionCache.isCached(permissionNode)) {
+            return handler.hasPermissionOffline(name, permissionNode);
+        }
+        Boolean cachedResult = permissionCache.get(name, permissionNode, true);
+        if (cachedResult != null) {
+            return cachedResult;
+        }
+        long generation = permissionCache.getGeneration();
+        boolean result = handler.hasPermissionOffline(name, permissionNode);
+        permissionCache.put(name, permissionNode, true, result, generation);
+        return result;
+    }
+
+    /**
+     * Discards the cached permission results of the given player. To be called when the player's
+     * permissions may have changed outside of the permission system, e.g. when the player's OP status
+     * is changed, and when the player leaves.
+     *
+     * @param name the name of the player
+     */
+    public void invalidateCache(String name) {
+        permissionCache.invalidate(name);
     }
 
     /**
@@ -327,7 +388,9 @@ public class PermissionsManager implements Reloadable {
         if (!isEnabled() || StringUtils.isBlank(groupName.getGroupName())) {
             return false;
         }
-        return handler.addToGroup(player, groupName);
+        boolean result = handler.addToGroup(player, groupName);
+        permissionCache.invalidate(player.getName());
+        return result;
     }
 
     /**
@@ -352,6 +415,7 @@ public class PermissionsManager implements Reloadable {
                 result |= handler.addToGroup(player, group);
             }
         }
+        permissionCache.invalidate(player.getName());
 
         // Return the result
         return result;
@@ -367,7 +431,12 @@ public class PermissionsManager implements Reloadable {
      *         False is also returned if this feature isn't supported for the current permissions system.
      */
     public boolean removeGroup(OfflinePlayer player, UserGroup group) {
-        return isEnabled() && handler.removeFromGroup(player, group);
+        if (!isEnabled()) {
+            return false;
+        }
+        boolean result = handler.removeFromGroup(player, group);
+        permissionCache.invalidate(player.getName());
+        return result;
     }
 
     /**
@@ -392,6 +461,7 @@ public class PermissionsManager implements Reloadable {
                 result |= handler.removeFromGroup(player, group);
             }
         }
+        permissionCache.invalidate(player.getName());
 
         // Return the result
         return result;
@@ -408,7 +478,12 @@ public class PermissionsManager implements Reloadable {
      *         False is also returned if this feature isn't supported for the current permissions system.
      */
     public boolean setGroup(OfflinePlayer player, UserGroup group) {
-        return isEnabled() && handler.setGroup(player, group);
+        if (!isEnabled()) {
+            return false;
+        }
+        boolean result = handler.setGroup(player, group);
+        permissionCache.invalidate(player.getName());
+        return result;
     }
 
     /**
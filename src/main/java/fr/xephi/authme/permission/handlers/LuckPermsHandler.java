@@ -9,6 +9,10 @@ import net.luckperms.api.LuckPerms;
 import net.luckperms.api.LuckPermsProvider;
 import net.luckperms.api.cacheddata.CachedPermissionData;
 import net.luckperms.api.context.ContextSetFactory;
+import net.luckperms.api.event.EventBus;
+import net.luckperms.api.event.EventSubscription;
+import net.luckperms.api.event.group.GroupDataRecalculateEvent;
+import net.luckperms.api.event.user.UserDataRecalculateEvent;
 import net.luckperms.api.model.data.DataMutateResult;
 import net.luckperms.api.model.group.Group;
 import net.luckperms.api.model.user.User;
@@ -19,6 +23,7 @@ import net.luckperms.api.query.QueryOptions;
 import org.bukkit.OfflinePlayer;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -26,6 +31,7 @@ import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -38,6 +44,7 @@ public class LuckPermsHandler implements PermissionHandler {
 
     private final ConsoleLogger logger = ConsoleLoggerFactory.get(LuckPermsHandler.class);
     private LuckPerms luckPerms;
+    private final List<EventSubscription<?>> subscriptions = new ArrayList<>();
 
     public LuckPermsHandler() throws PermissionHandlerException {
         try {
@@ -74,6 +81,27 @@ public class LuckPermsHandler implements PermissionHandler {
         return true;
     }
 
+    @Override
+    public void registerChangeListeners(Consumer<String> userChanged, Runnable allChanged) {
+        EventBus eventBus = luckPerms.getEventBus();
+        subscriptions.add(eventBus.subscribe(UserDataRecalculateEvent.class, event -> {
+            String username = event.getUser().getUsername();
+            if (username == null) {
+                allChanged.run();
+            } else {
+                userChanged.accept(username);
+            }
+        }));
+        // Changes to a group may affect any user
+        subscriptions.add(eventBus.subscribe(GroupDataRecalculateEvent.class, event -> allChanged.run()));
+    }
+
+    @Override
+    public void unregisterChangeListeners() {
+        subscriptions.forEach(EventSubscription::close);
+        subscriptions.clear();
+    }
+
     @Override
     public boolean hasGroupSupport() {
         return true;
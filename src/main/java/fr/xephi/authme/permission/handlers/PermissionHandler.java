@@ -8,6 +8,7 @@ import org.bukkit.OfflinePlayer;
 
 import java.util.Collection;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface PermissionHandler {
 
@@ -111,4 +112,20 @@ public interface PermissionHandler {
     default void loadUserData(UUID uuid) throws PermissionLoadUserException {
     }
 
+    /**
+     * Registers listeners to be notified when permission data changes, if the permission system
+     * provides such events.
+     *
+     * @param userChanged called with the name of a player whose permission data has changed
+     * @param allChanged called when the permission data of any player may have changed
+     */
+    default void registerChangeListeners(Consumer<String> userChanged, Runnable allChanged) {
+    }
+
+    /**
+     * Unregisters the listeners registered with {@link #registerChangeListeners}.
+     */
+    default void unregisterChangeListeners() {
+    }
+
 }
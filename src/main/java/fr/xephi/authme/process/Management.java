@@ -1,6 +1,7 @@
 package fr.xephi.authme.process;
 
 import fr.euphyllia.energie.model.SchedulerCallBack;
+import fr.xephi.authme.metrics.MetricsRegistry;
 import fr.xephi.authme.process.changepassword.AsyncChangePassword;
 import fr.xephi.authme.process.email.AsyncAddEmail;
 import fr.xephi.authme.process.email.AsyncChangeEmail;
@@ -26,6 +27,9 @@ public class Management {
     @Inject
     private BukkitService bukkitService;
 
+    @Inject
+    private MetricsRegistry metricsRegistry;
+
     // Processes
     @Inject
     private AsyncAddEmail asyncAddEmail;
@@ -51,62 +55,80 @@ public class Management {
 
 
     public void performLogin(Player player, String password) {
-        runTask(task -> asynchronousLogin.login(player, password));
+        runTask("login", task -> asynchronousLogin.login(player, password));
     }
 
     public void forceLogin(Player player) {
-        runTask(task -> asynchronousLogin.forceLogin(player));
+        runTask("login", task -> asynchronousLogin.forceLogin(player));
     }
 
     public void forceLogin(Player player, boolean quiet) {
-        runTask(task -> asynchronousLogin.forceLogin(player, true, quiet));
+        runTask("login", task -> asynchronousLogin.forceLogin(player, true, quiet));
     }
 
     public void forceLogin(Player player, boolean admin, boolean quiet) {
-        runTask(task -> asynchronousLogin.forceLogin(player, admin, quiet));
+        runTask("login", task -> asynchronousLogin.forceLogin(player, admin, quiet));
     }
 
     public void performLogout(Player player) {
-        runTask(task -> asynchronousLogout.logout(player));
+        runTask("logout", task -> asynchronousLogout.logout(player));
     }
 
     public <P extends RegistrationParameters> void performRegister(RegistrationMethod<P> variant, P parameters) {
-        runTask(task -> asyncRegister.register(variant, parameters));
+        runTask("register", task -> asyncRegister.register(variant, parameters));
     }
 
     public void performUnregister(Player player, String password) {
-        runTask(task -> asynchronousUnregister.unregister(player, password));
+        runTask("unregister", task -> asynchronousUnregister.unregister(player, password));
     }
 
     public void performUnregisterByAdmin(CommandSender initiator, String name, Player player, boolean quiet) {
-        runTask(task -> asynchronousUnregister.adminUnregister(initiator, name, player, quiet));
+        runTask("unregister", task -> asynchronousUnregister.adminUnregister(initiator, name, player, quiet));
+    }
+
+    public void performUnregisterNeverLoggedIn() {
+        runTask("unregister", task -> asynchronousUnregister.unregisterNeverLoggedInPlayers());
     }
 
     public void performJoin(Player player) {
-        runTask(task -> asynchronousJoin.processJoin(player));
+        runTask("join", task -> asynchronousJoin.processJoin(player));
     }
 
     public void performQuit(Player player) {
-        runTask(task -> asynchronousQuit.processQuit(player));
+        runTask("quit", task -> asynchronousQuit.processQuit(player));
     }
 
     public void performAddEmail(Player player, String newEmail) {
-        runTask(task -> asyncAddEmail.addEmail(player, newEmail));
+        runTask("email", task -> asyncAddEmail.addEmail(player, newEmail));
     }
 
     public void performChangeEmail(Player player, String oldEmail, String newEmail) {
-        runTask(task -> asyncChangeEmail.changeEmail(player, oldEmail, newEmail));
+        runTask("email", task -> asyncChangeEmail.changeEmail(player, oldEmail, newEmail));
     }
 
     public void performPasswordChange(Player player, String oldPassword, String newPassword) {
-        runTask(task -> asyncChangePassword.changePassword(player, oldPassword, newPassword));
+        runTask("changepassword", task -> asyncChangePassword.changePassword(player, oldPassword, newPassword));
     }
 
     public void performPasswordChangeAsAdmin(CommandSender sender, String playerName, String newPassword) {
-        runTask(task -> asyncChangePassword.changePasswordAsAdmin(sender, playerName, newPassword));
-    }
-
-    private void runTask(SchedulerCallBack SchedulerCallBack) {
-        bukkitService.runTaskOptionallyAsync(SchedulerCallBack);
+        runTask("changepassword", task -> asyncChangePassword.changePasswordAsAdmin(sender, playerName, newPassword));
+    }
+
+    /**
+     * Runs the given process optionally asynchronously, recording how long it waited to be run
+     * and how long it took in the metrics. A process which waits for data source calls is done
+     * once its continuations have been run.
+     *
+     * @param process the name of the process, used in the metric names
+     * @param callBack the process to run
+     */
+    private void runTask(String process, SchedulerCallBack callBack) {
+        long queuedAt = System.nanoTime();
+        bukkitService.runTaskOptionallyAsync(task -> {
+            long startedAt = System.nanoTime();
+            metricsRegistry.recordBetween("process." + process + ".queued", queuedAt, startedAt);
+            bukkitService.runWithContinuations(() -> callBack.run(task),
+                () -> metricsRegistry.recordSince("process." + process + ".run", startedAt));
+        });
     }
 }
@@ -1,6 +1,8 @@
 package fr.xephi.authme.process;
 
 import fr.euphyllia.energie.model.SchedulerCallBack;
+import fr.xephi.authme.data.limbo.LimboPlayer;
+import fr.xephi.authme.metrics.MetricsRegistry;
 import fr.xephi.authme.process.login.ProcessSyncPlayerLogin;
 import fr.xephi.authme.process.logout.ProcessSyncPlayerLogout;
 import fr.xephi.authme.process.quit.ProcessSyncPlayerQuit;
@@ -25,6 +27,9 @@ public class SyncProcessManager {
     @Inject
     private BukkitService bukkitService;
 
+    @Inject
+    private MetricsRegistry metricsRegistry;
+
     @Inject
     private ProcessSyncEmailRegister processSyncEmailRegister;
     @Inject
@@ -38,26 +43,42 @@ public class SyncProcessManager {
 
 
     public void processSyncEmailRegister(Player player) {
-        runTask(task -> processSyncEmailRegister.processEmailRegister(player));
+        runTask("register", task -> processSyncEmailRegister.processEmailRegister(player));
     }
 
     public void processSyncPasswordRegister(Player player) {
-        runTask(task -> processSyncPasswordRegister.processPasswordRegister(player));
+        runTask("register", task -> processSyncPasswordRegister.processPasswordRegister(player));
     }
 
-    public void processSyncPlayerLogout(Player player) {
-        runTask(task -> processSyncPlayerLogout.processSyncLogout(player));
+    public void processSyncPlayerLogout(Player player, LimboPlayer limboFromDisk) {
+        runTask("logout", task -> processSyncPlayerLogout.processSyncLogout(player, limboFromDisk));
     }
 
     public void processSyncPlayerLogin(Player player, boolean isFirstLogin, List<String> authsWithSameIp) {
-        runTask(task -> processSyncPlayerLogin.processPlayerLogin(player, isFirstLogin, authsWithSameIp));
+        runTask("login", task -> processSyncPlayerLogin.processPlayerLogin(player, isFirstLogin, authsWithSameIp));
     }
 
     public void processSyncPlayerQuit(Player player, boolean wasLoggedIn) {
-        runTask(task -> processSyncPlayerQuit.processSyncQuit(player, wasLoggedIn));
+        runTask("quit", task -> processSyncPlayerQuit.processSyncQuit(player, wasLoggedIn));
     }
 
-    private void runTask(SchedulerCallBack callBack) {
-        bukkitService.scheduleSyncTaskFromOptionallyAsyncTask(callBack);
+    /**
+     * Schedules the synchronous part of a process, recording the delay until it is run on the main thread
+     * and how long it took in the metrics.
+     *
+     * @param process the name of the process, used in the metric names
+     * @param callBack the task to run
+     */
+    private void runTask(String process, SchedulerCallBack callBack) {
+        long queuedAt = System.nanoTime();
+        bukkitService.scheduleSyncTaskFromOptionallyAsyncTask(task -> {
+            long startedAt = System.nanoTime();
+            metricsRegistry.recordBetween("process." + process + ".sync.queued", queuedAt, startedAt);
+            try {
+                callBack.run(task);
+            } finally {
+                metricsRegistry.recordSince("process." + process + ".sync.run", startedAt);
+            }
+        });
     }
 }
@@ -10,6 +10,8 @@ import fr.xephi.authme.process.AsynchronousProcess;
 import fr.xephi.authme.security.PasswordSecurity;
 import fr.xephi.authme.security.crypts.HashedPassword;
 import fr.xephi.authme.service.CommonService;
+import fr.xephi.authme.service.bungeecord.BungeeSender;
+import fr.xephi.authme.service.bungeecord.MessageType;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
@@ -32,6 +34,9 @@ public class AsyncChangePassword implements AsynchronousProcess {
     @Inject
     private PlayerCache playerCache;
 
+    @Inject
+    private BungeeSender bungeeSender;
+
     AsyncChangePassword() {
     }
 
@@ -54,9 +59,9 @@ public class AsyncChangePassword implements AsynchronousProcess {
                 return;
             }
 
-            // TODO: send an update when a messaging service will be implemented (PASSWORD_CHANGED)
+            bungeeSender.sendCacheUpdate(MessageType.REFRESH_PASSWORD, name);
 
-            playerCache.updatePlayer(auth);
+            playerCache.updatePlayer(name, cachedAuth -> cachedAuth.setPassword(hashedPassword));
             commonService.send(player, MessageKey.PASSWORD_CHANGED_SUCCESS);
             logger.info(player.getName() + " changed his password");
         } else {
@@ -84,7 +89,7 @@ public class AsyncChangePassword implements AsynchronousProcess {
 
         HashedPassword hashedPassword = passwordSecurity.computeHash(newPassword, lowerCaseName);
         if (dataSource.updatePassword(lowerCaseName, hashedPassword)) {
-            // TODO: send an update when a messaging service will be implemented (PASSWORD_CHANGED)
+            bungeeSender.sendCacheUpdate(MessageType.REFRESH_PASSWORD, lowerCaseName);
 
             if (sender != null) {
                 commonService.send(sender, MessageKey.PASSWORD_CHANGED_SUCCESS);
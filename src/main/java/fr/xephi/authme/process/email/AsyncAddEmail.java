@@ -11,6 +11,8 @@ import fr.xephi.authme.process.AsynchronousProcess;
 import fr.xephi.authme.service.BukkitService;
 import fr.xephi.authme.service.CommonService;
 import fr.xephi.authme.service.ValidationService;
+import fr.xephi.authme.service.bungeecord.BungeeSender;
+import fr.xephi.authme.service.bungeecord.MessageType;
 import fr.xephi.authme.util.Utils;
 import org.bukkit.entity.Player;
 
@@ -39,6 +41,9 @@ public class AsyncAddEmail implements AsynchronousProcess {
     @Inject
     private BukkitService bukkitService;
 
+    @Inject
+    private BungeeSender bungeeSender;
+
     AsyncAddEmail() {
     }
 
@@ -71,8 +76,8 @@ public class AsyncAddEmail implements AsynchronousProcess {
                 }
                 auth.setEmail(email);
                 if (dataSource.updateEmail(auth)) {
-                    playerCache.updatePlayer(auth);
-                    // TODO: send an update when a messaging service will be implemented (ADD_MAIL)
+                    playerCache.updatePlayer(playerName, cachedAuth -> cachedAuth.setEmail(email));
+                    bungeeSender.sendCacheUpdate(MessageType.REFRESH_EMAIL, auth.getNickname());
                     service.send(player, MessageKey.EMAIL_ADDED_SUCCESS);
                 } else {
                     logger.warning("Could not save email for player '" + player + "'");
@@ -11,6 +11,8 @@ import fr.xephi.authme.process.AsynchronousProcess;
 import fr.xephi.authme.service.BukkitService;
 import fr.xephi.authme.service.CommonService;
 import fr.xephi.authme.service.ValidationService;
+import fr.xephi.authme.service.bungeecord.BungeeSender;
+import fr.xephi.authme.service.bungeecord.MessageType;
 import org.bukkit.entity.Player;
 
 import javax.inject.Inject;
@@ -38,6 +40,9 @@ public class AsyncChangeEmail implements AsynchronousProcess {
     @Inject
     private BukkitService bukkitService;
 
+    @Inject
+    private BungeeSender bungeeSender;
+
     AsyncChangeEmail() {
     }
 
@@ -89,8 +94,8 @@ public class AsyncChangeEmail implements AsynchronousProcess {
 
         auth.setEmail(newEmail);
         if (dataSource.updateEmail(auth)) {
-            playerCache.updatePlayer(auth);
-            // TODO: send an update when a messaging service will be implemented (CHANGE_MAIL)
+            playerCache.updatePlayer(auth.getNickname(), cachedAuth -> cachedAuth.setEmail(newEmail));
+            bungeeSender.sendCacheUpdate(MessageType.REFRESH_EMAIL, auth.getNickname());
             service.send(player, MessageKey.EMAIL_CHANGED_SUCCESS);
         } else {
             service.send(player, MessageKey.ERROR);
@@ -2,8 +2,12 @@ package fr.xephi.authme.process.join;
 
 import fr.xephi.authme.ConsoleLogger;
 import fr.xephi.authme.data.ProxySessionManager;
+import fr.xephi.authme.data.auth.PlayerAuth;
+import fr.xephi.authme.data.join.JoinContext;
+import fr.xephi.authme.data.join.JoinContextManager;
+import fr.xephi.authme.data.limbo.LimboPlayer;
 import fr.xephi.authme.data.limbo.LimboService;
-import fr.xephi.authme.datasource.DataSource;
+import fr.xephi.authme.datasource.AsyncDataSource;
 import fr.xephi.authme.events.ProtectInventoryEvent;
 import fr.xephi.authme.message.MessageKey;
 import fr.xephi.authme.output.ConsoleLoggerFactory;
@@ -32,6 +36,7 @@ import org.bukkit.entity.Player;
 
 import javax.inject.Inject;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 
 import static fr.xephi.authme.service.BukkitService.TICKS_PER_SECOND;
 import static fr.xephi.authme.settings.properties.RestrictionSettings.PROTECT_INVENTORY_BEFORE_LOGIN;
@@ -47,7 +52,7 @@ public class AsynchronousJoin implements AsynchronousProcess {
     private Server server;
 
     @Inject
-    private DataSource database;
+    private AsyncDataSource asyncDataSource;
 
     @Inject
     private CommonService service;
@@ -85,6 +90,9 @@ public class AsynchronousJoin implements AsynchronousProcess {
     @Inject
     private ProxySessionManager proxySessionManager;
 
+    @Inject
+    private JoinContextManager joinContextManager;
+
     AsynchronousJoin() {
     }
 
@@ -96,6 +104,8 @@ public class AsynchronousJoin implements AsynchronousProcess {
     public void processJoin(Player player) {
         String name = player.getName().toLowerCase(Locale.ROOT);
         String ip = PlayerUtils.getPlayerIp(player);
+        // Data loaded during the pre-login phase; null if not available, in which case we query as usual
+        JoinContext context = joinContextManager.consume(name);
 
         if (!validationService.fulfillsNameRestrictions(player)) {
             handlePlayerWithUnmetNameRestriction(player, ip);
@@ -106,9 +116,14 @@ public class AsynchronousJoin implements AsynchronousProcess {
             return;
         }
 
+        // Without context, load the account while the checks below run
+        CompletableFuture<PlayerAuth> auth = context == null
+            ? asyncDataSource.getAuth(name)
+            : CompletableFuture.completedFuture(context.getAuth());
+
         if (service.getProperty(RestrictionSettings.FORCE_SURVIVAL_MODE)
             && player.getGameMode() != GameMode.SURVIVAL
-            && !service.hasPermission(player, PlayerStatePermission.BYPASS_FORCE_SURVIVAL)) {
+            && !hasPermission(player, context, PlayerStatePermission.BYPASS_FORCE_SURVIVAL)) {
             bukkitService.scheduleSyncTaskFromOptionallyAsyncTask(task -> player.setGameMode(GameMode.SURVIVAL));
         }
 
@@ -116,11 +131,29 @@ public class AsynchronousJoin implements AsynchronousProcess {
             pluginHookService.setEssentialsSocialSpyStatus(player, false);
         }
 
-        if (!validatePlayerCountForIp(player, ip)) {
+        if (!validatePlayerCountForIp(player, ip, context)) {
             return;
         }
 
-        boolean isAuthAvailable = database.isAuthAvailable(name);
+        bukkitService.runTaskOptionallyAsyncWhenComplete(auth,
+            loadedAuth -> processJoinWithAuth(player, name, loadedAuth, context),
+            () -> {
+                // The account could not be loaded: restrict the player as if registered, /login retries the lookup
+                service.send(player, MessageKey.ERROR);
+                processJoinSync(player, true, context);
+            });
+    }
+
+    /**
+     * Continues the join process once the player's auth is available.
+     *
+     * @param player the player to process
+     * @param name the player's name (lowercase)
+     * @param auth the player's auth, or null if the player is not registered
+     * @param context the join context of the player, or null if not available
+     */
+    private void processJoinWithAuth(Player player, String name, PlayerAuth auth, JoinContext context) {
+        boolean isAuthAvailable = auth != null;
 
         if (isAuthAvailable) {
             // Protect inventory
@@ -134,12 +167,13 @@ public class AsynchronousJoin implements AsynchronousProcess {
             }
 
             // Session logic
-            if (sessionService.canResumeSession(player)) {
+            if (sessionService.canResumeSession(player, context)) {
                 service.send(player, MessageKey.SESSION_RECONNECTION);
                 // Run commands
                 bukkitService.scheduleSyncTaskFromOptionallyAsyncTask(
                     task -> commandManager.runCommandsOnSessionLogin(player));
-                bukkitService.runTaskOptionallyAsync(task -> asynchronousLogin.forceLogin(player, !settings.getProperty(PluginSettings.REMOVE_SESSIONS_LOGIN_MESSAGE), true));
+                bukkitService.runTaskOptionallyAsync(task -> asynchronousLogin.forceLogin(player, auth,
+                    !settings.getProperty(PluginSettings.REMOVE_SESSIONS_LOGIN_MESSAGE), true));
                 return;
             } else if (proxySessionManager.shouldResumeSession(name)) {
                 service.send(player, MessageKey.SESSION_RECONNECTION);
@@ -165,7 +199,7 @@ public class AsynchronousJoin implements AsynchronousProcess {
             return;
         }
 
-        processJoinSync(player, isAuthAvailable);
+        processJoinSync(player, isAuthAvailable, context);
     }
 
     private void handlePlayerWithUnmetNameRestriction(Player player, String ip) {
@@ -183,12 +217,17 @@ public class AsynchronousJoin implements AsynchronousProcess {
      *
      * @param player the player to process
      * @param isAuthAvailable true if the player is registered, false otherwise
+     * @param context the join context of the player, or null if not available
      */
-    private void processJoinSync(Player player, boolean isAuthAvailable) {
+    private void processJoinSync(Player player, boolean isAuthAvailable, JoinContext context) {
         int registrationTimeout = service.getProperty(RestrictionSettings.TIMEOUT) * TICKS_PER_SECOND;
+        // Read the stored limbo data here if it wasn't prefetched, so the player's thread doesn't wait for the disk
+        LimboPlayer limboFromDisk = context == null
+            ? limboService.loadPersistedLimboPlayer(player)
+            : context.getLimboFromDisk();
 
         bukkitService.scheduleSyncTaskFromOptionallyAsyncTask(task -> {
-            limboService.createLimboPlayer(player, isAuthAvailable);
+            limboService.createLimboPlayer(player, isAuthAvailable, limboFromDisk);
 
             player.setNoDamageTicks(registrationTimeout);
             if (pluginHookService.isEssentialsAvailable() && service.getProperty(HooksSettings.USE_ESSENTIALS_MOTD)) {
@@ -209,12 +248,13 @@ public class AsynchronousJoin implements AsynchronousProcess {
      *
      * @param player the player to verify
      * @param ip     the ip address of the player
+     * @param context the join context of the player, or null if not available
      *
      * @return true if the verification is OK (no infraction), false if player has been kicked
      */
-    private boolean validatePlayerCountForIp(Player player, String ip) {
+    private boolean validatePlayerCountForIp(Player player, String ip, JoinContext context) {
         if (service.getProperty(RestrictionSettings.MAX_JOIN_PER_IP) > 0
-            && !service.hasPermission(player, PlayerStatePermission.ALLOW_MULTIPLE_ACCOUNTS)
+            && !hasPermission(player, context, PlayerStatePermission.ALLOW_MULTIPLE_ACCOUNTS)
             && !InternetProtocolUtils.isLoopbackAddress(ip)
             && countOnlinePlayersByIp(ip) > service.getProperty(RestrictionSettings.MAX_JOIN_PER_IP)) {
 
@@ -225,6 +265,11 @@ public class AsynchronousJoin implements AsynchronousProcess {
         return true;
     }
 
+    private boolean hasPermission(Player player, JoinContext context, PlayerStatePermission permission) {
+        Boolean prefetched = context == null ? null : context.getPermission(permission);
+        return prefetched == null ? service.hasPermission(player, permission) : prefetched;
+    }
+
     private int countOnlinePlayersByIp(String ip) {
         int count = 0;
         for (Player player : bukkitService.getOnlinePlayers()) {
@@ -9,7 +9,7 @@ import fr.xephi.authme.data.captcha.LoginCaptchaManager;
 import fr.xephi.authme.data.limbo.LimboMessageType;
 import fr.xephi.authme.data.limbo.LimboPlayerState;
 import fr.xephi.authme.data.limbo.LimboService;
-import fr.xephi.authme.datasource.DataSource;
+import fr.xephi.authme.datasource.AsyncDataSource;
 import fr.xephi.authme.events.AuthMeAsyncPreLoginEvent;
 import fr.xephi.authme.events.FailedLoginEvent;
 import fr.xephi.authme.mail.EmailService;
@@ -24,6 +24,7 @@ import fr.xephi.authme.process.SyncProcessManager;
 import fr.xephi.authme.security.PasswordSecurity;
 import fr.xephi.authme.service.BukkitService;
 import fr.xephi.authme.service.CommonService;
+import fr.xephi.authme.service.IpHistoryService;
 import fr.xephi.authme.service.SessionService;
 import fr.xephi.authme.service.bungeecord.BungeeSender;
 import fr.xephi.authme.service.bungeecord.MessageType;
@@ -40,8 +41,11 @@ import org.bukkit.entity.Player;
 
 import javax.inject.Inject;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Asynchronous task for a player login.
@@ -51,7 +55,7 @@ public class AsynchronousLogin implements AsynchronousProcess {
     private final ConsoleLogger logger = ConsoleLoggerFactory.get(AsynchronousLogin.class);
 
     @Inject
-    private DataSource dataSource;
+    private AsyncDataSource asyncDataSource;
 
     @Inject
     private CommonService service;
@@ -89,6 +93,9 @@ public class AsynchronousLogin implements AsynchronousProcess {
     @Inject
     private BungeeSender bungeeSender;
 
+    @Inject
+    private IpHistoryService ipHistoryService;
+
     AsynchronousLogin() {
     }
 
@@ -99,16 +106,17 @@ public class AsynchronousLogin implements AsynchronousProcess {
      * @param password the password to log in with
      */
     public void login(Player player, String password) {
-        PlayerAuth auth = getPlayerAuth(player);
-        if (auth != null && checkPlayerInfo(player, auth, password)) {
-            if (auth.getTotpKey() != null) {
-                limboService.resetMessageTask(player, LimboMessageType.TOTP_CODE);
-                limboService.getLimboPlayer(player.getName()).setState(LimboPlayerState.TOTP_REQUIRED);
-                // TODO #1141: Check if we should check limbo state before processing password
-            } else {
-                performLogin(player, auth, false);
+        withPlayerAuth(player, false, null, auth -> {
+            if (checkPlayerInfo(player, auth, password)) {
+                if (auth.getTotpKey() != null) {
+                    limboService.resetMessageTask(player, LimboMessageType.TOTP_CODE);
+                    limboService.getLimboPlayer(player.getName()).setState(LimboPlayerState.TOTP_REQUIRED);
+                    // TODO #1141: Check if we should check limbo state before processing password
+                } else {
+                    performLogin(player, auth, false);
+                }
             }
-        }
+        });
     }
 
     /**
@@ -117,10 +125,7 @@ public class AsynchronousLogin implements AsynchronousProcess {
      * @param player the player to log in
      */
     public void forceLogin(Player player) {
-        PlayerAuth auth = getPlayerAuth(player);
-        if (auth != null) {
-            performLogin(player, auth, false);
-        }
+        withPlayerAuth(player, false, null, auth -> performLogin(player, auth, false));
     }
 
     /**
@@ -131,50 +136,76 @@ public class AsynchronousLogin implements AsynchronousProcess {
      * @param quiet if true no messages will be sent
      */
     public void forceLogin(Player player, boolean admin, boolean quiet) {
-        PlayerAuth auth = getPlayerAuth(player, quiet);
-        if (auth != null) {
-            performLogin(player, auth, !admin);
-        }
+        forceLogin(player, null, admin, quiet);
     }
 
     /**
-     * Checks the precondition for authentication (like user known) and returns
-     * the player's {@link PlayerAuth} object.
+     * Logs a player in without requiring a password, using the given auth instead of loading it again.
      *
-     * @param player the player to check
-     * @return the PlayerAuth object, or {@code null} if the player doesn't exist or may not log in
-     *         (e.g. because he is already logged in)
+     * @param player the player to log in
+     * @param prefetchedAuth the player's auth as already loaded from the data source, or null to load it
+     * @param admin if false no messages send to player
+     * @param quiet if true no messages will be sent
      */
-    private PlayerAuth getPlayerAuth(Player player) {
-        return getPlayerAuth(player, false);
+    public void forceLogin(Player player, PlayerAuth prefetchedAuth, boolean admin, boolean quiet) {
+        withPlayerAuth(player, quiet, prefetchedAuth, auth -> performLogin(player, auth, !admin));
     }
 
     /**
-     * Checks the precondition for authentication (like user known) and returns
-     * the player's {@link PlayerAuth} object.
+     * Loads the player's {@link PlayerAuth} object without blocking and runs the given action with it
+     * if the preconditions for authentication (like user known) are met.
      *
      * @param player the player to check
      * @param quiet don't send messages
-     * @return the PlayerAuth object, or {@code null} if the player doesn't exist or may not log in
-     *         (e.g. because he is already logged in)
+     * @param prefetchedAuth the player's auth if already loaded, or null to load it from the data source
+     * @param loginAction the action to run if the player may log in
      */
-    private PlayerAuth getPlayerAuth(Player player, boolean quiet) {
+    private void withPlayerAuth(Player player, boolean quiet, PlayerAuth prefetchedAuth,
+                                Consumer<PlayerAuth> loginAction) {
         String name = player.getName().toLowerCase(Locale.ROOT);
         if (playerCache.isAuthenticated(name)) {
             if (!quiet) {
                 service.send(player, MessageKey.ALREADY_LOGGED_IN_ERROR);
             }
-            return null;
+            return;
         }
 
-        PlayerAuth auth = dataSource.getAuth(name);
+        CompletableFuture<PlayerAuth> auth = prefetchedAuth == null
+            ? asyncDataSource.getAuth(name)
+            : CompletableFuture.completedFuture(prefetchedAuth);
+        CompletableFuture<Boolean> isIpLimitReached =
+            hasReachedMaxLoggedInPlayersForIp(player, PlayerUtils.getPlayerIp(player));
+        // Both futures are complete when the continuation runs, so joining them doesn't block
+        bukkitService.runTaskOptionallyAsyncWhenComplete(CompletableFuture.allOf(auth, isIpLimitReached), done -> {
+            PlayerAuth loadedAuth = auth.join();
+            if (canLogIn(player, quiet, loadedAuth, isIpLimitReached.join())) {
+                loginAction.accept(loadedAuth);
+            }
+        }, () -> {
+            if (!quiet) {
+                service.send(player, MessageKey.ERROR);
+            }
+        });
+    }
+
+    /**
+     * Checks the preconditions for authentication with the player's loaded auth.
+     *
+     * @param player the player to check
+     * @param quiet don't send messages
+     * @param auth the player's auth, or null if the player is not registered
+     * @param isIpLimitReached whether the maximum number of logged in players for the player's IP is reached
+     * @return true if the player may log in, false if the player doesn't exist or may not log in
+     *         (e.g. because he is already logged in)
+     */
+    private boolean canLogIn(Player player, boolean quiet, PlayerAuth auth, boolean isIpLimitReached) {
         if (auth == null) {
             if (!quiet) {
                 service.send(player, MessageKey.UNKNOWN_USER);
             }
             // Recreate the message task to immediately send the message again as response
             limboService.resetMessageTask(player, LimboMessageType.REGISTER);
-            return null;
+            return false;
         }
 
         if (!service.getProperty(DatabaseSettings.MYSQL_COL_GROUP).isEmpty()
@@ -182,24 +213,20 @@ public class AsynchronousLogin implements AsynchronousProcess {
             if (!quiet) {
                 service.send(player, MessageKey.ACCOUNT_NOT_ACTIVATED);
             }
-            return null;
+            return false;
         }
 
-        String ip = PlayerUtils.getPlayerIp(player);
-        if (hasReachedMaxLoggedInPlayersForIp(player, ip)) {
+        if (isIpLimitReached) {
             if (!quiet) {
                 service.send(player, MessageKey.ALREADY_LOGGED_IN_ERROR);
             }
-            return null;
+            return false;
         }
 
         boolean isAsync = service.getProperty(PluginSettings.USE_ASYNC_TASKS);
         AuthMeAsyncPreLoginEvent event = new AuthMeAsyncPreLoginEvent(player, isAsync);
         bukkitService.callEvent(event);
-        if (!event.canLogin()) {
-            return null;
-        }
-        return auth;
+        return event.canLogin();
     }
 
     /**
@@ -265,10 +292,12 @@ public class AsynchronousLogin implements AsynchronousProcess {
     }
 
     /**
-     * Sets the player to the logged in state.
+     * Sets the player to the logged in state. The data source calls are made in parallel; the player is only
+     * marked as logged in once they are done, so that a logout or quit in the meantime is not overwritten.
      *
      * @param player the player to log in
      * @param auth the associated PlayerAuth object
+     * @param quiet if true no login message is sent
      */
     public void performLogin(Player player, PlayerAuth auth, boolean quiet) {
         if (player.isOnline()) {
@@ -279,51 +308,91 @@ public class AsynchronousLogin implements AsynchronousProcess {
             auth.setRealName(player.getName());
             auth.setLastLogin(System.currentTimeMillis());
             auth.setLastIp(ip);
-            dataSource.updateSession(auth);
-
-            // TODO: send an update when a messaging service will be implemented (SESSION)
+            CompletableFuture<Boolean> sessionUpdate = asyncDataSource.updateSession(auth);
+            ipHistoryService.record(auth.getNickname(), ip);
+            CompletableFuture<List<String>> otherAccounts =
+                asyncDataSource.supply(() -> ipHistoryService.getAccountsByIp(ip));
 
             // Successful login, so reset the captcha & temp ban count
             String name = player.getName();
             loginCaptchaManager.resetLoginFailureCount(name);
             tempbanManager.resetCount(ip, name);
-            player.setNoDamageTicks(0);
 
-            if (!quiet)
-                service.send(player, MessageKey.LOGIN_SUCCESS);
-
-            // Other auths
-            List<String> auths = dataSource.getAllAuthsByIp(auth.getLastIp());
-            displayOtherAccounts(auths, player);
+            CompletableFuture<Void> loggedUpdate = asyncDataSource.setLogged(name);
+            CompletableFuture<Void> sessionGrant =
+                permissionsManager.hasPermission(player, PlayerStatePermission.NEVER_SESSION)
+                    ? CompletableFuture.completedFuture(null)
+                    : asyncDataSource.run(() -> sessionService.grantSession(name));
+
+            // Failures of the updates are logged and don't prevent the login; the other accounts are only shown
+            CompletableFuture<List<String>> loginUpdates = CompletableFuture
+                .allOf(sessionUpdate, loggedUpdate, sessionGrant)
+                .handle((result, failure) -> null)
+                .thenCombine(otherAccounts.exceptionally(failure -> Collections.emptyList()),
+                    (result, auths) -> auths);
+            bukkitService.runTaskOptionallyAsyncWhenComplete(loginUpdates,
+                auths -> completeLogin(player, auth, quiet, isFirstLogin, auths),
+                () -> service.send(player, MessageKey.ERROR));
+        } else {
+            logger.warning("Player '" + player.getName() + "' wasn't online during login process, aborted...");
+        }
+    }
 
-            String email = auth.getEmail();
-            if (service.getProperty(EmailSettings.RECALL_PLAYERS) && Utils.isEmailEmpty(email)) {
-                service.send(player, MessageKey.ADD_EMAIL_MESSAGE);
+    /**
+     * Completes the login once the data source has been updated.
+     *
+     * @param player the player who logged in
+     * @param auth the associated PlayerAuth object
+     * @param quiet if true no login message is sent
+     * @param isFirstLogin true if this is the player's first login
+     * @param auths the names of the accounts sharing the player's IP address
+     */
+    private void completeLogin(Player player, PlayerAuth auth, boolean quiet, boolean isFirstLogin,
+                               List<String> auths) {
+        String name = player.getName().toLowerCase(Locale.ROOT);
+        if (!player.isOnline()) {
+            // The quit process did not consider the player as logged in, so undo the login as it would have
+            logger.fine(player.getName() + " left before the login was completed");
+            asyncDataSource.setUnlogged(name);
+            if (!service.getProperty(PluginSettings.SESSIONS_ENABLED)) {
+                asyncDataSource.run(() -> sessionService.revokeSession(name));
             }
+            return;
+        } else if (playerCache.isAuthenticated(name)) {
+            // Logged in by another request in the meantime
+            return;
+        }
 
-            logger.fine(player.getName() + " logged in " + ip);
+        bungeeSender.sendCacheUpdate(MessageType.REFRESH_SESSION, player.getName());
+        player.setNoDamageTicks(0);
+        if (!quiet) {
+            service.send(player, MessageKey.LOGIN_SUCCESS);
+        }
+        logger.fine(player.getName() + " logged in " + auth.getLastIp());
 
-            // makes player loggedin
-            playerCache.updatePlayer(auth);
-            dataSource.setLogged(name);
-            if (!permissionsManager.hasPermission(player, PlayerStatePermission.NEVER_SESSION))
-                sessionService.grantSession(name);
+        // makes player loggedin
+        playerCache.updatePlayer(auth);
 
-            if (bungeeSender.isEnabled()) {
-                // As described at https://www.spigotmc.org/wiki/bukkit-bungee-plugin-messaging-channel/
-                // "Keep in mind that you can't send plugin messages directly after a player joins."
-                bukkitService.runTaskLater(player, task ->
-                    bungeeSender.sendAuthMeBungeecordMessage(player, MessageType.LOGIN), 5L);
-            }
+        // Other auths
+        displayOtherAccounts(auths, player);
 
-            // As the scheduling executes the Task most likely after the current
-            // task, we schedule it in the end
-            // so that we can be sure, and have not to care if it might be
-            // processed in other order.
-            syncProcessManager.processSyncPlayerLogin(player, isFirstLogin, auths);
-        } else {
-            logger.warning("Player '" + player.getName() + "' wasn't online during login process, aborted...");
+        String email = auth.getEmail();
+        if (service.getProperty(EmailSettings.RECALL_PLAYERS) && Utils.isEmailEmpty(email)) {
+            service.send(player, MessageKey.ADD_EMAIL_MESSAGE);
+        }
+
+        if (bungeeSender.isEnabled()) {
+            // As described at https://www.spigotmc.org/wiki/bukkit-bungee-plugin-messaging-channel/
+            // "Keep in mind that you can't send plugin messages directly after a player joins."
+            bukkitService.runTaskLater(player, task ->
+                bungeeSender.sendAuthMeBungeecordMessage(player, MessageType.LOGIN), 5L);
         }
+
+        // As the scheduling executes the Task most likely after the current
+        // task, we schedule it in the end
+        // so that we can be sure, and have not to care if it might be
+        // processed in other order.
+        syncProcessManager.processSyncPlayerLogin(player, isFirstLogin, auths);
     }
 
     /**
@@ -371,27 +440,28 @@ public class AsynchronousLogin implements AsynchronousProcess {
      *
      * @param player the player to process
      * @param ip the associated ip address
-     * @return true if the threshold has been reached, false otherwise
+     * @return future which is true if the threshold has been reached, false otherwise
      */
     @VisibleForTesting
-    boolean hasReachedMaxLoggedInPlayersForIp(Player player, String ip) {
+    CompletableFuture<Boolean> hasReachedMaxLoggedInPlayersForIp(Player player, String ip) {
         // Do not perform the check if player has multiple accounts permission or if IP is localhost
-        if (service.getProperty(RestrictionSettings.MAX_LOGIN_PER_IP) <= 0
+        int maxLoginsPerIp = service.getProperty(RestrictionSettings.MAX_LOGIN_PER_IP);
+        if (maxLoginsPerIp <= 0
             || service.hasPermission(player, PlayerStatePermission.ALLOW_MULTIPLE_ACCOUNTS)
             || InternetProtocolUtils.isLoopbackAddress(ip)) {
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
-        // Count logged in players with same IP address
+        // Count logged in players with same IP address, checking all of them in parallel
         String name = player.getName();
-        int count = 0;
+        List<CompletableFuture<Boolean>> loggedInChecks = new ArrayList<>();
         for (Player onlinePlayer : bukkitService.getOnlinePlayers()) {
             if (ip.equalsIgnoreCase(PlayerUtils.getPlayerIp(onlinePlayer))
-                && !onlinePlayer.getName().equals(name)
-                && dataSource.isLogged(onlinePlayer.getName().toLowerCase(Locale.ROOT))) {
-                ++count;
+                && !onlinePlayer.getName().equals(name)) {
+                loggedInChecks.add(asyncDataSource.isLogged(onlinePlayer.getName().toLowerCase(Locale.ROOT)));
             }
         }
-        return count >= service.getProperty(RestrictionSettings.MAX_LOGIN_PER_IP);
+        return CompletableFuture.allOf(loggedInChecks.toArray(new CompletableFuture<?>[0]))
+            .thenApply(done -> loggedInChecks.stream().filter(CompletableFuture::join).count() >= maxLoginsPerIp);
     }
 }
@@ -89,11 +89,10 @@ public class ProcessSyncPlayerLogin implements SynchronousProcess {
             restoreInventory(player);
         }
 
-        final PlayerAuth auth = playerCache.getAuth(name);
-
         if (isFirstLogin) { // Save quit location before login teleport
-            auth.setQuitLocation(player.getLocation());
+            playerCache.updatePlayer(name, cachedAuth -> cachedAuth.setQuitLocation(player.getLocation()));
         }
+        final PlayerAuth auth = playerCache.getAuth(name);
 
         teleportationService.teleportOnLogin(player, auth, limbo);
 
@@ -3,6 +3,7 @@ package fr.xephi.authme.process.logout;
 import fr.xephi.authme.data.VerificationCodeManager;
 import fr.xephi.authme.data.auth.PlayerAuth;
 import fr.xephi.authme.data.auth.PlayerCache;
+import fr.xephi.authme.data.limbo.LimboService;
 import fr.xephi.authme.datasource.DataSource;
 import fr.xephi.authme.message.MessageKey;
 import fr.xephi.authme.process.AsynchronousProcess;
@@ -43,6 +44,9 @@ public class AsynchronousLogout implements AsynchronousProcess {
     @Inject
     private BungeeSender bungeeSender;
 
+    @Inject
+    private LimboService limboService;
+
     AsynchronousLogout() {
     }
 
@@ -60,11 +64,11 @@ public class AsynchronousLogout implements AsynchronousProcess {
 
         PlayerAuth auth = playerCache.getAuth(name);
         database.updateSession(auth);
-        // TODO: send an update when a messaging service will be implemented (SESSION)
+        bungeeSender.sendCacheUpdate(MessageType.REFRESH_SESSION, name);
         if (service.getProperty(RestrictionSettings.SAVE_QUIT_LOCATION)) {
             auth.setQuitLocation(player.getLocation());
             database.updateQuitLoc(auth);
-            // TODO: send an update when a messaging service will be implemented (QUITLOC)
+            bungeeSender.sendCacheUpdate(MessageType.REFRESH_QUITLOC, name);
         }
 
         playerCache.removePlayer(name);
@@ -72,6 +76,6 @@ public class AsynchronousLogout implements AsynchronousProcess {
         database.setUnlogged(name);
         sessionService.revokeSession(name);
         bungeeSender.sendAuthMeBungeecordMessage(player, MessageType.LOGOUT);
-        syncProcessManager.processSyncPlayerLogout(player);
+        syncProcessManager.processSyncPlayerLogout(player, limboService.loadPersistedLimboPlayer(player));
     }
 }
@@ -1,6 +1,7 @@
 package fr.xephi.authme.process.logout;
 
 import fr.xephi.authme.ConsoleLogger;
+import fr.xephi.authme.data.limbo.LimboPlayer;
 import fr.xephi.authme.data.limbo.LimboService;
 import fr.xephi.authme.events.LogoutEvent;
 import fr.xephi.authme.listener.protocollib.ProtocolLibService;
@@ -49,13 +50,14 @@ public class ProcessSyncPlayerLogout implements SynchronousProcess {
      * Processes a player which has been logged out.
      *
      * @param player the player logging out
+     * @param limboFromDisk the limbo player stored on disk for the player (null if none)
      */
-    public void processSyncLogout(Player player) {
+    public void processSyncLogout(Player player, LimboPlayer limboFromDisk) {
         if (service.getProperty(RestrictionSettings.PROTECT_INVENTORY_BEFORE_LOGIN)) {
             protocolLibService.sendBlankInventoryPacket(player);
         }
 
-        applyLogoutEffect(player);
+        applyLogoutEffect(player, limboFromDisk);
         commandManager.runCommandsOnLogout(player);
 
         // Player is now logout... Time to fire event !
@@ -65,7 +67,7 @@ public class ProcessSyncPlayerLogout implements SynchronousProcess {
         logger.info(player.getName() + " logged out");
     }
 
-    private void applyLogoutEffect(Player player) {
+    private void applyLogoutEffect(Player player, LimboPlayer limboFromDisk) {
         // dismount player
         player.leaveVehicle();
         teleportationService.teleportOnJoin(player);
@@ -77,7 +79,7 @@ public class ProcessSyncPlayerLogout implements SynchronousProcess {
         }
 
         // Set player's data to unauthenticated
-        limboService.createLimboPlayer(player, true);
+        limboService.createLimboPlayer(player, true, limboFromDisk);
     }
 
 }
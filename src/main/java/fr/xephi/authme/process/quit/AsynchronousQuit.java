@@ -8,6 +8,8 @@ import fr.xephi.authme.datasource.DataSource;
 import fr.xephi.authme.process.AsynchronousProcess;
 import fr.xephi.authme.process.SyncProcessManager;
 import fr.xephi.authme.service.CommonService;
+import fr.xephi.authme.service.bungeecord.BungeeSender;
+import fr.xephi.authme.service.bungeecord.MessageType;
 import fr.xephi.authme.service.SessionService;
 import fr.xephi.authme.service.ValidationService;
 import fr.xephi.authme.settings.SpawnLoader;
@@ -52,6 +54,9 @@ public class AsynchronousQuit implements AsynchronousProcess {
     @Inject
     private SessionService sessionService;
 
+    @Inject
+    private BungeeSender bungeeSender;
+
     AsynchronousQuit() {
     }
 
@@ -74,6 +79,7 @@ public class AsynchronousQuit implements AsynchronousProcess {
                     .name(name).location(loc)
                     .realName(player.getName()).build();
                 database.updateQuitLoc(auth);
+                bungeeSender.sendCacheUpdate(MessageType.REFRESH_QUITLOC, name);
             }
 
             String ip = PlayerUtils.getPlayerIp(player);
@@ -84,8 +90,7 @@ public class AsynchronousQuit implements AsynchronousProcess {
                 .lastLogin(System.currentTimeMillis())
                 .build();
             database.updateSession(auth);
-
-            // TODO: send an update when a messaging service will be implemented (QUITLOC)
+            bungeeSender.sendCacheUpdate(MessageType.REFRESH_SESSION, name);
         }
 
         //always unauthenticate the player - use session only for auto logins on the same ip
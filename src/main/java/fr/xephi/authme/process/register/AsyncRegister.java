@@ -3,7 +3,7 @@ package fr.xephi.authme.process.register;
 import ch.jalu.injector.factory.SingletonStore;
 import fr.xephi.authme.data.auth.PlayerAuth;
 import fr.xephi.authme.data.auth.PlayerCache;
-import fr.xephi.authme.datasource.DataSource;
+import fr.xephi.authme.datasource.AsyncDataSource;
 import fr.xephi.authme.events.AuthMeAsyncPreRegisterEvent;
 import fr.xephi.authme.message.MessageKey;
 import fr.xephi.authme.process.AsynchronousProcess;
@@ -12,6 +12,9 @@ import fr.xephi.authme.process.register.executors.RegistrationMethod;
 import fr.xephi.authme.process.register.executors.RegistrationParameters;
 import fr.xephi.authme.service.BukkitService;
 import fr.xephi.authme.service.CommonService;
+import fr.xephi.authme.service.IpHistoryService;
+import fr.xephi.authme.service.bungeecord.BungeeSender;
+import fr.xephi.authme.service.bungeecord.MessageType;
 import fr.xephi.authme.settings.properties.RegistrationSettings;
 import fr.xephi.authme.settings.properties.RestrictionSettings;
 import fr.xephi.authme.util.InternetProtocolUtils;
@@ -21,6 +24,7 @@ import org.bukkit.entity.Player;
 import javax.inject.Inject;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 
 import static fr.xephi.authme.permission.PlayerStatePermission.ALLOW_MULTIPLE_ACCOUNTS;
 
@@ -30,7 +34,7 @@ import static fr.xephi.authme.permission.PlayerStatePermission.ALLOW_MULTIPLE_AC
 public class AsyncRegister implements AsynchronousProcess {
 
     @Inject
-    private DataSource database;
+    private AsyncDataSource asyncDataSource;
     @Inject
     private PlayerCache playerCache;
     @Inject
@@ -39,6 +43,10 @@ public class AsyncRegister implements AsynchronousProcess {
     private CommonService service;
     @Inject
     private SingletonStore<RegistrationExecutor> registrationExecutorFactory;
+    @Inject
+    private BungeeSender bungeeSender;
+    @Inject
+    private IpHistoryService ipHistoryService;
 
     AsyncRegister() {
     }
@@ -51,31 +59,43 @@ public class AsyncRegister implements AsynchronousProcess {
      * @param <P>        parameters type
      */
     public <P extends RegistrationParameters> void register(RegistrationMethod<P> variant, P parameters) {
-        if (preRegisterCheck(variant, parameters.getPlayer())) {
-            RegistrationExecutor<P> executor = registrationExecutorFactory.getSingleton(variant.getExecutorClass());
-            if (executor.isRegistrationAdmitted(parameters)) {
-                executeRegistration(parameters, executor);
-            }
+        Player player = parameters.getPlayer();
+        String name = player.getName().toLowerCase(Locale.ROOT);
+        if (playerCache.isAuthenticated(name)) {
+            service.send(player, MessageKey.ALREADY_LOGGED_IN_ERROR);
+            return;
+        } else if (!service.getProperty(RegistrationSettings.IS_ENABLED)) {
+            service.send(player, MessageKey.REGISTRATION_DISABLED);
+            return;
         }
+
+        // Check the name and the IP address in parallel
+        CompletableFuture<Boolean> isNameTaken = asyncDataSource.isAuthAvailable(name);
+        CompletableFuture<List<String>> otherAccounts = variant == RegistrationMethod.API_REGISTRATION
+            ? CompletableFuture.completedFuture(null)
+            : getOtherAccountsIfLimited(player);
+        bukkitService.runTaskOptionallyAsyncWhenComplete(CompletableFuture.allOf(isNameTaken, otherAccounts), done -> {
+            if (preRegisterCheck(player, isNameTaken.join(), otherAccounts.join())) {
+                RegistrationExecutor<P> executor =
+                    registrationExecutorFactory.getSingleton(variant.getExecutorClass());
+                if (executor.isRegistrationAdmitted(parameters)) {
+                    executeRegistration(parameters, executor);
+                }
+            }
+        }, () -> service.send(player, MessageKey.ERROR));
     }
 
     /**
      * Checks if the player is able to register, in that case the {@link AuthMeAsyncPreRegisterEvent} is invoked.
      *
-     * @param variant the registration type variant.
-     * @param player  the player which is trying to register.
+     * @param player        the player which is trying to register.
+     * @param isNameTaken   whether the player's name is already registered.
+     * @param otherAccounts the accounts sharing the player's IP address, or null if not limited.
      *
      * @return true if the checks are successful and the event hasn't marked the action as denied, false otherwise.
      */
-    private boolean preRegisterCheck(RegistrationMethod<?> variant, Player player) {
-        String name = player.getName().toLowerCase(Locale.ROOT);
-        if (playerCache.isAuthenticated(name)) {
-            service.send(player, MessageKey.ALREADY_LOGGED_IN_ERROR);
-            return false;
-        } else if (!service.getProperty(RegistrationSettings.IS_ENABLED)) {
-            service.send(player, MessageKey.REGISTRATION_DISABLED);
-            return false;
-        } else if (database.isAuthAvailable(name)) {
+    private boolean preRegisterCheck(Player player, boolean isNameTaken, List<String> otherAccounts) {
+        if (isNameTaken) {
             service.send(player, MessageKey.NAME_ALREADY_REGISTERED);
             return false;
         }
@@ -86,7 +106,7 @@ public class AsyncRegister implements AsynchronousProcess {
             return false;
         }
 
-        return variant == RegistrationMethod.API_REGISTRATION || isPlayerIpAllowedToRegister(player);
+        return otherAccounts == null || isPlayerIpAllowedToRegister(player, otherAccounts);
     }
 
     /**
@@ -99,32 +119,50 @@ public class AsyncRegister implements AsynchronousProcess {
     private <P extends RegistrationParameters>
     void executeRegistration(P parameters, RegistrationExecutor<P> executor) {
         PlayerAuth auth = executor.buildPlayerAuth(parameters);
-        if (database.saveAuth(auth)) {
-            executor.executePostPersistAction(parameters);
-        } else {
-            service.send(parameters.getPlayer(), MessageKey.ERROR);
-        }
+        CompletableFuture<Boolean> isSaved = asyncDataSource.saveAuth(auth).exceptionally(failure -> false);
+        bukkitService.runTaskOptionallyAsyncWhenComplete(isSaved, saved -> {
+            if (saved) {
+                ipHistoryService.record(auth.getNickname(), auth.getRegistrationIp());
+                bungeeSender.sendCacheUpdate(MessageType.REFRESH, auth.getNickname());
+                executor.executePostPersistAction(parameters);
+            } else {
+                service.send(parameters.getPlayer(), MessageKey.ERROR);
+            }
+        }, () -> service.send(parameters.getPlayer(), MessageKey.ERROR));
     }
 
     /**
-     * Checks whether the registration threshold has been exceeded for the given player's IP address.
+     * Looks up the accounts sharing the given player's IP address if the number of registrations
+     * per IP address applies to the player.
      *
      * @param player the player to check
      *
-     * @return true if registration may take place, false otherwise (IP check failed)
+     * @return future with the names of the accounts, or with null if the registrations are not limited
      */
-    private boolean isPlayerIpAllowedToRegister(Player player) {
-        int maxRegPerIp = service.getProperty(RestrictionSettings.MAX_REGISTRATION_PER_IP);
+    private CompletableFuture<List<String>> getOtherAccountsIfLimited(Player player) {
         String ip = PlayerUtils.getPlayerIp(player);
-        if (maxRegPerIp > 0
+        if (service.getProperty(RestrictionSettings.MAX_REGISTRATION_PER_IP) > 0
             && !InternetProtocolUtils.isLoopbackAddress(ip)
             && !service.hasPermission(player, ALLOW_MULTIPLE_ACCOUNTS)) {
-            List<String> otherAccounts = database.getAllAuthsByIp(ip);
-            if (otherAccounts.size() >= maxRegPerIp) {
-                service.send(player, MessageKey.MAX_REGISTER_EXCEEDED, Integer.toString(maxRegPerIp),
-                    Integer.toString(otherAccounts.size()), String.join(", ", otherAccounts));
-                return false;
-            }
+            return asyncDataSource.supply(() -> ipHistoryService.getAccountsByIp(ip));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Checks whether the registration threshold has been exceeded for the given player's IP address.
+     *
+     * @param player        the player to check
+     * @param otherAccounts the accounts sharing the player's IP address
+     *
+     * @return true if registration may take place, false otherwise (IP check failed)
+     */
+    private boolean isPlayerIpAllowedToRegister(Player player, List<String> otherAccounts) {
+        int maxRegPerIp = service.getProperty(RestrictionSettings.MAX_REGISTRATION_PER_IP);
+        if (otherAccounts.size() >= maxRegPerIp) {
+            service.send(player, MessageKey.MAX_REGISTER_EXCEEDED, Integer.toString(maxRegPerIp),
+                Integer.toString(otherAccounts.size()), String.join(", ", otherAccounts));
+            return false;
         }
         return true;
     }
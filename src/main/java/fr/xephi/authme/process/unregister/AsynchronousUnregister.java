@@ -3,6 +3,7 @@ package fr.xephi.authme.process.unregister;
 import fr.xephi.authme.ConsoleLogger;
 import fr.xephi.authme.data.auth.PlayerAuth;
 import fr.xephi.authme.data.auth.PlayerCache;
+import fr.xephi.authme.data.limbo.LimboPlayer;
 import fr.xephi.authme.data.limbo.LimboService;
 import fr.xephi.authme.datasource.DataSource;
 import fr.xephi.authme.events.UnregisterByAdminEvent;
@@ -23,6 +24,7 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
 import javax.inject.Inject;
+import java.util.Set;
 
 import static fr.xephi.authme.service.BukkitService.TICKS_PER_SECOND;
 
@@ -110,6 +112,22 @@ public class AsynchronousUnregister implements AsynchronousProcess {
         }
     }
 
+    /**
+     * Unregisters all players who have never logged in, e.g. on startup. The accounts are removed from the
+     * data source in bulk; players who are online go through the regular post-unregister actions.
+     */
+    public void unregisterNeverLoggedInPlayers() {
+        Set<String> removedNames = dataSource.removeNeverLoggedInAuths();
+        for (String name : removedNames) {
+            Player player = bukkitService.getPlayerExact(name);
+            performPostUnregisterActions(name, player);
+            bukkitService.createAndCallEvent(isAsync -> new UnregisterByAdminEvent(player, name, isAsync, null));
+        }
+        if (!removedNames.isEmpty()) {
+            logger.info("Unregistered " + removedNames.size() + " players who had never logged in");
+        }
+    }
+
     /**
      * Process the post unregister actions. Makes the user status consistent.
      *
@@ -122,7 +140,7 @@ public class AsynchronousUnregister implements AsynchronousProcess {
         }
         playerCache.removePlayer(name);
 
-        // TODO: send an update when a messaging service will be implemented (UNREGISTER)
+        bungeeSender.sendCacheUpdate(MessageType.UNREGISTER, name);
 
         if (player == null || !player.isOnline()) {
             return;
@@ -133,8 +151,9 @@ public class AsynchronousUnregister implements AsynchronousProcess {
         if (service.getProperty(RegistrationSettings.FORCE)) {
             teleportationService.teleportOnJoin(player);
 
+            LimboPlayer limboFromDisk = limboService.loadPersistedLimboPlayer(player);
             bukkitService.scheduleSyncTaskFromOptionallyAsyncTask(task -> {
-                limboService.createLimboPlayer(player, false);
+                limboService.createLimboPlayer(player, false, limboFromDisk);
                 applyBlindEffect(player);
             });
         }
@@ -0,0 +1,70 @@
+package fr.xephi.authme.security;
+
+import fr.xephi.authme.security.crypts.AdjustableCostMethod;
+
+/**
+ * Chooses the cost of an {@link AdjustableCostMethod} by measuring how long hashing takes on this machine.
+ */
+final class HashCostCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "Calibration-Password1";
+    private static final String SAMPLE_NAME = "calibration";
+    private static final int MEASUREMENTS = 3;
+
+    private HashCostCalibrator() {
+    }
+
+    /**
+     * Returns the highest cost with which hashing takes at most the given time, and at least the minimum
+     * cost of the method. Changes the cost of the method while measuring.
+     *
+     * @param method the method to calibrate
+     * @param maxNanos the maximum time hashing may take, in nanoseconds
+     * @return the calibrated cost
+     */
+    static int calibrate(AdjustableCostMethod method, long maxNanos) {
+        int minimumCost = method.getMinimumCost();
+        double nanosPerWork = measure(method, minimumCost) / method.getRelativeWork(minimumCost);
+        int cost = findHighestCost(method, nanosPerWork, maxNanos);
+        if (cost > minimumCost) {
+            // The time isn't exactly proportional to the work, so correct the estimate at the chosen cost
+            nanosPerWork = measure(method, cost) / method.getRelativeWork(cost);
+            cost = findHighestCost(method, nanosPerWork, maxNanos);
+        }
+        return cost;
+    }
+
+    /**
+     * Measures how long hashing with the given cost takes.
+     *
+     * @param method the method to measure
+     * @param cost the cost to hash with
+     * @return the fastest of a few measurements, in nanoseconds
+     */
+    static long measure(AdjustableCostMethod method, int cost) {
+        method.setCost(cost);
+        // Warm-up
+        method.computeHash(SAMPLE_PASSWORD, SAMPLE_NAME);
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < MEASUREMENTS; ++i) {
+            long start = System.nanoTime();
+            method.computeHash(SAMPLE_PASSWORD, SAMPLE_NAME);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        return fastest;
+    }
+
+    private static int findHighestCost(AdjustableCostMethod method, double nanosPerWork, long maxNanos) {
+        int low = method.getMinimumCost();
+        int high = method.getMaximumCost();
+        while (low < high) {
+            int middle = low + (high - low + 1) / 2;
+            if (nanosPerWork * method.getRelativeWork(middle) <= maxNanos) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+}
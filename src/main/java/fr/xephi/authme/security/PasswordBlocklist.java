@@ -0,0 +1,248 @@
+package fr.xephi.authme.security;
+
+import com.google.common.primitives.Longs;
+import fr.xephi.authme.ConsoleLogger;
+import fr.xephi.authme.initialization.DataFolder;
+import fr.xephi.authme.initialization.SettingsDependent;
+import fr.xephi.authme.output.ConsoleLoggerFactory;
+import fr.xephi.authme.settings.Settings;
+import fr.xephi.authme.settings.properties.SecuritySettings;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * List of passwords known from data breaches, which may not be used.
+ * <p>
+ * The list is a file with the sorted, unique first 8 bytes of the SHA-1 hash of each password, created with
+ * {@link PasswordBlocklistBuilder}. The file is mapped into memory read-only and searched with a binary search,
+ * so that even lists with hundreds of millions of passwords need almost no heap and answer within microseconds.
+ * Cutting the hashes to 8 bytes makes it unlikely for any password to be rejected wrongly, even for the
+ * largest lists.
+ * <p>
+ * A mapped file cannot be replaced on some systems, e.g. Windows, so the file is unmapped before it is
+ * replaced with a new list. A lock keeps it from being unmapped while it is being searched.
+ */
+public class PasswordBlocklist implements SettingsDependent {
+
+    /** Header at the start of a blocklist file, identifying its format. */
+    static final byte[] FILE_HEADER = "AMPWBL01".getBytes(StandardCharsets.US_ASCII);
+    static final int ENTRY_SIZE = Long.BYTES;
+    /** A buffer can map at most 2 GiB, so larger files are mapped in segments of 2^27 entries (1 GiB). */
+    private static final int SEGMENT_SHIFT = 27;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private final ConsoleLogger logger = ConsoleLoggerFactory.get(PasswordBlocklist.class);
+
+    private final File dataFolder;
+    private final ReadWriteLock unmapLock = new ReentrantReadWriteLock();
+    private volatile MappedEntries entries;
+
+    @Inject
+    PasswordBlocklist(@DataFolder File dataFolder, Settings settings) {
+        this.dataFolder = dataFolder;
+        reload(settings);
+    }
+
+    /**
+     * Returns whether the given password is on the blocklist. Always returns false if no blocklist is loaded.
+     *
+     * @param password the password to check (case-sensitive)
+     * @return true if the password is blocked, false otherwise
+     */
+    public boolean contains(String password) {
+        long entry = toEntry(password);
+        unmapLock.readLock().lock();
+        try {
+            MappedEntries current = entries;
+            return current != null && current.contains(entry);
+        } finally {
+            unmapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of entries of the loaded blocklist, 0 if no blocklist is loaded
+     */
+    public long getSize() {
+        MappedEntries current = entries;
+        return current == null ? 0 : current.size;
+    }
+
+    @Override
+    public void reload(Settings settings) {
+        File file = getFile(settings);
+        if (file == null || !file.isFile()) {
+            if (file != null) {
+                logger.debug("Password blocklist `{0}` does not exist, not checking passwords against it", file);
+            }
+            entries = null;
+            return;
+        }
+        try {
+            entries = MappedEntries.map(file.toPath());
+            logger.info("Loaded password blocklist with " + entries.size + " entries");
+        } catch (IOException e) {
+            logger.logException("Could not load the password blocklist '" + file + "':", e);
+            entries = null;
+        }
+    }
+
+    /**
+     * Creates the blocklist file from the given list with {@link PasswordBlocklistBuilder} and loads it. The
+     * current blocklist stays in use until the new file has been written.
+     *
+     * @param input the file with the passwords or hashes, one per line
+     * @param isHashList true if the input has SHA-1 hashes, false if it has plain passwords
+     * @param settings the settings
+     * @return the number of entries of the created blocklist
+     * @throws IOException if the input cannot be read, has an invalid hash, or the file cannot be written
+     */
+    public long create(Path input, boolean isHashList, Settings settings) throws IOException {
+        File file = getFile(settings);
+        if (file == null) {
+            throw new IllegalStateException("The password blocklist is disabled");
+        }
+        Path target = file.toPath();
+        Path newFile = Files.createTempFile(target.toAbsolutePath().getParent(), "blocklist", ".tmp");
+        try {
+            long size = PasswordBlocklistBuilder.build(input, isHashList, newFile);
+            unload();
+            Files.move(newFile, target, StandardCopyOption.REPLACE_EXISTING);
+            return size;
+        } finally {
+            Files.deleteIfExists(newFile);
+            // Loads the new file, or the previous one again if the new one could not be created
+            reload(settings);
+        }
+    }
+
+    /**
+     * Returns the blocklist file as configured in the settings.
+     *
+     * @param settings the settings
+     * @return the blocklist file, or null if the blocklist is disabled
+     */
+    public File getFile(Settings settings) {
+        String fileName = settings.getProperty(SecuritySettings.PASSWORD_BLOCKLIST_FILE);
+        return fileName.isEmpty() ? null : new File(dataFolder, fileName);
+    }
+
+    /**
+     * Unloads the blocklist and unmaps its file, waiting for running searches to finish.
+     */
+    private void unload() {
+        unmapLock.writeLock().lock();
+        try {
+            MappedEntries current = entries;
+            entries = null;
+            if (current != null) {
+                current.unmap();
+            }
+        } finally {
+            unmapLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the value stored in the blocklist for the given password.
+     *
+     * @param password the password
+     * @return the first 8 bytes of the password's SHA-1 hash
+     */
+    static long toEntry(String password) {
+        byte[] hash = HashUtils.getDigest(MessageDigestAlgorithm.SHA1)
+            .digest(password.getBytes(StandardCharsets.UTF_8));
+        return Longs.fromByteArray(hash);
+    }
+
+    /**
+     * The entries of a blocklist file, mapped into memory.
+     */
+    private static final class MappedEntries {
+
+        private final ByteBuffer[] segments;
+        private final long size;
+
+        private MappedEntries(ByteBuffer[] segments, long size) {
+            this.segments = segments;
+            this.size = size;
+        }
+
+        static MappedEntries map(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long dataLength = channel.size() - FILE_HEADER.length;
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER.length);
+                channel.read(header, 0);
+                if (dataLength < 0 || dataLength % ENTRY_SIZE != 0 || !Arrays.equals(header.array(), FILE_HEADER)) {
+                    throw new IOException("Not a password blocklist file; create it with /authme debug blocklist");
+                }
+
+                long size = dataLength / ENTRY_SIZE;
+                ByteBuffer[] segments = new ByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+                for (int i = 0; i < segments.length; ++i) {
+                    long firstEntry = (long) i << SEGMENT_SHIFT;
+                    long entries = Math.min(SEGMENT_MASK + 1L, size - firstEntry);
+                    // The mapping stays valid after the channel is closed
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        FILE_HEADER.length + firstEntry * ENTRY_SIZE, entries * ENTRY_SIZE);
+                }
+                return new MappedEntries(segments, size);
+            }
+        }
+
+        /**
+         * Releases the mapping of the file right away instead of when the buffers are garbage collected.
+         * There is no public API for this, so the internal one is used if available. The buffers may not be
+         * used anymore afterwards.
+         */
+        void unmap() {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+                unsafeField.setAccessible(true);
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                for (ByteBuffer segment : segments) {
+                    invokeCleaner.invoke(unsafeField.get(null), segment);
+                }
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // The file stays mapped until the buffers are garbage collected
+            }
+        }
+
+        boolean contains(long entry) {
+            long low = 0;
+            long high = size - 1;
+            while (low <= high) {
+                long middle = (low + high) >>> 1;
+                int comparison = Long.compareUnsigned(get(middle), entry);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private long get(long index) {
+            // Absolute reads don't change the buffer's state, so they are safe from multiple threads
+            return segments[(int) (index >>> SEGMENT_SHIFT)].getLong((int) (index & SEGMENT_MASK) * ENTRY_SIZE);
+        }
+    }
+}
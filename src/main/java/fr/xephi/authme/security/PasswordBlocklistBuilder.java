@@ -0,0 +1,173 @@
+package fr.xephi.authme.security;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.regex.Pattern;
+
+/**
+ * Writes the file of a {@link PasswordBlocklist} from a list of passwords.
+ * <p>
+ * The input is either a plain wordlist with one password per line, or a list of SHA-1 hashes with one
+ * hash per line, optionally followed by a colon and a count (the format of the "Pwned Passwords" downloads).
+ * Large lists are sorted in chunks which are written to temporary files and merged afterwards, so that the
+ * memory needed does not depend on the size of the list.
+ */
+final class PasswordBlocklistBuilder {
+
+    /** Number of entries sorted in memory at a time (32 MiB). */
+    private static final int CHUNK_ENTRIES = 1 << 22;
+    private static final Pattern SHA1_LINE = Pattern.compile("[0-9A-Fa-f]{40}(:\\d+)?");
+
+    private PasswordBlocklistBuilder() {
+    }
+
+    /**
+     * Writes a blocklist file from the given list. The temporary files are created in the folder of the output.
+     *
+     * @param input the file with the passwords or hashes, one per line
+     * @param isHashList true if the input has SHA-1 hashes, false if it has plain passwords
+     * @param output the file to write the blocklist to (replaced if it exists)
+     * @return the number of entries of the created blocklist
+     * @throws IOException if the input cannot be read, has an invalid hash, or the file cannot be written
+     */
+    static long build(Path input, boolean isHashList, Path output) throws IOException {
+        Path folder = output.toAbsolutePath().getParent();
+        List<Path> chunks = new ArrayList<>();
+        try {
+            writeSortedChunks(input, isHashList, folder, chunks);
+            return mergeChunks(chunks, output);
+        } finally {
+            for (Path chunk : chunks) {
+                Files.deleteIfExists(chunk);
+            }
+        }
+    }
+
+    private static void writeSortedChunks(Path input, boolean isHashList, Path folder,
+                                          List<Path> chunks) throws IOException {
+        long[] entries = new long[CHUNK_ENTRIES];
+        int count = 0;
+        // Invalid byte sequences are replaced: they cannot be typed as a password anyway
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(Files.newInputStream(input), StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                ++lineNumber;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                entries[count++] = isHashList ? parseHash(line, lineNumber) : PasswordBlocklist.toEntry(line);
+                if (count == entries.length) {
+                    chunks.add(writeChunk(entries, count, folder));
+                    count = 0;
+                }
+            }
+        }
+        if (count > 0 || chunks.isEmpty()) {
+            chunks.add(writeChunk(entries, count, folder));
+        }
+    }
+
+    private static long parseHash(String line, long lineNumber) throws IOException {
+        String hash = line.trim();
+        if (!SHA1_LINE.matcher(hash).matches()) {
+            // The line itself is not shown as it may be a password
+            throw new IOException("Invalid SHA-1 hash on line " + lineNumber);
+        }
+        return Long.parseUnsignedLong(hash.substring(0, 16), 16);
+    }
+
+    private static Path writeChunk(long[] entries, int count, Path folder) throws IOException {
+        // Sort in unsigned order: flipping the sign bit maps unsigned order onto signed order
+        for (int i = 0; i < count; ++i) {
+            entries[i] ^= Long.MIN_VALUE;
+        }
+        Arrays.sort(entries, 0, count);
+        Path chunk = Files.createTempFile(folder, "blocklist", ".chunk");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(chunk)))) {
+            for (int i = 0; i < count; ++i) {
+                out.writeLong(entries[i] ^ Long.MIN_VALUE);
+            }
+        }
+        return chunk;
+    }
+
+    private static long mergeChunks(List<Path> chunks, Path target) throws IOException {
+        PriorityQueue<ChunkReader> readers = new PriorityQueue<>(
+            (reader1, reader2) -> Long.compareUnsigned(reader1.current, reader2.current));
+        long size = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target)))) {
+            for (Path chunk : chunks) {
+                ChunkReader reader = new ChunkReader(chunk);
+                if (reader.next()) {
+                    readers.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+
+            out.write(PasswordBlocklist.FILE_HEADER);
+            long previous = 0;
+            while (!readers.isEmpty()) {
+                ChunkReader reader = readers.poll();
+                if (size == 0 || reader.current != previous) {
+                    out.writeLong(reader.current);
+                    previous = reader.current;
+                    ++size;
+                }
+                if (reader.next()) {
+                    readers.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+        } finally {
+            for (ChunkReader reader : readers) {
+                reader.close();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Reads the entries of a sorted chunk one by one.
+     */
+    private static final class ChunkReader implements Closeable {
+
+        private final DataInputStream in;
+        private long current;
+
+        ChunkReader(Path chunk) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(chunk)));
+        }
+
+        boolean next() throws IOException {
+            try {
+                current = in.readLong();
+                return true;
+            } catch (EOFException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
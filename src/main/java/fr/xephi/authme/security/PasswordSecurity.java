@@ -1,9 +1,15 @@
 package fr.xephi.authme.security;
 
 import ch.jalu.injector.factory.Factory;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import fr.xephi.authme.ConsoleLogger;
+import fr.xephi.authme.datasource.AsyncDataSource;
 import fr.xephi.authme.datasource.DataSource;
 import fr.xephi.authme.events.PasswordEncryptionEvent;
 import fr.xephi.authme.initialization.Reloadable;
+import fr.xephi.authme.metrics.MetricsRegistry;
+import fr.xephi.authme.output.ConsoleLoggerFactory;
+import fr.xephi.authme.security.crypts.AdjustableCostMethod;
 import fr.xephi.authme.security.crypts.EncryptionMethod;
 import fr.xephi.authme.security.crypts.HashedPassword;
 import fr.xephi.authme.settings.Settings;
@@ -13,27 +19,48 @@ import org.bukkit.plugin.PluginManager;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manager class for password-related operations.
  */
 public class PasswordSecurity implements Reloadable {
 
+    /** Threads of the hashing pool; hashing is CPU-bound, so there is no use in having more threads than cores. */
+    private static final int HASHING_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private final ConsoleLogger logger = ConsoleLoggerFactory.get(PasswordSecurity.class);
+
     @Inject
     private Settings settings;
 
     @Inject
     private DataSource dataSource;
 
+    @Inject
+    private AsyncDataSource asyncDataSource;
+
     @Inject
     private PluginManager pluginManager;
 
     @Inject
     private Factory<EncryptionMethod> encryptionMethodFactory;
 
+    @Inject
+    private MetricsRegistry metricsRegistry;
+
     private EncryptionMethod encryptionMethod;
     private Collection<HashAlgorithm> legacyAlgorithms;
+    private boolean rehashOnCostChange;
+    /** Calibrated costs by algorithm and time budget, so that reloads don't measure again. */
+    private final Map<String, Integer> calibratedCosts = new HashMap<>();
+    private final ThreadPoolExecutor hashingExecutor = createHashingExecutor();
 
     /**
      * Load or reload the configuration.
@@ -42,8 +69,40 @@ public class PasswordSecurity implements Reloadable {
     @Override
     public void reload() {
         HashAlgorithm algorithm = settings.getProperty(SecuritySettings.PASSWORD_HASH);
-        this.encryptionMethod = initializeEncryptionMethodWithEvent(algorithm);
+        EncryptionMethod method = initializeEncryptionMethodWithEvent(algorithm);
+        if (method instanceof AdjustableCostMethod && settings.getProperty(SecuritySettings.HASH_COST_CALIBRATION)) {
+            calibrateCost((AdjustableCostMethod) method, algorithm);
+        }
+        this.encryptionMethod = method;
         this.legacyAlgorithms = settings.getProperty(SecuritySettings.LEGACY_HASHES);
+        this.rehashOnCostChange = settings.getProperty(SecuritySettings.REHASH_ON_COST_CHANGE);
+    }
+
+    /**
+     * Sets the cost of the given method to the highest cost which fits the configured time budget
+     * on this machine.
+     *
+     * @param method the method to calibrate
+     * @param algorithm the algorithm of the method
+     */
+    private void calibrateCost(AdjustableCostMethod method, HashAlgorithm algorithm) {
+        long budgetMillis = settings.getProperty(SecuritySettings.HASH_COST_TARGET_MILLIS);
+        int peakLoginsPerSecond = settings.getProperty(SecuritySettings.HASH_COST_PEAK_LOGINS_PER_SECOND);
+        if (peakLoginsPerSecond > 0) {
+            // All cores together must be able to check the passwords of the peak logins each second
+            budgetMillis = Math.min(budgetMillis, 1000L * HASHING_THREADS / peakLoginsPerSecond);
+        }
+        long budgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, budgetMillis));
+
+        Integer cost = calibratedCosts.get(algorithm + "/" + budgetNanos);
+        if (cost == null) {
+            cost = HashCostCalibrator.calibrate(method, budgetNanos);
+            calibratedCosts.put(algorithm + "/" + budgetNanos, cost);
+            logger.info("Calibrated the cost of " + algorithm + " to " + cost + " (hashing takes about "
+                + TimeUnit.NANOSECONDS.toMillis(HashCostCalibrator.measure(method, cost)) + " ms, budget "
+                + budgetMillis + " ms)");
+        }
+        method.setCost(cost);
     }
 
     /**
@@ -56,7 +115,12 @@ public class PasswordSecurity implements Reloadable {
      */
     public HashedPassword computeHash(String password, String playerName) {
         String playerLowerCase = playerName.toLowerCase(Locale.ROOT);
-        return encryptionMethod.computeHash(password, playerLowerCase);
+        long start = System.nanoTime();
+        try {
+            return encryptionMethod.computeHash(password, playerLowerCase);
+        } finally {
+            metricsRegistry.recordSince("security.hash.compute", start);
+        }
     }
 
     /**
@@ -73,7 +137,22 @@ public class PasswordSecurity implements Reloadable {
     }
 
     /**
-     * Check if the given password matches the given hashed password.
+     * Check without blocking if the given password matches the player's stored password. The password is
+     * loaded on the I/O threads of {@link AsyncDataSource} and compared on a bounded pool of hashing threads.
+     *
+     * @param password The password to check
+     * @param playerName The player to check for
+     *
+     * @return Future completed with true if the password is correct, false otherwise
+     */
+    public CompletableFuture<Boolean> comparePasswordAsync(String password, String playerName) {
+        return asyncDataSource.query(source -> source.getPassword(playerName))
+            .thenApplyAsync(hash -> hash != null && comparePassword(password, hash, playerName), hashingExecutor);
+    }
+
+    /**
+     * Check if the given password matches the given hashed password. If it does and the hash was created
+     * with another cost than the current one, the password is hashed again with the current cost and saved.
      *
      * @param password The password to check
      * @param hashedPassword The hashed password to check against
@@ -83,8 +162,16 @@ public class PasswordSecurity implements Reloadable {
      */
     public boolean comparePassword(String password, HashedPassword hashedPassword, String playerName) {
         String playerLowerCase = playerName.toLowerCase(Locale.ROOT);
-        return methodMatches(encryptionMethod, password, hashedPassword, playerLowerCase)
-            || compareWithLegacyHashes(password, hashedPassword, playerLowerCase);
+        long start = System.nanoTime();
+        try {
+            if (methodMatches(encryptionMethod, password, hashedPassword, playerLowerCase)) {
+                rehashIfCostChanged(password, hashedPassword, playerLowerCase);
+                return true;
+            }
+            return compareWithLegacyHashes(password, hashedPassword, playerLowerCase);
+        } finally {
+            metricsRegistry.recordSince("security.hash.compare", start);
+        }
     }
 
     /**
@@ -109,6 +196,23 @@ public class PasswordSecurity implements Reloadable {
         return false;
     }
 
+    /**
+     * Replaces the stored hash of the password if it was created with another cost than the current one.
+     * Done right away rather than in the background, so that it cannot overwrite a password change.
+     *
+     * @param password       The clear-text password which matched the hash
+     * @param hashedPassword The stored hash
+     * @param playerName     The name of the player
+     */
+    private void rehashIfCostChanged(String password, HashedPassword hashedPassword, String playerName) {
+        EncryptionMethod method = encryptionMethod;
+        if (rehashOnCostChange && method instanceof AdjustableCostMethod
+            && ((AdjustableCostMethod) method).hasOtherCost(hashedPassword)) {
+            hashAndSavePasswordWithNewAlgorithm(password, playerName);
+            logger.debug("Rehashed the password of `{0}` with the current cost", playerName);
+        }
+    }
+
     /**
      * Verify with the given encryption method whether the password matches the hash after checking that
      * the method can be called safely with the given data.
@@ -161,4 +265,15 @@ public class PasswordSecurity implements Reloadable {
         dataSource.updatePassword(playerName, hashedPassword);
     }
 
+    private static ThreadPoolExecutor createHashingExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(HASHING_THREADS, HASHING_THREADS, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("AuthMe-Hashing-%d")
+                .build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
 }
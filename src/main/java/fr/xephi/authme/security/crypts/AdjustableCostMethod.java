@@ -0,0 +1,48 @@
+package fr.xephi.authme.security.crypts;
+
+/**
+ * Encryption method with a cost (work factor) which can be adjusted, e.g. by the hash cost calibration.
+ * Hashes are always created with the current cost; hashes with another cost can still be verified.
+ */
+public interface AdjustableCostMethod extends EncryptionMethod {
+
+    /**
+     * @return the cost new hashes are created with
+     */
+    int getCost();
+
+    /**
+     * Sets the cost new hashes are created with.
+     *
+     * @param cost the cost, between {@link #getMinimumCost()} and {@link #getMaximumCost()}
+     */
+    void setCost(int cost);
+
+    /**
+     * @return the lowest cost which is considered safe
+     */
+    int getMinimumCost();
+
+    /**
+     * @return the highest cost supported
+     */
+    int getMaximumCost();
+
+    /**
+     * Returns the work of hashing with the given cost, relative to other costs: hashing with a cost of twice
+     * the relative work takes about twice as long.
+     *
+     * @param cost the cost
+     * @return the relative work of the cost
+     */
+    double getRelativeWork(int cost);
+
+    /**
+     * Returns whether the given hash was created with parameters which differ from the current cost,
+     * i.e. whether it should be replaced by a new hash of the password.
+     *
+     * @param hashedPassword the hash to check
+     * @return true if the hash has another cost, false if it has the current cost or if the cost cannot be read
+     */
+    boolean hasOtherCost(HashedPassword hashedPassword);
+}
@@ -9,15 +9,26 @@ import fr.xephi.authme.security.crypts.description.Recommendation;
 import fr.xephi.authme.security.crypts.description.SaltType;
 import fr.xephi.authme.security.crypts.description.Usage;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 @Recommendation(Usage.RECOMMENDED)
 @HasSalt(value = SaltType.TEXT, length = Argon2Constants.DEFAULT_SALT_LENGTH)
 // Note: Argon2 is actually a salted algorithm but salt generation is handled internally
 // and isn't exposed to the outside, so we treat it as an unsalted implementation
-public class Argon2 extends UnsaltedMethod {
+public class Argon2 extends UnsaltedMethod implements AdjustableCostMethod {
+
+    /** Memory used per hash in KiB. */
+    private static final int MEMORY = 65536;
+    private static final int PARALLELISM = 1;
+    private static final int DEFAULT_ITERATIONS = 2;
+    private static final int MAXIMUM_ITERATIONS = 100;
+    private static final Pattern PARAMETERS_PATTERN = Pattern.compile("\\$m=(\\d{1,9}),t=(\\d{1,9}),p=(\\d{1,9})\\$");
 
     private static ConsoleLogger logger = ConsoleLoggerFactory.get(Argon2.class);
 
     private de.mkammerer.argon2.Argon2 argon2;
+    private volatile int iterations = DEFAULT_ITERATIONS;
 
     public Argon2() {
         argon2 = Argon2Factory.create();
@@ -41,11 +52,47 @@ public class Argon2 extends UnsaltedMethod {
 
     @Override
     public String computeHash(String password) {
-        return argon2.hash(2, 65536, 1, password);
+        return argon2.hash(iterations, MEMORY, PARALLELISM, password);
     }
 
     @Override
     public boolean comparePassword(String password, HashedPassword hashedPassword, String name) {
         return argon2.verify(hashedPassword.getHash(), password);
     }
+
+    @Override
+    public int getCost() {
+        return iterations;
+    }
+
+    @Override
+    public void setCost(int cost) {
+        this.iterations = cost;
+    }
+
+    @Override
+    public int getMinimumCost() {
+        return DEFAULT_ITERATIONS;
+    }
+
+    @Override
+    public int getMaximumCost() {
+        return MAXIMUM_ITERATIONS;
+    }
+
+    @Override
+    public double getRelativeWork(int cost) {
+        return cost;
+    }
+
+    @Override
+    public boolean hasOtherCost(HashedPassword hashedPassword) {
+        Matcher matcher = PARAMETERS_PATTERN.matcher(hashedPassword.getHash());
+        if (!matcher.find()) {
+            return false;
+        }
+        return Integer.parseInt(matcher.group(1)) != MEMORY
+            || Integer.parseInt(matcher.group(2)) != iterations
+            || Integer.parseInt(matcher.group(3)) != PARALLELISM;
+    }
 }
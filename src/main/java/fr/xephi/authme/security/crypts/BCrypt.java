@@ -9,15 +9,57 @@ import javax.inject.Inject;
 /**
  * BCrypt hash algorithm with configurable cost factor.
  */
-public class BCrypt extends BCryptBasedHash {
+public class BCrypt extends BCryptBasedHash implements AdjustableCostMethod {
+
+    private static final int MINIMUM_COST = 10;
+    private static final int MAXIMUM_COST = 31;
+
+    private final BCryptHasher bCryptHasher;
 
     @Inject
     public BCrypt(Settings settings) {
-        super(createHasher(settings));
+        this(createHasher(settings));
+    }
+
+    private BCrypt(BCryptHasher bCryptHasher) {
+        super(bCryptHasher);
+        this.bCryptHasher = bCryptHasher;
     }
 
     private static BCryptHasher createHasher(Settings settings) {
         int bCryptLog2Rounds = settings.getProperty(HooksSettings.BCRYPT_LOG2_ROUND);
         return new BCryptHasher(Version.VERSION_2A, bCryptLog2Rounds);
     }
+
+    @Override
+    public int getCost() {
+        return bCryptHasher.getCostFactor();
+    }
+
+    @Override
+    public void setCost(int cost) {
+        bCryptHasher.setCostFactor(cost);
+    }
+
+    @Override
+    public int getMinimumCost() {
+        return MINIMUM_COST;
+    }
+
+    @Override
+    public int getMaximumCost() {
+        return MAXIMUM_COST;
+    }
+
+    @Override
+    public double getRelativeWork(int cost) {
+        // The cost is the log2 of the number of rounds
+        return Math.pow(2, cost);
+    }
+
+    @Override
+    public boolean hasOtherCost(HashedPassword hashedPassword) {
+        Integer cost = BCryptHasher.getCostFactor(hashedPassword.getHash());
+        return cost != null && cost != getCost();
+    }
 }
@@ -1,6 +1,7 @@
 package fr.xephi.authme.security.crypts;
 
 import at.favre.lib.crypto.bcrypt.BCrypt;
+import com.google.common.primitives.Ints;
 import fr.xephi.authme.security.HashUtils;
 import fr.xephi.authme.util.RandomStringUtils;
 
@@ -17,7 +18,7 @@ public class BCryptHasher {
     public static final int SALT_LENGTH_ENCODED = 22;
 
     private final BCrypt.Hasher hasher;
-    private final int costFactor;
+    private volatile int costFactor;
 
     /**
      * Constructor.
@@ -30,6 +31,27 @@ public class BCryptHasher {
         this.costFactor = costFactor;
     }
 
+    public int getCostFactor() {
+        return costFactor;
+    }
+
+    public void setCostFactor(int costFactor) {
+        this.costFactor = costFactor;
+    }
+
+    /**
+     * Returns the cost factor of the given BCrypt hash.
+     *
+     * @param hash the hash to process
+     * @return the cost factor, or null if the hash is not a valid BCrypt hash
+     */
+    public static Integer getCostFactor(String hash) {
+        if (HashUtils.isValidBcryptHash(hash) && hash.charAt(6) == '$') {
+            return Ints.tryParse(hash.substring(4, 6));
+        }
+        return null;
+    }
+
     public HashedPassword hash(String password) {
         byte[] hash = hasher.hash(costFactor, password.getBytes(UTF_8));
         return new HashedPassword(new String(hash, UTF_8));
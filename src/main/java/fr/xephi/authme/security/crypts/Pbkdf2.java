@@ -14,11 +14,12 @@ import fr.xephi.authme.settings.properties.SecuritySettings;
 import javax.inject.Inject;
 
 @Recommendation(Usage.RECOMMENDED)
-public class Pbkdf2 extends HexSaltedMethod {
+public class Pbkdf2 extends HexSaltedMethod implements AdjustableCostMethod {
 
     private static final int DEFAULT_ROUNDS = 10_000;
+    private static final int MAXIMUM_ROUNDS = 10_000_000;
     private final ConsoleLogger logger = ConsoleLoggerFactory.get(Pbkdf2.class);
-    private int numberOfRounds;
+    private volatile int numberOfRounds;
 
     @Inject
     Pbkdf2(Settings settings) {
@@ -59,4 +60,36 @@ public class Pbkdf2 extends HexSaltedMethod {
         return 16;
     }
 
+    @Override
+    public int getCost() {
+        return numberOfRounds;
+    }
+
+    @Override
+    public void setCost(int cost) {
+        this.numberOfRounds = cost;
+    }
+
+    @Override
+    public int getMinimumCost() {
+        return DEFAULT_ROUNDS;
+    }
+
+    @Override
+    public int getMaximumCost() {
+        return MAXIMUM_ROUNDS;
+    }
+
+    @Override
+    public double getRelativeWork(int cost) {
+        return cost;
+    }
+
+    @Override
+    public boolean hasOtherCost(HashedPassword hashedPassword) {
+        String[] line = hashedPassword.getHash().split("\\$");
+        Integer iterations = line.length == 4 ? Ints.tryParse(line[1]) : null;
+        return iterations != null && iterations != numberOfRounds;
+    }
+
 }
@@ -1,51 +1,73 @@
 package fr.xephi.authme.service;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import fr.xephi.authme.ConsoleLogger;
+import fr.xephi.authme.datasource.DataSource;
 import fr.xephi.authme.datasource.DataSourceType;
 import fr.xephi.authme.initialization.DataFolder;
 import fr.xephi.authme.output.ConsoleLoggerFactory;
-import fr.xephi.authme.mail.EmailService;
 import fr.xephi.authme.settings.Settings;
 import fr.xephi.authme.settings.properties.BackupSettings;
-import fr.xephi.authme.settings.properties.DatabaseSettings;
 import fr.xephi.authme.util.FileUtils;
 import org.bukkit.command.CommandSender;
 
 import javax.inject.Inject;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.util.Locale;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 import static fr.xephi.authme.util.Utils.logAndSendMessage;
 import static fr.xephi.authme.util.Utils.logAndSendWarning;
 
 /**
  * Performs a backup of the data source.
+ * <p>
+ * Backups are made on a dedicated thread while the data source remains usable. They are first written to
+ * a temporary file, so files in the backup folder are always complete. Old backups are deleted as per the
+ * configured retention.
  */
 public class BackupService {
 
-    private final ConsoleLogger logger = ConsoleLoggerFactory.get(EmailService.class);
+    /** Maximum time to wait for a running backup when the plugin is disabled. */
+    private static final long SHUTDOWN_TIMEOUT_MINUTES = 5;
+    private static final String BACKUP_FILE_PREFIX = "backup";
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+    /** Name of the backup files written by {@link #constructBackupFile}, e.g. backup20240131_2359.sql.gz */
+    private static final Pattern BACKUP_FILE_NAME =
+        Pattern.compile(BACKUP_FILE_PREFIX + "\\d{8}_\\d{4}\\.(db|sql\\.gz)");
+
+    private final ConsoleLogger logger = ConsoleLoggerFactory.get(BackupService.class);
 
-    private final File dataFolder;
     private final File backupFolder;
     private final Settings settings;
-
+    private final DataSource dataSource;
+    private final ExecutorService backupExecutor;
 
     /**
      * Constructor.
      *
      * @param dataFolder the data folder
      * @param settings the plugin settings
+     * @param dataSource the data source
      */
     @Inject
-    public BackupService(@DataFolder File dataFolder, Settings settings) {
-        this.dataFolder = dataFolder;
+    public BackupService(@DataFolder File dataFolder, Settings settings, DataSource dataSource) {
         this.backupFolder = new File(dataFolder, "backups");
         this.settings = settings;
+        this.dataSource = dataSource;
+        this.backupExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("AuthMe-Backup")
+            .build());
     }
 
     /**
@@ -58,7 +80,8 @@ public class BackupService {
     }
 
     /**
-     * Performs a backup for the given reason.
+     * Starts a backup for the given reason. The backup is performed asynchronously; the result is
+     * logged and sent to the sender once it is done.
      *
      * @param cause backup reason
      * @param sender the command sender (nullable)
@@ -77,107 +100,84 @@ public class BackupService {
             return;
         }
 
-        // Do backup and check return value!
-        if (doBackup()) {
-            logAndSendMessage(sender,
-                "A backup has been performed successfully. Cause of the backup: " + cause.name());
-        } else {
-            logAndSendWarning(sender, "Error while performing a backup! Cause of the backup: " + cause.name());
-        }
-    }
-
-    private boolean doBackup() {
-        DataSourceType dataSourceType = settings.getProperty(DatabaseSettings.BACKEND);
-        switch (dataSourceType) {
-            case MYSQL:
-                return performMySqlBackup();
-            case SQLITE:
-                String dbName = settings.getProperty(DatabaseSettings.MYSQL_DATABASE);
-                return performFileBackup(dbName + ".db");
-            default:
-                logger.warning("Unknown data source type '" + dataSourceType + "' for backup");
+        try {
+            backupExecutor.execute(() -> {
+                // Do backup and check return value!
+                if (doBackup()) {
+                    logAndSendMessage(sender,
+                        "A backup has been performed successfully. Cause of the backup: " + cause.name());
+                    deleteOldBackups();
+                } else {
+                    logAndSendWarning(sender, "Error while performing a backup! Cause of the backup: " + cause.name());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logAndSendWarning(sender, "Can't perform a backup: AuthMe is shutting down. Cause: " + cause.name());
         }
-
-        return false;
     }
 
     /**
-     * Performs a backup for the MySQL data source.
-     *
-     * @return true if successful, false otherwise
+     * Waits for started backups to finish, for a limited time, and stops accepting new backups.
+     * Called when the plugin is disabled.
      */
-    private boolean performMySqlBackup() {
-        FileUtils.createDirectory(backupFolder);
-        File sqlBackupFile = constructBackupFile("sql");
-
-        String backupWindowsPath = settings.getProperty(BackupSettings.MYSQL_WINDOWS_PATH);
-        boolean isUsingWindows = useWindowsCommand(backupWindowsPath);
-        String backupCommand = isUsingWindows
-            ? backupWindowsPath + "\\bin\\mysqldump.exe" + buildMysqlDumpArguments(sqlBackupFile)
-            : "mysqldump" + buildMysqlDumpArguments(sqlBackupFile);
-
+    public void shutdown() {
+        backupExecutor.shutdown();
         try {
-            Process runtimeProcess = Runtime.getRuntime().exec(backupCommand);
-            int processComplete = runtimeProcess.waitFor();
-            if (processComplete == 0) {
-                logger.info("Backup created successfully. (Using Windows = " + isUsingWindows + ")");
-                return true;
-            } else {
-                logger.warning("Could not create the backup! (Using Windows = " + isUsingWindows + ")");
+            if (!backupExecutor.awaitTermination(SHUTDOWN_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                logger.warning("Backup did not finish within " + SHUTDOWN_TIMEOUT_MINUTES + " minutes; aborting it");
+                backupExecutor.shutdownNow();
             }
-        } catch (IOException | InterruptedException e) {
-            logger.logException("Error during backup (using Windows = " + isUsingWindows + "):", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        return false;
     }
 
-    private boolean performFileBackup(String filename) {
-        FileUtils.createDirectory(backupFolder);
-        File backupFile = constructBackupFile("db");
+    private boolean doBackup() {
+        if (!FileUtils.createDirectory(backupFolder)) {
+            return false;
+        }
+        DataSourceType dataSourceType = dataSource.getType();
+        String extension = dataSourceType == DataSourceType.SQLITE ? "db" : "sql.gz";
+        File backupFile = constructBackupFile(extension);
+        File temporaryFile = new File(backupFolder, backupFile.getName() + TEMPORARY_FILE_SUFFIX);
 
+        long start = System.currentTimeMillis();
         try {
-            copy(new File(dataFolder, filename), backupFile);
+            Files.deleteIfExists(temporaryFile.toPath());
+            dataSource.backup(temporaryFile);
+            Files.move(temporaryFile.toPath(), backupFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Backup of " + dataSourceType + " data source written to '" + backupFile.getName()
+                + "' in " + (System.currentTimeMillis() - start) + " ms");
             return true;
-        } catch (IOException ex) {
-            logger.logException("Encountered an error during file backup:", ex);
+        } catch (SQLException | IOException e) {
+            logger.logException("Encountered an error during backup:", e);
+        }
+        if (temporaryFile.exists() && !temporaryFile.delete()) {
+            logger.warning("Could not delete incomplete backup file '" + temporaryFile + "'");
         }
         return false;
     }
 
     /**
-     * Check if we are under Windows and correct location of mysqldump.exe
-     * otherwise return error.
-     *
-     * @param windowsPath The path to check
-     * @return True if the path is correct, false if it is incorrect or the OS is not Windows
+     * Deletes the oldest backups so that at most the configured number of backups remain.
      */
-    private boolean useWindowsCommand(String windowsPath) {
-        String isWin = System.getProperty("os.name").toLowerCase(Locale.ROOT);
-        if (isWin.contains("win")) {
-            if (new File(windowsPath + "\\bin\\mysqldump.exe").exists()) {
-                return true;
+    private void deleteOldBackups() {
+        int backupsToKeep = settings.getProperty(BackupSettings.MAX_BACKUPS);
+        // Other files in the folder, e.g. copied there by the admin, are left alone
+        File[] backups = backupFolder.listFiles(
+            file -> file.isFile() && BACKUP_FILE_NAME.matcher(file.getName()).matches());
+        if (backupsToKeep <= 0 || backups == null || backups.length <= backupsToKeep) {
+            return;
+        }
+
+        Arrays.sort(backups, Comparator.comparingLong(File::lastModified).reversed());
+        for (int i = backupsToKeep; i < backups.length; ++i) {
+            if (backups[i].delete()) {
+                logger.info("Deleted old backup '" + backups[i].getName() + "'");
             } else {
-                logger.warning("Mysql Windows Path is incorrect. Please check it");
-                return false;
+                logger.warning("Could not delete old backup '" + backups[i] + "'");
             }
         }
-        return false;
-    }
-
-    /**
-     * Builds the command line arguments to pass along when running the {@code mysqldump} command.
-     *
-     * @param sqlBackupFile the file to back up to
-     * @return the mysqldump command line arguments
-     */
-    private String buildMysqlDumpArguments(File sqlBackupFile) {
-        String dbUsername = settings.getProperty(DatabaseSettings.MYSQL_USERNAME);
-        String dbPassword = settings.getProperty(DatabaseSettings.MYSQL_PASSWORD);
-        String dbName     = settings.getProperty(DatabaseSettings.MYSQL_DATABASE);
-        String tableName  = settings.getProperty(DatabaseSettings.MYSQL_TABLE);
-
-        return " -u " + dbUsername + " -p" + dbPassword + " " + dbName
-            + " --tables " + tableName + " -r " + sqlBackupFile.getPath() + ".sql";
     }
 
     /**
@@ -188,19 +188,7 @@ public class BackupService {
      */
     private File constructBackupFile(String fileExtension) {
         String dateString = FileUtils.createCurrentTimeString();
-        return new File(backupFolder, "backup" + dateString + "." + fileExtension);
-    }
-
-    private static void copy(File src, File dst) throws IOException {
-        try (InputStream in = new FileInputStream(src);
-             OutputStream out = new FileOutputStream(dst)) {
-            // Transfer bytes from in to out
-            byte[] buf = new byte[1024];
-            int len;
-            while ((len = in.read(buf)) > 0) {
-                out.write(buf, 0, len);
-            }
-        }
+        return new File(backupFolder, BACKUP_FILE_PREFIX + dateString + "." + fileExtension);
     }
 
     /**
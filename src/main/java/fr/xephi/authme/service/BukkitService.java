@@ -5,9 +5,12 @@ import fr.euphyllia.energie.model.SchedulerCallBack;
 import fr.euphyllia.energie.model.SchedulerTaskInter;
 import fr.euphyllia.energie.model.SchedulerType;
 import fr.xephi.authme.AuthMe;
+import fr.xephi.authme.ConsoleLogger;
 import fr.xephi.authme.initialization.SettingsDependent;
+import fr.xephi.authme.output.ConsoleLoggerFactory;
 import fr.xephi.authme.settings.Settings;
 import fr.xephi.authme.settings.properties.PluginSettings;
+import fr.xephi.authme.util.VirtualThreads;
 import org.bukkit.BanEntry;
 import org.bukkit.BanList;
 import org.bukkit.Bukkit;
@@ -27,6 +30,12 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -39,12 +48,24 @@ public class BukkitService implements SettingsDependent {
     /** Number of ticks per minute. */
     public static final int TICKS_PER_MINUTE = 60 * TICKS_PER_SECOND;
 
+    /** Continuations of the task run by the current thread with {@link #runWithContinuations}, if any. */
+    private static final ThreadLocal<PendingContinuations> currentContinuations = new ThreadLocal<>();
+
+    private final ConsoleLogger logger = ConsoleLoggerFactory.get(BukkitService.class);
     private final AuthMe authMe;
+    /** Executor running the optionally asynchronous tasks on virtual threads; null if not used. */
+    private final ExecutorService virtualThreadExecutor;
     private boolean useAsyncTasks;
 
     @Inject
-    BukkitService(AuthMe authMe, Settings settings) {
+    protected BukkitService(AuthMe authMe, Settings settings) {
         this.authMe = authMe;
+        virtualThreadExecutor = settings.getProperty(PluginSettings.USE_VIRTUAL_THREADS)
+            ? VirtualThreads.newExecutorIfAvailable("AuthMe-Async-")
+            : null;
+        if (virtualThreadExecutor != null) {
+            logger.info("Running asynchronous tasks on virtual threads");
+        }
         reload(settings);
     }
 
@@ -129,15 +150,103 @@ public class BukkitService implements SettingsDependent {
     }
     /**
      * Schedules this task to run asynchronously or immediately executes it based on
-     * AuthMe's configuration.
+     * AuthMe's configuration. Asynchronous tasks run on a virtual thread if enabled and
+     * supported by the Java version; the task is then given no scheduler task.
      *
      * @param task the task to run
      */
     public void runTaskOptionallyAsync(SchedulerCallBack task) {
-        if (useAsyncTasks) {
+        if (!useAsyncTasks) {
+            runTask(null, task);
+        } else if (virtualThreadExecutor == null || virtualThreadExecutor.isShutdown()) {
             runTaskAsynchronously(task);
         } else {
-            runTask(null, task);
+            try {
+                virtualThreadExecutor.execute(() -> task.run(null));
+            } catch (RejectedExecutionException e) {
+                runTaskAsynchronously(task);
+            }
+        }
+    }
+
+    /**
+     * Waits for the asynchronous tasks running on virtual threads to finish, if virtual threads are used.
+     * To be called when the plugin is disabled, before the data source is closed.
+     */
+    public void shutdownVirtualThreads() {
+        if (virtualThreadExecutor == null) {
+            return;
+        }
+        virtualThreadExecutor.shutdown();
+        try {
+            if (!virtualThreadExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warning("Asynchronous tasks were still running on shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs the given task with the result of the given future once it is available, in the same way as
+     * {@link #runTaskOptionallyAsync(SchedulerCallBack)}. Lets a process wait for data source calls without
+     * blocking its thread. To be called from an optionally asynchronous task: if the future is already
+     * complete, the task is run right away on the current thread.
+     * <p>
+     * If the future fails, the failure task is run instead, so that the process can still respond to the player.
+     * The failure is not logged here: the calls of {@link fr.xephi.authme.datasource.AsyncDataSource} log their
+     * failures themselves.
+     *
+     * @param future the future to wait for
+     * @param task the task to run with the result
+     * @param failureTask the task to run if the future fails
+     * @param <T> the result type
+     */
+    public <T> void runTaskOptionallyAsyncWhenComplete(CompletableFuture<T> future, Consumer<T> task,
+                                                       Runnable failureTask) {
+        if (future.isDone() && !future.isCompletedExceptionally()) {
+            task.accept(future.join());
+            return;
+        }
+        PendingContinuations continuations = currentContinuations.get();
+        if (continuations != null) {
+            continuations.add();
+        }
+        future.whenComplete((result, failure) -> {
+            if (failure == null) {
+                runTaskOptionallyAsync(scheduledTask -> runContinuation(continuations, () -> task.accept(result)));
+            } else {
+                logger.debug("Running the failure task of an asynchronous task: {0}", failure.getMessage());
+                runTaskOptionallyAsync(scheduledTask -> runContinuation(continuations, failureTask));
+            }
+        });
+    }
+
+    /**
+     * Runs the given task on the current thread and runs the completion task once the task and all continuations
+     * it has passed to {@link #runTaskOptionallyAsyncWhenComplete}, and theirs in turn, have been run. This allows
+     * to tell when a process which waits for data source calls is done. The completion task is run on the thread
+     * which ran the last of them.
+     *
+     * @param task the task to run
+     * @param completionTask the task to run once the task and its continuations are done
+     */
+    public void runWithContinuations(Runnable task, Runnable completionTask) {
+        runContinuation(new PendingContinuations(completionTask), task);
+    }
+
+    private static void runContinuation(PendingContinuations continuations, Runnable task) {
+        if (continuations == null) {
+            task.run();
+            return;
+        }
+        PendingContinuations previous = currentContinuations.get();
+        currentContinuations.set(continuations);
+        try {
+            task.run();
+        } finally {
+            currentContinuations.set(previous);
+            continuations.done();
         }
     }
 
@@ -392,4 +501,27 @@ public class BukkitService implements SettingsDependent {
     public String getIp() {
         return Bukkit.getServer().getIp();
     }
+
+    /**
+     * Number of continuations of a task which have not been run yet, see {@link #runWithContinuations}.
+     */
+    private static final class PendingContinuations {
+
+        private final AtomicInteger count = new AtomicInteger(1);
+        private final Runnable completionTask;
+
+        PendingContinuations(Runnable completionTask) {
+            this.completionTask = completionTask;
+        }
+
+        void add() {
+            count.incrementAndGet();
+        }
+
+        void done() {
+            if (count.decrementAndGet() == 0) {
+                completionTask.run();
+            }
+        }
+    }
 }
@@ -0,0 +1,92 @@
+package fr.xephi.authme.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import fr.xephi.authme.ConsoleLogger;
+import fr.xephi.authme.initialization.HasCleanup;
+import fr.xephi.authme.output.ConsoleLoggerFactory;
+
+import javax.inject.Inject;
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Looks up the host names of IP addresses on background threads.
+ * <p>
+ * Reverse DNS lookups may take seconds with a slow resolver, so callers wait only up to a given time.
+ * Results are cached for a limited time, and concurrent lookups of the same address are combined.
+ */
+public class HostNameResolver implements HasCleanup {
+
+    private static final long CACHE_TIME_TO_LIVE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final int LOOKUP_THREADS = 2;
+
+    private final ConsoleLogger logger = ConsoleLoggerFactory.get(HostNameResolver.class);
+
+    private final Map<InetAddress, Lookup> lookups = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(LOOKUP_THREADS,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("AuthMe-HostNameResolver-%d").build());
+
+    @Inject
+    HostNameResolver() {
+    }
+
+    /**
+     * Starts looking up the host name of the given address, unless it is cached or already being looked up.
+     *
+     * @param address the address to look up
+     * @return future with the host name, or the textual IP address if the lookup failed
+     */
+    public CompletableFuture<String> resolve(InetAddress address) {
+        long now = System.currentTimeMillis();
+        return lookups.compute(address, (key, lookup) -> lookup == null || lookup.isExpired(now)
+            ? new Lookup(CompletableFuture.supplyAsync(address::getHostName, executor), now)
+            : lookup).future;
+    }
+
+    /**
+     * Returns the host name of the given address, waiting at most the given time for the lookup.
+     *
+     * @param address the address to look up
+     * @param timeoutMillis the maximum time to wait in milliseconds
+     * @return the host name, the textual IP address if the lookup failed, or null if it timed out
+     */
+    public String getHostName(InetAddress address, long timeoutMillis) {
+        try {
+            return resolve(address).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.debug("Host name lookup of `{0}` did not finish within {1} ms", address, timeoutMillis);
+        } catch (ExecutionException e) {
+            logger.logException("Could not look up host name of " + address.getHostAddress() + ":", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    @Override
+    public void performCleanup() {
+        long now = System.currentTimeMillis();
+        lookups.values().removeIf(lookup -> lookup.isExpired(now));
+    }
+
+    private static final class Lookup {
+        private final CompletableFuture<String> future;
+        private final long startedAt;
+
+        Lookup(CompletableFuture<String> future, long startedAt) {
+            this.future = future;
+            this.startedAt = startedAt;
+        }
+
+        boolean isExpired(long now) {
+            return future.isDone() && now - startedAt > CACHE_TIME_TO_LIVE_MILLIS;
+        }
+    }
+}
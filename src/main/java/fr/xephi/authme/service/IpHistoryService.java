@@ -0,0 +1,229 @@
+package fr.xephi.authme.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import fr.xephi.authme.ConsoleLogger;
+import fr.xephi.authme.datasource.DataSource;
+import fr.xephi.authme.datasource.IpHistoryEntry;
+import fr.xephi.authme.initialization.SettingsDependent;
+import fr.xephi.authme.output.ConsoleLoggerFactory;
+import fr.xephi.authme.settings.Settings;
+import fr.xephi.authme.settings.properties.DatabaseSettings;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static fr.xephi.authme.datasource.IpHistoryEntry.ADDRESS_KEY_LENGTH;
+import static fr.xephi.authme.datasource.IpHistoryEntry.IPV4_MAPPED_PREFIX_BITS;
+
+/**
+ * Finds the accounts which share an IP address, using the IP history of the data source if it is enabled.
+ * <p>
+ * Logins and registrations are collected and written to the data source in batches on a background thread.
+ * The results of recent lookups are kept in a small cache, so that e.g. many players joining from the same
+ * address don't each query the database.
+ */
+public class IpHistoryService implements SettingsDependent {
+
+    private static final long FLUSH_INTERVAL_SECONDS = 5;
+    /** Number of pending entries from which they are written right away instead of at the next interval. */
+    private static final int FLUSH_THRESHOLD = 100;
+    private static final int LOOKUP_CACHE_SIZE = 1000;
+    private static final long LOOKUP_CACHE_SECONDS = 60;
+    private static final int IPV4_NETWORK_PREFIX_BITS = IPV4_MAPPED_PREFIX_BITS + 24;
+    private static final int IPV6_NETWORK_PREFIX_BITS = 64;
+
+    private final ConsoleLogger logger = ConsoleLoggerFactory.get(IpHistoryService.class);
+
+    private final DataSource dataSource;
+    /** Entries not yet written to the data source, by address and name. */
+    private final Map<String, IpHistoryEntry> pendingEntries = new ConcurrentHashMap<>();
+    private final Cache<String, List<String>> recentLookups = CacheBuilder.newBuilder()
+        .maximumSize(LOOKUP_CACHE_SIZE)
+        .expireAfterWrite(LOOKUP_CACHE_SECONDS, TimeUnit.SECONDS)
+        .build();
+    private final AtomicBoolean isFlushScheduled = new AtomicBoolean();
+    /** Whether the last write failed, in which case the entries are retried at the next interval only. */
+    private volatile boolean hasFlushFailed;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("AuthMe-IpHistoryWriter").build());
+    private volatile boolean groupNetworks;
+
+    @Inject
+    IpHistoryService(DataSource dataSource, Settings settings) {
+        this.dataSource = dataSource;
+        reload(settings);
+    }
+
+    /**
+     * Records that the given account has used the given IP address. Does nothing if the data source
+     * doesn't keep an IP history.
+     *
+     * @param name the name of the account
+     * @param ip the IP address
+     */
+    public void record(String name, String ip) {
+        byte[] address = IpHistoryEntry.toAddressKey(ip);
+        if (address == null || !dataSource.hasIpHistory()) {
+            return;
+        }
+        IpHistoryEntry entry = new IpHistoryEntry(name, address, System.currentTimeMillis());
+        pendingEntries.put(toHex(address) + ':' + entry.getName(), entry);
+        recentLookups.invalidate(getLookupKey(address));
+        boolean isUrgent = pendingEntries.size() >= FLUSH_THRESHOLD && !hasFlushFailed;
+        if (isFlushScheduled.compareAndSet(false, true) || isUrgent) {
+            scheduleFlush(isUrgent ? 0 : FLUSH_INTERVAL_SECONDS);
+        }
+    }
+
+    /**
+     * Returns the names of the accounts which have used the given IP address, or an address in the same
+     * network if configured so. Without IP history, the accounts whose last IP is the given address are
+     * returned.
+     *
+     * @param ip the IP address
+     * @return names of the accounts (lowercase)
+     */
+    public List<String> getAccountsByIp(String ip) {
+        byte[] address = IpHistoryEntry.toAddressKey(ip);
+        if (address == null || !dataSource.hasIpHistory()) {
+            return dataSource.getAllAuthsByIp(ip);
+        }
+
+        int prefixLength = getPrefixLength(address);
+        byte[] from = applyPrefix(address, prefixLength, false);
+        byte[] to = applyPrefix(address, prefixLength, true);
+        List<String> storedNames;
+        try {
+            storedNames = recentLookups.get(getLookupKey(address), () -> dataSource.getNamesByIpHistory(from, to));
+        } catch (ExecutionException e) {
+            logger.logException("Could not look up the IP history of " + ip + ":", e);
+            storedNames = dataSource.getAllAuthsByIp(ip);
+        }
+
+        Set<String> names = new LinkedHashSet<>(storedNames);
+        for (IpHistoryEntry entry : pendingEntries.values()) {
+            if (Arrays.compareUnsigned(entry.getAddress(), from) >= 0
+                && Arrays.compareUnsigned(entry.getAddress(), to) <= 0) {
+                names.add(entry.getName());
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Writes the pending entries and stops the background thread. To be called when the plugin is disabled,
+     * before the data source is closed.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        if (!pendingEntries.isEmpty()) {
+            logger.warning("Could not save " + pendingEntries.size() + " entries of the IP history");
+        }
+    }
+
+    @Override
+    public void reload(Settings settings) {
+        groupNetworks = settings.getProperty(DatabaseSettings.IP_HISTORY_GROUP_NETWORKS);
+        recentLookups.invalidateAll();
+    }
+
+    private void flush() {
+        isFlushScheduled.set(false);
+        if (pendingEntries.isEmpty()) {
+            return;
+        }
+        Map<String, IpHistoryEntry> entries = new HashMap<>(pendingEntries);
+        hasFlushFailed = !dataSource.saveIpHistory(entries.values());
+        if (hasFlushFailed) {
+            // Keep the entries, which are still returned by lookups, and try again later
+            if (isFlushScheduled.compareAndSet(false, true)) {
+                scheduleFlush(FLUSH_INTERVAL_SECONDS);
+            }
+            return;
+        }
+        // Only remove the entries which have not been replaced in the meantime
+        entries.forEach(pendingEntries::remove);
+        invalidateLookups(entries.values());
+    }
+
+    private void scheduleFlush(long delaySeconds) {
+        try {
+            executor.schedule(this::flush, delaySeconds, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down: the entries are written by #shutdown
+        }
+    }
+
+    private void invalidateLookups(Collection<IpHistoryEntry> entries) {
+        // Lookups which ran during the write may have missed the entries in both places
+        for (IpHistoryEntry entry : entries) {
+            recentLookups.invalidate(getLookupKey(entry.getAddress()));
+        }
+    }
+
+    private String getLookupKey(byte[] address) {
+        int prefixLength = getPrefixLength(address);
+        return toHex(applyPrefix(address, prefixLength, false)) + '/' + prefixLength;
+    }
+
+    private int getPrefixLength(byte[] address) {
+        if (!groupNetworks) {
+            return ADDRESS_KEY_LENGTH * 8;
+        }
+        return isIpv4Mapped(address) ? IPV4_NETWORK_PREFIX_BITS : IPV6_NETWORK_PREFIX_BITS;
+    }
+
+    private static boolean isIpv4Mapped(byte[] address) {
+        for (int i = 0; i < 10; ++i) {
+            if (address[i] != 0) {
+                return false;
+            }
+        }
+        return address[10] == (byte) 0xFF && address[11] == (byte) 0xFF;
+    }
+
+    /**
+     * Returns the lowest or highest address of the network with the given prefix length.
+     *
+     * @param address the address
+     * @param prefixLength the number of bits which make up the network
+     * @param setHostBits false to return the lowest address of the network, true for the highest address
+     * @return the network's lowest or highest address
+     */
+    private static byte[] applyPrefix(byte[] address, int prefixLength, boolean setHostBits) {
+        byte[] result = address.clone();
+        for (int i = 0; i < result.length; ++i) {
+            int networkBits = Math.max(0, Math.min(8, prefixLength - i * 8));
+            int hostMask = 0xFF >>> networkBits;
+            result[i] = (byte) (setHostBits ? result[i] | hostMask : result[i] & ~hostMask);
+        }
+        return result;
+    }
+
+    private static String toHex(byte[] bytes) {
+        return BaseEncoding.base16().encode(bytes);
+    }
+}
@@ -0,0 +1,105 @@
+package fr.xephi.authme.service;
+
+import com.google.common.net.InetAddresses;
+
+import java.net.InetAddress;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled rule restricting from where a player may join, as configured in
+ * {@link fr.xephi.authme.settings.properties.RestrictionSettings#RESTRICTED_USERS}.
+ * <p>
+ * A rule is either a regular expression (prefixed with "regex:"), a network in CIDR notation such as
+ * "192.168.0.0/16", or a pattern in which "*" stands for any text. Patterns and regular expressions are
+ * matched against the player's IP address and host name.
+ */
+final class NameRestriction {
+
+    private static final String REGEX_PREFIX = "regex:";
+
+    private final Pattern pattern;
+    private final byte[] network;
+    private final int prefixLength;
+    private final boolean matchesHostNames;
+
+    private NameRestriction(Pattern pattern, byte[] network, int prefixLength, boolean matchesHostNames) {
+        this.pattern = pattern;
+        this.network = network;
+        this.prefixLength = prefixLength;
+        this.matchesHostNames = matchesHostNames;
+    }
+
+    /**
+     * Compiles the given rule.
+     *
+     * @param rule the rule to compile (the part after the player name)
+     * @return the compiled rule
+     * @throws IllegalArgumentException if the rule is not valid
+     */
+    static NameRestriction compile(String rule) {
+        if (rule.startsWith(REGEX_PREFIX)) {
+            return new NameRestriction(Pattern.compile(rule.substring(REGEX_PREFIX.length())), null, 0, true);
+        }
+
+        int slashIndex = rule.indexOf('/');
+        if (slashIndex > 0 && InetAddresses.isInetAddress(rule.substring(0, slashIndex))) {
+            byte[] network = InetAddresses.forString(rule.substring(0, slashIndex)).getAddress();
+            int prefixLength = Integer.parseInt(rule.substring(slashIndex + 1));
+            if (prefixLength < 0 || prefixLength > network.length * 8) {
+                throw new IllegalArgumentException("Invalid network prefix length in '" + rule + "'");
+            }
+            return new NameRestriction(null, network, prefixLength, false);
+        }
+
+        // Same conversion as before rules were compiled: "*" matches anything, other characters are kept as-is
+        boolean hasLetters = rule.chars().anyMatch(Character::isLetter);
+        return new NameRestriction(Pattern.compile(rule.replace("*", "(.*)")), null, 0, hasLetters);
+    }
+
+    /**
+     * @return true if the rule may match host names, i.e. if the player's host name needs to be looked up
+     *         when the IP address doesn't match
+     */
+    boolean matchesHostNames() {
+        return matchesHostNames;
+    }
+
+    /**
+     * Returns whether the rule matches the given IP address.
+     *
+     * @param address the address
+     * @param ip the textual representation of the address
+     * @return true if the rule matches, false otherwise
+     */
+    boolean matchesIp(InetAddress address, String ip) {
+        if (pattern != null) {
+            return pattern.matcher(ip).matches();
+        }
+        byte[] bytes = address.getAddress();
+        if (bytes.length != network.length) {
+            return false;
+        }
+        int fullBytes = prefixLength / 8;
+        for (int i = 0; i < fullBytes; ++i) {
+            if (bytes[i] != network[i]) {
+                return false;
+            }
+        }
+        int remainingBits = prefixLength % 8;
+        if (remainingBits == 0) {
+            return true;
+        }
+        int mask = (0xFF << (8 - remainingBits)) & 0xFF;
+        return (bytes[fullBytes] & mask) == (network[fullBytes] & mask);
+    }
+
+    /**
+     * Returns whether the rule matches the given host name.
+     *
+     * @param hostName the host name
+     * @return true if the rule matches, false otherwise
+     */
+    boolean matchesHostName(String hostName) {
+        return pattern != null && pattern.matcher(hostName).matches();
+    }
+}
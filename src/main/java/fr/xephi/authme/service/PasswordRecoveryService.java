@@ -10,6 +10,8 @@ import fr.xephi.authme.message.Messages;
 import fr.xephi.authme.output.ConsoleLoggerFactory;
 import fr.xephi.authme.security.PasswordSecurity;
 import fr.xephi.authme.security.crypts.HashedPassword;
+import fr.xephi.authme.service.bungeecord.BungeeSender;
+import fr.xephi.authme.service.bungeecord.MessageType;
 import fr.xephi.authme.settings.Settings;
 import fr.xephi.authme.settings.properties.PluginSettings;
 import fr.xephi.authme.settings.properties.SecuritySettings;
@@ -57,6 +59,9 @@ public class PasswordRecoveryService implements Reloadable, HasCleanup {
     @Inject
     private Messages messages;
 
+    @Inject
+    private BungeeSender bungeeSender;
+
     private ExpiringSet<String> emailCooldown;
     private ExpiringMap<String, String> successfulRecovers;
 
@@ -112,6 +117,7 @@ public class PasswordRecoveryService implements Reloadable, HasCleanup {
         logger.info("Generating new password for '" + name + "'");
 
         dataSource.updatePassword(name, hashNew);
+        bungeeSender.sendCacheUpdate(MessageType.REFRESH_PASSWORD, name);
         boolean couldSendMail = emailService.sendPasswordMail(name, email, thePass, null, dateFormat.format(date), false);
         if (couldSendMail) {
             commonService.send(player, MessageKey.RECOVERY_EMAIL_SENT_MESSAGE);
@@ -2,6 +2,7 @@ package fr.xephi.authme.service;
 
 import fr.xephi.authme.ConsoleLogger;
 import fr.xephi.authme.data.auth.PlayerAuth;
+import fr.xephi.authme.data.join.JoinContext;
 import fr.xephi.authme.datasource.DataSource;
 import fr.xephi.authme.events.RestoreSessionEvent;
 import fr.xephi.authme.initialization.Reloadable;
@@ -42,18 +43,38 @@ public class SessionService implements Reloadable {
      * @return true if there is a current session, false otherwise
      */
     public boolean canResumeSession(Player player) {
+        return canResumeSession(player, null);
+    }
+
+    /**
+     * Returns whether the player has a session he can resume, using the data of the given
+     * join context instead of querying the database if available.
+     *
+     * @param player the player to check
+     * @param context the join context of the player, or null to query the database
+     * @return true if there is a current session, false otherwise
+     */
+    public boolean canResumeSession(Player player, JoinContext context) {
+        if (!isEnabled || (context != null && !context.hasSession())) {
+            return false;
+        }
+
         final String name = player.getName();
-        if (isEnabled && database.hasSession(name)) {
+        long now = System.currentTimeMillis();
+        long timeout = service.getProperty(PluginSettings.SESSIONS_TIMEOUT) * MILLIS_PER_MINUTE;
+        // Checks and revokes a valid session in one statement, so only one server can resume it
+        if (database.consumeSession(name, PlayerUtils.getPlayerIp(player), now - timeout, now)) {
+            RestoreSessionEvent event = bukkitService.createAndCallEvent(
+                isAsync -> new RestoreSessionEvent(player, isAsync));
+            return !event.isCancelled();
+        }
+
+        // No valid session: revoke any leftover session and inform the player if his IP is the reason
+        if (context != null || database.hasSession(name)) {
             database.setUnlogged(name);
             database.revokeSession(name);
-            PlayerAuth auth = database.getAuth(name);
-
-            SessionState state = fetchSessionStatus(auth, player);
-            if (state.equals(SessionState.VALID)) {
-                RestoreSessionEvent event = bukkitService.createAndCallEvent(
-                    isAsync -> new RestoreSessionEvent(player, isAsync));
-                return !event.isCancelled();
-            } else if (state.equals(SessionState.IP_CHANGED)) {
+            PlayerAuth auth = context == null ? database.getAuth(name) : context.getAuth();
+            if (fetchSessionStatus(auth, player) == SessionState.IP_CHANGED) {
                 service.send(player, MessageKey.SESSION_EXPIRED);
             }
         }
@@ -1,7 +1,6 @@
 package fr.xephi.authme.service;
 
 import ch.jalu.configme.properties.Property;
-import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import fr.xephi.authme.ConsoleLogger;
@@ -11,19 +10,20 @@ import fr.xephi.authme.message.MessageKey;
 import fr.xephi.authme.output.ConsoleLoggerFactory;
 import fr.xephi.authme.permission.PermissionsManager;
 import fr.xephi.authme.permission.PlayerStatePermission;
+import fr.xephi.authme.security.PasswordBlocklist;
+import fr.xephi.authme.settings.RestrictionSnapshotHolder;
 import fr.xephi.authme.settings.Settings;
 import fr.xephi.authme.settings.properties.EmailSettings;
 import fr.xephi.authme.settings.properties.ProtectionSettings;
 import fr.xephi.authme.settings.properties.RestrictionSettings;
 import fr.xephi.authme.settings.properties.SecuritySettings;
-import fr.xephi.authme.util.PlayerUtils;
 import fr.xephi.authme.util.Utils;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
-import java.net.InetSocketAddress;
+import java.net.InetAddress;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
@@ -36,7 +36,10 @@ import static fr.xephi.authme.util.StringUtils.isInsideString;
  * Validation service.
  */
 public class ValidationService implements Reloadable {
-    
+
+    /** Maximum time to wait for the host name of a player when checking the name restrictions. */
+    private static final long HOST_NAME_LOOKUP_TIMEOUT_MILLIS = 2000;
+
     private final ConsoleLogger logger = ConsoleLoggerFactory.get(ValidationService.class);
 
     @Inject
@@ -47,10 +50,16 @@ public class ValidationService implements Reloadable {
     private PermissionsManager permissionsManager;
     @Inject
     private GeoIpService geoIpService;
+    @Inject
+    private RestrictionSnapshotHolder restrictions;
+    @Inject
+    private HostNameResolver hostNameResolver;
+    @Inject
+    private PasswordBlocklist passwordBlocklist;
 
     private Pattern emailRegex;
     private Pattern passwordRegex;
-    private Multimap<String, String> restrictedNames;
+    private Multimap<String, NameRestriction> restrictedNames;
 
     ValidationService() {
     }
@@ -81,7 +90,8 @@ public class ValidationService implements Reloadable {
         } else if (password.length() < settings.getProperty(SecuritySettings.MIN_PASSWORD_LENGTH)
             || password.length() > settings.getProperty(SecuritySettings.MAX_PASSWORD_LENGTH)) {
             return new ValidationResult(MessageKey.INVALID_PASSWORD_LENGTH);
-        } else if (settings.getProperty(SecuritySettings.UNSAFE_PASSWORDS).contains(passLow)) {
+        } else if (settings.getProperty(SecuritySettings.UNSAFE_PASSWORDS).contains(passLow)
+            || passwordBlocklist.contains(password)) {
             return new ValidationResult(MessageKey.PASSWORD_UNSAFE_ERROR);
         }
         return new ValidationResult();
@@ -138,7 +148,8 @@ public class ValidationService implements Reloadable {
      * @return true if unrestricted, false otherwise
      */
     public boolean isUnrestricted(String name) {
-        return settings.getProperty(RestrictionSettings.UNRESTRICTED_NAMES).contains(name.toLowerCase(Locale.ROOT));
+        Set<String> unrestrictedNames = restrictions.get().getUnrestrictedNames();
+        return !unrestrictedNames.isEmpty() && unrestrictedNames.contains(name.toLowerCase(Locale.ROOT));
     }
 
     /**
@@ -148,32 +159,51 @@ public class ValidationService implements Reloadable {
      * @return true if the player may join, false if the player does not satisfy the name restrictions
      */
     public boolean fulfillsNameRestrictions(Player player) {
-        Collection<String> restrictions = restrictedNames.get(player.getName().toLowerCase(Locale.ROOT));
+        Collection<NameRestriction> restrictions = restrictedNames.get(player.getName().toLowerCase(Locale.ROOT));
         if (Utils.isCollectionEmpty(restrictions)) {
             return true;
         }
 
-        String ip = PlayerUtils.getPlayerIp(player);
-        String domain = getHostName(player.getAddress());
-        for (String restriction : restrictions) {
-            if (restriction.startsWith("regex:")) {
-                restriction = restriction.replace("regex:", "");
-            } else {
-                restriction = restriction.replace("*", "(.*)");
-            }
-            if (ip.matches(restriction)) {
+        InetAddress address = player.getAddress().getAddress();
+        String ip = address.getHostAddress();
+        boolean needsHostName = false;
+        for (NameRestriction restriction : restrictions) {
+            if (restriction.matchesIp(address, ip)) {
                 return true;
             }
-            if (domain.matches(restriction)) {
+            needsHostName |= restriction.matchesHostNames();
+        }
+        if (!needsHostName) {
+            return false;
+        }
+
+        String hostName = hostNameResolver.getHostName(address, HOST_NAME_LOOKUP_TIMEOUT_MILLIS);
+        if (hostName == null) {
+            logger.info("Could not look up the host name of " + player.getName() + " (" + ip
+                + ") in time to check the name restrictions");
+            return false;
+        }
+        for (NameRestriction restriction : restrictions) {
+            if (restriction.matchesHostName(hostName)) {
                 return true;
             }
         }
         return false;
     }
 
-    @VisibleForTesting
-    protected String getHostName(InetSocketAddress inetSocketAddr) {
-        return inetSocketAddr.getHostName();
+    /**
+     * Starts looking up the host name of a joining player if the player's name restrictions need it,
+     * so that the result is available by the time {@link #fulfillsNameRestrictions} is called.
+     *
+     * @param name the name of the player
+     * @param address the address of the player
+     */
+    public void prefetchHostNameForRestrictions(String name, InetAddress address) {
+        Collection<NameRestriction> restrictions = restrictedNames.get(name.toLowerCase(Locale.ROOT));
+        if (!Utils.isCollectionEmpty(restrictions)
+            && restrictions.stream().anyMatch(NameRestriction::matchesHostNames)) {
+            hostNameResolver.resolve(address);
+        }
     }
 
     /**
@@ -206,17 +236,21 @@ public class ValidationService implements Reloadable {
     }
 
     /**
-     * Loads the configured name restrictions into a Multimap by player name (all-lowercase).
+     * Loads and compiles the configured name restrictions into a Multimap by player name (all-lowercase).
      *
      * @param configuredRestrictions the restriction rules to convert to a map
      * @return map of allowed IPs/domain names by player name
      */
-    private Multimap<String, String> loadNameRestrictions(Set<String> configuredRestrictions) {
-        Multimap<String, String> restrictions = HashMultimap.create();
+    private Multimap<String, NameRestriction> loadNameRestrictions(Set<String> configuredRestrictions) {
+        Multimap<String, NameRestriction> restrictions = HashMultimap.create();
         for (String restriction : configuredRestrictions) {
             if (isInsideString(';', restriction)) {
                 String[] data = restriction.split(";");
-                restrictions.put(data[0].toLowerCase(Locale.ROOT), data[1]);
+                try {
+                    restrictions.put(data[0].toLowerCase(Locale.ROOT), NameRestriction.compile(data[1]));
+                } catch (IllegalArgumentException e) {
+                    logger.warning("Invalid restricted user rule '" + restriction + "': " + e.getMessage());
+                }
             } else {
                 logger.warning("Restricted user rule must have a ';' separating name from restriction,"
                     + " but found: '" + restriction + "'");
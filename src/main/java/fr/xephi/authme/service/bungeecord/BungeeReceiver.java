@@ -5,6 +5,7 @@ import com.google.common.io.ByteStreams;
 import fr.xephi.authme.AuthMe;
 import fr.xephi.authme.ConsoleLogger;
 import fr.xephi.authme.data.ProxySessionManager;
+import fr.xephi.authme.datasource.DataSource;
 import fr.xephi.authme.initialization.SettingsDependent;
 import fr.xephi.authme.output.ConsoleLoggerFactory;
 import fr.xephi.authme.process.Management;
@@ -26,16 +27,18 @@ public class BungeeReceiver implements PluginMessageListener, SettingsDependent
     private final BukkitService bukkitService;
     private final ProxySessionManager proxySessionManager;
     private final Management management;
+    private final DataSource dataSource;
 
     private boolean isEnabled;
 
     @Inject
     BungeeReceiver(AuthMe plugin, BukkitService bukkitService, ProxySessionManager proxySessionManager,
-                   Management management, Settings settings) {
+                   Management management, DataSource dataSource, Settings settings) {
         this.plugin = plugin;
         this.bukkitService = bukkitService;
         this.proxySessionManager = proxySessionManager;
         this.management = management;
+        this.dataSource = dataSource;
         reload(settings);
     }
 
@@ -85,9 +88,16 @@ public class BungeeReceiver implements PluginMessageListener, SettingsDependent
 
         // Handle type
         switch (type.get()) {
-            case LOGIN:
-            case LOGOUT:
-                // TODO: unused
+            case UNREGISTER:
+                dataSource.invalidateCache(argument);
+                break;
+            case REFRESH_PASSWORD:
+            case REFRESH_SESSION:
+            case REFRESH_QUITLOC:
+            case REFRESH_EMAIL:
+            case REFRESH_TOTP:
+            case REFRESH:
+                dataSource.refreshCache(argument);
                 break;
             default:
         }
@@ -4,6 +4,7 @@ import com.google.common.io.ByteArrayDataOutput;
 import com.google.common.io.ByteStreams;
 import fr.xephi.authme.AuthMe;
 import fr.xephi.authme.ConsoleLogger;
+import fr.xephi.authme.datasource.DataSource;
 import fr.xephi.authme.initialization.SettingsDependent;
 import fr.xephi.authme.output.ConsoleLoggerFactory;
 import fr.xephi.authme.service.BukkitService;
@@ -13,13 +14,21 @@ import org.bukkit.entity.Player;
 import org.bukkit.plugin.messaging.Messenger;
 
 import javax.inject.Inject;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
 
 public class BungeeSender implements SettingsDependent {
 
     private final ConsoleLogger logger = ConsoleLoggerFactory.get(BungeeSender.class);
     private final AuthMe plugin;
     private final BukkitService bukkitService;
+    private final DataSource dataSource;
+
+    /** Cache updates waiting to be sent on the next tick, by player name. */
+    private final Map<String, MessageType> pendingCacheUpdates = new LinkedHashMap<>();
+    private boolean isFlushScheduled;
 
     private boolean isEnabled;
     private String destinationServerOnLogin;
@@ -28,9 +37,10 @@ public class BungeeSender implements SettingsDependent {
      * Constructor.
      */
     @Inject
-    BungeeSender(AuthMe plugin, BukkitService bukkitService, Settings settings) {
+    BungeeSender(AuthMe plugin, BukkitService bukkitService, DataSource dataSource, Settings settings) {
         this.plugin = plugin;
         this.bukkitService = bukkitService;
+        this.dataSource = dataSource;
         reload(settings);
     }
 
@@ -110,4 +120,58 @@ public class BungeeSender implements SettingsDependent {
         }
     }
 
+    /**
+     * Broadcasts a cache update for the given player name to the other servers of the network. Nothing is sent
+     * if bungeecord is disabled or if the data source is not cached.
+     * <p>
+     * Updates are coalesced per player and sent on the next tick through the connection of any online player,
+     * so the player the update is about does not need to be online (e.g. for admin commands).
+     *
+     * @param type       The cache update type, see {@link MessageType#isRequiresCache()}
+     * @param playerName The name of the player whose data has changed
+     */
+    public void sendCacheUpdate(MessageType type, String playerName) {
+        if (!isEnabled || !dataSource.isCached()) {
+            return;
+        }
+        if (!type.isRequiresCache()) {
+            throw new IllegalArgumentException("Message type " + type + " is not a cache update");
+        }
+        if (!plugin.isEnabled()) {
+            logger.debug("Tried to send a " + type + " bungeecord message but the plugin was disabled!");
+            return;
+        }
+
+        synchronized (pendingCacheUpdates) {
+            // Different kinds of changes for the same player within a tick are merged into a full refresh, which
+            // reloads the account as it is now, including if it was removed
+            pendingCacheUpdates.merge(playerName.toLowerCase(Locale.ROOT), type,
+                (previous, current) -> previous == current ? current : MessageType.REFRESH);
+            if (isFlushScheduled) {
+                return;
+            }
+            isFlushScheduled = true;
+        }
+        bukkitService.runTaskLater(null, task -> flushCacheUpdates(), 1L);
+    }
+
+    private void flushCacheUpdates() {
+        Map<String, MessageType> updates;
+        synchronized (pendingCacheUpdates) {
+            updates = new LinkedHashMap<>(pendingCacheUpdates);
+            pendingCacheUpdates.clear();
+            isFlushScheduled = false;
+        }
+
+        Iterator<Player> onlinePlayers = bukkitService.getOnlinePlayers().iterator();
+        if (!onlinePlayers.hasNext()) {
+            logger.debug("Dropped {0} cache update(s): no player online to send them through", updates.size());
+            return;
+        }
+        Player carrier = onlinePlayers.next();
+        for (Map.Entry<String, MessageType> update : updates.entrySet()) {
+            sendForwardedBungeecordMessage(carrier, "AuthMe.v2.Broadcast", update.getValue().getId(), update.getKey());
+        }
+    }
+
 }
@@ -5,14 +5,27 @@ import java.util.Optional;
 public enum MessageType {
     LOGIN("login", true),
     LOGOUT("logout", true),
-    PERFORM_LOGIN("perform.login", false);
+    PERFORM_LOGIN("perform.login", false),
+    UNREGISTER("unregister", true, true),
+    REFRESH_PASSWORD("refresh.password", true, true),
+    REFRESH_SESSION("refresh.session", true, true),
+    REFRESH_QUITLOC("refresh.quitloc", true, true),
+    REFRESH_EMAIL("refresh.email", true, true),
+    REFRESH_TOTP("refresh.totp", true, true),
+    REFRESH("refresh", true, true);
 
     private final String id;
     private final boolean broadcast;
+    private final boolean requiresCache;
 
     MessageType(String id, boolean broadcast) {
+        this(id, broadcast, false);
+    }
+
+    MessageType(String id, boolean broadcast, boolean requiresCache) {
         this.id = id;
         this.broadcast = broadcast;
+        this.requiresCache = requiresCache;
     }
 
     public String getId() {
@@ -23,6 +36,16 @@ public enum MessageType {
         return broadcast;
     }
 
+    /**
+     * Returns whether the message is only relevant to servers using a cached data source,
+     * i.e. it is a cache invalidation or refresh notification.
+     *
+     * @return true if the message is a cache update
+     */
+    public boolean isRequiresCache() {
+        return requiresCache;
+    }
+
     /**
      * Returns the MessageType with the given ID.
      *
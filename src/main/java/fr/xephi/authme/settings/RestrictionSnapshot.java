@@ -0,0 +1,115 @@
+package fr.xephi.authme.settings;
+
+import com.google.common.collect.ImmutableSet;
+import fr.xephi.authme.settings.properties.HooksSettings;
+import fr.xephi.authme.settings.properties.RestrictionSettings;
+
+import java.util.Set;
+
+/**
+ * Immutable copy of the settings which are checked on frequent events, such as player movements,
+ * commands and chat messages. Lists are kept as hash sets and numbers as primitives, so that
+ * reading them does not involve any lookup in the configuration.
+ *
+ * @see RestrictionSnapshotHolder
+ */
+public final class RestrictionSnapshot {
+
+    private final boolean allowUnauthedMovement;
+    private final int allowedMovementRadius;
+    private final double allowedMovementRadiusSquared;
+    private final boolean noTeleport;
+    private final boolean cancelAllTeleports;
+    private final boolean allowChat;
+    private final boolean hideChat;
+    private final boolean useEssentialsMotd;
+    private final Set<String> allowedCommands;
+    private final Set<String> unrestrictedNames;
+    private final Set<String> unrestrictedInventories;
+
+    private RestrictionSnapshot(Settings settings) {
+        allowUnauthedMovement = settings.getProperty(RestrictionSettings.ALLOW_UNAUTHED_MOVEMENT);
+        allowedMovementRadius = settings.getProperty(RestrictionSettings.ALLOWED_MOVEMENT_RADIUS);
+        allowedMovementRadiusSquared = (double) allowedMovementRadius * allowedMovementRadius;
+        noTeleport = settings.getProperty(RestrictionSettings.NO_TELEPORT);
+        cancelAllTeleports = settings.getProperty(RestrictionSettings.CANCEL_ALL_TELEPORT);
+        allowChat = settings.getProperty(RestrictionSettings.ALLOW_CHAT);
+        hideChat = settings.getProperty(RestrictionSettings.HIDE_CHAT);
+        useEssentialsMotd = settings.getProperty(HooksSettings.USE_ESSENTIALS_MOTD);
+        allowedCommands = ImmutableSet.copyOf(settings.getProperty(RestrictionSettings.ALLOW_COMMANDS));
+        unrestrictedNames = ImmutableSet.copyOf(settings.getProperty(RestrictionSettings.UNRESTRICTED_NAMES));
+        unrestrictedInventories =
+            ImmutableSet.copyOf(settings.getProperty(RestrictionSettings.UNRESTRICTED_INVENTORIES));
+    }
+
+    /**
+     * Creates a snapshot of the current values of the given settings.
+     *
+     * @param settings the settings to read
+     * @return the created snapshot
+     */
+    public static RestrictionSnapshot of(Settings settings) {
+        return new RestrictionSnapshot(settings);
+    }
+
+    /**
+     * @return true if unauthenticated players may move freely, i.e. movement is allowed without a radius
+     */
+    public boolean isMovementUnrestricted() {
+        return allowUnauthedMovement && allowedMovementRadius <= 0;
+    }
+
+    public boolean isAllowUnauthedMovement() {
+        return allowUnauthedMovement;
+    }
+
+    /**
+     * @return the square of the allowed movement radius, to be compared with squared distances
+     */
+    public double getAllowedMovementRadiusSquared() {
+        return allowedMovementRadiusSquared;
+    }
+
+    public boolean isNoTeleport() {
+        return noTeleport;
+    }
+
+    public boolean isCancelAllTeleports() {
+        return cancelAllTeleports;
+    }
+
+    public boolean isAllowChat() {
+        return allowChat;
+    }
+
+    public boolean isHideChat() {
+        return hideChat;
+    }
+
+    public boolean isUseEssentialsMotd() {
+        return useEssentialsMotd;
+    }
+
+    /**
+     * @param command the lowercase command label, including the slash
+     * @return true if unauthenticated players may use the command
+     */
+    public boolean isCommandAllowed(String command) {
+        return allowedCommands.contains(command);
+    }
+
+    /**
+     * @return the lowercase names of the players which do not need to authenticate
+     */
+    public Set<String> getUnrestrictedNames() {
+        return unrestrictedNames;
+    }
+
+    /**
+     * @param title the lowercase title of the inventory, without colors
+     * @return true if unauthenticated players may open the inventory
+     */
+    public boolean isInventoryUnrestricted(String title) {
+        return unrestrictedInventories.contains(title);
+    }
+}
@@ -0,0 +1,31 @@
+package fr.xephi.authme.settings;
+
+import fr.xephi.authme.initialization.SettingsDependent;
+
+import javax.inject.Inject;
+
+/**
+ * Publishes the current {@link RestrictionSnapshot}. A new snapshot is created whenever the settings are
+ * reloaded, so readers always see a complete and consistent set of values.
+ */
+public class RestrictionSnapshotHolder implements SettingsDependent {
+
+    private volatile RestrictionSnapshot snapshot;
+
+    @Inject
+    RestrictionSnapshotHolder(Settings settings) {
+        reload(settings);
+    }
+
+    /**
+     * @return the snapshot of the current settings
+     */
+    public RestrictionSnapshot get() {
+        return snapshot;
+    }
+
+    @Override
+    public void reload(Settings settings) {
+        snapshot = RestrictionSnapshot.of(settings);
+    }
+}
@@ -20,9 +20,10 @@ public final class BackupSettings implements SettingsHolder {
     public static final Property<Boolean> ON_SERVER_STOP =
         newProperty("BackupSystem.OnServerStop", true);
 
-    @Comment("Windows only: MySQL installation path")
-    public static final Property<String> MYSQL_WINDOWS_PATH =
-        newProperty("BackupSystem.MysqlWindowsPath", "C:\\Program Files\\MySQL\\MySQL Server 5.1\\");
+    @Comment({"Number of backups to keep: the oldest backups made by AuthMe are deleted when a new one",
+        "is made. Set to 0 to keep all backups"})
+    public static final Property<Integer> MAX_BACKUPS =
+        newProperty("BackupSystem.maxBackups", 0);
 
     private BackupSettings() {
     }
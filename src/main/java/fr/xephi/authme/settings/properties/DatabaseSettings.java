@@ -14,11 +14,37 @@ public final class DatabaseSettings implements SettingsHolder {
     public static final Property<DataSourceType> BACKEND =
         newProperty(DataSourceType.class, "DataSource.backend", DataSourceType.SQLITE);
 
-    @Comment({"Enable the database caching system, should be disabled on bungeecord environments",
-        "or when a website integration is being used."})
+    @Comment({"Enable the database caching system. On bungeecord environments, changes are broadcast to the",
+        "other servers if Hooks.bungeecord is enabled, so all servers must enable caching together.",
+        "Should be disabled when a website integration is being used."})
     public static final Property<Boolean> USE_CACHING =
         newProperty("DataSource.caching", true);
 
+    @Comment({"Maximum number of accounts kept in the cache (if caching is enabled).",
+        "The least recently used accounts are evicted when the limit is reached."})
+    public static final Property<Integer> CACHE_MAXIMUM_SIZE =
+        newProperty("DataSource.cacheMaximumSize", 10000);
+
+    @Comment({"Number of seconds a lookup of an unregistered name is cached for (if caching is enabled).",
+        "Kept short so that bot names do not fill up the cache."})
+    public static final Property<Integer> CACHE_UNKNOWN_NAME_EXPIRATION =
+        newProperty("DataSource.cacheUnknownNameExpiration", 30);
+
+    @Comment("Number of threads refreshing cached accounts in the background (if caching is enabled)")
+    public static final Property<Integer> CACHE_REFRESH_THREADS =
+        newProperty("DataSource.cacheRefreshThreads", 2);
+
+    @Comment({"Number of threads making the database calls of the join, login and register processes.",
+        "Limits how many of these calls run at the same time; should not exceed DataSource.poolSize.",
+        "Not used if the calls run on virtual threads (settings.useVirtualThreads)"})
+    public static final Property<Integer> DATA_SOURCE_IO_THREADS =
+        newProperty("DataSource.ioThreads", 8);
+
+    @Comment({"Data source calls taking longer than this many milliseconds are logged as a warning.",
+        "Set to 0 to disable. The timings of all calls can be seen with /authme debug dbstats"})
+    public static final Property<Integer> SLOW_CALL_THRESHOLD =
+        newProperty("DataSource.slowCallThresholdMillis", 250);
+
     @Comment("Database host address")
     public static final Property<String> MYSQL_HOST =
         newProperty("DataSource.mySQLHost", "127.0.0.1");
@@ -58,6 +84,21 @@ public final class DatabaseSettings implements SettingsHolder {
     public static final Property<String> MYSQL_TABLE =
         newProperty("DataSource.mySQLTablename", "authme");
 
+    @Comment({"Keep the IP addresses used by each account in a separate table, so that other accounts",
+        "of a player are found even after they changed their IP address.",
+        "When the table is created, it is filled with the last IP and registration IP of all accounts."})
+    public static final Property<Boolean> USE_IP_HISTORY =
+        newProperty("DataSource.ipHistory", false);
+
+    @Comment("Table of the IP history")
+    public static final Property<String> IP_HISTORY_TABLE =
+        newProperty("DataSource.ipHistoryTablename", "authme_ip_history");
+
+    @Comment({"If the IP history is enabled, also consider accounts to belong to the same player if they",
+        "have used an address in the same IPv4 /24 or IPv6 /64 network"})
+    public static final Property<Boolean> IP_HISTORY_GROUP_NETWORKS =
+        newProperty("DataSource.ipHistoryGroupNetworks", false);
+
     @Comment("Column of IDs to sort data")
     public static final Property<String> MYSQL_COL_ID =
         newProperty("DataSource.mySQLColumnId", "id");
@@ -75,6 +75,21 @@ public final class EmailSettings implements SettingsHolder {
     public static final Property<String> OAUTH2_TOKEN =
         newProperty("Email.emailOauth2Token", "");
 
+    @Comment({"Number of connections to the SMTP server used to send the queued emails.",
+        "Connections are kept open and reused while there are emails to send."})
+    public static final Property<Integer> MAIL_QUEUE_WORKERS =
+        newProperty("Email.queue.workers", 2);
+
+    @Comment({"How many times an email is tried to be sent before it is dropped.",
+        "The time between two attempts doubles after each failure."})
+    public static final Property<Integer> MAIL_QUEUE_MAX_ATTEMPTS =
+        newProperty("Email.queue.maxAttempts", 5);
+
+    @Comment({"Minimum time in seconds between two emails to the same address.",
+        "Emails sent in quicker succession are delayed, not dropped."})
+    public static final Property<Integer> MAIL_QUEUE_RECIPIENT_INTERVAL =
+        newProperty("Email.queue.recipientIntervalSeconds", 5);
+
     @Comment("Email notifications when the server shuts down")
     public static final Property<Boolean> SHUTDOWN_MAIL =
         newProperty("Email.shutDownEmail", false);
@@ -73,6 +73,15 @@ public final class PluginSettings implements SettingsHolder {
     public static final Property<Boolean> FORCE_VAULT_HOOK =
         newProperty("settings.forceVaultHook", false);
 
+    @Comment({
+        "Number of seconds for which the results of the player state permission checks made on",
+        "join and login (e.g. authme.bypassantibot) are reused. Command permissions are never cached.",
+        "The results are discarded earlier when LuckPerms reports a change, when AuthMe changes",
+        "the player's groups and when the player leaves. 0 to disable."
+    })
+    public static final Property<Integer> PERMISSION_CACHE_SECONDS =
+        newProperty("settings.permissionCacheSeconds", 10);
+
     @Comment({
         "Log level: INFO, FINE, DEBUG. Use INFO for general messages,",
         "FINE for some additional detailed ones (like password failed),",
@@ -88,6 +97,15 @@ public final class PluginSettings implements SettingsHolder {
     public static final Property<Boolean> USE_ASYNC_TASKS =
         newProperty("settings.useAsyncTasks", true);
 
+    @Comment({
+        "On Java 21 or newer, run the async tasks and their database calls on virtual threads,",
+        "so that many concurrent logins don't each need a thread. The size of the database",
+        "connection pool still limits the concurrent queries. Ignored on older Java versions.",
+        "Requires a restart"
+    })
+    public static final Property<Boolean> USE_VIRTUAL_THREADS =
+        newProperty("settings.useVirtualThreads", false);
+
     @Comment("The name of the server, used in some placeholders.")
     public static final Property<String> SERVER_NAME = newProperty("settings.serverName", "Your Minecraft Server");
 
@@ -97,6 +115,21 @@ public final class PluginSettings implements SettingsHolder {
     })
     public static final Property<String> DATE_FORMAT = newProperty("settings.dataFormat", "yyyy'年'MM'月'dd'日' HH:mm:ss");
 
+    @Comment({
+        "Serve the metrics shown by /authme metrics over HTTP in the Prometheus text format,",
+        "e.g. at http://127.0.0.1:9225/metrics. Only bind to a public address behind a firewall!"
+    })
+    public static final Property<Boolean> METRICS_EXPORTER_ENABLED =
+        newProperty("settings.metrics.prometheus.enabled", false);
+
+    @Comment("The address the metrics endpoint listens on")
+    public static final Property<String> METRICS_EXPORTER_ADDRESS =
+        newProperty("settings.metrics.prometheus.address", "127.0.0.1");
+
+    @Comment("The port the metrics endpoint listens on")
+    public static final Property<Integer> METRICS_EXPORTER_PORT =
+        newProperty("settings.metrics.prometheus.port", 9225);
+
     private PluginSettings() {
     }
 
@@ -79,10 +79,13 @@ public final class RestrictionSettings implements SettingsHolder {
     @Comment({
         "The restricted user feature will kick players listed below",
         "if they don't match the defined IP address. Names are case-insensitive.",
-        "You can use * as wildcard (127.0.0.*), or regex with a \"regex:\" prefix regex:127\\.0\\.0\\..*",
+        "You can use * as wildcard (127.0.0.*), regex with a \"regex:\" prefix regex:127\\.0\\.0\\..*",
+        "or a network in CIDR notation (192.168.0.0/16). Rules with letters or regex are also",
+        "matched against the player's host name.",
         "Example:",
         "    AllowedRestrictedUser:",
         "    - playername;127.0.0.1",
+        "    - playername;192.168.0.0/16",
         "    - playername;regex:127\\.0\\.0\\..*"})
     public static final Property<Set<String>> RESTRICTED_USERS =
         newLowercaseStringSetProperty("settings.restrictions.AllowedRestrictedUser",
@@ -23,6 +23,24 @@ public final class SecuritySettings implements SettingsHolder {
     public static final Property<Boolean> USE_LOGGING =
         newProperty("Security.console.logConsole", true);
 
+    @Comment({"Maximum number of lines waiting to be written to the log file.",
+        "Lines logged while the buffer is full are dropped and counted."})
+    public static final Property<Integer> LOG_BUFFER_SIZE =
+        newProperty("Security.console.logBufferSize", 8192);
+
+    @Comment("Interval in milliseconds at which buffered lines are written to the log file")
+    public static final Property<Integer> LOG_FLUSH_INTERVAL =
+        newProperty("Security.console.logFlushInterval", 1000);
+
+    @Comment({"Maximum size of the log file in megabytes before it is archived and a new one is started.",
+        "Archived log files are compressed with gzip. 0 to disable."})
+    public static final Property<Integer> LOG_MAX_FILE_SIZE =
+        newProperty("Security.console.logMaxFileSize", 20);
+
+    @Comment("Archive the log file and start a new one every day?")
+    public static final Property<Boolean> LOG_ROTATE_DAILY =
+        newProperty("Security.console.logRotateDaily", false);
+
     @Comment("Enable captcha when a player uses wrong password too many times")
     public static final Property<Boolean> ENABLE_LOGIN_FAILURE_CAPTCHA =
         newProperty("Security.captcha.useCaptcha", false);
@@ -79,6 +97,35 @@ public final class SecuritySettings implements SettingsHolder {
     public static final Property<Integer> PBKDF2_NUMBER_OF_ROUNDS =
         newProperty("settings.security.pbkdf2Rounds", 10000);
 
+    @Comment({
+        "Measure on startup how long BCRYPT, PBKDF2 or ARGON2 take on this machine and choose the highest",
+        "cost which fits the budget below, instead of the configured rounds. The cost is never lowered",
+        "below a safe minimum (BCrypt 10, PBKDF2 10000 rounds, Argon2 2 iterations).",
+        "Servers sharing a database should run on similar hardware, or the hashes are changed back",
+        "and forth by rehashOnCostChange"
+    })
+    public static final Property<Boolean> HASH_COST_CALIBRATION =
+        newProperty("settings.security.hashCostCalibration.enabled", false);
+
+    @Comment("Maximum time in milliseconds a password check may take")
+    public static final Property<Integer> HASH_COST_TARGET_MILLIS =
+        newProperty("settings.security.hashCostCalibration.targetMillis", 250);
+
+    @Comment({
+        "Number of logins per second which must be handled at peak times. Together with the number of",
+        "CPU cores, this limits the time a password check may take. Set to 0 to only use targetMillis"
+    })
+    public static final Property<Integer> HASH_COST_PEAK_LOGINS_PER_SECOND =
+        newProperty("settings.security.hashCostCalibration.peakLoginsPerSecond", 20);
+
+    @Comment({
+        "After a successful login, replace the password hash if it was created with another cost",
+        "than the current one (BCRYPT, PBKDF2, ARGON2), so that all hashes move to the new cost.",
+        "Each such login writes the new hash to the database"
+    })
+    public static final Property<Boolean> REHASH_ON_COST_CHANGE =
+        newProperty("settings.security.rehashOnCostChange", false);
+
     @Comment({"Prevent unsafe passwords from being used; put them in lowercase!",
         "You should always set 'help' as unsafePassword due to possible conflicts.",
         "unsafePasswords:",
@@ -89,6 +136,13 @@ public final class SecuritySettings implements SettingsHolder {
         newLowercaseStringSetProperty("settings.security.unsafePasswords",
             "12345678", "password", "qwertyui", "123456789", "87654321", "1234567890", "asdfghjkl", "zxcvbnm,", "asdfghjk", "12312312", "123123123", "32132132", "321321321");
 
+    @Comment({"File in the AuthMe folder with passwords known from data breaches, which may not be used.",
+        "Create it from a wordlist (one password per line) or a list of SHA-1 hashes (e.g. Pwned Passwords)",
+        "with /authme debug blocklist. Passwords are checked as entered (case-sensitive).",
+        "Nothing is checked if the file does not exist; set to '' to disable"})
+    public static final Property<String> PASSWORD_BLOCKLIST_FILE =
+        newProperty("settings.security.passwordBlocklistFile", "password_blocklist.bin");
+
     @Comment("Tempban a user's IP address if they enter the wrong password too many times")
     public static final Property<Boolean> TEMPBAN_ON_MAX_LOGINS =
         newProperty("Security.tempban.enableTempban", false);
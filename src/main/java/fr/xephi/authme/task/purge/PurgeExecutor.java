@@ -6,6 +6,8 @@ import fr.xephi.authme.output.ConsoleLoggerFactory;
 import fr.xephi.authme.permission.PermissionsManager;
 import fr.xephi.authme.service.BukkitService;
 import fr.xephi.authme.service.PluginHookService;
+import fr.xephi.authme.service.bungeecord.BungeeSender;
+import fr.xephi.authme.service.bungeecord.MessageType;
 import fr.xephi.authme.settings.Settings;
 import fr.xephi.authme.settings.properties.PurgeSettings;
 import org.bukkit.ChatColor;
@@ -44,6 +46,9 @@ public class PurgeExecutor {
     @Inject
     private Server server;
 
+    @Inject
+    private BungeeSender bungeeSender;
+
     PurgeExecutor() {
     }
 
@@ -99,6 +104,7 @@ public class PurgeExecutor {
      */
     synchronized void purgeFromAuthMe(Collection<String> names) {
         dataSource.purgeRecords(names);
+        names.forEach(name -> bungeeSender.sendCacheUpdate(MessageType.UNREGISTER, name));
         //TODO ljacqu 20160717: We shouldn't output namedBanned.size() but the actual total that was deleted
         logger.info(ChatColor.GOLD + "Deleted " + names.size() + " user accounts");
     }
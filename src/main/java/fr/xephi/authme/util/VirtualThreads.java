@@ -0,0 +1,36 @@
+package fr.xephi.authme.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates executors which run each task on a new virtual thread. Virtual threads are only available from
+ * Java 21, while the plugin is built for Java 17, so the API is accessed by reflection.
+ */
+public final class VirtualThreads {
+
+    // Utility class
+    private VirtualThreads() {
+    }
+
+    /**
+     * Creates an executor which starts a virtual thread for each task, if the Java version supports it.
+     *
+     * @param namePrefix prefix of the thread names, followed by a counter
+     * @return the executor, or null if virtual threads are not available
+     */
+    public static ExecutorService newExecutorIfAvailable(String namePrefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                .invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            // Before Java 21, or a preview version without virtual threads enabled
+            return null;
+        }
+    }
+}